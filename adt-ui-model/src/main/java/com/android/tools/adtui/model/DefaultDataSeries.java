@@ -16,12 +16,8 @@
 package com.android.tools.adtui.model;
 
 
-import com.intellij.util.containers.ContainerUtil;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 
 public final class DefaultDataSeries<E> implements DataSeries<E> {
@@ -30,7 +26,7 @@ public final class DefaultDataSeries<E> implements DataSeries<E> {
 
   @NotNull
   private List<SeriesData<E>> getDataSubList(final int fromIndex, final int toIndex) {
-    return IntStream.range(fromIndex, toIndex).mapToObj(index -> mSeriesList.get(index)).collect(Collectors.toList());
+    return new ArrayList<>(mSeriesList.subList(fromIndex, toIndex));
   }
 
   @Override
@@ -76,15 +72,31 @@ public final class DefaultDataSeries<E> implements DataSeries<E> {
   }
 
   public int getNearestXIndex(long x) {
-    int index = Collections.binarySearch(ContainerUtil.map(mSeriesList, data -> data.x), x);
+    // Binary search the x values in place rather than mapping the whole list to x values first.
+    int low = 0;
+    int high = mSeriesList.size() - 1;
+    int index = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midX = mSeriesList.get(mid).x;
+      if (midX < x) {
+        low = mid + 1;
+      }
+      else if (midX > x) {
+        high = mid - 1;
+      }
+      else {
+        index = mid;
+        break;
+      }
+    }
 
     if (index < 0) {
       // No exact match, returns position to the left of the insertion point.
-      // NOTE: binarySearch returns -(insertion point + 1) if not found.
       // Example: Value = 2.5, data = 0,1,2,3,4.
-      //    BinarySearch will return -4 = -(3 + 1) as 3 is the insertion point.
+      //    The insertion point is 3.
       //    Given our usage of the data we want to round down not up as such we step to 1 before the insertion point.
-      index = -index - 2;
+      index = low - 1;
     }
 
     return Math.max(0, Math.min(index, size() - 1));
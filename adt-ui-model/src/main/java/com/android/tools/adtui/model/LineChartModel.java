@@ -29,6 +29,11 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.VisibleForTesting;
 
 public class LineChartModel extends AspectModel<LineChartModel.Aspect> implements Updatable {
+  /**
+   * Number of buckets the series are reduced to when looking for their max. Reduced series keep the max point of every bucket, so the
+   * result is the same as scanning every point.
+   */
+  private static final int Y_MAX_BUCKETS = 1024;
 
   public enum Aspect {
     LINE_CHART
@@ -78,7 +83,7 @@ public class LineChartModel extends AspectModel<LineChartModel.Aspect> implement
       Range range = ranged.getYRange();
       double yMax = -Double.MAX_VALUE;
 
-      List<SeriesData<Long>> seriesList = ranged.getSeries();
+      List<SeriesData<Long>> seriesList = ranged.getReducedSeries(Y_MAX_BUCKETS);
       if (seriesList.isEmpty()) {
         continue;
       }
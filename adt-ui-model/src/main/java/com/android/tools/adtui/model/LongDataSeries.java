@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link DataSeries} of long values stored in growable primitive x and y columns, meant for long streaming series such as the profiler
+ * monitors. X values must be appended in non-decreasing order, which lets range queries binary search the x column directly.
+ * <p>
+ * Appended values never change, so the lists returned by {@link #getDataForRange(Range)} are views over the columns rather than copies.
+ * Callers that only need the raw values can read them through {@link RangeView#getX(int)} and {@link RangeView#getY(int)} without any
+ * allocation per point.
+ * <p>
+ * A {@link MinMaxPyramid} of the y values is maintained as points are added, so {@link #getDataForRange(Range, int)} can return a
+ * reduced version of any range at a cost proportional to the requested resolution, times log n, rather than to the number of points.
+ * <p>
+ * This class supports a single writer with any number of concurrent readers.
+ */
+public final class LongDataSeries implements DataSeries<Long> {
+  private static final int INITIAL_CAPACITY = 16;
+
+  @NotNull private long[] myX = new long[INITIAL_CAPACITY];
+  @NotNull private long[] myY = new long[INITIAL_CAPACITY];
+  @NotNull private final MinMaxPyramid myPyramid = new MinMaxPyramid();
+  // Written after the columns so that readers seeing a size also see the values below it.
+  private volatile int mySize;
+
+  /**
+   * Appends a point to the series, growing the columns if needed.
+   *
+   * @param x must be greater or equal to the x of the last point added.
+   */
+  public void add(long x, long y) {
+    int size = mySize;
+    assert size == 0 || x >= myX[size - 1] : "Points must be added in x order";
+    if (size == myX.length) {
+      int capacity = size + (size >> 1);
+      myX = Arrays.copyOf(myX, capacity);
+      myY = Arrays.copyOf(myY, capacity);
+    }
+    myX[size] = x;
+    myY[size] = y;
+    myPyramid.add(size, myY);
+    mySize = size + 1;
+  }
+
+  public int size() {
+    return mySize;
+  }
+
+  public long getX(int index) {
+    checkIndex(index, mySize);
+    return myX[index];
+  }
+
+  public long getY(int index) {
+    checkIndex(index, mySize);
+    return myY[index];
+  }
+
+  /**
+   * Returns the index of the last point whose x is less or equal to the given value, clamped to the valid indices. This matches
+   * {@link DefaultDataSeries#getNearestXIndex(long)}.
+   */
+  public int getNearestXIndex(long x) {
+    return getNearestXIndex(myX, mySize, x);
+  }
+
+  @Override
+  @NotNull
+  public RangeView getDataForRange(@NotNull Range range) {
+    // Read the size before the columns, see mySize.
+    int size = mySize;
+    long[] xs = myX;
+    long[] ys = myY;
+    if (size == 0 || range.isEmpty()) {
+      return new RangeView(xs, ys, 0, 0);
+    }
+    int fromIndex = getNearestXIndex(xs, size, (long)Math.ceil(range.getMin()));
+    int toIndex = getNearestXIndex(xs, size, (long)Math.floor(range.getMax()));
+    return new RangeView(xs, ys, fromIndex, toIndex + 1);
+  }
+
+  /**
+   * Returns the points of the given range reduced to {@code maxBuckets} buckets of equal x width: when the range has more points than
+   * that, only the first, last, minimum and maximum points of each bucket are kept, in x order. The point before the range returned by
+   * {@link #getDataForRange(Range)} belongs to the first bucket.
+   * <p>
+   * This is meant for rendering, where {@code maxBuckets} is the number of pixels the range is drawn on. Buckets follow x rather than
+   * point indices, so points that are unevenly spaced still get the extremes of the pixel they are drawn on.
+   */
+  @NotNull
+  public List<SeriesData<Long>> getDataForRange(@NotNull Range range, int maxBuckets) {
+    RangeView view = getDataForRange(range);
+    int count = view.size();
+    if (count <= maxBuckets * 4) {
+      return view;
+    }
+    long[] xs = view.myX;
+    long[] ys = view.myY;
+    // Only indices below the size read by getDataForRange(Range) are visited, see MinMaxPyramid.
+    int toIndex = view.myFromIndex + count;
+    double bucketWidth = range.getLength() / maxBuckets;
+    List<SeriesData<Long>> result = new ArrayList<>(maxBuckets * 4);
+    int start = view.myFromIndex;
+    for (int bucket = 1; bucket <= maxBuckets && start < toIndex; bucket++) {
+      int end = bucket == maxBuckets ? toIndex : getFirstIndexAtOrAfter(xs, start, toIndex, range.getMin() + bucketWidth * bucket);
+      if (end > start) {
+        int min = myPyramid.indexOfMin(start, end, ys);
+        int max = myPyramid.indexOfMax(start, end, ys);
+        int last = addPoint(result, xs, ys, start, -1);
+        last = addPoint(result, xs, ys, Math.min(min, max), last);
+        last = addPoint(result, xs, ys, Math.max(min, max), last);
+        addPoint(result, xs, ys, end - 1, last);
+        start = end;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds the point at {@code index} unless it is not after the last one added, and returns the index of the last point added.
+   */
+  private static int addPoint(@NotNull List<SeriesData<Long>> result, @NotNull long[] xs, @NotNull long[] ys, int index, int last) {
+    if (index <= last) {
+      return last;
+    }
+    result.add(new SeriesData<>(xs[index], ys[index]));
+    return index;
+  }
+
+  /**
+   * Returns the index of the first point in [{@code fromIndex}, {@code toIndex}) whose x is greater or equal to {@code x}, or
+   * {@code toIndex} if there is none.
+   */
+  private static int getFirstIndexAtOrAfter(@NotNull long[] xs, int fromIndex, int toIndex, double x) {
+    int low = fromIndex;
+    int high = toIndex;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (xs[mid] < x) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static int getNearestXIndex(@NotNull long[] xs, int size, long x) {
+    int index = Arrays.binarySearch(xs, 0, size, x);
+    if (index < 0) {
+      // No exact match, step to the position before the insertion point, see DefaultDataSeries#getNearestXIndex.
+      index = -index - 2;
+    }
+    return Math.max(0, Math.min(index, size - 1));
+  }
+
+  private static void checkIndex(int index, int size) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  /**
+   * An immutable view over a contiguous range of a {@link LongDataSeries}. It stays valid while more points are added to the series.
+   */
+  public static final class RangeView extends AbstractList<SeriesData<Long>> implements RandomAccess {
+    @NotNull private final long[] myX;
+    @NotNull private final long[] myY;
+    private final int myFromIndex;
+    private final int mySize;
+
+    private RangeView(@NotNull long[] xs, @NotNull long[] ys, int fromIndex, int toIndex) {
+      myX = xs;
+      myY = ys;
+      myFromIndex = fromIndex;
+      mySize = toIndex - fromIndex;
+    }
+
+    @Override
+    public int size() {
+      return mySize;
+    }
+
+    public long getX(int index) {
+      checkIndex(index, mySize);
+      return myX[myFromIndex + index];
+    }
+
+    public long getY(int index) {
+      checkIndex(index, mySize);
+      return myY[myFromIndex + index];
+    }
+
+    @Override
+    @NotNull
+    public SeriesData<Long> get(int index) {
+      return new SeriesData<>(getX(index), getY(index));
+    }
+
+    @Override
+    @NotNull
+    public RangeView subList(int fromIndex, int toIndex) {
+      if (fromIndex < 0 || toIndex > mySize || fromIndex > toIndex) {
+        throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + mySize);
+      }
+      return new RangeView(myX, myY, myFromIndex + fromIndex, myFromIndex + toIndex);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model;
+
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Multi-resolution summary of the y values of a {@link LongDataSeries}. Level k splits the series in buckets of 2^k consecutive points
+ * and keeps the index of the minimum and maximum point of each bucket, the first and last points of a bucket follow from its position.
+ * Levels are updated as points are appended, in O(log n) per point and about 8 bytes per point overall.
+ * <p>
+ * The minimum and maximum of any range of points can then be found in O(log n), by combining the largest complete buckets that fit in
+ * it. Reducing a range to the first, min, max and last points of each pixel, which is the shape {@code DefaultLineChartReducer#reducePath}
+ * keeps, costs O(width * log n) instead of O(points in range).
+ * <p>
+ * Like {@link LongDataSeries}, this class supports a single writer. Readers must only query indices below a size they read from the
+ * owning series after the points were added.
+ */
+final class MinMaxPyramid {
+  private static final int INITIAL_CAPACITY = 8;
+
+  // Element k - 1 holds the buckets of level k, level 0 being the raw points.
+  @NotNull private int[][] myMinIndices = new int[0][];
+  @NotNull private int[][] myMaxIndices = new int[0][];
+
+  /**
+   * Folds the point at {@code index} into every level. Must be called for each index in order, once its y value is in {@code ys}.
+   */
+  void add(int index, @NotNull long[] ys) {
+    if (index > 0 && (index & (index - 1)) == 0) {
+      // The first point of the second bucket of the top level, start a new level whose first bucket covers everything so far.
+      int levels = myMinIndices.length;
+      int[] mins = new int[INITIAL_CAPACITY];
+      int[] maxs = new int[INITIAL_CAPACITY];
+      if (levels > 0) {
+        mins[0] = myMinIndices[levels - 1][0];
+        maxs[0] = myMaxIndices[levels - 1][0];
+      }
+      int[][] newMins = Arrays.copyOf(myMinIndices, levels + 1);
+      int[][] newMaxs = Arrays.copyOf(myMaxIndices, levels + 1);
+      newMins[levels] = mins;
+      newMaxs[levels] = maxs;
+      myMinIndices = newMins;
+      myMaxIndices = newMaxs;
+    }
+
+    long y = ys[index];
+    for (int level = 1; level <= myMinIndices.length; level++) {
+      int bucket = index >> level;
+      int[] mins = myMinIndices[level - 1];
+      int[] maxs = myMaxIndices[level - 1];
+      if (bucket == mins.length) {
+        mins = Arrays.copyOf(mins, mins.length * 2);
+        maxs = Arrays.copyOf(maxs, maxs.length * 2);
+        myMinIndices[level - 1] = mins;
+        myMaxIndices[level - 1] = maxs;
+      }
+      if ((index & ((1 << level) - 1)) == 0) {
+        mins[bucket] = index;
+        maxs[bucket] = index;
+      }
+      else {
+        if (y < ys[mins[bucket]]) {
+          mins[bucket] = index;
+        }
+        if (y >= ys[maxs[bucket]]) {
+          maxs[bucket] = index;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the minimum y in [{@code fromIndex}, {@code toIndex}), combining the largest complete buckets that fit in the
+   * range so that it costs O(log n) whatever the length of the range. {@code toIndex} must not exceed a size read from the owning series.
+   */
+  int indexOfMin(int fromIndex, int toIndex, @NotNull long[] ys) {
+    int[][] minIndices = myMinIndices;
+    int result = fromIndex;
+    for (int index = fromIndex; index < toIndex; ) {
+      int level = getLargestLevel(index, toIndex, minIndices.length);
+      int candidate = level == 0 ? index : minIndices[level - 1][index >> level];
+      if (ys[candidate] < ys[result]) {
+        result = candidate;
+      }
+      index += 1 << level;
+    }
+    return result;
+  }
+
+  /**
+   * Same as {@link #indexOfMin} for the maximum y. Ties resolve to the last index, as when the levels are built.
+   */
+  int indexOfMax(int fromIndex, int toIndex, @NotNull long[] ys) {
+    int[][] maxIndices = myMaxIndices;
+    int result = fromIndex;
+    for (int index = fromIndex; index < toIndex; ) {
+      int level = getLargestLevel(index, toIndex, maxIndices.length);
+      int candidate = level == 0 ? index : maxIndices[level - 1][index >> level];
+      if (ys[candidate] >= ys[result]) {
+        result = candidate;
+      }
+      index += 1 << level;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the largest level whose bucket starting at {@code index} ends at or before {@code toIndex}. Such a bucket is complete, so its
+   * level exists as soon as the bucket is made of more than one point.
+   */
+  private static int getLargestLevel(int index, int toIndex, int levelCount) {
+    int level = 0;
+    while (level < levelCount && (index & ((2 << level) - 1)) == 0 && index + (2 << level) <= toIndex) {
+      level++;
+    }
+    return level;
+  }
+}
@@ -24,4 +24,16 @@ class RangedContinuousSeries @JvmOverloads constructor(val name: String,
                                                        val yRange: Range,
                                                        series: DataSeries<Long>,
                                                        intersectRange: Range = Range(-Double.MAX_VALUE, Double.MAX_VALUE))
-  : RangedSeries<Long>(xRange, series, intersectRange)
\ No newline at end of file
+  : RangedSeries<Long>(xRange, series, intersectRange) {
+  private val dataSeries = series
+
+  /**
+   * Like [series], but reduced to [maxBuckets] buckets of first, last, min and max points when the data is a [LongDataSeries], see
+   * [LongDataSeries.getDataForRange]. Other series, which includes the ones of the profiler monitors that query the transport database,
+   * are returned in full and left to the line chart reducer.
+   */
+  fun getReducedSeries(maxBuckets: Int): List<SeriesData<Long>> {
+    val data = dataSeries
+    return if (data is LongDataSeries) data.getDataForRange(intersection, maxBuckets) else series
+  }
+}
\ No newline at end of file
@@ -67,7 +67,8 @@ open class RangedSeries<E>
       val queriedSeries = _series.getDataForRange(queryRange)
 
       lastQueriedRange = queryRange
-      lastQueriedSeries = queriedSeries.toList() // Make a copy to allow the underlying series to change freely
+      // Make a copy to allow the underlying series to change freely, unless the series already returns an immutable view.
+      lastQueriedSeries = if (queriedSeries is LongDataSeries.RangeView) queriedSeries else queriedSeries.toList()
     }
 
     return lastQueriedSeries
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui.model
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class LongDataSeriesTest {
+  private val data = listOf(
+    SeriesData(0, 10L),
+    SeriesData(1, 11L),
+    SeriesData(2, 12L),
+    SeriesData(3, 13L),
+  )
+
+  private fun createSeries() = LongDataSeries().apply { data.forEach { add(it.x, it.value) } }
+
+  @Test
+  fun `returns empty list for empty series`() {
+    assertThat(LongDataSeries().getDataForRange(Range(0.0, 3.0))).isEmpty()
+  }
+
+  @Test
+  fun `returns empty list for empty range`() {
+    assertThat(createSeries().getDataForRange(Range(2.0, 1.0))).isEmpty()
+  }
+
+  @Test
+  fun `returns partial list`() {
+    assertThat(createSeries().getDataForRange(Range(1.0, 2.0))).containsExactly(data[1], data[2]).inOrder()
+  }
+
+  @Test
+  fun `returns partial list with decimal values`() {
+    assertThat(createSeries().getDataForRange(Range(0.5, 2.5))).containsExactly(data[1], data[2]).inOrder()
+  }
+
+  @Test
+  fun `bounds too wide return all data`() {
+    assertThat(createSeries().getDataForRange(Range(-3.0, 6.0))).containsExactlyElementsIn(data).inOrder()
+  }
+
+  @Test
+  fun `matches DefaultDataSeries for sparse x values`() {
+    val longSeries = LongDataSeries()
+    val defaultSeries = DefaultDataSeries<Long>()
+    for (i in 0L until 100L) {
+      longSeries.add(i * 10, i)
+      defaultSeries.add(i * 10, i)
+    }
+    for (min in -5..1005 step 7) {
+      val range = Range(min.toDouble(), min + 33.5)
+      assertThat(longSeries.getDataForRange(range)).containsExactlyElementsIn(defaultSeries.getDataForRange(range)).inOrder()
+      assertThat(longSeries.getNearestXIndex(min.toLong())).isEqualTo(defaultSeries.getNearestXIndex(min.toLong()))
+    }
+  }
+
+  @Test
+  fun `views expose primitive values and survive appends`() {
+    val series = LongDataSeries()
+    series.add(0, 100)
+    series.add(5, 105)
+    val view = series.getDataForRange(Range(0.0, 10.0))
+
+    // Grow past the initial capacity so the columns get reallocated.
+    for (i in 2L until 100L) {
+      series.add(i * 5, 100 + i * 5)
+    }
+
+    assertThat(view.size).isEqualTo(2)
+    assertThat(view.getX(1)).isEqualTo(5)
+    assertThat(view.getY(1)).isEqualTo(105)
+    assertThat(series.size()).isEqualTo(100)
+    assertThat(series.getY(99)).isEqualTo(595)
+    assertThat(view.subList(1, 2)).containsExactly(SeriesData(5, 105L))
+  }
+
+  @Test
+  fun `reduced range returns the view when it is small enough`() {
+    val series = createSeries()
+    assertThat(series.getDataForRange(Range(0.0, 3.0), 1)).containsExactlyElementsIn(data).inOrder()
+  }
+
+  @Test
+  fun `reduced range keeps the extremes of every bucket`() {
+    val series = LongDataSeries()
+    val random = java.util.Random(42)
+    for (i in 0L until 10_000L) {
+      series.add(i, random.nextInt(1000).toLong())
+    }
+
+    for ((min, max) in listOf(0.0 to 9999.0, 1234.0 to 8765.0, 5000.0 to 5999.0, 9000.0 to 20000.0)) {
+      val range = Range(min, max)
+      val all = series.getDataForRange(range)
+      val reduced = series.getDataForRange(range, 100)
+
+      assertThat(reduced.size).isAtMost(4 * 100)
+      assertThat(reduced.map { it.x }).isInStrictOrder()
+      assertThat(reduced.last()).isEqualTo(all.last())
+      assertThat(reduced.first()).isEqualTo(all.first())
+      assertThat(reduced.maxOf { it.value }).isAtLeast(all.maxOf { it.value })
+      assertThat(reduced.minOf { it.value }).isAtMost(all.minOf { it.value })
+      // Every reduced point is an actual point of the series.
+      reduced.forEach { assertThat(series.getY(it.x.toInt())).isEqualTo(it.value) }
+    }
+  }
+
+  @Test
+  fun `reduced range buckets unevenly spaced points by x`() {
+    val series = LongDataSeries()
+    val random = java.util.Random(42)
+    var x = 0L
+    for (i in 0 until 10_000) {
+      // Bursts of close points separated by gaps.
+      x += if (i % 100 == 0) 5000L else 1L
+      series.add(x, random.nextInt(1000).toLong())
+    }
+
+    val range = Range(0.0, x.toDouble())
+    val buckets = 64
+    val bucketWidth = range.length / buckets
+    fun bucketOf(point: SeriesData<Long>) = (1 until buckets).count { point.x >= range.min + bucketWidth * it }
+    val all = series.getDataForRange(range).groupBy(::bucketOf)
+    val reduced = series.getDataForRange(range, buckets).groupBy(::bucketOf)
+
+    assertThat(reduced.keys).containsExactlyElementsIn(all.keys)
+    for ((bucket, points) in all) {
+      assertThat(reduced[bucket]!!.minOf { it.value }).isEqualTo(points.minOf { it.value })
+      assertThat(reduced[bucket]!!.maxOf { it.value }).isEqualTo(points.maxOf { it.value })
+      assertThat(reduced[bucket]!!.first()).isEqualTo(points.first())
+      assertThat(reduced[bucket]!!.last()).isEqualTo(points.last())
+    }
+  }
+
+  @Test
+  fun `only LongDataSeries are reduced by ranged series`() {
+    val defaultSeries = DefaultDataSeries<Long>()
+    val longSeries = LongDataSeries()
+    for (i in 0L until 1000L) {
+      defaultSeries.add(i, i)
+      longSeries.add(i, i)
+    }
+    val range = Range(0.0, 999.0)
+
+    assertThat(RangedContinuousSeries("default", range, Range(), defaultSeries).getReducedSeries(10)).hasSize(1000)
+    assertThat(RangedContinuousSeries("long", range, Range(), longSeries).getReducedSeries(10).size).isAtMost(40)
+  }
+
+  @Test
+  fun `reduced range follows appended points`() {
+    val series = LongDataSeries()
+    for (i in 0L until 1000L) {
+      series.add(i, 0)
+    }
+    series.add(1000, 500)
+    series.add(1001, -500)
+
+    val reduced = series.getDataForRange(Range(0.0, 1001.0), 10)
+    assertThat(reduced.size).isLessThan(100)
+    assertThat(reduced).contains(SeriesData(1000, 500L))
+    assertThat(reduced.last()).isEqualTo(SeriesData(1001, -500L))
+  }
+}
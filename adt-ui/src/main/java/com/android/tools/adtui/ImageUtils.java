@@ -42,6 +42,7 @@ import java.awt.geom.Area;
 import java.awt.geom.Ellipse2D;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Iterator;
@@ -64,10 +65,7 @@ public class ImageUtils {
   /**
    * Filter that checks pixels for being completely transparent.
    */
-  public static final CropFilter TRANSPARENCY_FILTER = (bufferedImage, x, y) -> {
-    int rgb = bufferedImage.getRGB(x, y);
-    return (rgb & 0xFF000000) == 0;
-  };
+  public static final CropFilter TRANSPARENCY_FILTER = (ArgbCropFilter)argb -> (argb & 0xFF000000) == 0;
 
   /**
    * Rotates the given image by the given number of quadrants.
@@ -290,6 +288,28 @@ public class ImageUtils {
   @NotNull
   public static BufferedImage scale(BufferedImage source, double xScale, double yScale,
                                     int rightMargin, int bottomMargin, @Nullable Shape clip) {
+    return scale(source, xScale, yScale, rightMargin, bottomMargin, clip, null);
+  }
+
+  /**
+   * Resizes the given image into {@code destination} when it has the size and type of the scaled image,
+   * or into a new image otherwise. This avoids allocating an image per call when the same image is
+   * scaled repeatedly, e.g. on every frame or every change of a preview.
+   *
+   * @param source      the image to be scaled
+   * @param xScale      x scale
+   * @param yScale      y scale
+   * @param destination an image returned by a previous call with the same scale factors, or null
+   * @return the scaled image, which is {@code destination} when it could be reused
+   */
+  @NotNull
+  public static BufferedImage scaleInto(@NotNull BufferedImage source, double xScale, double yScale, @Nullable BufferedImage destination) {
+    return scale(source, xScale, yScale, 0, 0, null, destination);
+  }
+
+  @NotNull
+  private static BufferedImage scale(BufferedImage source, double xScale, double yScale,
+                                     int rightMargin, int bottomMargin, @Nullable Shape clip, @Nullable BufferedImage destination) {
     int sourceWidth = source.getWidth();
     int sourceHeight = source.getHeight();
     int destWidth = max(1, (int)(xScale * sourceWidth));
@@ -301,13 +321,9 @@ public class ImageUtils {
       imageType = BufferedImage.TYPE_INT_ARGB;
     }
     if (xScale > 0.5 && yScale > 0.5) {
-      BufferedImage scaled =
-        new BufferedImage(destWidth + rightMargin, destHeight + bottomMargin, imageType);
+      BufferedImage scaled = reuseOrCreateImage(destination, destWidth + rightMargin, destHeight + bottomMargin, imageType);
       Graphics2D g2 = scaled.createGraphics();
-      g2.setComposite(AlphaComposite.Src);
-      //noinspection UseJBColor
-      g2.setColor(new Color(0, true));
-      g2.fillRect(0, 0, destWidth + rightMargin, destHeight + bottomMargin);
+      clear(g2, destWidth + rightMargin, destHeight + bottomMargin);
       if (clip != null) {
         g2.setClip(clip);
       }
@@ -367,9 +383,15 @@ public class ImageUtils {
       }
 
       @SuppressWarnings("UndesirableClassUsage")
-      BufferedImage scaled = new BufferedImage(nearestWidth, nearestHeight, imageType);
+      BufferedImage scaled = iterations == 0
+                             ? reuseOrCreateImage(destination, nearestWidth, nearestHeight, imageType)
+                             : new BufferedImage(nearestWidth, nearestHeight, imageType);
 
       Graphics2D g2 = scaled.createGraphics();
+      if (scaled == destination) {
+        clear(g2, nearestWidth, nearestHeight);
+        g2.setComposite(AlphaComposite.SrcOver);
+      }
       g2.setRenderingHint(KEY_INTERPOLATION, VALUE_INTERPOLATION_BILINEAR);
       g2.setRenderingHint(KEY_RENDERING, VALUE_RENDER_QUALITY);
       g2.setRenderingHint(KEY_ANTIALIASING, VALUE_ANTIALIAS_ON);
@@ -385,9 +407,12 @@ public class ImageUtils {
         int halfWidth = sourceWidth / 2;
         int halfHeight = sourceHeight / 2;
         if (iteration == 0) { // Last iteration: Add margins in final image
-          scaled = new BufferedImage(halfWidth + rightMargin, halfHeight + bottomMargin,
-                                     imageType);
+          scaled = reuseOrCreateImage(destination, halfWidth + rightMargin, halfHeight + bottomMargin, imageType);
           g2 = scaled.createGraphics();
+          if (scaled == destination) {
+            clear(g2, halfWidth + rightMargin, halfHeight + bottomMargin);
+            g2.setComposite(AlphaComposite.SrcOver);
+          }
           if (clip != null) {
             g2.setClip(clip);
           }
@@ -441,6 +466,29 @@ public class ImageUtils {
   @NotNull
   public static BufferedImage lowQualityFastScale(@NotNull BufferedImage source, double xScale, double yScale,
                                                   int rightMargin, int bottomMargin, @Nullable Shape clip) {
+    return lowQualityFastScale(source, xScale, yScale, rightMargin, bottomMargin, clip, null);
+  }
+
+  /**
+   * Does a fast, low-quality, scaling of the given image into {@code destination} when it has the size and type
+   * of the scaled image, or into a new image otherwise.
+   *
+   * @param source      the image to be scaled
+   * @param xScale      x scale
+   * @param yScale      y scale
+   * @param destination an image returned by a previous call with the same scale factors, or null
+   * @return the scaled image, which is {@code destination} when it could be reused
+   */
+  @NotNull
+  public static BufferedImage lowQualityFastScaleInto(@NotNull BufferedImage source, double xScale, double yScale,
+                                                      @Nullable BufferedImage destination) {
+    return lowQualityFastScale(source, xScale, yScale, 0, 0, null, destination);
+  }
+
+  @NotNull
+  private static BufferedImage lowQualityFastScale(@NotNull BufferedImage source, double xScale, double yScale,
+                                                   int rightMargin, int bottomMargin, @Nullable Shape clip,
+                                                   @Nullable BufferedImage destination) {
     int sourceWidth = source.getWidth();
     int sourceHeight = source.getHeight();
     int destWidth = max(1, (int)(xScale * sourceWidth));
@@ -449,12 +497,9 @@ public class ImageUtils {
     if (imageType == BufferedImage.TYPE_CUSTOM) {
       imageType = BufferedImage.TYPE_INT_ARGB;
     }
-    BufferedImage scaled = new BufferedImage(destWidth + rightMargin, destHeight + bottomMargin, imageType);
+    BufferedImage scaled = reuseOrCreateImage(destination, destWidth + rightMargin, destHeight + bottomMargin, imageType);
     Graphics2D g2 = scaled.createGraphics();
-    g2.setComposite(AlphaComposite.Src);
-    //noinspection UseJBColor
-    g2.setColor(new Color(0, true));
-    g2.fillRect(0, 0, destWidth + rightMargin, destHeight + bottomMargin);
+    clear(g2, destWidth + rightMargin, destHeight + bottomMargin);
     if (clip != null) {
       g2.setClip(clip);
     }
@@ -470,6 +515,27 @@ public class ImageUtils {
     return scaled;
   }
 
+  /**
+   * Returns {@code image} if it has the given size and type, or a new image otherwise.
+   */
+  @NotNull
+  private static BufferedImage reuseOrCreateImage(@Nullable BufferedImage image, int width, int height, int imageType) {
+    if (image != null && image.getWidth() == width && image.getHeight() == height && image.getType() == imageType) {
+      return image;
+    }
+    return new BufferedImage(width, height, imageType);
+  }
+
+  /**
+   * Makes the given area fully transparent, leaving {@code g2} with the {@link AlphaComposite#Src} composite.
+   */
+  private static void clear(@NotNull Graphics2D g2, int width, int height) {
+    g2.setComposite(AlphaComposite.Src);
+    //noinspection UseJBColor
+    g2.setColor(new Color(0, true));
+    g2.fillRect(0, 0, width, height);
+  }
+
   /**
    * Creates a {@link BufferedImage} from the provided inputStream and scale it to fit
    * into the provided dimension while keeping the original aspect ratio.
@@ -603,10 +669,17 @@ public class ImageUtils {
     }
 
     // Nothing left to crop.
-    if (x1 == x2 || y1 == y2) {
+    if (x1 >= x2 || y1 >= y2) {
       return null;
     }
 
+    if (filter instanceof ArgbCropFilter) {
+      ArgbRowReader reader = ArgbRowReader.create(image, x2 - x1);
+      if (reader != null) {
+        return getCropBounds(reader, (ArgbCropFilter)filter, x1, y1, x2, y2);
+      }
+    }
+
     // This algorithm is linear with respect to the number of pixels in the cropped
     // area of the image. A sublinear algorithm is not possible since each cropped
     // pixel has to be examined at least once because the non-blank part of the image
@@ -670,6 +743,88 @@ public class ImageUtils {
     return new Rectangle(x1, y1, width, height);
   }
 
+  /**
+   * Same as {@link #getCropBounds(BufferedImage, CropFilter, Rectangle)}, but reads the pixels a row at a time.
+   * The top and bottom edges are found first, after which only the parts of the remaining rows that are outside
+   * of the current left and right edges need to be looked at.
+   */
+  @Nullable
+  private static Rectangle getCropBounds(@NotNull ArgbRowReader reader, @NotNull ArgbCropFilter filter, int x1, int y1, int x2, int y2) {
+    int width = x2 - x1;
+    int left = -1; // Inclusive
+    int right = -1; // Inclusive
+
+    // First determine top edge, along with a first guess of the left and right edges.
+    for (; y1 < y2; y1++) {
+      int[] row = reader.read(x1, y1, width);
+      int first = findFirstKept(row, 0, width, filter);
+      if (first >= 0) {
+        left = x1 + first;
+        right = x1 + findLastKept(row, first, width, filter);
+        break;
+      }
+    }
+
+    if (y1 == y2) {
+      // The image is blank.
+      return null;
+    }
+
+    // Next determine bottom edge.
+    while (--y2 > y1) {
+      int[] row = reader.read(x1, y2, width);
+      int first = findFirstKept(row, 0, width, filter);
+      if (first >= 0) {
+        left = min(left, x1 + first);
+        right = max(right, x1 + findLastKept(row, first, width, filter));
+        break;
+      }
+    }
+    ++y2;
+
+    // Rows in between can only move the left and right edges outwards.
+    for (int y = y1 + 1; y < y2 - 1 && (left > x1 || right < x2 - 1); y++) {
+      if (left > x1) {
+        int first = findFirstKept(reader.read(x1, y, left - x1), 0, left - x1, filter);
+        if (first >= 0) {
+          left = x1 + first;
+        }
+      }
+      if (right < x2 - 1) {
+        int last = findLastKept(reader.read(right + 1, y, x2 - right - 1), 0, x2 - right - 1, filter);
+        if (last >= 0) {
+          right += last + 1;
+        }
+      }
+    }
+
+    return new Rectangle(left, y1, right - left + 1, y2 - y1);
+  }
+
+  /**
+   * Returns the index of the first pixel in {@code row[from, to)} that should not be cropped, or -1 if there is none.
+   */
+  private static int findFirstKept(int[] row, int from, int to, @NotNull ArgbCropFilter filter) {
+    for (int i = from; i < to; i++) {
+      if (!filter.crop(row[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index of the last pixel in {@code row[from, to)} that should not be cropped, or -1 if there is none.
+   */
+  private static int findLastKept(int[] row, int from, int to, @NotNull ArgbCropFilter filter) {
+    for (int i = to; --i >= from; ) {
+      if (!filter.crop(row[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   /**
    * Crops a given image with the given crop filter.
    *
@@ -817,6 +972,101 @@ public class ImageUtils {
     boolean crop(BufferedImage image, int x, int y);
   }
 
+  /**
+   * A {@link CropFilter} that only looks at the ARGB value of pixels. For the common image types, {@link #getCropBounds}
+   * reads the pixels of such filters a row at a time instead of calling {@link BufferedImage#getRGB(int, int)} for each of them.
+   */
+  public interface ArgbCropFilter extends CropFilter {
+    /**
+     * Returns true if a pixel with the given value should be cropped.
+     *
+     * @param argb the color of the pixel, in the default RGB color model
+     * @return true if the pixel should be cropped (for example, is blank)
+     */
+    boolean crop(int argb);
+
+    @Override
+    default boolean crop(BufferedImage image, int x, int y) {
+      return crop(image.getRGB(x, y));
+    }
+  }
+
+  /**
+   * Reads rows of pixels of the most common image types as ARGB values. Pixels are copied through the raster of the image
+   * rather than by accessing its data buffer directly, since the latter prevents Java2D from accelerating the image afterwards.
+   */
+  private static final class ArgbRowReader {
+    @NotNull private final WritableRaster myRaster;
+    private final int myImageType;
+    @NotNull private final int[] myRow;
+    @Nullable private final byte[] myBytes;
+
+    /**
+     * Returns a reader for rows of up to {@code maxWidth} pixels of the given image, or null if its type is not supported.
+     */
+    @Nullable
+    static ArgbRowReader create(@NotNull BufferedImage image, int maxWidth) {
+      switch (image.getType()) {
+        case BufferedImage.TYPE_INT_ARGB:
+        case BufferedImage.TYPE_INT_RGB:
+          return new ArgbRowReader(image, maxWidth, null);
+        case BufferedImage.TYPE_4BYTE_ABGR:
+        case BufferedImage.TYPE_3BYTE_BGR:
+          return new ArgbRowReader(image, maxWidth, new byte[maxWidth * image.getRaster().getNumDataElements()]);
+        default:
+          return null;
+      }
+    }
+
+    private ArgbRowReader(@NotNull BufferedImage image, int maxWidth, @Nullable byte[] bytes) {
+      myRaster = image.getRaster();
+      myImageType = image.getType();
+      myRow = new int[maxWidth];
+      myBytes = bytes;
+    }
+
+    /**
+     * Returns the ARGB values of the {@code width} pixels starting at ({@code x}, {@code y}), at the start of an array that is
+     * reused by subsequent calls.
+     */
+    @NotNull
+    int[] read(int x, int y, int width) {
+      int[] row = myRow;
+      switch (myImageType) {
+        case BufferedImage.TYPE_INT_ARGB:
+          myRaster.getDataElements(x, y, width, 1, row);
+          break;
+        case BufferedImage.TYPE_INT_RGB:
+          myRaster.getDataElements(x, y, width, 1, row);
+          for (int i = 0; i < width; i++) {
+            row[i] |= 0xFF000000;
+          }
+          break;
+        case BufferedImage.TYPE_4BYTE_ABGR: {
+          // Data elements are returned in band order, i.e. RGBA.
+          byte[] bytes = myBytes;
+          myRaster.getDataElements(x, y, width, 1, bytes);
+          for (int i = 0, j = 0; i < width; i++, j += 4) {
+            row[i] = (bytes[j + 3] & 0xFF) << 24 | (bytes[j] & 0xFF) << 16 | (bytes[j + 1] & 0xFF) << 8 | (bytes[j + 2] & 0xFF);
+          }
+          break;
+        }
+        case BufferedImage.TYPE_3BYTE_BGR: {
+          // Data elements are returned in band order, i.e. RGB.
+          byte[] bytes = myBytes;
+          myRaster.getDataElements(x, y, width, 1, bytes);
+          for (int i = 0, j = 0; i < width; i++, j += 3) {
+            row[i] = 0xFF000000 | (bytes[j] & 0xFF) << 16 | (bytes[j + 1] & 0xFF) << 8 | (bytes[j + 2] & 0xFF);
+          }
+          break;
+        }
+        default:
+          throw new IllegalStateException("Unsupported image type " + myImageType);
+      }
+      return row;
+    }
+  }
+
   /**
    * Utility function to convert from an Icon to a BufferedImage.
    */
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.adtui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Compares the cropping and scaling paths of {@link ImageUtils} on images the size of a device screenshot:
+ * <ul>
+ *   <li>cropping with a {@link ImageUtils.CropFilter} called for each pixel against {@link ImageUtils#TRANSPARENCY_FILTER},
+ *   which reads whole rows of pixels</li>
+ *   <li>scaling into a new image against scaling into an image reused across calls</li>
+ * </ul>
+ * Run with {@code bazel run //tools/adt/idea/adt-ui:image-utils-benchmark}.
+ */
+@SuppressWarnings("UndesirableClassUsage")
+class ImageUtilsBenchmark {
+  private static final int WIDTH = 1440;
+  private static final int HEIGHT = 3120;
+  private static final int WARMUP_ITERATIONS = 20;
+  private static final int ITERATIONS = 50;
+
+  /** Keeps the results alive so that the JIT can't optimize the benchmarked code away. */
+  private static Object ourSink;
+
+  public static void main(String[] args) {
+    System.setProperty("java.awt.headless", "true");
+    ImageUtils.CropFilter perPixelFilter = (image, x, y) -> (image.getRGB(x, y) & 0xFF000000) == 0;
+
+    for (int imageType : new int[] { BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_4BYTE_ABGR }) {
+      BufferedImage image = createScreenshot(imageType);
+      String type = imageType == BufferedImage.TYPE_INT_ARGB ? "INT_ARGB" : "4BYTE_ABGR";
+      run("getCropBounds, per pixel, " + type, () -> ImageUtils.getCropBounds(image, perPixelFilter, null));
+      run("getCropBounds, by row, " + type, () -> ImageUtils.getCropBounds(image, ImageUtils.TRANSPARENCY_FILTER, null));
+    }
+
+    BufferedImage image = createScreenshot(BufferedImage.TYPE_INT_ARGB);
+    for (double scale : new double[] { 0.75, 0.2 }) {
+      run("scale " + scale + ", new image", () -> ImageUtils.scale(image, scale, scale));
+      BufferedImage[] destination = new BufferedImage[1];
+      run("scaleInto " + scale + ", reused image", () -> destination[0] = ImageUtils.scaleInto(image, scale, scale, destination[0]));
+      run("lowQualityFastScale " + scale + ", new image", () -> ImageUtils.lowQualityFastScale(image, scale, scale));
+      BufferedImage[] lowQualityDestination = new BufferedImage[1];
+      run("lowQualityFastScaleInto " + scale + ", reused image",
+          () -> lowQualityDestination[0] = ImageUtils.lowQualityFastScaleInto(image, scale, scale, lowQualityDestination[0]));
+    }
+  }
+
+  /**
+   * Creates an image with transparent margins around opaque content, like a screenshot framed by device art before cropping.
+   */
+  @NotNull
+  private static BufferedImage createScreenshot(int imageType) {
+    BufferedImage image = new BufferedImage(WIDTH, HEIGHT, imageType);
+    Graphics2D g = image.createGraphics();
+    //noinspection UseJBColor
+    g.setColor(Color.DARK_GRAY);
+    g.fillRoundRect(WIDTH / 10, HEIGHT / 10, WIDTH * 8 / 10, HEIGHT * 8 / 10, 80, 80);
+    g.dispose();
+    return image;
+  }
+
+  private static void run(@NotNull String name, @NotNull Supplier<Object> operation) {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      ourSink = operation.get();
+    }
+    long[] times = new long[ITERATIONS];
+    for (int i = 0; i < ITERATIONS; i++) {
+      long start = System.nanoTime();
+      ourSink = operation.get();
+      times[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+    System.out.printf("%-45s median %8.3f ms, min %8.3f ms%n", name, times[ITERATIONS / 2] / 1e6, times[0] / 1e6);
+  }
+}
@@ -30,6 +30,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.List;
+import java.util.Random;
 import javax.imageio.ImageIO;
 import junit.framework.TestCase;
 import org.jetbrains.annotations.NotNull;
@@ -256,6 +257,69 @@ public class ImageUtilsTest extends TestCase {
     assertEquals(0xFF00FF00, crop.getRGB(49, 49));
   }
 
+  public void testCropBoundsMatchPerPixelFilter() {
+    ImageUtils.CropFilter perPixelFilter = (image, x, y) -> ImageUtils.TRANSPARENCY_FILTER.crop(image, x, y);
+    int[] imageTypes = {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_4BYTE_ABGR,
+      BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_ARGB_PRE};
+    Rectangle[] initialCrops = {null, new Rectangle(0, 0, 40, 30), new Rectangle(11, 3, 20, 17), new Rectangle(-5, -5, 100, 100),
+      new Rectangle(12, 12, 0, 5), new Rectangle(30, 2, 10, 10)};
+    Random random = new Random(1);
+    for (int imageType : imageTypes) {
+      for (int i = 0; i < 50; i++) {
+        BufferedImage image = new BufferedImage(40, 30, imageType);
+        for (int j = random.nextInt(4); j > 0; j--) {
+          image.setRGB(random.nextInt(40), random.nextInt(30), random.nextInt() | (random.nextBoolean() ? 0xFF000000 : 0));
+        }
+        for (BufferedImage candidate : new BufferedImage[] { image, image.getSubimage(3, 2, 30, 25) }) {
+          for (Rectangle initialCrop : initialCrops) {
+            assertEquals(ImageUtils.getCropBounds(candidate, perPixelFilter, initialCrop),
+                         ImageUtils.getCropBounds(candidate, ImageUtils.TRANSPARENCY_FILTER, initialCrop));
+          }
+        }
+      }
+    }
+  }
+
+  public void testCropBoundsWithArgbFilter() {
+    BufferedImage image = createTestImage(50, 40, BufferedImage.TYPE_4BYTE_ABGR, Color.WHITE);
+    image.setRGB(10, 30, 0xFFFFFFFE);
+    image.setRGB(45, 5, 0xFF000000);
+    ImageUtils.ArgbCropFilter whiteFilter = argb -> argb == 0xFFFFFFFF;
+
+    assertEquals(new Rectangle(10, 5, 36, 26), ImageUtils.getCropBounds(image, whiteFilter, null));
+    assertEquals(new Rectangle(10, 30, 1, 1), ImageUtils.getCropBounds(image, whiteFilter, new Rectangle(0, 0, 40, 40)));
+    assertNull(ImageUtils.getCropBounds(image, whiteFilter, new Rectangle(20, 10, 20, 20)));
+  }
+
+  public void testScaleIntoDestination() {
+    BufferedImage image = createTestImage(100, 100, BufferedImage.TYPE_INT_ARGB, Color.RED);
+    for (double scale : new double[] { 0.25, 0.75, 2 }) {
+      BufferedImage destination = ImageUtils.scaleInto(image, scale, scale, null);
+      Graphics g = destination.getGraphics();
+      g.setColor(Color.BLUE);
+      g.fillRect(0, 0, destination.getWidth(), destination.getHeight());
+      g.dispose();
+
+      assertSame(destination, ImageUtils.scaleInto(image, scale, scale, destination));
+      assertEqualsImage(ImageUtils.scale(image, scale, scale), destination);
+    }
+
+    BufferedImage destination = new BufferedImage(50, 50, BufferedImage.TYPE_INT_RGB);
+    BufferedImage scaled = ImageUtils.scaleInto(image, 0.5, 0.5, destination);
+    assertNotSame(destination, scaled);
+    assertEquals(BufferedImage.TYPE_INT_ARGB, scaled.getType());
+  }
+
+  public void testLowQualityFastScaleIntoDestination() {
+    BufferedImage image = createTestImage(100, 100, BufferedImage.TYPE_INT_ARGB, Color.RED);
+    BufferedImage destination = new BufferedImage(25, 50, BufferedImage.TYPE_INT_ARGB);
+    destination.setRGB(0, 0, 0xFF0000FF);
+
+    assertSame(destination, ImageUtils.lowQualityFastScaleInto(image, 0.25, 0.5, destination));
+    assertEqualsImage(ImageUtils.lowQualityFastScale(image, 0.25, 0.5), destination);
+    assertNotSame(destination, ImageUtils.lowQualityFastScaleInto(image, 0.5, 0.5, destination));
+  }
+
   /**
    * Paints a set of {@link Rectangle} object out of a rendered {@link BufferedImage}
    * such that the resulting image is transparent except for a minimum bounding
@@ -110,6 +110,11 @@ public final class StudioFlags {
     MEMORY_USAGE_REPORTING, "use.disposer.tree.references", "Memory report collection traversal will use disposer tree reference.",
     "If enabled, the memory report collecting traversal will consider disposer tree references as an object graph edges.",
     false);
+
+  public static final Flag<Boolean> MEMORY_USAGE_REPORT_OFF_HEAP_NODE_STORE = Flag.create(
+    MEMORY_USAGE_REPORTING, "off.heap.node.store", "Keep memory report traversal masks off-heap.",
+    "If enabled, the memory report collecting traversal will keep the masks of pending objects in direct buffers instead of the Java heap.",
+    true);
   //endregion
 
   //region Profiler
@@ -246,6 +251,11 @@ public final class StudioFlags {
     "New architecture for dragging widgets in Layout Editor",
     true);
 
+  public static final Flag<Boolean> NELE_INCREMENTAL_DISPLAY_LIST = Flag.create(
+    NELE, "incremental.display.list", "Rebuild the display list incrementally",
+    "If enabled, components keep their draw commands between repaints and only the ones that changed are rebuilt",
+    false);
+
   public static final Flag<Boolean> NELE_PROPERTY_PANEL_ACTIONBAR = Flag.create(
     NELE, "property.panel.actionbar", "Property Panel Actionbar",
     "Support Actionbar in property panel",
@@ -382,6 +392,11 @@ public final class StudioFlags {
     RESOURCE_REPOSITORY, "trace.size", "Maximum Size of Resource Repository Update Trace",
     "Size of the in-memory cyclic buffer used for tracing of resource repository updates",
     10000);
+  public static final Flag<Integer> RESOURCE_REPOSITORY_LOADER_THREADS = Flag.create(
+    RESOURCE_REPOSITORY, "loader.threads", "Number of Threads Parsing Resource Files on Initial Load",
+    "Maximum number of threads shared by all resource folder repositories to parse the resource files that are not in their cache. " +
+    "A value of 1 parses the files of each repository on the thread loading it.",
+    4);
   //endregion
 
   //region Run/Debug
@@ -107,6 +107,12 @@ public class ActionBarIconGenerator extends IconGenerator {
     return generateRasterImage(ICON_SIZE, options);
   }
 
+  @Override
+  protected boolean canScaleDownPreviews(@NotNull TransformedImageAsset imageAsset) {
+    // The icon is drawn at a size proportional to the density, so a raster image looks the same scaled down.
+    return imageAsset.isRasterImage();
+  }
+
   /** The themes to generate action bar icons for. */
   public enum Theme {
     /** Theme.Holo - a dark (and default) version of the Honeycomb theme. */
@@ -34,6 +34,7 @@ import com.android.tools.idea.projectsystem.AndroidModulePaths;
 import com.android.tools.lint.checks.ApiLookup;
 import com.android.utils.CharSequences;
 import com.android.utils.FileUtils;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -63,8 +64,10 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import javax.imageio.ImageIO;
 import org.jetbrains.annotations.NotNull;
@@ -79,6 +82,7 @@ import org.xmlpull.v1.XmlPullParserException;
 public abstract class IconGenerator implements Disposable {
   protected static final ImmutableSet<Density> DENSITIES =
       ImmutableSet.of(Density.MEDIUM, Density.HIGH, Density.XHIGH, Density.XXHIGH, Density.XXXHIGH);
+  private static final Density LARGEST_DENSITY = Density.XXXHIGH;
   private static final Map<Density, Pattern> DENSITY_PATTERNS;
 
   static {
@@ -372,22 +376,33 @@ public abstract class IconGenerator implements Disposable {
     };
 
     Disposer.register(this, taskCanceler);
-
-    // Execute tasks in parallel and wait for results.
-    synchronized (futures) {
-      for (Callable<GeneratedIcon> task : tasks) {
-        futures.add(ApplicationManager.getApplication().executeOnPooledThread(task));
-      }
+    // Stop as soon as the icons are no longer needed, e.g. because a preview is outdated.
+    if (options.cancellation != null && !Disposer.tryRegister(options.cancellation, () -> Disposer.dispose(taskCanceler))) {
+      Disposer.dispose(taskCanceler);
+      throw new CancellationException();
     }
 
-    for(Future<GeneratedIcon> future: futures) {
-      try {
-        icons.add(future.get());
+    try {
+      // Execute tasks in parallel and wait for results.
+      synchronized (futures) {
+        for (Callable<GeneratedIcon> task : tasks) {
+          futures.add(ApplicationManager.getApplication().executeOnPooledThread(task));
+        }
       }
-      catch (InterruptedException | ExecutionException e) {
-        Disposer.dispose(taskCanceler);
+
+      for (Future<GeneratedIcon> future : futures) {
+        try {
+          icons.add(future.get());
+        }
+        catch (InterruptedException | ExecutionException e) {
+          Disposer.dispose(taskCanceler);
+        }
       }
     }
+    finally {
+      // Cancels the remaining tasks if generation failed, and removes the canceler from the disposer tree.
+      Disposer.dispose(taskCanceler);
+    }
 
     return icons;
   }
@@ -406,6 +421,16 @@ public abstract class IconGenerator implements Disposable {
 
     List<Callable<GeneratedIcon>> tasks = new ArrayList<>();
 
+    // Previews at lower densities are scaled down from the one at the highest density when it doesn't make a visible
+    // difference, so that the source image is only transformed once. Drawables are rendered at every density instead,
+    // since that keeps them sharp.
+    Supplier<AnnotatedImage> largestPreview = null;
+    if (options.generatePreviewIcons && !options.usePlaceholders && canScaleDownPreviews(imageAsset)) {
+      IconOptions largestOptions = options.clone();
+      largestOptions.density = LARGEST_DENSITY;
+      largestPreview = Suppliers.memoize(() -> generateRasterImage(context, largestOptions));
+    }
+
     // Generate tasks for raster icons in different densities and a vector drawable
     // if the input can be converted to a vector drawable.
     for (Density density : DENSITIES) {
@@ -440,10 +465,12 @@ public abstract class IconGenerator implements Disposable {
       }
       if (options.generatePreviewIcons) {
         // Generate tasks for preview images.
+        Supplier<AnnotatedImage> preview =
+          largestPreview == null ? null : density == LARGEST_DENSITY ? largestPreview : scaleDown(largestPreview, density);
         tasks.add(() -> {
           AnnotatedImage image;
           try {
-            image = generateRasterImage(context, localOptions);
+            image = preview == null ? generateRasterImage(context, localOptions) : preview.get();
           }
           catch (Throwable e) {
             getLog().error(e); // Unexpected error, log it.
@@ -462,6 +489,29 @@ public abstract class IconGenerator implements Disposable {
     return tasks;
   }
 
+  /**
+   * Returns true if the previews of the given image at lower densities can be scaled down from the preview at the highest
+   * density without a visible difference. Generators opt in by overriding this method when {@link #generateRasterImage}
+   * draws the image the same way at every density, only scaled. Generators that render their previews in
+   * {@link #createIconGenerationTasks} themselves, like the launcher and TV ones, draw each preview once at the preview
+   * density, so they have nothing to scale down.
+   */
+  protected boolean canScaleDownPreviews(@NotNull TransformedImageAsset imageAsset) {
+    return false;
+  }
+
+  @NotNull
+  private static Supplier<AnnotatedImage> scaleDown(@NotNull Supplier<AnnotatedImage> largestPreview, @NotNull Density density) {
+    return () -> {
+      AnnotatedImage largest = largestPreview.get();
+      BufferedImage image = largest.getImage();
+      double scale = getMdpiScaleFactor(density) / getMdpiScaleFactor(LARGEST_DENSITY);
+      int width = AssetStudioUtils.roundToInt(image.getWidth() * scale);
+      int height = AssetStudioUtils.roundToInt(image.getHeight() * scale);
+      return new AnnotatedImage(AssetUtil.scaledImage(image, width, height), largest.getErrorMessage());
+    };
+  }
+
   /**
    * Creates a placeholder image for a failed preview rendering.
    *
@@ -830,6 +880,12 @@ public abstract class IconGenerator implements Disposable {
     /** Indicates that the graphic generator may use placeholders instead of real images. */
     public boolean usePlaceholders;
 
+    /**
+     * If not null, the generation of icons is cancelled when this disposable is disposed, e.g. because the icons are
+     * previews that newer options have made outdated. {@link IconGenerator#generateIcons} then throws a {@link CancellationException}.
+     */
+    @Nullable public Disposable cancellation;
+
     public IconOptions(boolean forPreview) {
       generatePreviewIcons = forPreview;
       generateOutputIcons = !forPreview;
@@ -60,6 +60,12 @@ public class NotificationIconGenerator extends IconGenerator {
     return generateRasterImage(ICON_SIZE, options);
   }
 
+  @Override
+  protected boolean canScaleDownPreviews(@NotNull TransformedImageAsset imageAsset) {
+    // The icon is drawn at a size proportional to the density, so a raster image looks the same scaled down.
+    return imageAsset.isRasterImage();
+  }
+
   @Override
   protected int calculateMinRequiredApiLevel(@NotNull String xmlDrawableText, int minSdk) {
     if (minSdk < 24) {
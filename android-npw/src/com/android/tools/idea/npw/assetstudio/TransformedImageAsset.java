@@ -28,6 +28,7 @@ import com.android.tools.idea.npw.assetstudio.assets.ImageAsset;
 import com.android.tools.idea.npw.assetstudio.assets.TextAsset;
 import com.android.tools.idea.rendering.Gravity;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.intellij.util.ExceptionUtil;
 import java.awt.Color;
 import java.awt.Dimension;
@@ -36,6 +37,7 @@ import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.regex.Pattern;
@@ -189,7 +191,27 @@ public final class TransformedImageAsset {
       return createErrorImage(imageSize);
     }
 
-    return applyScaleShiftTintAndOpacity(imageSize, trimmedImage);
+    // Assets are recreated whenever an option changes, but they usually share the source image. The transformed image
+    // is cached for the source image and the transformation parameters, so that it is not computed again for an unrelated
+    // option change.
+    TransformedImageKey key;
+    synchronized (myLock) {
+      key = new TransformedImageKey(trimmedImage, imageSize, myScaleFactor, myShift, myTint, myOpacity);
+    }
+    Future<BufferedImage> future = myContext.getFromCacheOrCreate(key, () -> {
+      try {
+        return Futures.immediateFuture(applyScaleShiftTintAndOpacity(imageSize, trimmedImage));
+      }
+      catch (RuntimeException e) {
+        return Futures.immediateFailedFuture(e); // Reported by the caller.
+      }
+    });
+    try {
+      return Futures.getUnchecked(future);
+    }
+    catch (UncheckedExecutionException e) {
+      throw (RuntimeException)e.getCause();
+    }
   }
 
   /**
@@ -265,7 +287,11 @@ public final class TransformedImageAsset {
       if (myTrimmedImage == null) {
         try {
           BufferedImage image = myImageFuture.get();
-          myTrimmedImage = myIsTrimmed ? AssetStudioUtils.trim(image) : image;
+          // Trimmed images are shared by all assets with the same source image, see getTransformedImage.
+          myTrimmedImage = myIsTrimmed ?
+                           myContext.getFromCacheOrCreate(new TrimmedImageKey(image),
+                                                          () -> Futures.immediateFuture(AssetStudioUtils.trim(image))).get() :
+                           image;
         }
         catch (InterruptedException | ExecutionException e) {
           return null;
@@ -304,4 +330,62 @@ public final class TransformedImageAsset {
       return new Rectangle(myTargetSize);
     }
   }
+
+  /** Identifies the trimmed version of a source image in the {@link GraphicGeneratorContext} cache. */
+  private static final class TrimmedImageKey {
+    @NotNull private final BufferedImage mySource;
+
+    TrimmedImageKey(@NotNull BufferedImage source) {
+      mySource = source;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(mySource);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof TrimmedImageKey && ((TrimmedImageKey)obj).mySource == mySource;
+    }
+  }
+
+  /** Identifies a transformed raster image in the {@link GraphicGeneratorContext} cache. */
+  private static final class TransformedImageKey {
+    @NotNull private final BufferedImage mySource;
+    @NotNull private final Dimension myImageSize;
+    private final double myScaleFactor;
+    @Nullable private final Point2D myShift;
+    @Nullable private final Color myTint;
+    private final double myOpacity;
+
+    TransformedImageKey(@NotNull BufferedImage source, @NotNull Dimension imageSize, double scaleFactor, @Nullable Point2D shift,
+                        @Nullable Color tint, double opacity) {
+      mySource = source;
+      myImageSize = new Dimension(imageSize);
+      myScaleFactor = scaleFactor;
+      myShift = shift == null ? null : (Point2D)shift.clone();
+      myTint = tint;
+      myOpacity = opacity;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(mySource), myImageSize, myScaleFactor, myShift, myTint, myOpacity);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof TransformedImageKey)) {
+        return false;
+      }
+      TransformedImageKey other = (TransformedImageKey)obj;
+      return mySource == other.mySource
+             && myImageSize.equals(other.myImageSize)
+             && Double.compare(myScaleFactor, other.myScaleFactor) == 0
+             && Objects.equals(myShift, other.myShift)
+             && Objects.equals(myTint, other.myTint)
+             && Double.compare(myOpacity, other.myOpacity) == 0;
+    }
+  }
 }
@@ -18,12 +18,15 @@ package com.android.tools.idea.npw.assetstudio.wizard;
 import com.android.tools.idea.npw.assetstudio.IconGenerator;
 import com.android.tools.idea.npw.assetstudio.IconGenerator.IconOptions;
 import com.android.tools.idea.npw.assetstudio.icon.IconGeneratorResult;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.util.concurrency.SwingWorker;
 import com.intellij.util.concurrency.ThreadingAssertions;
 import java.util.Locale;
+import java.util.concurrent.CancellationException;
 import java.util.function.Consumer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -54,6 +57,7 @@ public class IconGenerationProcessor {
     }
 
     if (myRunningRequest != null) {
+      // The running request is outdated, stop it rather than letting it compete with the new one.
       myRunningRequest.cancel();
     }
 
@@ -63,7 +67,9 @@ public class IconGenerationProcessor {
     if (request != null) {
       Worker worker = new Worker(request, () -> {
         ThreadingAssertions.assertEventDispatchThread();
-        myRunningRequest = null;
+        if (myRunningRequest == request) {
+          myRunningRequest = null;
+        }
         processNextRequest();
       });
       worker.start();
@@ -79,22 +85,32 @@ public class IconGenerationProcessor {
     @NotNull private final IconGenerator myIconGenerator;
     @NotNull private final Consumer<IconGeneratorResult> myOnDone;
     @NotNull private final IconOptions myOptions;
+    @NotNull private final Disposable myCancellation = Disposer.newDisposable("Icon generation request");
     @Nullable private IconGeneratorResult myGeneratorResult;
-    private boolean isCanceled;
+    private volatile boolean isCanceled;
 
     Request(@NotNull IconGenerator iconGenerator, @NotNull IconOptions options, @NotNull Consumer<IconGeneratorResult> onDone) {
       myIconGenerator = iconGenerator;
       myOptions = options;
+      myOptions.cancellation = myCancellation;
       myOnDone = onDone;
     }
 
     public void run() {
       assert !ApplicationManager.getApplication().isDispatchThread();
 
-      myGeneratorResult = myIconGenerator.generateIcons(myOptions);
+      try {
+        myGeneratorResult = myIconGenerator.generateIcons(myOptions);
+      }
+      catch (CancellationException e) {
+        if (!isCanceled) {
+          throw e;
+        }
+      }
     }
 
     public void done() {
+      Disposer.dispose(myCancellation);
       if (!isCanceled) {
         myOnDone.accept(myGeneratorResult);
       }
@@ -102,6 +118,7 @@ public class IconGenerationProcessor {
 
     public void cancel() {
       isCanceled = true;
+      Disposer.dispose(myCancellation);
     }
 
     public boolean isCanceled() {
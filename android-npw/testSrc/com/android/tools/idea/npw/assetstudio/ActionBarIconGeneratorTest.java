@@ -56,4 +56,10 @@ public class ActionBarIconGeneratorTest extends AndroidTestCase {
   public void testSvgCustom() throws Exception {
     checkGraphic("ic_action_custom", IconGeneratorTestUtil.SourceType.SVG, Theme.CUSTOM);
   }
+
+  public void testScaledDownPreviewsMatchRenderedImages() throws Exception {
+    ActionBarIconGenerator generator = new ActionBarIconGenerator(getProject(), 15, null);
+    disposeOnTearDown(generator);
+    IconGeneratorTestUtil.checkScaledDownPreviews(generator);
+  }
 }
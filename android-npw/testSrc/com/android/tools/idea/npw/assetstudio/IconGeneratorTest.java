@@ -19,14 +19,20 @@ import static com.google.common.truth.Truth.assertThat;
 import static com.intellij.testFramework.UsefulTestCase.assertThrows;
 import static java.lang.Thread.sleep;
 
+import com.android.ide.common.util.AssetUtil;
 import com.android.ide.common.util.PathString;
+import com.android.resources.Density;
 import com.android.tools.idea.npw.assetstudio.IconGenerator.IconOptions;
 import com.android.tools.idea.npw.assetstudio.assets.VectorAsset;
 import com.android.tools.idea.testing.AndroidProjectRule;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.util.ThrowableRunnable;
+import java.awt.Dimension;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -102,6 +108,69 @@ public final class IconGeneratorTest {
     );
   }
 
+  @Test
+  public void generateIconsIsCancelledWithOptions() {
+    IconGenerator iconGenerator = createPreviewGenerator(new ArrayList<>());
+    Disposable cancellation = Disposer.newDisposable();
+    Disposer.dispose(cancellation);
+    IconOptions options = new IconOptions(true);
+    options.cancellation = cancellation;
+
+    assertThrows(CancellationException.class, (ThrowableRunnable<Throwable>)() -> iconGenerator.generateIcons(options));
+  }
+
+  @Test
+  public void rasterPreviewsAreScaledDownFromTheLargestDensity() {
+    List<Density> renderedDensities = Collections.synchronizedList(new ArrayList<>());
+    IconGenerator iconGenerator = createPreviewGenerator(renderedDensities);
+    IconOptions options = new IconOptions(true);
+    options.image = new TransformedImageAsset(new VectorAsset(), new Dimension(10, 10), 1, null,
+                                              iconGenerator.getGraphicGeneratorContext(), "\n");
+    assertThat(options.image.isRasterImage()).isTrue();
+
+    Collection<GeneratedIcon> icons = iconGenerator.generateIcons(options).getIcons();
+
+    assertThat(renderedDensities).containsExactly(Density.XXXHIGH);
+    assertThat(icons).hasSize(5);
+    for (GeneratedIcon icon : icons) {
+      GeneratedImageIcon imageIcon = (GeneratedImageIcon)icon;
+      assertThat(imageIcon.getImage().getWidth()).isEqualTo(previewSize(imageIcon.getDensity()));
+    }
+  }
+
+  /**
+   * Returns a generator of previews using the default tasks. It records the densities of the images it generates.
+   */
+  @NotNull
+  private IconGenerator createPreviewGenerator(@NotNull List<Density> renderedDensities) {
+    IconGenerator iconGenerator = new IconGenerator(myProjectRule.getProject(), 1, new GraphicGeneratorContext(1)) {
+      @NotNull
+      @Override
+      public AnnotatedImage generateRasterImage(@NotNull GraphicGeneratorContext context, @NotNull IconOptions options) {
+        renderedDensities.add(options.density);
+        int size = previewSize(options.density);
+        return new AnnotatedImage(AssetUtil.newArgbBufferedImage(size, size));
+      }
+
+      @Override
+      protected boolean canScaleDownPreviews(@NotNull TransformedImageAsset imageAsset) {
+        return imageAsset.isRasterImage();
+      }
+
+      @NotNull
+      @Override
+      public IconOptions createOptions(boolean forPreview) {
+        throw new RuntimeException("Should not be called");
+      }
+    };
+    Disposer.register(myProjectRule.getFixture().getTestRootDisposable(), iconGenerator);
+    return iconGenerator;
+  }
+
+  private static int previewSize(@NotNull Density density) {
+    return AssetStudioUtils.roundToInt(10 * IconGenerator.getMdpiScaleFactor(density));
+  }
+
   @Test
   public void generateIntoFileMap() {
     VectorIconGenerator generator = new VectorIconGenerator(myProjectRule.getProject(), 24);
@@ -97,6 +97,38 @@ public final class IconGeneratorTestUtil {
     return generator.generateRasterImage(new GraphicGeneratorContext(0), generator.createOptions(true)).getImage();
   }
 
+  /**
+   * Checks that the previews of a raster image that the generator scales down from the largest one look like the images it renders
+   * directly at their density.
+   */
+  static void checkScaledDownPreviews(@NotNull IconGenerator generator) throws IOException {
+    ImageAsset imageAsset = new ImageAsset();
+    File sourceFile = getSourceFile(SourceType.PNG);
+    imageAsset.imagePath().setValue(sourceFile);
+    try {
+      generator.sourceAsset().setValue(imageAsset);
+      IconOptions options = generator.createOptions(true);
+      assertThat(options.image).isNotNull();
+      assertThat(generator.canScaleDownPreviews(options.image)).isTrue();
+
+      Collection<GeneratedIcon> previews = generator.generateIcons(options).getIcons();
+      assertThat(previews).hasSize(5);
+      for (GeneratedIcon preview : previews) {
+        GeneratedImageIcon scaledDownPreview = (GeneratedImageIcon)preview;
+        Density density = scaledDownPreview.getDensity();
+        IconOptions densityOptions = options.clone();
+        densityOptions.density = density;
+        BufferedImage renderedImage = generator.generateRasterImage(generator.getGraphicGeneratorContext(), densityOptions).getImage();
+        double maxDiffPercent = 2.5 * Density.XXXHIGH.getDpiValue() / density.getDpiValue();
+        assertImageSimilar(new PathString(density.getResourceValue()), renderedImage, scaledDownPreview.getImage(), maxDiffPercent);
+      }
+    } finally {
+      // Delete the temporary PNG file created by the test.
+      //noinspection ResultOfMethodCallIgnored
+      sourceFile.delete();
+    }
+  }
+
   private static void checkGraphic(@NotNull IconGenerator generator,
                                    @NotNull ImageAsset imageAsset,
                                    @NotNull String baseName,
@@ -40,4 +40,10 @@ public class NotificationIconGeneratorTest extends AndroidTestCase {
   public void testSvgSource() throws Exception {
     checkGraphic(IconGeneratorTestUtil.SourceType.SVG);
   }
+
+  public void testScaledDownPreviewsMatchRenderedImages() throws Exception {
+    NotificationIconGenerator generator = new NotificationIconGenerator(getProject(), 14, null);
+    disposeOnTearDown(generator);
+    IconGeneratorTestUtil.checkScaledDownPreviews(generator);
+  }
 }
@@ -298,6 +298,26 @@ public class HeapAnalyzerTest extends PlatformLiteFixture {
     Assert.assertEquals(stats.heapObjectCount, 3);
   }
 
+  @Test
+  public void testTraverseMoreThanOneMillionPendingObjects() {
+    ComponentsSet componentsSet = new ComponentsSet();
+    HeapSnapshotStatistics stats = new HeapSnapshotStatistics(componentsSet);
+    HeapSnapshotTraverse traverse = new HeapSnapshotTraverse(stats);
+
+    // All the elements are pushed to the DFS stack and then added to the node store at the same time.
+    int objectsCount = 1_500_000;
+    Object[] objects = new Object[objectsCount];
+    for (int i = 0; i < objectsCount; i++) {
+      objects[i] = new B();
+    }
+
+    Assert.assertEquals(StatusCode.NO_ERROR,
+                        traverse.walkObjects(MAX_DEPTH, List.of((Object)objects)));
+    Assert.assertEquals(objectsCount + 1, stats.heapObjectCount);
+    Assert.assertEquals(objectsCount, stats.maxObjectsQueueSize);
+    checkObjectsUntagged(new Object[]{objects, objects[0], objects[objectsCount - 1]});
+  }
+
   @Test
   public void testTraverseReturnLowMemoryError() {
     ComponentsSet componentsSet = new ComponentsSet();
@@ -401,6 +401,60 @@ public class ModuleResourceRepositoryTest extends AndroidTestCase {
     assertHasExactResourceTypes(resources, typesWithoutRes3);
   }
 
+  public void testSnapshotsAreRebuiltOnlyForChangedTypes() throws Exception {
+    VirtualFile res1 = myFixture.copyFileToProject(LAYOUT, "res/layout/layout1.xml").getParent().getParent();
+    VirtualFile values = myFixture.copyFileToProject(VALUES, "res2/values/values.xml");
+    VirtualFile res2 = values.getParent().getParent();
+    ModuleResourceRepository resources = ModuleResourceRepository.createForTest(myFacet, ImmutableList.of(res1, res2), RES_AUTO, null);
+    PsiDocumentManager documentManager = PsiDocumentManager.getInstance(getProject());
+    PsiFile psiValues = PsiManager.getInstance(getProject()).findFile(values);
+    assertNotNull(psiValues);
+    Document document = documentManager.getDocument(psiValues);
+    assertNotNull(document);
+
+    // The first edit is not incremental (file -> Psi) and invalidates all types.
+    assertStringIs(resources, "title_layout_changes", "Layout Changes");
+    WriteCommandAction.runWriteCommandAction(null, () -> {
+      int offset = document.getText().indexOf("Layout Changes");
+      document.insertString(offset, "New ");
+      documentManager.commitDocument(document);
+    });
+    waitForUpdates(resources);
+    assertStringIs(resources, "title_layout_changes", "New Layout Changes");
+    assertTrue(resources.hasResources(RES_AUTO, ResourceType.LAYOUT, "layout1"));
+    long layoutVersion = resources.getSnapshotVersion(RES_AUTO, ResourceType.LAYOUT);
+    long stringVersion = resources.getSnapshotVersion(RES_AUTO, ResourceType.STRING);
+    assertThat(layoutVersion).isGreaterThan(0);
+    assertThat(stringVersion).isGreaterThan(0);
+
+    // An incremental edit of a string only drops the string snapshot.
+    int rescans = resources.getFileRescans();
+    WriteCommandAction.runWriteCommandAction(null, () -> {
+      int offset = document.getText().indexOf("New Layout Changes");
+      document.insertString(offset, "Really ");
+      documentManager.commitDocument(document);
+    });
+    waitForUpdates(resources);
+    assertThat(resources.getFileRescans()).isEqualTo(rescans);
+    assertThat(resources.getSnapshotVersion(RES_AUTO, ResourceType.STRING)).isEqualTo(0);
+    assertStringIs(resources, "title_layout_changes", "Really New Layout Changes");
+    assertThat(resources.getSnapshotVersion(RES_AUTO, ResourceType.STRING)).isGreaterThan(stringVersion);
+    assertTrue(resources.hasResources(RES_AUTO, ResourceType.LAYOUT, "layout1"));
+    assertThat(resources.getSnapshotVersion(RES_AUTO, ResourceType.LAYOUT)).isEqualTo(layoutVersion);
+
+    // Snapshots are immutable copies, so a map obtained earlier is not affected by later edits.
+    List<ResourceItem> strings = resources.getResources(RES_AUTO, ResourceType.STRING, "title_layout_changes");
+    WriteCommandAction.runWriteCommandAction(null, () -> {
+      int offset = document.getText().indexOf("title_layout_changes");
+      document.insertString(offset, "r");
+      documentManager.commitDocument(document);
+    });
+    waitForUpdates(resources);
+    assertThat(strings).hasSize(1);
+    assertFalse(resources.hasResources(RES_AUTO, ResourceType.STRING, "title_layout_changes"));
+    assertTrue(resources.hasResources(RES_AUTO, ResourceType.STRING, "rtitle_layout_changes"));
+  }
+
   /**
    * This tests that even if we initialize ResourceFolderRepository with VirtualFiles and the test code is careful to only work with
    * VirtualFiles, we still get the PsiListener events.
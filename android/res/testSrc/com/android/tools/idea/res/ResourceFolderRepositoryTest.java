@@ -55,6 +55,7 @@ import com.android.resources.ResourceType;
 import com.android.testutils.TestUtils;
 import com.android.tools.configurations.Configuration;
 import com.android.tools.idea.configurations.ConfigurationManager;
+import com.android.tools.idea.flags.StudioFlags;
 import com.android.tools.idea.rendering.DrawableRenderer;
 import com.android.tools.idea.testing.AndroidProjectRule;
 import com.android.tools.res.LocalResourceRepository;
@@ -3931,6 +3932,39 @@ public class ResourceFolderRepositoryTest {
     assertThat(resourcesReloaded.getNumXmlFilesLoadedInitiallyFromSources()).isEqualTo(0);
   }
 
+  @Test
+  public void parallelLoadingMatchesSerialLoading() {
+    for (int i = 0; i < 50; i++) {
+      myFixture.addFileToProject("res/values/strings" + i + ".xml",
+                                 "<resources><string name=\"string" + i + "\">Value " + i + "</string></resources>");
+      myFixture.copyFileToProject(LAYOUT1, "res/layout/layout" + i + ".xml");
+    }
+    myFixture.copyFileToProject(VALUES1, "res/values-fr/myvalues.xml");
+
+    ResourceFolderRepository serial;
+    StudioFlags.RESOURCE_REPOSITORY_LOADER_THREADS.override(1);
+    try {
+      serial = createRepository(false);
+    }
+    finally {
+      StudioFlags.RESOURCE_REPOSITORY_LOADER_THREADS.clearOverride();
+    }
+    StudioFlags.RESOURCE_REPOSITORY_LOADER_THREADS.override(4);
+    ResourceFolderRepository parallel;
+    try {
+      parallel = createRepository(false);
+    }
+    finally {
+      StudioFlags.RESOURCE_REPOSITORY_LOADER_THREADS.clearOverride();
+    }
+
+    assertThat(parallel.getNumXmlFilesLoadedInitially()).isEqualTo(101);
+    assertThat(parallel.getNumXmlFilesLoadedInitiallyFromSources()).isEqualTo(101);
+    assertThat(parallel.hasResources(RES_AUTO, ResourceType.STRING, "string42")).isTrue();
+    assertThat(parallel.hasResources(RES_AUTO, ResourceType.ID, "noteArea")).isTrue();
+    assertContainSameData(myFacet, serial, parallel);
+  }
+
   @Test
   public void serialization() {
     myFixture.copyFileToProject(LAYOUT1, "res/layout/layout.xml");
@@ -23,6 +23,7 @@ import static com.google.wireless.android.sdk.stats.MemoryUsageReportEvent.Memor
 
 import com.android.tools.analytics.UsageTracker;
 import com.android.tools.idea.diagnostics.crash.StudioCrashReporter;
+import com.android.tools.idea.flags.StudioFlags;
 import com.google.wireless.android.sdk.stats.AndroidStudioEvent;
 import com.intellij.ide.PowerSaveMode;
 import com.intellij.openapi.Disposable;
@@ -60,7 +61,9 @@ public final class HeapSnapshotTraverse implements Disposable {
     return roots;
   };
 
-  private static final int MAX_ALLOWED_OBJECT_MAP_SIZE = 1_000_000;
+  // Pending nodes and the DFS stack live outside the Java heap: the node store keeps objects in the native map of the agent and masks in
+  // direct buffers, and the DFS stack is native. The limit only guards against runaway traversals.
+  private static final int MAX_ALLOWED_OBJECT_MAP_SIZE = 100_000_000;
   private static final int INVALID_OBJECT_ID = -1;
   private static final int INVALID_OBJECT_TAG = -1;
   private static final int MAX_DEPTH = 100_000;
@@ -83,6 +86,7 @@ public final class HeapSnapshotTraverse implements Disposable {
   private volatile boolean shouldAbortTraversal = false;
   private int lastObjectId = 0;
   private final boolean isExtendedReportCollection;
+  @NotNull private final HeapTraverseNodeStore nodeStore;
 
   public HeapSnapshotTraverse(@NotNull final HeapSnapshotStatistics statistics) {
     this(new HeapTraverseChildProcessor(statistics), statistics);
@@ -103,6 +107,8 @@ public final class HeapSnapshotTraverse implements Disposable {
     iterationId = getNextIterationId();
     this.statistics = statistics;
     this.isExtendedReportCollection = statistics.getExtendedReportStatistics() != null;
+    this.nodeStore = new HeapTraverseNodeStore(StudioFlags.MEMORY_USAGE_REPORT_OFF_HEAP_NODE_STORE.get(),
+                                               HeapTraverseNodeStore.NATIVE_OBJECT_HANDLES);
   }
 
   @TestOnly
@@ -143,8 +149,7 @@ public final class HeapSnapshotTraverse implements Disposable {
         final FieldCache fieldCache = new FieldCache(statistics);
 
         StackNode.clearDepthFirstSearchStack();
-        HeapTraverseNode.clearObjectIdToTraverseNodeMap();
-        HeapTraverseNode.cacheHeapSnapshotTraverseNodeConstructorId(HeapTraverseNode.class);
+        nodeStore.clear();
         WeakList<Object> startRoots = rootsComputable.compute();
         // enumerating heap objects in topological order
         for (Object root : startRoots) {
@@ -174,17 +179,17 @@ public final class HeapSnapshotTraverse implements Disposable {
         // iterate over objects in topological order and update masks
         for (int i = lastObjectId; i > 0; i--) {
           abortTraversalIfRequested();
-          int mapSize = HeapTraverseNode.getObjectIdToTraverseNodeMapSize();
+          int mapSize = nodeStore.size();
           statistics.updateMaxObjectsQueueSize(mapSize);
           if (mapSize > MAX_ALLOWED_OBJECT_MAP_SIZE) {
             return StatusCode.OBJECTS_MAP_IS_TOO_BIG;
           }
-          HeapTraverseNode node = HeapTraverseNode.getObjectIdToTraverseNodeMapElement(i, HeapTraverseNode.class);
+          HeapTraverseNode node = nodeStore.get(i);
           if (node == null) {
             statistics.incrementGarbageCollectedObjectsCounter();
             continue;
           }
-          HeapTraverseNode.removeElementFromObjectIdToTraverseNodeMap(i);
+          nodeStore.remove(i);
           Object currentObject = node.getObject();
           if (currentObject == null) {
             statistics.incrementGarbageCollectedObjectsCounter();
@@ -295,7 +300,7 @@ public final class HeapSnapshotTraverse implements Disposable {
       finally {
         // finalization operations that involved the native agent.
         StackNode.clearDepthFirstSearchStack();
-        HeapTraverseNode.clearObjectIdToTraverseNodeMap();
+        nodeStore.clear();
       }
     }
     catch (HeapSnapshotTraverseException exception) {
@@ -331,15 +336,8 @@ public final class HeapSnapshotTraverse implements Disposable {
                                                     boolean isMergePoint,
                                                     boolean isRetainedByPlatform,
                                                     int owningRootsSetHashcode) {
-    HeapTraverseNode.putOrUpdateObjectIdToTraverseNodeMap(id, obj,
-                                                          refWeight, ownedByComponentMask,
-                                                          retainedMask,
-                                                          retainedMaskForCategories,
-                                                          isMergePoint,
-                                                          isRetainedByPlatform);
-    if (isExtendedReportCollection) {
-      HeapTraverseNode.putOrUpdateObjectIdToExtendedTraverseNodeMap(id, owningRootsSetHashcode);
-    }
+    nodeStore.putOrUpdate(id, obj, refWeight, ownedByComponentMask, retainedMask, retainedMaskForCategories, isMergePoint,
+                          isRetainedByPlatform, isExtendedReportCollection ? owningRootsSetHashcode : 0);
   }
 
   private void addLinkFromCategoryRootToComponentRoot(@NotNull final ComponentsSet.Component currentObjectComponent,
@@ -606,9 +604,7 @@ public final class HeapSnapshotTraverse implements Disposable {
         ownershipWeight = HeapTraverseNode.RefWeight.NON_COMPONENT;
       }
 
-      HeapTraverseNode currentNode =
-        HeapTraverseNode.getObjectIdToTraverseNodeMapElement(objectId,
-                                                             HeapTraverseNode.class);
+      HeapTraverseNode currentNode = nodeStore.get(objectId);
       if (currentNode == null) {
         currentNode = new HeapTraverseNode(value, ownershipWeight, parentNode.ownedByComponentMask, parentNode.retainedMask,
                                            parentNode.retainedMaskForCategories, false, parentNode.isRetainedByPlatform,
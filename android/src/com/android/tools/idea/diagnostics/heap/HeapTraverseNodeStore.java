@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.diagnostics.heap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Compact object id to {@link HeapTraverseNode} store used during the mask propagation pass of {@link HeapSnapshotTraverse}.
+ * <p>
+ * Object ids are the dense topological order ids assigned during enumeration, so nodes are kept in pages of struct-of-arrays indexed by
+ * id instead of a hash map of node objects. Pages are allocated when the first node of their id range is added and dropped as soon as
+ * their last node is removed. Since the traversal processes ids in decreasing order and only ever adds nodes with smaller ids, the live
+ * pages follow a window moving towards id 0.
+ * <p>
+ * Masks and flags are kept off-heap in direct buffers by default. The objects themselves are not referenced from the Java heap: they are
+ * handed over to {@link ObjectHandles}, which during a traversal is the native map of the object tagging agent. It holds them weakly, so a
+ * node whose object was garbage collected is still returned by {@link #get}, with a null {@link HeapTraverseNode#getObject()}. The heap
+ * cost of a pending node is therefore zero, whatever the number of pending nodes.
+ */
+final class HeapTraverseNodeStore {
+  private static final int PAGE_SHIFT = 16;
+  private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private static final int WEIGHT_MASK = 0x7;
+  private static final int MERGE_POINT_FLAG = 0x8;
+  private static final int RETAINED_BY_PLATFORM_FLAG = 0x10;
+  private static final int PRESENT_FLAG = 0x20;
+
+  /**
+   * Weak object id to object table that lives outside the Java heap.
+   */
+  interface ObjectHandles {
+    void put(int id, @NotNull Object obj);
+
+    /**
+     * @return the object stored for the id, or null if there is none or if it was garbage collected.
+     */
+    @Nullable
+    Object get(int id);
+
+    void remove(int id);
+
+    void clear();
+  }
+
+  /**
+   * {@link ObjectHandles} backed by the object id to {@link HeapTraverseNode} map of the object tagging agent. Only the object of the native
+   * nodes is used, their masks are left empty.
+   */
+  static final ObjectHandles NATIVE_OBJECT_HANDLES = new ObjectHandles() {
+    @Override
+    public void put(int id, @NotNull Object obj) {
+      HeapTraverseNode.putOrUpdateObjectIdToTraverseNodeMap(id, obj, HeapTraverseNode.RefWeight.DEFAULT.getValue(), 0L, 0L, 0, false,
+                                                            false);
+    }
+
+    @Nullable
+    @Override
+    public Object get(int id) {
+      HeapTraverseNode node = HeapTraverseNode.getObjectIdToTraverseNodeMapElement(id, HeapTraverseNode.class);
+      return node != null ? node.getObject() : null;
+    }
+
+    @Override
+    public void remove(int id) {
+      HeapTraverseNode.removeElementFromObjectIdToTraverseNodeMap(id);
+    }
+
+    @Override
+    public void clear() {
+      HeapTraverseNode.clearObjectIdToTraverseNodeMap();
+      HeapTraverseNode.cacheHeapSnapshotTraverseNodeConstructorId(HeapTraverseNode.class);
+    }
+  };
+
+  private final boolean offHeap;
+  @NotNull private final ObjectHandles objectHandles;
+  @NotNull private Page[] pages = new Page[0];
+  private int size;
+  private long allocatedBytes;
+
+  HeapTraverseNodeStore(boolean offHeap, @NotNull ObjectHandles objectHandles) {
+    this.offHeap = offHeap;
+    this.objectHandles = objectHandles;
+  }
+
+  void clear() {
+    pages = new Page[0];
+    size = 0;
+    allocatedBytes = 0;
+    objectHandles.clear();
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return the number of bytes allocated for masks and flags, either on or off heap. Object handles are not included.
+   */
+  long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /**
+   * Adds a new node initialized with the passed object, reference weight, masks and hashcode if the passed id was not yet added to the
+   * store. Otherwise, updates the existing element.
+   */
+  void putOrUpdate(int id,
+                   @NotNull final Object obj,
+                   byte refWeight,
+                   long ownedByComponentMask,
+                   long retainedMask,
+                   int retainedMaskForCategories,
+                   boolean isMergePoint,
+                   boolean isRetainedByPlatform,
+                   int owningRootsSetHashcode) {
+    Page page = getOrCreatePage(id >>> PAGE_SHIFT);
+    int index = id & PAGE_MASK;
+    if ((page.getFlags(index) & PRESENT_FLAG) == 0) {
+      // The id comes from the object tag, so an id that is already present always refers to the same object.
+      objectHandles.put(id, obj);
+      page.liveCount++;
+      size++;
+    }
+    int flags = (refWeight & WEIGHT_MASK) | PRESENT_FLAG;
+    if (isMergePoint) flags |= MERGE_POINT_FLAG;
+    if (isRetainedByPlatform) flags |= RETAINED_BY_PLATFORM_FLAG;
+    page.set(index, ownedByComponentMask, retainedMask, retainedMaskForCategories, owningRootsSetHashcode, (byte)flags);
+  }
+
+  /**
+   * @return a {@link HeapTraverseNode} holding a copy of the stored values, or null if no node is stored for the id. The object of the
+   * returned node is null if it was garbage collected. Changes to the returned node need to be written back with {@link #putOrUpdate}.
+   */
+  @Nullable
+  HeapTraverseNode get(int id) {
+    Page page = getPage(id);
+    if (page == null) {
+      return null;
+    }
+    int index = id & PAGE_MASK;
+    byte flags = page.getFlags(index);
+    if ((flags & PRESENT_FLAG) == 0) {
+      return null;
+    }
+    return new HeapTraverseNode(objectHandles.get(id), (byte)(flags & WEIGHT_MASK), page.getOwnedByComponentMask(index),
+                                page.getRetainedMask(index), page.getRetainedMaskForCategories(index), (flags & MERGE_POINT_FLAG) != 0,
+                                (flags & RETAINED_BY_PLATFORM_FLAG) != 0, page.getOwningRootsSetHashcode(index));
+  }
+
+  void remove(int id) {
+    Page page = getPage(id);
+    if (page == null) {
+      return;
+    }
+    int index = id & PAGE_MASK;
+    if ((page.getFlags(index) & PRESENT_FLAG) == 0) {
+      return;
+    }
+    page.set(index, 0L, 0L, 0, 0, (byte)0);
+    objectHandles.remove(id);
+    size--;
+    if (--page.liveCount == 0) {
+      pages[id >>> PAGE_SHIFT] = null;
+      allocatedBytes -= page.getAllocatedBytes();
+    }
+  }
+
+  @Nullable
+  private Page getPage(int id) {
+    int pageIndex = id >>> PAGE_SHIFT;
+    return pageIndex < pages.length ? pages[pageIndex] : null;
+  }
+
+  @NotNull
+  private Page getOrCreatePage(int pageIndex) {
+    if (pageIndex >= pages.length) {
+      pages = Arrays.copyOf(pages, Math.max(pageIndex + 1, pages.length * 2));
+    }
+    Page page = pages[pageIndex];
+    if (page == null) {
+      page = offHeap ? new OffHeapPage() : new OnHeapPage();
+      pages[pageIndex] = page;
+      allocatedBytes += page.getAllocatedBytes();
+    }
+    return page;
+  }
+
+  private abstract static class Page {
+    int liveCount;
+
+    abstract void set(int index, long ownedByComponentMask, long retainedMask, int retainedMaskForCategories, int owningRootsSetHashcode,
+                      byte flags);
+
+    abstract long getOwnedByComponentMask(int index);
+
+    abstract long getRetainedMask(int index);
+
+    abstract int getRetainedMaskForCategories(int index);
+
+    abstract int getOwningRootsSetHashcode(int index);
+
+    abstract byte getFlags(int index);
+
+    abstract long getAllocatedBytes();
+  }
+
+  private static final class OnHeapPage extends Page {
+    private final long[] ownedByComponentMasks = new long[PAGE_SIZE];
+    private final long[] retainedMasks = new long[PAGE_SIZE];
+    private final int[] retainedMasksForCategories = new int[PAGE_SIZE];
+    private final int[] owningRootsSetHashcodes = new int[PAGE_SIZE];
+    private final byte[] flags = new byte[PAGE_SIZE];
+
+    @Override
+    void set(int index, long ownedByComponentMask, long retainedMask, int retainedMaskForCategories, int owningRootsSetHashcode,
+             byte flags) {
+      ownedByComponentMasks[index] = ownedByComponentMask;
+      retainedMasks[index] = retainedMask;
+      retainedMasksForCategories[index] = retainedMaskForCategories;
+      owningRootsSetHashcodes[index] = owningRootsSetHashcode;
+      this.flags[index] = flags;
+    }
+
+    @Override
+    long getOwnedByComponentMask(int index) {
+      return ownedByComponentMasks[index];
+    }
+
+    @Override
+    long getRetainedMask(int index) {
+      return retainedMasks[index];
+    }
+
+    @Override
+    int getRetainedMaskForCategories(int index) {
+      return retainedMasksForCategories[index];
+    }
+
+    @Override
+    int getOwningRootsSetHashcode(int index) {
+      return owningRootsSetHashcodes[index];
+    }
+
+    @Override
+    byte getFlags(int index) {
+      return flags[index];
+    }
+
+    @Override
+    long getAllocatedBytes() {
+      return (long)PAGE_SIZE * (Long.BYTES * 2 + Integer.BYTES * 2 + 1);
+    }
+  }
+
+  private static final class OffHeapPage extends Page {
+    // ownedByComponentMask(8) + retainedMask(8) + retainedMaskForCategories(4) + owningRootsSetHashcode(4) + flags(1), padded to 32.
+    private static final int STRIDE = 32;
+    private static final int RETAINED_MASK_OFFSET = 8;
+    private static final int RETAINED_MASK_FOR_CATEGORIES_OFFSET = 16;
+    private static final int OWNING_ROOTS_SET_HASHCODE_OFFSET = 20;
+    private static final int FLAGS_OFFSET = 24;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(PAGE_SIZE * STRIDE).order(ByteOrder.nativeOrder());
+
+    @Override
+    void set(int index, long ownedByComponentMask, long retainedMask, int retainedMaskForCategories, int owningRootsSetHashcode,
+             byte flags) {
+      int base = index * STRIDE;
+      buffer.putLong(base, ownedByComponentMask);
+      buffer.putLong(base + RETAINED_MASK_OFFSET, retainedMask);
+      buffer.putInt(base + RETAINED_MASK_FOR_CATEGORIES_OFFSET, retainedMaskForCategories);
+      buffer.putInt(base + OWNING_ROOTS_SET_HASHCODE_OFFSET, owningRootsSetHashcode);
+      buffer.put(base + FLAGS_OFFSET, flags);
+    }
+
+    @Override
+    long getOwnedByComponentMask(int index) {
+      return buffer.getLong(index * STRIDE);
+    }
+
+    @Override
+    long getRetainedMask(int index) {
+      return buffer.getLong(index * STRIDE + RETAINED_MASK_OFFSET);
+    }
+
+    @Override
+    int getRetainedMaskForCategories(int index) {
+      return buffer.getInt(index * STRIDE + RETAINED_MASK_FOR_CATEGORIES_OFFSET);
+    }
+
+    @Override
+    int getOwningRootsSetHashcode(int index) {
+      return buffer.getInt(index * STRIDE + OWNING_ROOTS_SET_HASHCODE_OFFSET);
+    }
+
+    @Override
+    byte getFlags(int index) {
+      return buffer.get(index * STRIDE + FLAGS_OFFSET);
+    }
+
+    @Override
+    long getAllocatedBytes() {
+      return (long)PAGE_SIZE * STRIDE;
+    }
+  }
+}
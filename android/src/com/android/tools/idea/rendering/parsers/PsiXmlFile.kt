@@ -52,6 +52,9 @@ class PsiXmlFile(@VisibleForTesting val xmlFile: XmlFile) : RenderXmlFile {
   override val resourceNamespace: ResourceNamespace?
     get() = xmlFile.resourceNamespace
 
+  override val modificationStamp: Long
+    get() = xmlFile.modificationStamp
+
   /** Get the value of an attribute in the [XmlFile] safely (meaning it will acquire the read lock first). */
   override fun getRootTagAttribute(attribute: String, namespace: String?): String? {
     val application = ApplicationManager.getApplication()
@@ -63,4 +66,8 @@ class PsiXmlFile(@VisibleForTesting val xmlFile: XmlFile) : RenderXmlFile {
   }
 
   override fun get(): PsiFile = xmlFile
+
+  override fun equals(other: Any?): Boolean = other is PsiXmlFile && other.xmlFile == xmlFile
+
+  override fun hashCode(): Int = xmlFile.hashCode()
 }
\ No newline at end of file
@@ -65,6 +65,7 @@ import com.android.resources.base.ResourceSerializationUtil;
 import com.android.resources.base.ResourceSourceFile;
 import com.android.sdklib.IAndroidTarget;
 import com.android.tools.idea.configurations.ConfigurationManager;
+import com.android.tools.idea.flags.StudioFlags;
 import com.android.tools.idea.util.FileExtensions;
 import com.android.tools.module.ModuleKeyManager;
 import com.android.tools.res.LocalResourceRepository;
@@ -141,7 +142,9 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 import org.jetbrains.android.facet.AndroidFacet;
@@ -192,6 +195,20 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
   private static final Comparator<ResourceItemSource<?>> SOURCE_COMPARATOR =
       Comparator.comparing(ResourceItemSource::getFolderConfiguration);
   private static final Logger LOG = Logger.getInstance(ResourceFolderRepository.class);
+  /**
+   * Minimum number of resource files to parse during the initial load for the parsing to be split between threads.
+   */
+  private static final int MIN_FILES_FOR_PARALLEL_LOADING = 64;
+  /**
+   * Names of the value files that may declare public resources.
+   */
+  private static final Set<String> PUBLIC_RESOURCES_FILE_NAMES = ImmutableSet.of("public.xml", "public-final.xml", "public-staging.xml");
+  /**
+   * Parses resource files during the initial load of all repositories. Shared so that opening a project with many modules doesn't
+   * start more parsing threads than {@link StudioFlags#RESOURCE_REPOSITORY_LOADER_THREADS}.
+   */
+  private static final ExecutorService LOADER_EXECUTOR = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+      "ResourceFolderRepository Loader", Math.max(1, StudioFlags.RESOURCE_REPOSITORY_LOADER_THREADS.get()));
 
   @NotNull private final AndroidFacet myFacet;
   @NotNull private final PsiTreeChangeListener myPsiListener;
@@ -2368,6 +2385,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
     }
 
     private void scanResFolder() {
+      List<PendingFile> filesToParse = new ArrayList<>();
       try {
         for (VirtualFile subDir : myResourceDir.getChildren()) {
           if (subDir.isValid() && subDir.isDirectory()) {
@@ -2393,24 +2411,13 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                   continue;
                 }
 
-                PathString pathString = FileExtensions.toPathString(file);
-                myLastVirtualFile = file;
-                myLastPathString = pathString;
-                try {
-                  loadResourceFile(pathString, folderInfo, configuration);
-                  if (isParsableFile(file, folderInfo)) {
-                    countCacheMiss();
-                  }
-                }
-                catch (ParsingException e) {
-                  // Reparse the file as PSI. The PSI parser is more forgiving than KXmlParser because
-                  // it is designed to work with potentially malformed files in the middle of editing.
-                  myFilesToReparseAsPsi.add(file);
-                }
+                filesToParse.add(new PendingFile(file, folderInfo, configuration));
               }
             }
           }
         }
+
+        parseFiles(filesToParse);
       }
       catch (ProcessCanceledException e) {
         throw e;
@@ -2441,6 +2448,79 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
       }
     }
 
+    /**
+     * Parses the files that were not loaded from the cache. When there are enough of them, they are split between loaders running on
+     * {@link #LOADER_EXECUTOR}, each with its own parser state, and their results are merged into this loader in the original order.
+     */
+    private void parseFiles(@NotNull List<PendingFile> files) throws ExecutionException, InterruptedException {
+      int threads = StudioFlags.RESOURCE_REPOSITORY_LOADER_THREADS.get();
+      List<PendingFile> parallelFiles = new ArrayList<>(files.size());
+      for (PendingFile file : files) {
+        // Public resource declarations are recorded in the loader and applied by finishLoading, keep them on this loader.
+        if (threads > 1 && files.size() >= MIN_FILES_FOR_PARALLEL_LOADING && !PUBLIC_RESOURCES_FILE_NAMES.contains(file.file.getName())) {
+          parallelFiles.add(file);
+        }
+        else {
+          parseFile(file);
+        }
+      }
+
+      if (!parallelFiles.isEmpty()) {
+        ProgressIndicator indicator = ProgressManager.getGlobalProgressIndicator();
+        int chunkSize = (parallelFiles.size() + threads - 1) / threads;
+        List<Future<Loader>> futures = new ArrayList<>(threads);
+        for (int start = 0; start < parallelFiles.size(); start += chunkSize) {
+          List<PendingFile> chunk = parallelFiles.subList(start, Math.min(start + chunkSize, parallelFiles.size()));
+          futures.add(LOADER_EXECUTOR.submit(() -> {
+            Loader loader = new Loader(myRepository, null);
+            for (PendingFile file : chunk) {
+              if (indicator != null) {
+                indicator.checkCanceled();
+              }
+              loader.parseFile(file);
+            }
+            return loader;
+          }));
+        }
+        for (Future<Loader> future : futures) {
+          Loader loader;
+          try {
+            loader = future.get();
+          }
+          catch (ExecutionException e) {
+            if (e.getCause() instanceof ProcessCanceledException) {
+              futures.forEach(f -> f.cancel(false));
+              throw (ProcessCanceledException)e.getCause();
+            }
+            throw e;
+          }
+          mySources.putAll(loader.mySources);
+          myFileResources.putAll(loader.myFileResources);
+          myFilesToReparseAsPsi.addAll(loader.myFilesToReparseAsPsi);
+        }
+      }
+
+      for (PendingFile file : files) {
+        if (!myFilesToReparseAsPsi.contains(file.file) && isParsableFile(file.file, file.folderInfo)) {
+          countCacheMiss();
+        }
+      }
+    }
+
+    private void parseFile(@NotNull PendingFile file) {
+      PathString pathString = FileExtensions.toPathString(file.file);
+      myLastVirtualFile = file.file;
+      myLastPathString = pathString;
+      try {
+        loadResourceFile(pathString, file.folderInfo, file.configuration);
+      }
+      catch (ParsingException e) {
+        // Reparse the file as PSI. The PSI parser is more forgiving than KXmlParser because
+        // it is designed to work with potentially malformed files in the middle of editing.
+        myFilesToReparseAsPsi.add(file.file);
+      }
+    }
+
     private void loadResourceFile(
         @NotNull PathString file, @NotNull FolderInfo folderInfo, @NotNull RepositoryConfiguration configuration) {
       if (folderInfo.resourceType == null) {
@@ -2593,6 +2673,21 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
       ++myRepository.myNumXmlFilesLoadedInitially;
       ++myRepository.myNumXmlFilesLoadedInitiallyFromSources;
     }
+
+    /**
+     * A resource file found during the initial load that was not loaded from the cache.
+     */
+    private static final class PendingFile {
+      @NotNull final VirtualFile file;
+      @NotNull final FolderInfo folderInfo;
+      @NotNull final RepositoryConfiguration configuration;
+
+      PendingFile(@NotNull VirtualFile file, @NotNull FolderInfo folderInfo, @NotNull RepositoryConfiguration configuration) {
+        this.file = file;
+        this.folderInfo = folderInfo;
+        this.configuration = configuration;
+      }
+    }
   }
 
   private static class ParsingException extends RuntimeException {
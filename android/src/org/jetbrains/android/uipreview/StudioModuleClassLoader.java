@@ -23,6 +23,7 @@ import com.android.tools.idea.rendering.classloading.ViewMethodWrapperTransform;
 import com.android.tools.idea.rendering.classloading.ViewTreeLifecycleTransform;
 import com.android.tools.idea.rendering.classloading.loaders.ProjectSystemClassLoader;
 import com.android.tools.rendering.ModuleRenderContext;
+import com.android.tools.rendering.RenderAsyncActionExecutor;
 import com.android.tools.rendering.RenderService;
 import com.android.tools.rendering.classloading.ClassTransform;
 import com.android.tools.rendering.classloading.ModuleClassLoader;
@@ -445,8 +446,8 @@ public final class StudioModuleClassLoader extends ModuleClassLoader implements
         return;
       }
 
-      // Because we are clearing-up ThreadLocals, the code must run on the Layoutlib Thread
-      RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+      // Because we are clearing-up ThreadLocals, the code must run on the Layoutlib Thread that used this class loader
+      RenderService.getRenderAsyncActionExecutor().runAsyncAction(RenderAsyncActionExecutor.RenderingTopic.NOT_SPECIFIED, this, () -> {
         for (ThreadLocal<?> threadLocal : threadLocals) {
           try {
             threadLocal.remove();
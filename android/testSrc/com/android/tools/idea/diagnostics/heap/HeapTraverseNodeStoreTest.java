@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.diagnostics.heap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class HeapTraverseNodeStoreTest {
+  @Parameterized.Parameters(name = "offHeap={0}")
+  public static Collection<Object[]> data() {
+    return Arrays.asList(new Object[][]{{false}, {true}});
+  }
+
+  private final TestObjectHandles objectHandles = new TestObjectHandles();
+  private final HeapTraverseNodeStore store;
+
+  public HeapTraverseNodeStoreTest(boolean offHeap) {
+    store = new HeapTraverseNodeStore(offHeap, objectHandles);
+  }
+
+  @Test
+  public void putAndGet() {
+    Object obj = new Object();
+    store.putOrUpdate(42, obj, HeapTraverseNode.RefWeight.STATIC_FIELD.getValue(), 0x5L, 0xF0F0F0F0F0L, 3, true, false, 1234);
+
+    HeapTraverseNode node = store.get(42);
+    assertThat(node).isNotNull();
+    assertThat(node.getObject()).isSameAs(obj);
+    assertThat(node.ownershipWeight).isEqualTo(HeapTraverseNode.RefWeight.STATIC_FIELD);
+    assertThat(node.ownedByComponentMask).isEqualTo(0x5L);
+    assertThat(node.retainedMask).isEqualTo(0xF0F0F0F0F0L);
+    assertThat(node.retainedMaskForCategories).isEqualTo(3);
+    assertThat(node.isMergePoint).isTrue();
+    assertThat(node.isRetainedByPlatform).isFalse();
+    assertThat(node.owningRootsSetHashcode).isEqualTo(1234);
+    assertThat(store.get(41)).isNull();
+    assertThat(store.get(1_000_000)).isNull();
+  }
+
+  @Test
+  public void updateDoesNotChangeSize() {
+    Object obj = new Object();
+    store.putOrUpdate(7, obj, HeapTraverseNode.RefWeight.DEFAULT.getValue(), 1L, 1L, 1, false, false, 0);
+    store.putOrUpdate(7, obj, HeapTraverseNode.RefWeight.INSTANCE_FIELD.getValue(), 2L, 0L, 0, false, true, 0);
+
+    assertThat(store.size()).isEqualTo(1);
+    assertThat(objectHandles.handles).hasSize(1);
+    HeapTraverseNode node = store.get(7);
+    assertThat(node.ownershipWeight).isEqualTo(HeapTraverseNode.RefWeight.INSTANCE_FIELD);
+    assertThat(node.ownedByComponentMask).isEqualTo(2L);
+    assertThat(node.isRetainedByPlatform).isTrue();
+  }
+
+  @Test
+  public void objectsAreNotKeptAlive() throws InterruptedException {
+    WeakReference<Object> reference = putNewObject(3);
+    for (int i = 0; i < 100 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertThat(reference.get()).isNull();
+
+    // The node is still there so that the traversal can count the object as garbage collected.
+    HeapTraverseNode node = store.get(3);
+    assertThat(node).isNotNull();
+    assertThat(node.getObject()).isNull();
+    assertThat(node.ownedByComponentMask).isEqualTo(4L);
+    assertThat(store.size()).isEqualTo(1);
+  }
+
+  private WeakReference<Object> putNewObject(int id) {
+    Object obj = new Object();
+    store.putOrUpdate(id, obj, HeapTraverseNode.RefWeight.DEFAULT.getValue(), 4L, 0L, 0, false, false, 0);
+    return new WeakReference<>(obj);
+  }
+
+  @Test
+  public void emptiedPagesAreReleased() {
+    int count = 200_000;
+    for (int id = 1; id <= count; id++) {
+      store.putOrUpdate(id, id, HeapTraverseNode.RefWeight.DEFAULT.getValue(), 0L, 0L, 0, false, false, 0);
+    }
+    assertThat(store.size()).isEqualTo(count);
+    long allocated = store.getAllocatedBytes();
+    assertThat(allocated).isGreaterThan(0L);
+
+    // Remove in the traversal order, from the highest id down.
+    for (int id = count; id > count / 2; id--) {
+      store.remove(id);
+    }
+    assertThat(store.size()).isEqualTo(count / 2);
+    assertThat(objectHandles.handles).hasSize(count / 2);
+    assertThat(store.getAllocatedBytes()).isLessThan(allocated);
+    assertThat(store.get(count)).isNull();
+    assertThat(store.get(1).getObject()).isEqualTo(1);
+
+    store.clear();
+    assertThat(store.size()).isEqualTo(0);
+    assertThat(store.getAllocatedBytes()).isEqualTo(0L);
+    assertThat(objectHandles.handles).isEmpty();
+  }
+
+  /**
+   * Weak handle table standing in for the native map of the object tagging agent.
+   */
+  private static class TestObjectHandles implements HeapTraverseNodeStore.ObjectHandles {
+    final Map<Integer, WeakReference<Object>> handles = new HashMap<>();
+
+    @Override
+    public void put(int id, Object obj) {
+      handles.put(id, new WeakReference<>(obj));
+    }
+
+    @Override
+    public Object get(int id) {
+      WeakReference<Object> handle = handles.get(id);
+      return handle != null ? handle.get() : null;
+    }
+
+    @Override
+    public void remove(int id) {
+      handles.remove(id);
+    }
+
+    @Override
+    public void clear() {
+      handles.clear();
+    }
+  }
+}
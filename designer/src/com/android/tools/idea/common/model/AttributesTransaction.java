@@ -22,6 +22,7 @@ import com.android.ide.common.rendering.api.ViewInfo;
 import com.android.tools.idea.uibuilder.handlers.constraint.ComponentModification;
 import com.android.tools.idea.uibuilder.model.LayoutParamsManager;
 import com.android.tools.idea.uibuilder.model.NlComponentHelperKt;
+import com.android.tools.rendering.RenderAsyncActionExecutor.RenderingTopic;
 import com.android.tools.rendering.RenderService;
 import com.android.tools.rendering.parsers.AttributeSnapshot;
 import com.google.common.collect.Maps;
@@ -102,14 +103,15 @@ public class AttributesTransaction implements NlAttributesHolder {
   }
 
   /**
-   * Triggers a re-layout of the given {@link View}. This might happen asynchronously.
+   * Triggers a re-layout of the given {@link View} on the render thread of the given {@code affinityKey}. This might happen
+   * asynchronously.
    */
-  private static void triggerViewRelayout(@NotNull View view) {
+  private static void triggerViewRelayout(@NotNull View view, @Nullable Object affinityKey) {
     try {
       // We run the re-layout as a render action to avoid a render happening at the same time as the re-layout since that
       // might cause problems.
       // TODO: Investigate a more lightweight solution for this.
-      RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+      RenderService.getRenderAsyncActionExecutor().runAsyncAction(RenderingTopic.NOT_SPECIFIED, affinityKey, () -> {
         view.setLayoutParams(view.getLayoutParams());
         view.forceLayout();
       });
@@ -222,7 +224,7 @@ public class AttributesTransaction implements NlAttributesHolder {
       applyAllPendingAttributesToView(viewInfo);
       if (hasPendingRelayout) {
         hasLayoutAttributeChanged = true;
-        triggerViewRelayout((View)viewInfo.getViewObject());
+        triggerViewRelayout((View)viewInfo.getViewObject(), myComponent.getModel().getRenderAffinityKey());
       }
     }
   }
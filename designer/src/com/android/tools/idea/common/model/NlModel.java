@@ -68,6 +68,7 @@ import com.intellij.psi.xml.XmlTag;
 import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.ui.update.MergingUpdateQueue;
 import com.intellij.util.ui.update.Update;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -162,6 +163,13 @@ public class NlModel implements ModificationTracker, DataContextHolder {
   @Nullable
   private String myGroupId = null;
 
+  /**
+   * Affinity key of the render task that produced the views of this model, see {@link #getRenderAffinityKey()}. Held weakly so the model
+   * does not keep the class loader of a disposed render task alive.
+   */
+  @NotNull
+  private volatile WeakReference<Object> myRenderAffinityKey = new WeakReference<>(null);
+
   @NotNull
   public static NlModelBuilder builder(@NotNull AndroidFacet facet, @NotNull VirtualFile file, @NotNull Configuration configuration) {
     return new NlModelBuilder(facet, file, configuration);
@@ -864,6 +872,23 @@ public class NlModel implements ModificationTracker, DataContextHolder {
     return myModelTooltip;
   }
 
+  /**
+   * Sets the affinity key of the render task that renders this model. Called by the scene manager when its render task changes.
+   */
+  public void setRenderAffinityKey(@Nullable Object affinityKey) {
+    myRenderAffinityKey = new WeakReference<>(affinityKey);
+  }
+
+  /**
+   * Returns the affinity key that actions accessing the rendered views of this model must pass to the
+   * {@link com.android.tools.rendering.RenderAsyncActionExecutor} so they run on the same render thread as the render, or null if the
+   * model has not been rendered.
+   */
+  @Nullable
+  public Object getRenderAffinityKey() {
+    return myRenderAffinityKey.get();
+  }
+
   @Override
   public void dispose() {
     myDisposed = true;
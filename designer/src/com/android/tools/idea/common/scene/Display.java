@@ -50,7 +50,7 @@ public class Display {
       scene.buildDisplayList(myDisplayList, mTime, sceneContext);
       myDisplayListVersion = scene.getDisplayListVersion();
       if (needsRebuild) {
-        scene.needsRebuildList();
+        scene.needsRebuildListAfterLayout();
       }
     }
     draw(sceneContext, g, myDisplayList);
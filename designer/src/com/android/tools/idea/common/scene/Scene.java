@@ -43,6 +43,7 @@ import com.android.tools.idea.common.scene.target.MultiComponentTarget;
 import com.android.tools.idea.common.scene.target.Target;
 import com.android.tools.idea.common.surface.DesignSurface;
 import com.android.tools.idea.common.surface.SceneView;
+import com.android.tools.idea.flags.StudioFlags;
 import com.android.tools.idea.rendering.StudioRenderService;
 import com.android.tools.idea.rendering.parsers.PsiXmlFile;
 import com.android.tools.idea.rendering.parsers.PsiXmlTag;
@@ -109,6 +110,8 @@ public class Scene implements SelectionListener, Disposable {
   public static final int IMMEDIATE_LAYOUT = 1;
   public static final int ANIMATED_LAYOUT = 2;
   private long myDisplayListVersion = 1;
+  // Bumped when the whole display list needs to be rebuilt, invalidating the commands cached by the SceneComponents.
+  private long myDisplayListGeneration = 1;
   private Target myOverTarget;
   private Target mySnapTarget;
   private SceneComponent myCurrentComponent;
@@ -372,6 +375,8 @@ public class Scene implements SelectionListener, Disposable {
   public void selectionChanged(@NotNull SelectionModel model, @NotNull List<NlComponent> selection) {
     if (myRoot != null) {
       markSelection(myRoot, model);
+      // Targets of other components may depend on the size of the selection.
+      needsRebuildList();
     }
   }
 
@@ -427,12 +432,14 @@ public class Scene implements SelectionListener, Disposable {
    */
   public void buildDisplayList(@NotNull DisplayList displayList, long time, SceneContext sceneContext) {
     if (myRoot != null) {
-      // clear the objects and release
-      sceneContext.getScenePicker().foreachObject(o -> {
-        if (o instanceof SecondarySelector) {
-          ((SecondarySelector)o).release();
-        }
-      });
+      // clear the objects and release, unless the selectors may still be used by draw commands cached in the components
+      if (!StudioFlags.NELE_INCREMENTAL_DISPLAY_LIST.get()) {
+        sceneContext.getScenePicker().foreachObject(o -> {
+          if (o instanceof SecondarySelector) {
+            ((SecondarySelector)o).release();
+          }
+        });
+      }
 
       sceneContext.getScenePicker().reset();
       myRoot.buildDisplayList(time, displayList, sceneContext);
@@ -459,7 +466,7 @@ public class Scene implements SelectionListener, Disposable {
     if (myRoot != null) {
       needsToRebuildDisplayList = myRoot.layout(sceneContext, time);
       if (needsToRebuildDisplayList) {
-        needsRebuildList();
+        needsRebuildListAfterLayout();
       }
     }
     return needsToRebuildDisplayList;
@@ -525,13 +532,13 @@ public class Scene implements SelectionListener, Disposable {
     if (myOverTarget != closestTarget || (closestTarget != null && !closestTarget.isMouseHovered())) {
       if (myOverTarget != null) {
         myOverTarget.setMouseHovered(false);
+        needsRebuildList(myOverTarget.getComponent());
         myOverTarget = null;
-        needsRebuildList();
       }
       if (closestTarget != null) {
         closestTarget.setMouseHovered(true);
         myOverTarget = closestTarget;
-        needsRebuildList();
+        needsRebuildList(closestTarget.getComponent());
       }
     }
     if (closestTarget != null) {
@@ -540,13 +547,13 @@ public class Scene implements SelectionListener, Disposable {
       if (snapTarget != mySnapTarget || (snapTarget != null && !snapTarget.isMouseHovered())) {
         if (mySnapTarget != null) {
           mySnapTarget.setMouseHovered(false);
+          needsRebuildList(mySnapTarget.getComponent());
           mySnapTarget = null;
-          needsRebuildList();
         }
         if (snapTarget != null) {
           snapTarget.setMouseHovered(true);
           mySnapTarget = closestTarget;
-          needsRebuildList();
+          needsRebuildList(snapTarget.getComponent());
         }
       }
     }
@@ -560,13 +567,14 @@ public class Scene implements SelectionListener, Disposable {
     if (myCurrentComponent != closestComponent || (closestComponent != null && closestComponent.getDrawState() != SceneComponent.DrawState.HOVER)) {
       if (myCurrentComponent != null) {
         myCurrentComponent.setDrawState(SceneComponent.DrawState.NORMAL);
+        needsRebuildList(myCurrentComponent);
         myCurrentComponent = null;
       }
       if (closestComponent != null) {
         closestComponent.setDrawState(SceneComponent.DrawState.HOVER);
         myCurrentComponent = closestComponent;
+        needsRebuildList(closestComponent);
       }
-      needsRebuildList();
     }
 
     if (closestComponent == null
@@ -1088,6 +1096,32 @@ public class Scene implements SelectionListener, Disposable {
   // requiring it to be done explicitly by the code that's modifying them.
   public void needsRebuildList() {
     myDisplayListVersion++;
+    myDisplayListGeneration++;
+  }
+
+  /**
+   * Requests a new display list after a change that only affects the given component. The other components
+   * may reuse the draw commands they built last time, see {@link SceneComponent#buildDisplayList(long, DisplayList, SceneContext)}.
+   */
+  public void needsRebuildList(@NotNull SceneComponent component) {
+    component.markDisplayListDirty();
+    myDisplayListVersion++;
+  }
+
+  /**
+   * Requests a new display list after {@link #layout(long, SceneContext)} reported changes. The components that changed during the
+   * layout already marked themselves as dirty, see {@link SceneComponent#markDisplayListDirty()}.
+   */
+  public void needsRebuildListAfterLayout() {
+    myDisplayListVersion++;
+  }
+
+  /**
+   * Returns the generation of the display list, which changes every time the whole list needs to be rebuilt. The draw commands cached by
+   * the {@link SceneComponent}s are only valid for the generation they were built in.
+   */
+  public long getDisplayListGeneration() {
+    return myDisplayListGeneration;
   }
 
   //endregion
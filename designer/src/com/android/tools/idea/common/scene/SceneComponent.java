@@ -20,7 +20,9 @@ import com.android.tools.idea.common.model.AndroidDpCoordinate;
 import com.android.tools.idea.common.model.Coordinates;
 import com.android.tools.idea.common.model.NlComponent;
 import com.android.tools.idea.common.scene.decorator.SceneDecorator;
+import com.android.tools.idea.common.scene.draw.ColorSet;
 import com.android.tools.idea.common.scene.draw.DisplayList;
+import com.android.tools.idea.common.scene.draw.DrawCommand;
 import com.android.tools.idea.common.scene.target.CommonDragTarget;
 import com.android.tools.idea.common.scene.target.Target;
 import com.android.tools.idea.flags.StudioFlags;
@@ -96,6 +98,17 @@ public class SceneComponent {
 
   private boolean myShowBaseline = false;
 
+  // Draw commands built by the decorator of this component and its children, reused while the component is not dirty.
+  private boolean myDisplayListDirty = true;
+  @Nullable private List<DrawCommand> myCachedCommands;
+  private long myCachedGeneration;
+  @Nullable private SceneContext myCachedContext;
+  @Nullable private ColorSet myCachedColorSet;
+  private double myCachedScale;
+  private int myCachedOriginX;
+  private int myCachedOriginY;
+  private boolean myCachedShowOnlySelection;
+
   @Nullable private Notch.Provider myNotchProvider = null;
 
   @AndroidDpCoordinate
@@ -417,7 +430,7 @@ public class SceneComponent {
       NlComponentHelperKt.setX(myNlComponent, Coordinates.dpToPx(myScene.getSceneManager(), dx));
       NlComponentHelperKt.setY(myNlComponent, Coordinates.dpToPx(myScene.getSceneManager(), dy));
     }
-    myScene.needsRebuildList();
+    myScene.needsRebuildList(this);
   }
 
   /**
@@ -453,7 +466,7 @@ public class SceneComponent {
       NlComponentHelperKt.setW(myNlComponent, Coordinates.dpToPx(myScene.getSceneManager(), width));
       NlComponentHelperKt.setH(myNlComponent, Coordinates.dpToPx(myScene.getSceneManager(), height));
     }
-    myScene.needsRebuildList();
+    myScene.needsRebuildList(this);
   }
 
   /**
@@ -513,7 +526,10 @@ public class SceneComponent {
   }
 
   public void setToolLocked(boolean locked) {
-    myIsToolLocked = locked;
+    if (myIsToolLocked != locked) {
+      myIsToolLocked = locked;
+      markDisplayListDirty();
+    }
   }
 
   public boolean isToolLocked() {
@@ -527,6 +543,7 @@ public class SceneComponent {
       myDrawState = DrawState.SELECTED;
     }
     if (oldState != myDrawState) {
+      markDisplayListDirty();
       DecoratorUtilities.setTimeChange(myNlComponent, DecoratorUtilities.VIEW, DecoratorUtilities.mapState(drawState));
     }
   }
@@ -542,7 +559,10 @@ public class SceneComponent {
   }
 
   public void setHighlighted(boolean highlighted) {
-    myIsHighlighted = highlighted;
+    if (myIsHighlighted != highlighted) {
+      myIsHighlighted = highlighted;
+      markDisplayListDirty();
+    }
     setDrawState(DrawState.NORMAL);
   }
 
@@ -550,7 +570,10 @@ public class SceneComponent {
     if (!selected || !myIsSelected) {
       myShowBaseline = false;
     }
-    myIsSelected = selected;
+    if (myIsSelected != selected) {
+      myIsSelected = selected;
+      markDisplayListDirty();
+    }
     updateDrawStateUsingSelection();
 
     synchronized (myTargets) {
@@ -568,8 +591,9 @@ public class SceneComponent {
   }
 
   public void setDragging(boolean dragging) {
-    if (!getNlComponent().isRoot()) {
+    if (!getNlComponent().isRoot() && myDragging != dragging) {
       myDragging = dragging;
+      markDisplayListDirty();
     }
   }
 
@@ -684,12 +708,14 @@ public class SceneComponent {
       myCachedTargetList = null;
       myTargets.add(target);
     }
+    markDisplayListDirty();
   }
 
   public void addChild(@NotNull SceneComponent child) {
     child.removeFromParent();
     child.setParent(this);
     myChildren.add(child);
+    markDisplayListDirty();
   }
 
   public void removeFromParent() {
@@ -702,6 +728,7 @@ public class SceneComponent {
   private void remove(@NotNull SceneComponent component) {
     if (myChildren.remove(component)) {
       component.myParent = null;
+      markDisplayListDirty();
     }
   }
 
@@ -712,6 +739,7 @@ public class SceneComponent {
 
   public boolean layout(@NotNull SceneContext sceneTransform, long time) {
     boolean needsRebuildDisplayList = false;
+    boolean childrenNeedRebuildDisplayList = false;
     int left = myAnimatedDrawX.getValue(time);
     int top = myAnimatedDrawY.getValue(time);
     int right = left + myAnimatedDrawWidth.getValue(time);
@@ -736,10 +764,14 @@ public class SceneComponent {
       needsRebuildDisplayList |= target.layout(sceneTransform, myCurrentLeft, myCurrentTop, myCurrentRight, myCurrentBottom);
     }
 
+    if (needsRebuildDisplayList) {
+      markDisplayListDirty();
+    }
+
     for (SceneComponent child : myChildren) {
-      needsRebuildDisplayList |= child.layout(sceneTransform, time);
+      childrenNeedRebuildDisplayList |= child.layout(sceneTransform, time);
     }
-    return needsRebuildDisplayList;
+    return needsRebuildDisplayList || childrenNeedRebuildDisplayList;
   }
 
   @VisibleForTesting
@@ -783,8 +815,63 @@ public class SceneComponent {
     }
   }
 
+  /**
+   * Adds the draw commands of this component and its children to the given list.
+   * <p>
+   * When {@link StudioFlags#NELE_INCREMENTAL_DISPLAY_LIST} is enabled, the commands are kept between calls and only rebuilt when this
+   * component or one of its children was marked as dirty, or when the scene requested a full rebuild with
+   * {@link Scene#needsRebuildList()}.
+   */
   public void buildDisplayList(long time, @NotNull DisplayList list, SceneContext sceneContext) {
+    if (!StudioFlags.NELE_INCREMENTAL_DISPLAY_LIST.get()) {
+      myDecorator.buildList(list, time, sceneContext, this);
+      return;
+    }
+    List<DrawCommand> cachedCommands = myCachedCommands;
+    if (!myDisplayListDirty && cachedCommands != null && isDisplayListCacheValid(sceneContext)) {
+      list.addAll(cachedCommands);
+      return;
+    }
+
+    ArrayList<DrawCommand> commands = list.getCommands();
+    int start = commands.size();
+    int clipDepth = list.getClipDepth();
     myDecorator.buildList(list, time, sceneContext, this);
+    myDisplayListDirty = false;
+    if (list.getClipDepth() != clipDepth) {
+      // The decorator left clips open for the following components, its commands cannot be replayed on their own.
+      myCachedCommands = null;
+      return;
+    }
+    myCachedCommands = new ArrayList<>(commands.subList(start, commands.size()));
+    myCachedGeneration = myScene.getDisplayListGeneration();
+    myCachedContext = sceneContext;
+    myCachedColorSet = sceneContext.getColorSet();
+    myCachedScale = sceneContext.getScale();
+    myCachedOriginX = sceneContext.getSwingXDip(0);
+    myCachedOriginY = sceneContext.getSwingYDip(0);
+    myCachedShowOnlySelection = sceneContext.showOnlySelection();
+  }
+
+  private boolean isDisplayListCacheValid(@NotNull SceneContext sceneContext) {
+    return myCachedGeneration == myScene.getDisplayListGeneration()
+           && myCachedContext == sceneContext
+           && myCachedColorSet == sceneContext.getColorSet()
+           && myCachedScale == sceneContext.getScale()
+           && myCachedOriginX == sceneContext.getSwingXDip(0)
+           && myCachedOriginY == sceneContext.getSwingYDip(0)
+           && myCachedShowOnlySelection == sceneContext.showOnlySelection();
+  }
+
+  /**
+   * Marks the draw commands of this component as out of date. Its ancestors are marked too, since their commands include the ones of
+   * this component.
+   */
+  public void markDisplayListDirty() {
+    // Children skipped by their parent decorator stay dirty, so the walk cannot stop at the first dirty component.
+    for (SceneComponent component = this; component != null; component = component.myParent) {
+      component.myDisplayListDirty = true;
+    }
   }
 
   //endregion
@@ -859,6 +946,7 @@ public class SceneComponent {
       myCachedTargetList = null;
       myTargets.clear();
     }
+    markDisplayListDirty();
 
     // update the Targets created by parent's TargetProvider
     SceneComponent parent = myParent;
@@ -20,11 +20,17 @@ import java.util.function.Consumer;
 
 /**
  * This class provides efficient detection of many objects
+ * <p>
+ * Once enough objects are added, {@link #find(int, int)} uses a uniform grid over the bounding boxes of the objects, built on the first
+ * search after the objects change, so only the objects whose bounding box overlaps the cell of the searched point are tested.
  */
 public class ScenePicker {
   private final static int MAX_DATA_SIZE = 10;
   private final static int INITAL_OBJECT_STORE = 30;
   private final static double EPSILON = 0.00001;
+  // Below this number of objects, testing all of them is cheaper than building the grid
+  private final static int MIN_GRID_OBJECTS = 16;
+  private final static int MAX_GRID_SIZE = 64;
   private double[] mObjectData = new double[100];
   private int mObjectDataUsed = 0;
   private int[] mObjectOffset = new int[INITAL_OBJECT_STORE];
@@ -33,6 +39,19 @@ public class ScenePicker {
   private Object[] mObjects = new Object[INITAL_OBJECT_STORE];
   HitElementListener mHitElementListener;
 
+  // Uniform grid over the bounding boxes in mRect, valid until objects are added or reset
+  private boolean mGridValid = false;
+  private int mGridMinX;
+  private int mGridMinY;
+  private int mGridMaxX;
+  private int mGridMaxY;
+  private long mGridCellWidth;
+  private long mGridCellHeight;
+  private int mGridSize;
+  // The objects of cell c are mGridObjects[mGridCellStart[c]] to mGridObjects[mGridCellStart[c + 1] - 1], in the order they were added
+  private int[] mGridCellStart = new int[1];
+  private int[] mGridObjects = new int[INITAL_OBJECT_STORE];
+
   private int mObjectCount = 0;
   private final static int OBJECT_LINE = 0;
   private final static int OBJECT_CURVE = 1;
@@ -67,19 +86,106 @@ public class ScenePicker {
    * @param y location y
    */
   public void find(int x, int y) {
+    if (mObjectCount < MIN_GRID_OBJECTS) {
+      for (int i = 0; i < mObjectCount; i++) {
+        hitTest(i, x, y);
+      }
+      return;
+    }
+    if (!mGridValid) {
+      buildGrid();
+    }
+    if (!inRect(x, y, mGridMinX, mGridMinY, mGridMaxX, mGridMaxY)) {
+      return;
+    }
+    // Every bounding box containing the point overlaps its cell, and cells list their objects in the order they were added, so objects
+    // are reported in the same order as testing all of them would.
+    int cell = gridRow(y) * mGridSize + gridColumn(x);
+    for (int i = mGridCellStart[cell], end = mGridCellStart[cell + 1]; i < end; i++) {
+      hitTest(mGridObjects[i], x, y);
+    }
+  }
+
+  private void hitTest(int i, int x, int y) {
+    int p = i * 4;
+    int x1 = mRect[p++];
+    int y1 = mRect[p++];
+    int x2 = mRect[p++];
+    int y2 = mRect[p];
+    if (inRect(x, y, x1, y1, x2, y2)) {
+      SelectionEngine selector = myEngines[mTypes[i]];
+      if (selector.inRange(i, x, y)) {
+        mHitElementListener.over(mObjects[i], selector.distance());
+      }
+    }
+  }
+
+  /**
+   * Builds a grid of about one cell per object over the union of the bounding boxes, and lists in each cell the objects whose bounding
+   * box overlaps it.
+   */
+  private void buildGrid() {
+    mGridMinX = Integer.MAX_VALUE;
+    mGridMinY = Integer.MAX_VALUE;
+    mGridMaxX = Integer.MIN_VALUE;
+    mGridMaxY = Integer.MIN_VALUE;
     for (int i = 0; i < mObjectCount; i++) {
       int p = i * 4;
-      int x1 = mRect[p++];
-      int y1 = mRect[p++];
-      int x2 = mRect[p++];
-      int y2 = mRect[p];
-      if (inRect(x, y, x1, y1, x2, y2)) {
-        SelectionEngine selector = myEngines[mTypes[i]];
-        if (selector.inRange(i, x, y)) {
-          mHitElementListener.over(mObjects[i], selector.distance());
+      mGridMinX = Math.min(mGridMinX, mRect[p]);
+      mGridMinY = Math.min(mGridMinY, mRect[p + 1]);
+      mGridMaxX = Math.max(mGridMaxX, mRect[p + 2]);
+      mGridMaxY = Math.max(mGridMaxY, mRect[p + 3]);
+    }
+    mGridSize = Math.max(1, Math.min(MAX_GRID_SIZE, (int)Math.ceil(Math.sqrt(mObjectCount))));
+    mGridCellWidth = Math.max(1, ((long)mGridMaxX - mGridMinX + mGridSize) / mGridSize);
+    mGridCellHeight = Math.max(1, ((long)mGridMaxY - mGridMinY + mGridSize) / mGridSize);
+
+    int cellCount = mGridSize * mGridSize;
+    if (mGridCellStart.length < cellCount + 1) {
+      mGridCellStart = new int[cellCount + 1];
+    }
+    else {
+      Arrays.fill(mGridCellStart, 0);
+    }
+    // First count the objects of each cell, then turn the counts into start offsets and fill the cells in order.
+    for (int i = 0; i < mObjectCount; i++) {
+      int p = i * 4;
+      if (mRect[p] > mRect[p + 2] || mRect[p + 1] > mRect[p + 3]) {
+        continue;
+      }
+      for (int row = gridRow(mRect[p + 1]), lastRow = gridRow(mRect[p + 3]); row <= lastRow; row++) {
+        for (int column = gridColumn(mRect[p]), lastColumn = gridColumn(mRect[p + 2]); column <= lastColumn; column++) {
+          mGridCellStart[row * mGridSize + column + 1]++;
         }
       }
     }
+    for (int cell = 0; cell < cellCount; cell++) {
+      mGridCellStart[cell + 1] += mGridCellStart[cell];
+    }
+    if (mGridObjects.length < mGridCellStart[cellCount]) {
+      mGridObjects = new int[mGridCellStart[cellCount]];
+    }
+    int[] next = Arrays.copyOf(mGridCellStart, cellCount);
+    for (int i = 0; i < mObjectCount; i++) {
+      int p = i * 4;
+      if (mRect[p] > mRect[p + 2] || mRect[p + 1] > mRect[p + 3]) {
+        continue;
+      }
+      for (int row = gridRow(mRect[p + 1]), lastRow = gridRow(mRect[p + 3]); row <= lastRow; row++) {
+        for (int column = gridColumn(mRect[p]), lastColumn = gridColumn(mRect[p + 2]); column <= lastColumn; column++) {
+          mGridObjects[next[row * mGridSize + column]++] = i;
+        }
+      }
+    }
+    mGridValid = true;
+  }
+
+  private int gridColumn(int x) {
+    return (int)Math.min(mGridSize - 1, ((long)x - mGridMinX) / mGridCellWidth);
+  }
+
+  private int gridRow(int y) {
+    return (int)Math.min(mGridSize - 1, ((long)y - mGridMinY) / mGridCellHeight);
   }
 
   /**
@@ -120,6 +226,7 @@ public class ScenePicker {
    */
   public void reset() {
     mObjectCount = 0;
+    mGridValid = false;
     mObjectDataUsed = 0;
     Arrays.fill(mObjects, null);// delete references
   }
@@ -210,6 +317,7 @@ public class ScenePicker {
     protected int mDataOffset;
 
     protected void addRect(int x1, int y1, int x2, int y2) {
+      mGridValid = false;
       int off = mObjectCount * 4;
       mRect[off++] = x1;
       mRect[off++] = y1;
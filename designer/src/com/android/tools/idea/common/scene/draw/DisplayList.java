@@ -44,6 +44,7 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.EmptyStackException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Stack;
 import java.util.function.Function;
 import org.jetbrains.annotations.NotNull;
@@ -357,6 +358,17 @@ public class DisplayList {
     myCommands.add(cmd);
   }
 
+  public void addAll(@NotNull List<DrawCommand> commands) {
+    myCommands.addAll(commands);
+  }
+
+  /**
+   * Returns the number of clips pushed with {@link #pushClip} and not popped yet.
+   */
+  public int getClipDepth() {
+    return myUnClipStack.size();
+  }
+
   public void pushClip(@NotNull SceneContext context, @Nullable @AndroidDpCoordinate Rectangle r) {
     if (r == null) {
       myUnClipStack.add(new EmptyUNClip());
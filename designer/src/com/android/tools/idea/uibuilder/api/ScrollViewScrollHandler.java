@@ -19,11 +19,13 @@ import android.view.View;
 import android.view.ViewGroup;
 import com.android.tools.idea.common.model.NlComponent;
 import com.android.tools.idea.uibuilder.model.NlComponentHelperKt;
+import com.android.tools.rendering.RenderAsyncActionExecutor.RenderingTopic;
 import com.android.tools.rendering.RenderService;
 import java.util.function.Function;
 import java.util.function.IntConsumer;
 import java.util.function.IntSupplier;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class ScrollViewScrollHandler implements ScrollHandler {
   private final int myMaxScrollableSize;
@@ -73,17 +75,18 @@ public final class ScrollViewScrollHandler implements ScrollHandler {
         NlComponentHelperKt.setScrollX(component, i);
       },
       orientation == Orientation.VERTICAL ? viewGroup::getScrollY : viewGroup::getScrollX,
-      () -> handleScrolling(viewGroup)
+      () -> handleScrolling(viewGroup, component.getModel().getRenderAffinityKey())
     );
   }
 
   /**
    * Set the scroll position on all the components with the "scrollX" and "scrollY" attribute. If
    * the component supports nested scrolling attempt that first, then use the unconsumed scroll
-   * part to scroll the content in the component.
+   * part to scroll the content in the component. The scrolling runs on the render thread of the given {@code affinityKey}, see
+   * {@link com.android.tools.idea.common.model.NlModel#getRenderAffinityKey()}.
    */
-  private static void handleScrolling(@NotNull View view) {
-    RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+  private static void handleScrolling(@NotNull View view, @Nullable Object affinityKey) {
+    RenderService.getRenderAsyncActionExecutor().runAsyncAction(RenderingTopic.NOT_SPECIFIED, affinityKey, () -> {
       int scrollPosX = view.getScrollX();
       int scrollPosY = view.getScrollY();
       if (scrollPosX != 0 || scrollPosY != 0) {
@@ -113,7 +116,7 @@ public final class ScrollViewScrollHandler implements ScrollHandler {
       ViewGroup group = (ViewGroup)view;
       for (int i = 0; i < group.getChildCount(); i++) {
         View child = group.getChildAt(i);
-        handleScrolling(child);
+        handleScrolling(child, affinityKey);
       }
     });
   }
@@ -26,6 +26,7 @@ import com.android.tools.idea.common.model.NlComponent;
 import com.android.tools.idea.common.model.NlModel;
 import com.android.tools.idea.uibuilder.handlers.constraint.ComponentModification;
 import com.android.tools.idea.uibuilder.model.NlComponentHelperKt;
+import com.android.tools.rendering.RenderAsyncActionExecutor.RenderingTopic;
 import com.android.tools.rendering.RenderService;
 import com.android.tools.res.ids.ResourceIdManager;
 import com.android.utils.Pair;
@@ -36,9 +37,11 @@ import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class MotionLayoutComponentHelper {
 
@@ -113,12 +116,13 @@ public class MotionLayoutComponentHelper {
       myMotionLayoutComponent = null;
       return;
     }
+    myMotionLayoutComponent = component;
     try {
       Method accessor = instance.getClass().getMethod("getDesignTool");
       if (accessor != null) {
         try {
           myFuture =
-            RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> getDesignInstance(accessor, instance));
+            runOnRenderThread(() -> getDesignInstance(accessor, instance));
         }
         catch (Exception e) {
           if (DEBUG) {
@@ -132,7 +136,23 @@ public class MotionLayoutComponentHelper {
         e.printStackTrace();
       }
     }
-    myMotionLayoutComponent = component;
+  }
+
+  /**
+   * Runs the given action on the render thread that rendered the MotionLayout, since the design tool and the views can only be accessed
+   * from there.
+   */
+  private <T> CompletableFuture<T> runOnRenderThread(@NotNull Callable<T> callable) {
+    return RenderService.getRenderAsyncActionExecutor().runAsyncAction(RenderingTopic.NOT_SPECIFIED, getRenderAffinityKey(), callable);
+  }
+
+  private CompletableFuture<Void> runOnRenderThread(@NotNull Runnable runnable) {
+    return RenderService.getRenderAsyncActionExecutor().runAsyncAction(RenderingTopic.NOT_SPECIFIED, getRenderAffinityKey(), runnable);
+  }
+
+  @Nullable
+  private Object getRenderAffinityKey() {
+    return myMotionLayoutComponent != null ? myMotionLayoutComponent.getModel().getRenderAffinityKey() : null;
   }
 
   private void getDesignInstance(Method accessor, Object instance) {
@@ -213,7 +233,7 @@ public class MotionLayoutComponentHelper {
 
     if (myGetAnimationPathMethod != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             ViewInfo info = NlComponentHelperKt.getViewInfo(nlComponent);
             if (info == null) {
@@ -273,7 +293,7 @@ public class MotionLayoutComponentHelper {
     public T invoke(Object... parameters) {
       if (myMethod != null) {
         try {
-          return RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+          return runOnRenderThread(() -> {
             try {
               T result = (T) myMethod.invoke(myDesignTool, parameters);
               return result;
@@ -319,7 +339,7 @@ public class MotionLayoutComponentHelper {
 
     if (myGetPositionKeyframeMethod != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             myCachedPositionKeyframe = myGetPositionKeyframeMethod.invoke(myDesignTool, keyframe, view, x, y, attributes, values) == Boolean.TRUE;
           }
@@ -357,7 +377,7 @@ public class MotionLayoutComponentHelper {
 
     if (mySetKeyframeMethod != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             mySetKeyframeMethod.invoke(myDesignTool, keyframe, tag, value);
           }
@@ -394,7 +414,7 @@ public class MotionLayoutComponentHelper {
     }
     if (mySetAttributesMethod != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             mySetAttributesMethod.invoke(myDesignTool, dpiValue, constraintSetId, view, attributes);
           }
@@ -429,7 +449,7 @@ public class MotionLayoutComponentHelper {
     }
     if (myCallSetTransitionPosition != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             myCallSetTransitionPosition.invoke(myDesignTool, Float.valueOf(position));
           }
@@ -485,7 +505,7 @@ public class MotionLayoutComponentHelper {
     }
     if (myCallSetTransition != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             myCallSetTransition.invoke(myDesignTool, start, end);
           }
@@ -526,7 +546,7 @@ public class MotionLayoutComponentHelper {
       }
       if (myCallSetState != null) {
         try {
-          RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+          runOnRenderThread(() -> {
             try {
               myCallSetState.invoke(myDesignTool, state);
             }
@@ -571,7 +591,7 @@ public class MotionLayoutComponentHelper {
     }
     if (myCallDisableAutoTransition != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             myCallDisableAutoTransition.invoke(myDesignTool, disable);
           }
@@ -614,7 +634,7 @@ public class MotionLayoutComponentHelper {
     }
     if (myCallGetState != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             myCachedState = (String)myCallGetState.invoke(myDesignTool);
           }
@@ -658,7 +678,7 @@ public class MotionLayoutComponentHelper {
     }
     if (myCallGetStartState != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             myCachedStartState = (String)myCallGetStartState.invoke(myDesignTool);
           }
@@ -702,7 +722,7 @@ public class MotionLayoutComponentHelper {
     }
     if (myCallGetEndState != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             myCachedEndState = (String)myCallGetEndState.invoke(myDesignTool);
           }
@@ -746,7 +766,7 @@ public class MotionLayoutComponentHelper {
     }
     if (myCallGetProgress != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             myCachedProgress = (Float)myCallGetProgress.invoke(myDesignTool);
           }
@@ -790,7 +810,7 @@ public class MotionLayoutComponentHelper {
     }
     if (myCallIsInTransition != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             myCachedIsInTransition = (Boolean)myCallIsInTransition.invoke(myDesignTool);
           }
@@ -833,7 +853,7 @@ public class MotionLayoutComponentHelper {
 
     if (myGetMaxTimeMethod != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             myCachedMaxTimeMs = (long)myGetMaxTimeMethod.invoke(myDesignTool);
           }
@@ -986,7 +1006,7 @@ public class MotionLayoutComponentHelper {
 
     if (myGetKeyFramePositionsMethod != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             int[] tmpType = Arrays.copyOf(type, type.length);
             float[] tmpPos = Arrays.copyOf(pos, pos.length);
@@ -1183,7 +1203,7 @@ public class MotionLayoutComponentHelper {
 
     if (myGetKeyFrameInfoMethod != null) {
       try {
-        RenderService.getRenderAsyncActionExecutor().runAsyncAction(() -> {
+        runOnRenderThread(() -> {
           try {
             int[] tmpKeyInfo = Arrays.copyOf(keyInfo, keyInfo.length);
             int noOfKeyPosition = (Integer)myGetKeyFrameInfoMethod.invoke(myDesignTool, info.getViewObject(), type, tmpKeyInfo);
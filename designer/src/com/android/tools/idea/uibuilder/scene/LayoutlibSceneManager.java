@@ -642,6 +642,10 @@ public class LayoutlibSceneManager extends SceneManager implements InteractiveSc
       // TODO(b/168445543): move session clock to RenderTask
       mySessionClock = mySessionClockFactory.get();
       myRenderTask = newTask;
+      if (newTask != null) {
+        // Actions on the views of the model must run on the render thread of the task that created them.
+        getModel().setRenderAffinityKey(newTask.getRenderAffinityKey());
+      }
     }
   }
 
@@ -1700,7 +1704,10 @@ public class LayoutlibSceneManager extends SceneManager implements InteractiveSc
     try {
       if (callback != null) {
         RenderService.getRenderAsyncActionExecutor()
-          .runAsyncActionWithTimeout(timeout, timeoutUnit, Executors.callable(callback)).get(timeout, timeoutUnit);
+          .runAsyncActionWithTimeout(RenderAsyncActionExecutor.DEFAULT_RENDER_THREAD_QUEUE_TIMEOUT_MS, TimeUnit.MILLISECONDS,
+                                     timeout, timeoutUnit, RenderAsyncActionExecutor.RenderingTopic.NOT_SPECIFIED,
+                                     getModel().getRenderAffinityKey(), Executors.callable(callback))
+          .get(timeout, timeoutUnit);
       }
       executeCallbacksAsync().thenCompose(b -> requestRenderAsync());
       return true;
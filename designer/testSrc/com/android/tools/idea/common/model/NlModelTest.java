@@ -172,6 +172,18 @@ public class NlModelTest extends LayoutTestCase {
     assertThat(component1).isSameAs(component2);
   }
 
+  public void testRenderAffinityKey() {
+    NlModel model = createDefaultModelBuilder(true).build();
+    assertThat(model.getRenderAffinityKey()).isNull();
+
+    Object affinityKey = new Object();
+    model.setRenderAffinityKey(affinityKey);
+    assertThat(model.getRenderAffinityKey()).isSameAs(affinityKey);
+
+    model.setRenderAffinityKey(null);
+    assertThat(model.getRenderAffinityKey()).isNull();
+  }
+
   public void testFindAttributeByPsi() {
     ModelBuilder modelBuilder = createDefaultModelBuilder(true);
     NlModel model = modelBuilder.build();
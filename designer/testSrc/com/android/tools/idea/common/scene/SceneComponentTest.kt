@@ -22,6 +22,7 @@ import com.android.testutils.MockitoKt.whenever
 import com.android.tools.idea.common.LayoutTestUtilities
 import com.android.tools.idea.common.fixtures.ModelBuilder
 import com.android.tools.idea.common.scene.SceneComponent.DrawState
+import com.android.tools.idea.common.scene.draw.DisplayList
 import com.android.tools.idea.common.scene.target.CommonDragTarget
 import com.android.tools.idea.flags.StudioFlags
 import com.android.tools.idea.uibuilder.scene.SceneTest
@@ -113,6 +114,33 @@ open class SceneComponentTest : SceneTest() {
     }
   }
 
+  fun testIncrementalDisplayListReusesUnchangedComponents() {
+    StudioFlags.NELE_INCREMENTAL_DISPLAY_LIST.override(true)
+    try {
+      val root = myScene.getSceneComponent("parent")!!
+      val child = myScene.getSceneComponent("child")!!
+      val context = SceneContext.get()
+      val first = DisplayList().apply { myScene.buildDisplayList(this, 0, context) }.commands.toList()
+
+      root.drawState = DrawState.HOVER
+      val second = DisplayList().apply { myScene.buildDisplayList(this, 0, context) }.commands.toList()
+      // The commands of the child are reused as is, only the ones of the root are rebuilt.
+      assertTrue(second.any { command -> first.any { it === command } })
+      assertFalse(second.all { command -> first.any { it === command } })
+
+      myScene.needsRebuildList()
+      val third = DisplayList().apply { myScene.buildDisplayList(this, 0, context) }.commands.toList()
+      assertTrue(third.none { command -> second.any { it === command } })
+
+      child.markDisplayListDirty()
+      val fourth = DisplayList().apply { myScene.buildDisplayList(this, 0, context) }.commands.toList()
+      assertTrue(fourth.none { command -> third.any { it === command } })
+    }
+    finally {
+      StudioFlags.NELE_INCREMENTAL_DISPLAY_LIST.clearOverride()
+    }
+  }
+
   override fun createModel(): ModelBuilder {
     return model(
       "scene_component_test.xml",
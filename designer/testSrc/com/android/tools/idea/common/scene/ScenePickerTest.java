@@ -22,6 +22,10 @@ import java.awt.geom.FlatteningPathIterator;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import junit.framework.TestCase;
 
 /**
@@ -321,6 +325,57 @@ public class ScenePickerTest extends TestCase {
     };
   }
 
+  public void testManyObjectsReportedInInsertionOrder() {
+    ScenePicker scenePicker = new ScenePicker();
+    scenePicker.reset();
+    // A background rectangle covering all the others, added first, then a 10x10 layout of small rectangles and circles.
+    scenePicker.addRect("background", 0, 0, 0, 1000, 1000);
+    for (int i = 0; i < 100; i++) {
+      int x = (i % 10) * 100;
+      int y = (i / 10) * 100;
+      if (i % 2 == 0) {
+        scenePicker.addRect(i, 5, x + 10, y + 10, x + 60, y + 60);
+      }
+      else {
+        scenePicker.addCircle(i, 5, x + 35, y + 35, 25);
+      }
+    }
+    List<Object> found = new ArrayList<>();
+    List<Double> distances = new ArrayList<>();
+    scenePicker.setSelectListener((obj, dist) -> {
+      found.add(obj);
+      distances.add(dist);
+    });
+
+    for (int i = 0; i < 100; i++) {
+      int x = (i % 10) * 100;
+      int y = (i / 10) * 100;
+      found.clear();
+      distances.clear();
+      scenePicker.find(x + 35, y + 35);
+      assertEquals(Arrays.asList("background", i), found);
+      assertEquals(Arrays.asList(0.0, 0.0), distances);
+
+      found.clear();
+      scenePicker.find(x + 90, y + 90);
+      assertEquals(Collections.singletonList("background"), found);
+    }
+
+    found.clear();
+    scenePicker.find(1500, 1500);
+    assertTrue(found.isEmpty());
+
+    // Objects added after a search are found by the next one.
+    scenePicker.addRect("overlay", 0, 1400, 1400, 1600, 1600);
+    scenePicker.find(1500, 1500);
+    assertEquals(Collections.singletonList("overlay"), found);
+
+    scenePicker.reset();
+    found.clear();
+    scenePicker.find(35, 35);
+    assertTrue(found.isEmpty());
+  }
+
   public void testEdgeCasesCurveTo() {
     ScenePicker scenePicker = new ScenePicker();
     scenePicker.reset();
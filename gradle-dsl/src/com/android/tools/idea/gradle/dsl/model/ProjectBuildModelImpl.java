@@ -23,17 +23,26 @@ import com.android.tools.idea.gradle.dsl.parser.files.GradleBuildFile;
 import com.android.tools.idea.gradle.dsl.parser.files.GradleDslFile;
 import com.android.tools.idea.gradle.dsl.parser.files.GradleSettingsFile;
 import com.android.tools.idea.gradle.dsl.parser.files.GradleVersionCatalogFile;
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
 import java.io.File;
+import java.lang.ref.Reference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -175,24 +184,60 @@ public class ProjectBuildModelImpl implements ProjectBuildModel {
     Set<String> modulePaths = settingsModel.modulePaths();
     Integer nModelsToConsider = nModelsSeen[0] + modulePaths.size();
 
-    allModels.addAll(modulePaths.stream().map((modulePath) -> {
-      GradleBuildModel model = null;
+    // Find all the build files first, so that their PSI can be built in parallel before they are parsed one after the other.
+    List<VirtualFile> moduleBuildFiles = new ArrayList<>();
+    for (String modulePath : modulePaths) {
+      VirtualFile file = null;
       // This should have already been added above
       if (!modulePath.equals(":")) {
         File moduleDir = settingsModel.moduleDirectory(modulePath);
         if (moduleDir != null) {
-          VirtualFile file = myBuildModelContext.getGradleBuildFile(moduleDir);
-          if (file != null) {
-            model = getModuleBuildModel(file);
-          }
+          file = myBuildModelContext.getGradleBuildFile(moduleDir);
         }
       }
+      moduleBuildFiles.add(file);
+    }
+    List<PsiFile> psiFiles = buildPsiFiles(moduleBuildFiles.stream().filter(Objects::nonNull).collect(Collectors.toList()));
+
+    for (VirtualFile file : moduleBuildFiles) {
+      if (file != null) {
+        allModels.add(getModuleBuildModel(file));
+      }
       func.accept(++nModelsSeen[0], nModelsToConsider);
-      return model;
-    }).filter(Objects::nonNull).collect(Collectors.toList()));
+    }
+    // The PSI only needs to be kept until the files have been parsed.
+    Reference.reachabilityFence(psiFiles);
     return allModels;
   }
 
+  /**
+   * Builds the complete PSI trees of the given files in parallel. Parsing the files into {@link GradleDslFile}s depends on the files
+   * parsed before them and has to happen sequentially, but lexing and parsing their contents into PSI does not.
+   *
+   * @return the PSI files, which the caller should keep a reference to until they are parsed so they are not collected in between.
+   */
+  @NotNull
+  private List<PsiFile> buildPsiFiles(@NotNull List<VirtualFile> files) {
+    if (files.size() < 2) {
+      return List.of();
+    }
+    PsiManager psiManager = PsiManager.getInstance(myBuildModelContext.getProject());
+    Queue<PsiFile> psiFiles = new ConcurrentLinkedQueue<>();
+    // The processors run under the read action held by this thread.
+    ApplicationManager.getApplication().runReadAction(() -> {
+      JobLauncher.getInstance().invokeConcurrentlyUnderProgress(files, ProgressManager.getInstance().getProgressIndicator(), file -> {
+        PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+        if (psiFile != null) {
+          // Walking the whole tree also parses the blocks that are otherwise parsed lazily.
+          psiFile.accept(new PsiRecursiveElementWalkingVisitor() {});
+          psiFiles.add(psiFile);
+        }
+        return true;
+      });
+    });
+    return new ArrayList<>(psiFiles);
+  }
+
   @Override
   public @NotNull GradleVersionCatalogsModel getVersionCatalogsModel() {
     Collection<GradleVersionCatalogFile> files;
@@ -16,26 +16,49 @@
 package com.android.tools.idea.gradle.dsl.parser;
 
 import com.android.tools.idea.gradle.dsl.parser.elements.GradleDslElement;
+import com.android.tools.idea.gradle.dsl.parser.elements.GradleDslExpression;
+import com.android.tools.idea.gradle.dsl.parser.elements.GradlePropertiesDslElement;
 import com.android.tools.idea.gradle.dsl.parser.files.GradleBuildFile;
 import com.android.tools.idea.gradle.dsl.parser.files.GradleDslFile;
 import com.android.tools.idea.gradle.dsl.parser.files.GradleScriptFile;
 import com.google.common.annotations.VisibleForTesting;
 import com.intellij.util.containers.HashSetQueue;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.regex.Pattern;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Class to manage unresolved dependencies.
  */
 public final class DependencyManager {
+  /**
+   * Characters separating the parts of a name that an element and a reference to it may share: qualifiers, indices and quotes, as well
+   * as the separators version catalogs consider equivalent to dots.
+   */
+  private static final Pattern NAME_KEY_SEPARATOR = Pattern.compile("[.\\[\\]'\"\\\\\\s_-]+");
+
   @VisibleForTesting
   @NotNull public final LinkedHashMap<GradleDslFile, List<GradleReferenceInjection>> myUnresolvedReferences = new LinkedHashMap<>();
+  /**
+   * Unresolved references by each of the keys of their name, see {@link #getNameKeys(String)}.
+   */
+  @NotNull private final Map<String, Set<GradleReferenceInjection>> myUnresolvedReferencesByNameKey = new HashMap<>();
+  /**
+   * Files applying each file, as registered when parsing their {@code apply from:} statements.
+   */
+  @NotNull private final Map<GradleDslFile, Set<GradleScriptFile>> myApplyingFiles = new HashMap<>();
+  private int myResolveAttemptCount;
 
   public static DependencyManager create() {
     return new DependencyManager();
@@ -54,6 +77,9 @@ public final class DependencyManager {
     List<GradleReferenceInjection> injections = myUnresolvedReferences.getOrDefault(originFile, new ArrayList<>());
     injections.add(injection);
     myUnresolvedReferences.put(originFile, injections);
+    for (String key : getNameKeys(injection.getName())) {
+      myUnresolvedReferencesByNameKey.computeIfAbsent(key, k -> new HashSet<>()).add(injection);
+    }
   }
 
   /**
@@ -65,6 +91,23 @@ public final class DependencyManager {
     GradleDslFile originFile = injection.getOriginElement().getDslFile();
     List<GradleReferenceInjection> injections = myUnresolvedReferences.get(originFile); // should always be present
     injections.remove(injection);
+    removeFromNameKeys(injection);
+  }
+
+  /**
+   * Registers that {@code applyingFile} applies {@code appliedFile}, so that changes to the latter also attempt to resolve the
+   * references of the former.
+   */
+  public void registerAppliedFile(@NotNull GradleScriptFile applyingFile, @NotNull GradleScriptFile appliedFile) {
+    myApplyingFiles.computeIfAbsent(appliedFile, k -> new LinkedHashSet<>()).add(applyingFile);
+  }
+
+  /**
+   * Returns the number of times a reference resolution has been attempted so far.
+   */
+  @VisibleForTesting
+  public int getResolveAttemptCount() {
+    return myResolveAttemptCount;
   }
 
   /**
@@ -75,7 +118,11 @@ public final class DependencyManager {
   public void resolveWith(@NotNull GradleDslElement element) {
     Queue<GradleDslFile> queue = new HashSetQueue<>();
     Set<GradleDslFile> seen = new HashSet<>();
-    GradleDslElement thisFile = element.getDslFile();
+    GradleDslFile thisFile = element.getDslFile();
+    Set<GradleReferenceInjection> candidates = getCandidates(element);
+    if (candidates != null && candidates.isEmpty()) {
+      return;
+    }
 
     // attempt re-resolution on the element's file, and all descendants of that file
     queue.add(element.getDslFile());
@@ -84,7 +131,7 @@ public final class DependencyManager {
       queue.remove();
       if (!seen.contains(dslFile)) {
         seen.add(dslFile);
-        resolveAllIn(dslFile, true);
+        resolveAllIn(dslFile, true, candidates);
         if (dslFile instanceof GradleBuildFile) {
           GradleBuildFile buildFile = (GradleBuildFile)dslFile;
           queue.addAll(buildFile.getChildModuleBuildFiles());
@@ -92,33 +139,47 @@ public final class DependencyManager {
       }
     }
 
-    // the element's file might be applied from any arbitrary project build file
-
-    // TODO(xof): since altering an element can in principle change resolution of all build files which apply the file which contain
-    //  this element, for correctness we have to check all those files.  At the moment this is a loop over all the files to check
-    //  whether they apply the file containing the element, which scales badly; information about which files are applied where could
-    //  probably be cached and updated at parse-time.
-    for (GradleDslFile unresolvedFile : myUnresolvedReferences.keySet()) {
-      if (unresolvedFile instanceof GradleScriptFile) {
-        GradleScriptFile scriptFile = (GradleScriptFile)unresolvedFile;
-        if (!seen.contains(scriptFile)) {
-          if (scriptFile.getApplyDslElement().contains(thisFile)) {
-            resolveAllIn(scriptFile, true);
-          }
-        }
+    // the element's file might be applied from any arbitrary project build file: since altering an element can in principle change
+    // resolution of all build files which apply the file which contains this element, check those which have unresolved references.
+    Set<GradleScriptFile> applyingFiles = myApplyingFiles.get(thisFile);
+    if (applyingFiles == null) {
+      return;
+    }
+    // The applying file might have been reparsed without applying this file any more.
+    applyingFiles.removeIf(scriptFile -> !scriptFile.getApplyDslElement().contains(thisFile));
+    // Resolving may parse further files and register what they apply, so iterate over a copy.
+    for (GradleScriptFile scriptFile : new ArrayList<>(applyingFiles)) {
+      if (!seen.contains(scriptFile) && myUnresolvedReferences.containsKey(scriptFile)) {
+        resolveAllIn(scriptFile, true, candidates);
       }
     }
   }
 
   public void resolveAllIn(@NotNull GradleDslFile dslFile, boolean appliedFiles) {
+    resolveAllIn(dslFile, appliedFiles, null);
+  }
+
+  /**
+   * Attempts to resolve the unresolved references of the given file.
+   *
+   * @param candidates if not null, only the references in this set are attempted.
+   */
+  private void resolveAllIn(@NotNull GradleDslFile dslFile,
+                            boolean appliedFiles,
+                            @Nullable Set<GradleReferenceInjection> candidates) {
     List<GradleReferenceInjection> injections = myUnresolvedReferences.getOrDefault(dslFile, new ArrayList<>());
     for (Iterator<GradleReferenceInjection> it = injections.iterator(); it.hasNext(); ) {
       GradleReferenceInjection injection = it.next();
+      if (candidates != null && !candidates.contains(injection)) {
+        continue;
+      }
+      myResolveAttemptCount++;
       GradleDslElement newElement = injection.getOriginElement().resolveInternalSyntaxReference(injection.getName(), true);
       if (newElement != null) {
         injection.resolveWith(newElement);
         newElement.registerDependent(injection);
         it.remove();
+        removeFromNameKeys(injection);
       }
     }
     if (injections.isEmpty()) {
@@ -128,7 +189,7 @@ public final class DependencyManager {
       if (dslFile instanceof GradleScriptFile) {
         GradleScriptFile scriptFile = (GradleScriptFile)dslFile;
         for (GradleScriptFile appliedFile : scriptFile.getApplyDslElement()) {
-          resolveAllIn(appliedFile, true);
+          resolveAllIn(appliedFile, true, candidates);
         }
       }
     }
@@ -142,4 +203,54 @@ public final class DependencyManager {
       resolveAllIn(dslFile, false);
     }
   }
+
+  /**
+   * Returns the unresolved references which a change to the given element could resolve, or null if any of them could.
+   * <p>
+   * A reference can only resolve to a plain property or variable if its name shares a key with the name of the element. Blocks make
+   * their children available under other names, and properties described by the model can be referred to by their external names,
+   * so changes to those are matched with all references.
+   */
+  @Nullable
+  private Set<GradleReferenceInjection> getCandidates(@NotNull GradleDslElement element) {
+    if (element.getModelEffect() != null || (element instanceof GradlePropertiesDslElement && !(element instanceof GradleDslExpression))) {
+      return null;
+    }
+    Set<String> keys = getNameKeys(element.getName());
+    if (keys.isEmpty()) {
+      return null;
+    }
+    Set<GradleReferenceInjection> candidates = new HashSet<>();
+    for (String key : keys) {
+      candidates.addAll(myUnresolvedReferencesByNameKey.getOrDefault(key, Collections.emptySet()));
+    }
+    return candidates;
+  }
+
+  private void removeFromNameKeys(@NotNull GradleReferenceInjection injection) {
+    for (String key : getNameKeys(injection.getName())) {
+      Set<GradleReferenceInjection> injections = myUnresolvedReferencesByNameKey.get(key);
+      if (injections != null) {
+        injections.remove(injection);
+        if (injections.isEmpty()) {
+          myUnresolvedReferencesByNameKey.remove(key);
+        }
+      }
+    }
+  }
+
+  /**
+   * Splits a name into the parts a reference to it would contain, e.g. {@code "rootProject.ext.lib['version']"} into
+   * {@code rootProject}, {@code ext}, {@code lib} and {@code version}.
+   */
+  @NotNull
+  private static Set<String> getNameKeys(@NotNull String name) {
+    Set<String> keys = new HashSet<>();
+    for (String key : NAME_KEY_SEPARATOR.split(name)) {
+      if (!key.isEmpty()) {
+        keys.add(key);
+      }
+    }
+    return keys;
+  }
 }
@@ -40,9 +40,12 @@ public class ApplyDslElement extends GradlePropertiesDslElement {
   // The GradleDslFile that represents the virtual file that has been applied.
   // This will be set when parsing the build file we belong to.
   @NotNull private final List<GradleScriptFile> myAppliedDslFiles = new ArrayList<>();
+  // The GradleScriptFile whose apply statements this element holds.
+  @NotNull private final GradleScriptFile myScriptFile;
 
   public ApplyDslElement(@NotNull GradleDslElement parent, @NotNull GradleScriptFile buildFile) {
     super(parent, null, GradleNameElement.create(APPLY_BLOCK_NAME));
+    myScriptFile = buildFile;
     buildFile.registerApplyElement(this);
   }
 
@@ -72,6 +75,7 @@ public class ApplyDslElement extends GradlePropertiesDslElement {
           // TODO(xof): settings.gradle files can also apply files, so this should be more like getOrCreateScriptFile()
           GradleBuildFile buildFile = getDslFile().getContext().getOrCreateBuildFile(file, true);
           myAppliedDslFiles.add(buildFile);
+          getDslFile().getContext().getDependencyManager().registerAppliedFile(myScriptFile, buildFile);
 
           if (myParent instanceof GradlePropertiesDslElement) {
             ((GradlePropertiesDslElement)myParent).addAppliedModelProperties(buildFile);
@@ -0,0 +1,3 @@
+apply(from = "a.gradle.kts")
+extra["prop1"] = extra["var1"]
+extra["prop2"] = extra["var2"]
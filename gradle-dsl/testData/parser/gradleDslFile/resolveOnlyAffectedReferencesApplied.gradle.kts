@@ -0,0 +1 @@
+extra["prop3"] = extra["var3"]
@@ -378,6 +378,22 @@ class ProjectBuildModelTest : GradleFileModelTestCase() {
     assertEquals(listOf(1 to null, 2 to null, 3 to 4, 4 to 4), args)
   }
 
+  @Test
+  fun testGetAllIncludedBuildModelsKeepsSettingsOrder() {
+    writeToBuildFile("")
+    writeToSubModuleBuildFile("")
+    val a = writeToNewSubModule("a", "", "")
+    val b = writeToNewSubModule("b", "", "")
+    writeToSettingsFile(subModuleSettingsText + getSubModuleSettingsText("a") + getSubModuleSettingsText("b"))
+
+    val pbm = projectBuildModel
+    val args = mutableListOf<Pair<Int, Int?>>()
+    val models = pbm.getAllIncludedBuildModels { n, total -> args.add(n to total) }
+    assertEquals(listOf(1 to null, 2 to null, 3 to 6, 4 to 6, 5 to 6, 6 to 6), args)
+    assertSize(5, models)
+    assertEquals(listOf(mySubModule, a, b).map { pbm.getModuleBuildModel(it)!!.virtualFile }, models.drop(2).map { it.virtualFile })
+  }
+
   @Test
   fun testGetContext() {
     val pbm = projectBuildModel
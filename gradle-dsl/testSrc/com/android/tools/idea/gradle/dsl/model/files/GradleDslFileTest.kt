@@ -29,6 +29,7 @@ import com.android.tools.idea.gradle.dsl.api.ext.PropertyType.REGULAR
 import com.android.tools.idea.gradle.dsl.api.ext.PropertyType.VARIABLE
 import com.android.tools.idea.gradle.dsl.model.GradleBuildModelImpl
 import com.android.tools.idea.gradle.dsl.model.GradleFileModelTestCase
+import com.android.tools.idea.gradle.dsl.parser.files.GradleScriptFile
 import com.android.utils.FileUtils.toSystemIndependentPath
 import com.intellij.openapi.vfs.VirtualFile
 import org.jetbrains.annotations.SystemDependent
@@ -172,6 +173,28 @@ class GradleDslFileTest : GradleFileModelTestCase() {
     verifyPropertyModel(property, STRING_TYPE, "value:name:2", STRING, REGULAR, 1)
   }
 
+  @Test
+  fun testResolveOnlyAffectedReferences() {
+    writeToNewProjectFile("a", TestFile.RESOLVE_ONLY_AFFECTED_REFERENCES_APPLIED)
+    writeToBuildFile(TestFile.RESOLVE_ONLY_AFFECTED_REFERENCES)
+
+    val buildModel = gradleBuildModel as GradleBuildModelImpl
+    val dslFile = buildModel.dslFile
+    val dependencyManager = dslFile.context.dependencyManager
+    val appliedFile = (dslFile as GradleScriptFile).applyDslElement.single()
+    assertSize(2, dependencyManager.myUnresolvedReferences[dslFile]!!)
+    assertSize(1, dependencyManager.myUnresolvedReferences[appliedFile]!!)
+
+    val attempts = dependencyManager.resolveAttemptCount
+    buildModel.ext().findProperty("var1").setValue("one")
+
+    // Only the reference to var1 is attempted, neither the one to var2 nor the one in the applied file.
+    assertEquals(1, dependencyManager.resolveAttemptCount - attempts)
+    assertEquals("one", buildModel.ext().findProperty("prop1").resolve().getValue(STRING_TYPE))
+    assertSize(1, dependencyManager.myUnresolvedReferences[dslFile]!!)
+    assertSize(1, dependencyManager.myUnresolvedReferences[appliedFile]!!)
+  }
+
   @Test
   fun testGetContext() {
     val projectBuildModel = projectBuildModel
@@ -198,6 +221,8 @@ class GradleDslFileTest : GradleFileModelTestCase() {
     LIST_PROPERTIES_FROM_APPLIED_FILES_APPLIED_FILE_TWO("listPropertiesFromAppliedFilesAppliedFileTwo"),
     APPLY_FROM_BLOCK("applyFromBlock"),
     APPLY_FROM_BLOCK_APPLIED("applyFromBlockApplied"),
+    RESOLVE_ONLY_AFFECTED_REFERENCES("resolveOnlyAffectedReferences"),
+    RESOLVE_ONLY_AFFECTED_REFERENCES_APPLIED("resolveOnlyAffectedReferencesApplied"),
     DELETE("delete")
     ;
 
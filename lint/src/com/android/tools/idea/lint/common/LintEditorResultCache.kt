@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.lint.common
+
+import com.android.tools.lint.detector.api.Issue
+import com.intellij.lang.Language
+import com.intellij.lang.java.JavaLanguage
+import com.intellij.openapi.roots.ProjectRootManager
+import com.intellij.openapi.util.Key
+import com.intellij.psi.PsiFile
+import com.intellij.psi.util.PsiModificationTracker
+import org.jetbrains.kotlin.idea.KotlinLanguage
+
+/**
+ * Caches the problems found by [LintExternalAnnotator] in a file, so that highlighting passes over a file that has not changed since
+ * the last one do not run lint again.
+ *
+ * Lint checks mostly look at other files through resources, the manifest and build files, so cached problems are only reused while no
+ * file other than a Java or Kotlin source has changed, no project root has changed (which includes syncs), and the same set of issues is
+ * enabled. Edits to other Java and Kotlin sources, which are by far the most frequent while typing, do not invalidate cached problems:
+ * they are computed again the next time the file itself changes.
+ */
+object LintEditorResultCache {
+  private val CACHED_PROBLEMS = Key.create<CachedProblems>("lint.editor.cached.problems")
+
+  /** The state of the inputs lint problems are computed from. */
+  data class Stamp(
+    val fileModificationStamp: Long,
+    val nonSourceModificationCount: Long,
+    val rootsModificationCount: Long,
+    val issues: Set<Issue>,
+  )
+
+  private class CachedProblems(val stamp: Stamp, val problems: List<LintProblemData>)
+
+  /** Returns the current [Stamp] of [file] when looking for [issues]. Requires read access. */
+  fun stamp(file: PsiFile, issues: Set<Issue>): Stamp {
+    val project = file.project
+    return Stamp(
+      file.modificationStamp,
+      PsiModificationTracker.getInstance(project).forLanguages { isNonSourceLanguage(it) }.modificationCount,
+      ProjectRootManager.getInstance(project).modificationCount,
+      issues,
+    )
+  }
+
+  // Language.ANY is left out since its count is incremented on every PSI change, see AndroidPsiUtils.getPsiModificationTrackerIgnoringXml.
+  private fun isNonSourceLanguage(language: Language) =
+    !language.isKindOf(JavaLanguage.INSTANCE) && !language.isKindOf(KotlinLanguage.INSTANCE) && !language.`is`(Language.ANY)
+
+  /** Returns the problems cached for [file] at [stamp], or null if there are none. */
+  fun get(file: PsiFile, stamp: Stamp): List<LintProblemData>? =
+    file.getUserData(CACHED_PROBLEMS)?.takeIf { it.stamp == stamp }?.problems
+
+  /** Caches the [problems] found in [file] at [stamp]. */
+  fun put(file: PsiFile, stamp: Stamp, problems: List<LintProblemData>) {
+    file.putUserData(CACHED_PROBLEMS, CachedProblems(stamp, problems.toList()))
+  }
+}
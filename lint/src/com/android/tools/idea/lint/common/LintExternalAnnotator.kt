@@ -165,10 +165,20 @@ class LintExternalAnnotator : ExternalAnnotator<LintEditorResult, LintEditorResu
       return null
     }
     val issues = getIssuesFromInspections(file.project, file)
-    return LintEditorResult(module, vFile, file.text, issues)
+    return LintEditorResult(module, vFile, file.text, issues).apply {
+      cacheKey = Pair(file, LintEditorResultCache.stamp(file, issues))
+    }
   }
 
   override fun doAnnotate(lintResult: LintEditorResult): LintEditorResult {
+    val cacheKey = lintResult.cacheKey
+    if (cacheKey != null) {
+      val cachedProblems = LintEditorResultCache.get(cacheKey.first, cacheKey.second)
+      if (cachedProblems != null) {
+        (lintResult.problems as MutableList<LintProblemData>).addAll(cachedProblems)
+        return lintResult
+      }
+    }
     val startTime = System.currentTimeMillis()
     val client = LintIdeSupport.get().createEditorClient(lintResult)
     try {
@@ -228,6 +238,9 @@ class LintExternalAnnotator : ExternalAnnotator<LintEditorResult, LintEditorResu
       lint.analyze()
       lint.analysisStartTime = startTime
       LintIdeSupport.get().logSession(lint, lintResult)
+      if (cacheKey != null && !lintResult.isDirty) {
+        LintEditorResultCache.put(cacheKey.first, cacheKey.second, lintResult.problems)
+      }
     } finally {
       Disposer.dispose(client)
     }
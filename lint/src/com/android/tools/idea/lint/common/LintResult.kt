@@ -20,6 +20,7 @@ import com.intellij.analysis.AnalysisScope
 import com.intellij.openapi.module.Module
 import com.intellij.openapi.project.Project
 import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.psi.PsiFile
 import java.io.File
 
 sealed class LintResult {
@@ -55,6 +56,9 @@ class LintEditorResult(
 ) : LintResult() {
   val problems: List<LintProblemData> = ArrayList()
 
+  /** The file and inputs [problems] are cached for by [LintEditorResultCache], or null if they are not cached. */
+  var cacheKey: Pair<PsiFile, LintEditorResultCache.Stamp>? = null
+
   @Volatile
   var isDirty = false
     private set
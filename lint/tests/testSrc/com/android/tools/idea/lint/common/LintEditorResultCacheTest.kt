@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.lint.common
+
+import com.android.tools.lint.checks.CommentDetector
+import com.intellij.openapi.command.WriteCommandAction
+import com.intellij.openapi.util.TextRange
+import com.intellij.psi.PsiDocumentManager
+import com.intellij.psi.PsiFile
+import com.intellij.testFramework.fixtures.JavaCodeInsightFixtureTestCase
+
+class LintEditorResultCacheTest : JavaCodeInsightFixtureTestCase() {
+
+  fun testProblemsAreCachedUntilAnInputChanges() {
+    val file = myFixture.addFileToProject("res/layout/layout.xml", "<FrameLayout/>")
+    val other = myFixture.addFileToProject("res/values/strings.xml", "<resources/>")
+    val issues = setOf(CommentDetector.STOP_SHIP)
+    val problems = listOf(LintProblemData(CommentDetector.STOP_SHIP, "message", TextRange(1, 5), null, null))
+
+    val stamp = LintEditorResultCache.stamp(file, issues)
+    assertNull(LintEditorResultCache.get(file, stamp))
+    LintEditorResultCache.put(file, stamp, problems)
+    assertEquals(problems, LintEditorResultCache.get(file, LintEditorResultCache.stamp(file, issues)))
+
+    // Another set of enabled issues needs lint to run again.
+    assertNull(LintEditorResultCache.get(file, LintEditorResultCache.stamp(file, emptySet())))
+
+    // So does a change to a resource, which lint checks could have looked at.
+    setText(other, "<resources><string name=\"a\">a</string></resources>")
+    assertNull(LintEditorResultCache.get(file, LintEditorResultCache.stamp(file, issues)))
+  }
+
+  fun testProblemsAreKeptAcrossEditsToOtherSources() {
+    val file = myFixture.addFileToProject("src/p/A.java", "package p; class A { void a() { int x = 1; } }")
+    val other = myFixture.addFileToProject("src/p/B.java", "package p; class B { void b() { int y = 1; } }")
+    val issues = setOf(CommentDetector.STOP_SHIP)
+    val problems = listOf(LintProblemData(CommentDetector.STOP_SHIP, "message", TextRange(1, 5), null, null))
+    LintEditorResultCache.put(file, LintEditorResultCache.stamp(file, issues), problems)
+
+    setText(other, "package p; class B { void b() { int y = 2; } }")
+    assertEquals(problems, LintEditorResultCache.get(file, LintEditorResultCache.stamp(file, issues)))
+
+    // An edit to the file itself needs lint to run again.
+    setText(file, "package p; class A { void a() { int x = 2; } }")
+    assertNull(LintEditorResultCache.get(file, LintEditorResultCache.stamp(file, issues)))
+  }
+
+  private fun setText(file: PsiFile, text: String) {
+    WriteCommandAction.runWriteCommandAction(project) {
+      myFixture.getDocument(file).setText(text)
+      PsiDocumentManager.getInstance(project).commitAllDocuments()
+    }
+  }
+}
@@ -15,8 +15,10 @@
  */
 package com.android.tools.idea.observable;
 
-import com.google.common.collect.Queues;
-import java.util.Queue;
+import com.google.common.collect.Sets;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToIntFunction;
 import javax.swing.SwingUtilities;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -32,6 +34,12 @@ import org.jetbrains.annotations.TestOnly;
  * Doing this will allow us to avoid doing expensive updates on redundant, intermediate changes,
  * e.g. if you have five values in a complex mathematical calculation, and all values change in
  * the same frame, you only want to run the calculation once.
+ *
+ * Runnables normally run in the order they were enqueued. An invoker can also be given a rank
+ * function, in which case runnables with a lower rank run first, and runnables enqueued while a
+ * batch is running join it instead of waiting for the next one, as long as their rank is not lower
+ * than the one currently running and they did not run yet. This lets dependent updates run once
+ * per batch, when the rank orders them after the updates they depend on.
  */
 public final class BatchInvoker {
   /**
@@ -57,25 +65,65 @@ public final class BatchInvoker {
 
   private final Strategy myStrategy;
 
+  @Nullable private final ToIntFunction<Runnable> myRankFunction;
+
   /**
-   * A current batch of runnables that are either running or will run soon.
+   * A current batch of runnables that are either running or will run soon, in the order they were
+   * enqueued. With a rank function, only the runnables that did not start yet are kept here.
    */
-  private final Queue<Runnable> myRunnables = Queues.newArrayDeque();
+  private final Set<Runnable> myRunnables = Sets.newLinkedHashSet();
 
   /**
    * A deferred batch of runnables, for those that are added by {@link #enqueue(Runnable)} while a
    * batch is already running. These will run immediately after the current batch finishes.
    */
-  private final Queue<Runnable> myDeferredRunnables = Queues.newArrayDeque();
+  private final Set<Runnable> myDeferredRunnables = Sets.newLinkedHashSet();
+
+  /**
+   * With a rank function, the runnables of {@link #myRunnables} sorted by rank, then by the order
+   * they were enqueued in.
+   */
+  private final PriorityQueue<RankedRunnable> myRankedRunnables = new PriorityQueue<>();
+
+  /**
+   * With a rank function, the runnables that already ran in the current batch.
+   */
+  private final Set<Runnable> myRanRunnables = Sets.newHashSet();
+
+  private int myCurrentRank;
+  private long myNextSequence;
 
   private boolean myUpdateInProgress;
 
   public BatchInvoker() {
-    this(ourOverrideStrategy != null ? ourOverrideStrategy : SWING_INVOKE_LATER_STRATEGY);
+    this(getDefaultStrategy());
   }
 
   public BatchInvoker(@NotNull Strategy strategy) {
     myStrategy = strategy;
+    myRankFunction = null;
+  }
+
+  /**
+   * Creates an invoker which orders the runnables of a batch with the given rank function, using
+   * the default invoke strategy.
+   */
+  public BatchInvoker(@NotNull ToIntFunction<Runnable> rankFunction) {
+    this(getDefaultStrategy(), rankFunction);
+  }
+
+  /**
+   * Creates an invoker which orders the runnables of a batch with the given rank function. The
+   * rank of a runnable is computed once, when it is enqueued.
+   */
+  public BatchInvoker(@NotNull Strategy strategy, @NotNull ToIntFunction<Runnable> rankFunction) {
+    myStrategy = strategy;
+    myRankFunction = rankFunction;
+  }
+
+  @NotNull
+  private static Strategy getDefaultStrategy() {
+    return ourOverrideStrategy != null ? ourOverrideStrategy : SWING_INVOKE_LATER_STRATEGY;
   }
 
   /**
@@ -85,39 +133,70 @@ public final class BatchInvoker {
    */
   public void enqueue(@NotNull Runnable runnable) {
     if (myUpdateInProgress) {
-      if (!myDeferredRunnables.contains(runnable)) {
-        myDeferredRunnables.add(runnable);
+      if (myRankFunction != null) {
+        if (myRunnables.contains(runnable)) {
+          // Will run later in the current batch anyway.
+          return;
+        }
+        if (!myRanRunnables.contains(runnable)) {
+          int rank = myRankFunction.applyAsInt(runnable);
+          if (rank >= myCurrentRank) {
+            addRunnable(runnable, rank);
+            return;
+          }
+        }
       }
+      myDeferredRunnables.add(runnable);
       return;
     }
 
     // Prepare to run an update if we're the first update request. Any other requests that are made
     // before the update runs will get lumped in with it.
     boolean shouldInvoke = myRunnables.isEmpty();
-    if (!myRunnables.contains(runnable)) {
-      myRunnables.add(runnable);
-    }
+    addRunnable(runnable);
 
     if (shouldInvoke) {
       enqueueInvoke();
     }
   }
 
+  private void addRunnable(@NotNull Runnable runnable) {
+    if (myRankFunction == null) {
+      myRunnables.add(runnable);
+    }
+    else if (!myRunnables.contains(runnable)) {
+      addRunnable(runnable, myRankFunction.applyAsInt(runnable));
+    }
+  }
+
+  private void addRunnable(@NotNull Runnable runnable, int rank) {
+    myRunnables.add(runnable);
+    myRankedRunnables.add(new RankedRunnable(runnable, rank, myNextSequence++));
+  }
+
   private void enqueueInvoke() {
     myStrategy.invoke(() -> {
       int cycleCount = 0;
       RuntimeException runnableExceptionChain = null;
       while (true) {
         myUpdateInProgress = true;
-        for (Runnable runnable : myRunnables) {
-          try {
-            runnable.run();
+        if (myRankFunction == null) {
+          for (Runnable runnable : myRunnables) {
+            runnableExceptionChain = run(runnable, runnableExceptionChain);
           }
-          catch (RuntimeException ex) {
-            runnableExceptionChain = addExceptionCause(ex, runnableExceptionChain);
+          myRunnables.clear();
+        }
+        else {
+          RankedRunnable next;
+          while ((next = myRankedRunnables.poll()) != null) {
+            myRunnables.remove(next.myRunnable);
+            myRanRunnables.add(next.myRunnable);
+            myCurrentRank = next.myRank;
+            runnableExceptionChain = run(next.myRunnable, runnableExceptionChain);
           }
+          myRanRunnables.clear();
+          myCurrentRank = 0;
         }
-        myRunnables.clear();
 
         myUpdateInProgress = false;
 
@@ -128,7 +207,7 @@ public final class BatchInvoker {
             throw new InfiniteCycleException(runnableExceptionChain);
           }
 
-          myRunnables.addAll(myDeferredRunnables);
+          myDeferredRunnables.forEach(this::addRunnable);
           myDeferredRunnables.clear();
         }
         else {
@@ -142,6 +221,17 @@ public final class BatchInvoker {
     });
   }
 
+  @Nullable
+  private static RuntimeException run(@NotNull Runnable runnable, @Nullable RuntimeException runnableExceptionChain) {
+    try {
+      runnable.run();
+    }
+    catch (RuntimeException ex) {
+      return addExceptionCause(ex, runnableExceptionChain);
+    }
+    return runnableExceptionChain;
+  }
+
   /**
    * A strategy on how to handle invoking a batch of runnables.
    *
@@ -178,6 +268,24 @@ public final class BatchInvoker {
     }
   }
 
+  private static final class RankedRunnable implements Comparable<RankedRunnable> {
+    @NotNull private final Runnable myRunnable;
+    private final int myRank;
+    private final long mySequence;
+
+    private RankedRunnable(@NotNull Runnable runnable, int rank, long sequence) {
+      myRunnable = runnable;
+      myRank = rank;
+      mySequence = sequence;
+    }
+
+    @Override
+    public int compareTo(@NotNull RankedRunnable other) {
+      int result = Integer.compare(myRank, other.myRank);
+      return result != 0 ? result : Long.compare(mySequence, other.mySequence);
+    }
+  }
+
   private static RuntimeException addExceptionCause(@NotNull RuntimeException ex, @Nullable RuntimeException cause) {
     if (cause != null) {
       Throwable tail = ex;
@@ -18,8 +18,10 @@ package com.android.tools.idea.observable;
 import com.android.tools.idea.observable.core.ObservableBool;
 import com.google.common.base.Objects;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -30,22 +32,39 @@ import org.jetbrains.annotations.NotNull;
  * {@link #bind(SettableValue, ObservableValue)} and
  * {@link #bindTwoWay(SettableValue, SettableValue)}.
  * <p/>
+ * Bindings managers created with {@code updateInDependencyOrder} set update destination values in
+ * dependency order: when the source of a one-way binding is itself the destination of another
+ * binding, it is updated first, and the dependent binding then runs once in the same batch instead
+ * of once per upstream change. Dependencies hidden inside expressions are not known and still cause
+ * extra updates.
+ * <p/>
  * Note: This class is currently not thread-safe. You are expected to read, write, and bind
  * values on the dispatch thread to avoid undefined behavior.
  */
 public final class BindingsManager {
 
-  private final List<OneWayBinding<?>> myOneWayBindings = new ArrayList<>();
+  /**
+   * One-way bindings by destination, compared by identity. A destination has at most one binding.
+   */
+  private final Map<SettableValue<?>, OneWayBinding<?>> myOneWayBindings = new IdentityHashMap<>();
   private final List<TwoWayBinding<?>> myTwoWayBindings = new ArrayList<>();
 
   private final BatchInvoker myInvoker;
 
   public BindingsManager() {
-    myInvoker = new BatchInvoker();
+    this(false);
   }
 
   public BindingsManager(@NotNull BatchInvoker.Strategy invokeStrategy) {
-    myInvoker = new BatchInvoker(invokeStrategy);
+    this(invokeStrategy, false);
+  }
+
+  public BindingsManager(boolean updateInDependencyOrder) {
+    myInvoker = updateInDependencyOrder ? new BatchInvoker(this::getRank) : new BatchInvoker();
+  }
+
+  public BindingsManager(@NotNull BatchInvoker.Strategy invokeStrategy, boolean updateInDependencyOrder) {
+    myInvoker = updateInDependencyOrder ? new BatchInvoker(invokeStrategy, this::getRank) : new BatchInvoker(invokeStrategy);
   }
 
   /**
@@ -73,7 +92,7 @@ public final class BindingsManager {
   public <T> void bind(@NotNull SettableValue<T> dest, @NotNull ObservableValue<T> src, @NotNull ObservableValue<Boolean> enabled) {
     release(dest);
 
-    myOneWayBindings.add(new OneWayBinding<>(dest, src, enabled));
+    myOneWayBindings.put(dest, new OneWayBinding<>(dest, src, enabled));
   }
 
   /**
@@ -93,14 +112,9 @@ public final class BindingsManager {
    * Releases a one-way binding previously registered via {@link #bind(SettableValue, ObservableValue)}
    */
   public void release(@NotNull SettableValue<?> dest) {
-    Iterator<OneWayBinding<?>> i = myOneWayBindings.iterator();
-    while (i.hasNext()) {
-      OneWayBinding<?> binding = i.next();
-      if (binding.myDest == dest) {
-        binding.dispose();
-        i.remove();
-        return;
-      }
+    OneWayBinding<?> binding = myOneWayBindings.remove(dest);
+    if (binding != null) {
+      binding.dispose();
     }
   }
 
@@ -139,7 +153,7 @@ public final class BindingsManager {
    * Release all bindings (one-way and two-way) registered with this bindings manager.
    */
   public void releaseAll() {
-    for (OneWayBinding<?> oneWayBinding : myOneWayBindings) {
+    for (OneWayBinding<?> oneWayBinding : myOneWayBindings.values()) {
       oneWayBinding.dispose();
     }
     myOneWayBindings.clear();
@@ -150,6 +164,25 @@ public final class BindingsManager {
     myTwoWayBindings.clear();
   }
 
+  /**
+   * Returns the number of one-way bindings upstream of the source of an update, so that updates of
+   * a batch run after the updates of the values they read.
+   */
+  private int getRank(@NotNull Runnable runnable) {
+    if (!(runnable instanceof DestUpdater)) {
+      return 0;
+    }
+    ObservableValue<?> value = ((DestUpdater<?>)runnable).mySrc;
+    int rank = 0;
+    OneWayBinding<?> binding;
+    // Bounded by the number of bindings in case they form a cycle.
+    while ((binding = myOneWayBindings.get(value)) != null && rank < myOneWayBindings.size()) {
+      value = binding.mySrc;
+      rank++;
+    }
+    return rank;
+  }
+
   private final class OneWayBinding<T> implements InvalidationListener {
     private final SettableValue<T> myDest;
     private final ObservableValue<T> mySrc;
@@ -19,6 +19,9 @@ import static com.google.common.truth.Truth.assertThat;
 import static junit.framework.TestCase.fail;
 
 import com.google.common.base.Objects;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -142,6 +145,27 @@ public final class BatchInvokerTest {
     assertThat(invokeResult.get()).isFalse();
   }
 
+  @Test
+  public void rankedInvokingRunsLowerRanksFirstAndJoinsCurrentBatch() throws Exception {
+    TestInvokeStrategy testStrategy = new TestInvokeStrategy();
+    List<Integer> ranks = new ArrayList<>();
+    BatchInvoker invoker = new BatchInvoker(testStrategy, runnable -> ((RankedRunnable)runnable).myRank);
+    RankedRunnable rank2 = new RankedRunnable(2, ranks, null);
+    RankedRunnable rank0 = new RankedRunnable(0, ranks, null);
+    RankedRunnable rank1 = new RankedRunnable(1, ranks, invoker);
+    rank1.setRunnables(rank2, new RankedRunnable(3, ranks, null), rank0);
+
+    invoker.enqueue(rank2);
+    invoker.enqueue(rank1);
+    invoker.enqueue(rank0);
+    testStrategy.updateOneStep();
+
+    // rank1 enqueues rank2 again, which is still pending and so only runs once, rank3 which joins the current batch, and rank0 which
+    // already ran in this batch and runs again after it.
+    assertThat(ranks).containsExactly(0, 1, 2, 3, 0).inOrder();
+    assertThat(testStrategy.myBatchQueue).isEmpty();
+  }
+
   private static final class IntWrapper {
     int value;
   }
@@ -183,6 +207,34 @@ public final class BatchInvokerTest {
     }
   }
 
+  /**
+   * A runnable which records its rank when run, and can enqueue more runnables into an invoker.
+   */
+  private static final class RankedRunnable implements Runnable {
+    private final int myRank;
+    @NotNull private final List<Integer> myRanks;
+    @Nullable private final BatchInvoker myOwningInvoker;
+    @NotNull private List<Runnable> myOthers = new ArrayList<>();
+
+    public RankedRunnable(int rank, @NotNull List<Integer> ranks, @Nullable BatchInvoker owningInvoker) {
+      myRank = rank;
+      myRanks = ranks;
+      myOwningInvoker = owningInvoker;
+    }
+
+    public void setRunnables(@NotNull Runnable... others) {
+      myOthers = Arrays.asList(others);
+    }
+
+    @Override
+    public void run() {
+      myRanks.add(myRank);
+      if (myOwningInvoker != null) {
+        myOthers.forEach(myOwningInvoker::enqueue);
+      }
+    }
+  }
+
   /**
    * A runnable which assigns another runnable to a target invoker. This will let us unit test
    * deferred behavior and infinite loop scenarios.
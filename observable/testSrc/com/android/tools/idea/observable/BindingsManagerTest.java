@@ -282,4 +282,30 @@ public final class BindingsManagerTest {
     srcProperty.set(50);
     assertThat(destProperty.get()).isEqualTo(50);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void bindingsUpdatedInDependencyOrderRunOncePerBatch() {
+    TestInvokeStrategy testStrategy = new TestInvokeStrategy();
+    BindingsManager bindings = new BindingsManager(testStrategy, true);
+    IntValueProperty first = new IntValueProperty(1);
+    IntValueProperty second = new IntValueProperty(1);
+    IntValueProperty third = new IntValueProperty(1);
+    BoolValueProperty thirdEnabled = new BoolValueProperty(false);
+
+    bindings.bind(second, first);
+    bindings.bind(third, second, thirdEnabled);
+    testStrategy.updateAllSteps();
+    third.set(0);
+    CountListener listener = new CountListener();
+    third.addListener(listener);
+
+    // The update of third is enqueued before the update of second it depends on, but still runs after it.
+    thirdEnabled.set(true);
+    first.set(2);
+    testStrategy.updateOneStep();
+
+    assertThat(third.get()).isEqualTo(2);
+    assertThat(listener.getCount()).isEqualTo(1);
+    assertThat(testStrategy.myBatchQueue).isEmpty();
+  }
+}
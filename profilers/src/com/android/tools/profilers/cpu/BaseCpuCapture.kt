@@ -21,6 +21,7 @@ import com.android.tools.adtui.model.Timeline
 import com.android.tools.perflib.vmtrace.ClockType
 import com.android.tools.profilers.cpu.config.ProfilingConfiguration.TraceType
 import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModel
+import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModelPool
 import com.android.tools.profilers.cpu.nodemodel.JavaMethodModel
 import com.android.tools.profilers.cpu.nodemodel.NativeNodeModel
 import com.android.tools.profilers.cpu.nodemodel.SyscallModel
@@ -44,7 +45,12 @@ open class BaseCpuCapture @JvmOverloads constructor(/**
                                                     private val dualClockMessage: String?,
                                                     range: Range,
                                                     captureTrees: Map<CpuThreadInfo, CaptureNode>,
-                                                    private val tags: Set<String> = setOf()) : CpuCapture {
+                                                    private val tags: Set<String> = setOf(),
+                                                    /**
+                                                     * Stats of the pool the node models of the capture were interned in, if any,
+                                                     * taken once parsing was done so the pool itself can be discarded.
+                                                     */
+                                                    private val nodeModelPoolStats: CaptureNodeModelPool.Stats? = null) : CpuCapture {
   @VisibleForTesting
   constructor(traceId: Long,
               type: TraceType,
@@ -127,6 +133,7 @@ open class BaseCpuCapture @JvmOverloads constructor(/**
   }
 
   override fun getTags() = tags
+  override fun getNodeModelPoolStats() = nodeModelPoolStats
   override fun getCollapsedTags() = tagsCollapsed
 
   private object OpaqueJavaMethodModel : JavaMethodModel("<<java code>>", "", "")
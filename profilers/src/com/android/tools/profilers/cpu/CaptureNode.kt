@@ -27,7 +27,7 @@ import java.util.function.Predicate
 import java.util.stream.Stream
 import kotlin.reflect.KMutableProperty1
 
-open class CaptureNode(val data: CaptureNodeModel, var clockType: ClockType) : HNode<CaptureNode> {
+open class CaptureNode(val data: CaptureNodeModel, open var clockType: ClockType) : HNode<CaptureNode> {
 
   @VisibleForTesting
   constructor(data: CaptureNodeModel) : this(data, ClockType.GLOBAL) {}
@@ -35,22 +35,22 @@ open class CaptureNode(val data: CaptureNodeModel, var clockType: ClockType) : H
   /**
    * Start time with GLOBAL clock.
    */
-  var startGlobal = 0L
+  open var startGlobal = 0L
 
   /**
    * End time with GLOBAL clock.
    */
-  var endGlobal = 0L
+  open var endGlobal = 0L
 
   /**
    * Start time with THREAD clock.
    */
-  var startThread = 0L
+  open var startThread = 0L
 
   /**
    * End time with THREAD clock.
    */
-  var endThread = 0L
+  open var endThread = 0L
   @JvmField
   protected val childrenList = mutableListOf<CaptureNode>()
 
@@ -62,7 +62,7 @@ open class CaptureNode(val data: CaptureNodeModel, var clockType: ClockType) : H
   /**
    * see [FilterType].
    */
-  var filterType = FilterType.MATCH
+  open var filterType = FilterType.MATCH
 
   /**
    * The shortest distance from the root.
@@ -75,7 +75,7 @@ open class CaptureNode(val data: CaptureNodeModel, var clockType: ClockType) : H
    */
   private var aspectModelPlaceHolder: AspectModel<Aspect>? = null
 
-  val children: List<CaptureNode>
+  open val children: List<CaptureNode>
     get() = childrenList
 
   val isUnmatched: Boolean
@@ -93,7 +93,7 @@ open class CaptureNode(val data: CaptureNodeModel, var clockType: ClockType) : H
   }
 
   fun addChildren(nodes: Collection<CaptureNode>) = nodes.forEach(::addChild)
-  fun clearChildren() = childrenList.clear()
+  open fun clearChildren() = childrenList.clear()
 
   override fun getChildCount() = childrenList.size
   override fun getChildAt(index: Int) = childrenList[index]
@@ -103,7 +103,7 @@ open class CaptureNode(val data: CaptureNodeModel, var clockType: ClockType) : H
    * @return root node of this node. If this node doesn't have a parent, return this node.
    */
   fun findRootNode(): CaptureNode {
-    tailrec fun find(node: CaptureNode): CaptureNode = when (val parent = node.parent) {
+    tailrec fun find(node: CaptureNode): CaptureNode = when (val parent = node.getParent()) {
       null -> node
       else -> find(parent)
     }
@@ -127,7 +127,7 @@ open class CaptureNode(val data: CaptureNodeModel, var clockType: ClockType) : H
    */
   fun threadGlobalRatio(): Double = (endThread - startThread).toDouble() / (endGlobal - startGlobal)
 
-  fun setDepth(depth: Int) {
+  open fun setDepth(depth: Int) {
     this.depth = depth
   }
 
@@ -180,7 +180,7 @@ open class CaptureNode(val data: CaptureNodeModel, var clockType: ClockType) : H
   }
 
   private fun resetDepth(n: Int) {
-    depth = n
+    setDepth(n)
     children.forEach { it.resetDepth(n + 1) }
   }
 
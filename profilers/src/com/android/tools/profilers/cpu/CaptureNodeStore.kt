@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu
+
+import com.android.tools.perflib.vmtrace.ClockType
+import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModel
+import java.util.ArrayDeque
+
+/**
+ * Compact storage for a capture tree, meant for captures with millions of calls where a [CaptureNode] object per call does not fit in the
+ * IDE heap.
+ *
+ * Nodes are kept in parallel primitive arrays indexed by node id, in pre-order: parent, the global and thread timestamps, depth and filter
+ * type. The children of each node are kept as a contiguous range of node ids, so indexed child access does not walk the siblings. Models
+ * are referenced as they are, parsers are expected to intern them, e.g. with a
+ * [com.android.tools.profilers.cpu.nodemodel.CaptureNodeModelPool].
+ *
+ * The tree is exposed through [root], a [CaptureNode] whose descendants are lightweight views created on demand over this storage. Views
+ * of the same node are equal, but not necessarily the same instance, so they should not be used as identity keys. Timestamps, depth,
+ * filter type and clock type can be updated through any view, the clock type being shared by the whole tree. The children of the root can
+ * be replaced, so that captures can still collapse nodes with tags, but other views do not support adding or removing children.
+ */
+class CaptureNodeStore private constructor(private val models: Array<CaptureNodeModel>,
+                                           private val parents: IntArray,
+                                           private val childOffsets: IntArray,
+                                           private val children: IntArray,
+                                           private val startGlobals: LongArray,
+                                           private val endGlobals: LongArray,
+                                           private val startThreads: LongArray,
+                                           private val endThreads: LongArray,
+                                           private val depths: IntArray,
+                                           private val filterTypes: ByteArray,
+                                           private var clockType: ClockType) {
+  /**
+   * Number of nodes in the tree.
+   */
+  val size: Int get() = parents.size
+
+  /**
+   * The root of the tree. Unlike other views, the same instance is always returned.
+   */
+  val root: CaptureNode = StoredCaptureNode(ROOT)
+
+  private fun view(index: Int): CaptureNode = if (index == ROOT) root else StoredCaptureNode(index)
+
+  private fun childCount(index: Int) = childOffsets[index + 1] - childOffsets[index]
+
+  private fun childAt(index: Int, position: Int): Int {
+    if (position < 0 || position >= childCount(index)) throw IndexOutOfBoundsException("Index: $position")
+    return children[childOffsets[index] + position]
+  }
+
+  /**
+   * A [CaptureNode] view over the node at [nodeIndex]. It only adds the fields of [CaptureNode] itself, which are not used for the stored
+   * values, and can be dropped as soon as the caller is done with it.
+   */
+  private inner class StoredCaptureNode(private val nodeIndex: Int) : CaptureNode(models[nodeIndex], clockType) {
+    /**
+     * Whether [childrenList] replaces the stored children, after [addChild] or [clearChildren] was called on the root.
+     */
+    private var childrenReplaced = false
+
+    private val storedChildren = object : AbstractList<CaptureNode>(), RandomAccess {
+      override val size get() = childCount(nodeIndex)
+      override fun get(index: Int) = view(childAt(nodeIndex, index))
+    }
+
+    override var clockType: ClockType
+      get() = this@CaptureNodeStore.clockType
+      set(value) {
+        this@CaptureNodeStore.clockType = value
+      }
+
+    override var startGlobal: Long
+      get() = startGlobals[nodeIndex]
+      set(value) {
+        startGlobals[nodeIndex] = value
+      }
+
+    override var endGlobal: Long
+      get() = endGlobals[nodeIndex]
+      set(value) {
+        endGlobals[nodeIndex] = value
+      }
+
+    override var startThread: Long
+      get() = startThreads[nodeIndex]
+      set(value) {
+        startThreads[nodeIndex] = value
+      }
+
+    override var endThread: Long
+      get() = endThreads[nodeIndex]
+      set(value) {
+        endThreads[nodeIndex] = value
+      }
+
+    override var filterType: CaptureNode.FilterType
+      get() = FILTER_TYPES[filterTypes[nodeIndex].toInt()]
+      set(value) {
+        filterTypes[nodeIndex] = value.ordinal.toByte()
+      }
+
+    override val children: List<CaptureNode>
+      get() = if (childrenReplaced) childrenList else storedChildren
+
+    override fun getChildCount() = if (childrenReplaced) childrenList.size else childCount(nodeIndex)
+
+    override fun getChildAt(index: Int) = if (childrenReplaced) childrenList[index] else view(childAt(nodeIndex, index))
+
+    override fun getParent(): CaptureNode? = parents[nodeIndex].let { if (it == NO_PARENT) null else view(it) }
+
+    override fun getDepth() = depths[nodeIndex]
+
+    override fun setDepth(depth: Int) {
+      depths[nodeIndex] = depth
+    }
+
+    override fun addChild(node: CaptureNode) {
+      checkCanReplaceChildren()
+      if (!childrenReplaced) {
+        childrenList.addAll(storedChildren)
+        childrenReplaced = true
+      }
+      super.addChild(node)
+    }
+
+    override fun clearChildren() {
+      checkCanReplaceChildren()
+      childrenList.clear()
+      childrenReplaced = true
+    }
+
+    private fun checkCanReplaceChildren() {
+      if (nodeIndex != ROOT) throw UnsupportedOperationException("Only the children of the root of a CaptureNodeStore can be replaced")
+    }
+
+    private val store get() = this@CaptureNodeStore
+
+    override fun equals(other: Any?) = other is StoredCaptureNode && other.store === store && other.nodeIndex == nodeIndex
+
+    override fun hashCode() = System.identityHashCode(store) * 31 + nodeIndex
+  }
+
+  /**
+   * Appends nodes in pre-order. Children are linked to their parent in the order they are added. Each node only costs its share of the
+   * primitive arrays, so parsers can build the tree of huge captures without allocating an object per call.
+   */
+  class Builder @JvmOverloads constructor(private val clockType: ClockType = ClockType.GLOBAL, private val rootDepth: Int = 0) {
+    private var size = 0
+    private var models = arrayOfNulls<CaptureNodeModel>(INITIAL_CAPACITY)
+    private var parents = IntArray(INITIAL_CAPACITY)
+    private var startGlobals = LongArray(INITIAL_CAPACITY)
+    private var endGlobals = LongArray(INITIAL_CAPACITY)
+    private var startThreads = LongArray(INITIAL_CAPACITY)
+    private var endThreads = LongArray(INITIAL_CAPACITY)
+    private var depths = IntArray(INITIAL_CAPACITY)
+
+    /**
+     * Adds a node as the last child of [parent], or as the root if [parent] is [NO_PARENT] and no node was added yet. The end times are
+     * 0 until they are set with [setEnd].
+     *
+     * @return the index of the new node, to be used as the parent of its children.
+     */
+    fun addNode(parent: Int, model: CaptureNodeModel, startGlobal: Long, startThread: Long): Int {
+      require(if (size == 0) parent == NO_PARENT else parent in 0 until size) { "Invalid parent $parent for node $size" }
+      if (size == parents.size) {
+        grow()
+      }
+      val index = size++
+      models[index] = model
+      parents[index] = parent
+      startGlobals[index] = startGlobal
+      endGlobals[index] = 0
+      startThreads[index] = startThread
+      endThreads[index] = 0
+      depths[index] = if (parent == NO_PARENT) rootDepth else depths[parent] + 1
+      return index
+    }
+
+    fun setEnd(index: Int, endGlobal: Long, endThread: Long) {
+      endGlobals[index] = endGlobal
+      endThreads[index] = endThread
+    }
+
+    /**
+     * @return the parent of the node at [index], or [NO_PARENT] for the root.
+     */
+    fun parentOf(index: Int) = parents[index]
+
+    fun endGlobalOf(index: Int) = endGlobals[index]
+
+    private fun grow() {
+      val capacity = parents.size * 2
+      models = models.copyOf(capacity)
+      parents = parents.copyOf(capacity)
+      startGlobals = startGlobals.copyOf(capacity)
+      endGlobals = endGlobals.copyOf(capacity)
+      startThreads = startThreads.copyOf(capacity)
+      endThreads = endThreads.copyOf(capacity)
+      depths = depths.copyOf(capacity)
+    }
+
+    fun build(): CaptureNodeStore {
+      check(size > 0) { "A CaptureNodeStore needs at least a root node" }
+      // Group the children of each node in a contiguous range. Nodes are in pre-order, so the children of a node are found in order.
+      val childOffsets = IntArray(size + 1)
+      for (index in 1 until size) {
+        childOffsets[parents[index] + 1]++
+      }
+      for (index in 0 until size) {
+        childOffsets[index + 1] += childOffsets[index]
+      }
+      val children = IntArray(maxOf(size - 1, 0))
+      val nextChild = childOffsets.copyOf(size)
+      for (index in 1 until size) {
+        children[nextChild[parents[index]]++] = index
+      }
+      @Suppress("UNCHECKED_CAST")
+      val nodeModels = models.copyOf(size) as Array<CaptureNodeModel>
+      return CaptureNodeStore(nodeModels, parents.copyOf(size), childOffsets, children, startGlobals.copyOf(size),
+                              endGlobals.copyOf(size), startThreads.copyOf(size), endThreads.copyOf(size), depths.copyOf(size),
+                              ByteArray(size) { MATCH }, clockType)
+    }
+  }
+
+  companion object {
+    /**
+     * Parent of the root node.
+     */
+    const val NO_PARENT = -1
+    private const val ROOT = 0
+    private const val INITIAL_CAPACITY = 64
+    private val FILTER_TYPES = CaptureNode.FilterType.values()
+    private val MATCH = CaptureNode.FilterType.MATCH.ordinal.toByte()
+
+    /**
+     * Copies the tree under [root] into a new store. The depth of [root] is kept, and its descendants get consecutive depths.
+     */
+    @JvmStatic
+    fun compact(root: CaptureNode): CaptureNodeStore {
+      val builder = Builder(root.clockType, root.getDepth())
+      // Pairs of node and parent index, children pushed in reverse so they are added in order.
+      val stack = ArrayDeque<Pair<CaptureNode, Int>>()
+      stack.push(root to NO_PARENT)
+      while (stack.isNotEmpty()) {
+        val (node, parent) = stack.pop()
+        val index = builder.addNode(parent, node.data, node.startGlobal, node.startThread)
+        builder.setEnd(index, node.endGlobal, node.endThread)
+        node.children.asReversed().forEach { stack.push(it to index) }
+      }
+      return builder.build()
+    }
+  }
+}
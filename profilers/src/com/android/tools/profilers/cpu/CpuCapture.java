@@ -20,6 +20,7 @@ import com.android.tools.adtui.model.Range;
 import com.android.tools.adtui.model.Timeline;
 import com.android.tools.perflib.vmtrace.ClockType;
 import com.android.tools.profilers.cpu.config.ProfilingConfiguration.TraceType;
+import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModelPool;
 import com.android.tools.profilers.cpu.systemtrace.CpuSystemTraceData;
 import java.util.Collection;
 import java.util.Set;
@@ -115,6 +116,14 @@ public interface CpuCapture extends ConfigurableDurationData {
     return null;
   }
 
+  /**
+   * Statistics of the pool the node models of this capture were interned in, or null if they were not pooled.
+   */
+  @Nullable
+  default CaptureNodeModelPool.Stats getNodeModelPoolStats() {
+    return null;
+  }
+
   // Default overrides of ConfigurableDurationData methods for convenience.
   @Override
   default long getDurationUs() {
@@ -179,6 +179,16 @@ public class CpuCaptureMetadata {
    */
   private @Nullable Boolean myHasComposeTracingNodes;
 
+  /**
+   * Number of distinct node models the capture was parsed into.
+   */
+  private int myDistinctNodeModelCount;
+
+  /**
+   * Estimate of the heap (in bytes) saved by sharing the node models of the capture and their names.
+   */
+  private long myNodeModelBytesSaved;
+
   /**
    * {@link ProfilingConfiguration} used to start the capture.
    */
@@ -229,6 +239,22 @@ public class CpuCaptureMetadata {
     myHasComposeTracingNodes = hasComposeTracingNodes;
   }
 
+  public int getDistinctNodeModelCount() {
+    return myDistinctNodeModelCount;
+  }
+
+  public void setDistinctNodeModelCount(int distinctNodeModelCount) {
+    myDistinctNodeModelCount = distinctNodeModelCount;
+  }
+
+  public long getNodeModelBytesSaved() {
+    return myNodeModelBytesSaved;
+  }
+
+  public void setNodeModelBytesSaved(long nodeModelBytesSaved) {
+    myNodeModelBytesSaved = nodeModelBytesSaved;
+  }
+
   public long getParsingTimeMs() {
     return myParsingTimeMs;
   }
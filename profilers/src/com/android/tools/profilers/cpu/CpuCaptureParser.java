@@ -27,6 +27,7 @@ import com.android.tools.profilers.cpu.compose.ComposeTracingConstants;
 import com.android.tools.profilers.cpu.config.ProfilingConfiguration;
 import com.android.tools.profilers.cpu.config.ProfilingConfiguration.TraceType;
 import com.android.tools.profilers.cpu.config.UnspecifiedConfiguration;
+import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModelPool;
 import com.android.tools.profilers.cpu.nodemodel.SystemTraceNodeModel;
 import com.android.tools.profilers.cpu.simpleperf.SimpleperfTraceParser;
 import com.android.tools.profilers.cpu.systemtrace.AtraceParser;
@@ -45,6 +46,7 @@ import java.io.InputStream;
 import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -538,6 +540,14 @@ public class CpuCaptureParser {
         metadata.setCaptureDurationMs(TimeUnit.MICROSECONDS.toMillis(capture.getDurationUs()));
         metadata.setRecordDurationMs(calculateRecordDurationMs(capture));
         metadata.setHasComposeTracingNodes(checkHasComposeTracingNodes(capture));
+        CaptureNodeModelPool.Stats poolStats = capture.getNodeModelPoolStats();
+        if (poolStats != null) {
+          metadata.setDistinctNodeModelCount(poolStats.getDistinctModels());
+          metadata.setNodeModelBytesSaved(poolStats.getEstimatedBytesSaved());
+          // The analytics event has no field for these, so they are only reported through the log.
+          LOGGER.info(String.format(Locale.US, "Capture %d parsed into %d distinct node models, saving about %d bytes by interning them.",
+                                    traceId, metadata.getDistinctNodeModelCount(), metadata.getNodeModelBytesSaved()));
+        }
       }
       else if (throwable != null) {
         LOGGER.warn("Unable to parse capture: " + throwable.getMessage(), throwable.getCause());
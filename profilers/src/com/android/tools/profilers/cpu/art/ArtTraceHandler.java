@@ -21,15 +21,28 @@ import com.android.tools.perflib.vmtrace.VmTraceHandler;
 import com.android.tools.profilers.cpu.CaptureNode;
 import com.android.tools.profilers.cpu.CpuThreadInfo;
 import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModel;
-import com.android.tools.profilers.cpu.nodemodel.JavaMethodModel;
-import com.android.tools.profilers.cpu.nodemodel.SingleNameModel;
+import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModelPool;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * Collects the records of an ART method trace and builds a {@link CaptureNode} tree per thread.
+ * <p>
+ * Method actions are only appended to compact per-thread buffers while the trace is read. The call trees are built once the whole trace
+ * has been read, one task per thread on the given executor. The trace has no record marking the end of a thread, so no tree can be
+ * built before then.
+ */
 public class ArtTraceHandler implements VmTraceHandler {
   private static final String MAIN_THREAD_NAME = "main";
   private static final String KEY_ELAPSED_TIME_US = "elapsed-time-usec";
@@ -47,13 +60,31 @@ public class ArtTraceHandler implements VmTraceHandler {
   private final Map<Long, CaptureNodeModel> myMethods = new HashMap<>();
 
   /**
-   * Map from thread id to per thread stack call constructor.
+   * Map from thread id to the method actions of the thread, in trace order.
    */
-  private final Map<Integer, CaptureNodeConstructor> myNodeConstructors = new HashMap<>();
+  private final Map<Integer, ThreadRecords> myThreadRecords = new HashMap<>();
+
+  /**
+   * Interns the method models and names of the trace, which may declare the same method under several ids.
+   */
+  @NotNull private final CaptureNodeModelPool myModelPool = new CaptureNodeModelPool();
+
+  @NotNull private final Executor myExecutor;
 
   @Nullable
   private Map<CpuThreadInfo, CaptureNode> myThreadsGraph;
 
+  public ArtTraceHandler() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param executor runs the construction of the per-thread call trees.
+   */
+  public ArtTraceHandler(@NotNull Executor executor) {
+    myExecutor = executor;
+  }
+
   @Override
   public void addThread(int id, String name) {
     myThreads.put(id, name);
@@ -61,7 +92,7 @@ public class ArtTraceHandler implements VmTraceHandler {
 
   @Override
   public void addMethod(long id, MethodInfo info) {
-    myMethods.put(id, new JavaMethodModel(info.methodName, info.className, info.signature));
+    myMethods.put(id, myModelPool.javaMethod(info.methodName, info.className, info.signature));
   }
 
   @Override
@@ -73,28 +104,34 @@ public class ArtTraceHandler implements VmTraceHandler {
     }
 
     // create method info if it doesn't exist
-    if (!myMethods.containsKey(methodId)) {
-      myMethods.put(methodId, new SingleNameModel("unknown"));
+    CaptureNodeModel method = myMethods.get(methodId);
+    if (method == null) {
+      method = myModelPool.singleName("unknown");
+      myMethods.put(methodId, method);
     }
 
-    CaptureNodeConstructor constructor = myNodeConstructors.get(threadId);
-    if (constructor == null) {
-      CaptureNodeModel topLevelModel = createUniqueMethodForThread(threadId);
-      constructor = new CaptureNodeConstructor(topLevelModel);
-      myNodeConstructors.put(threadId, constructor);
+    ThreadRecords records = myThreadRecords.get(threadId);
+    if (records == null) {
+      records = new ThreadRecords(createUniqueMethodForThread(threadId));
+      myThreadRecords.put(threadId, records);
     }
-    constructor.addTraceAction(myMethods.get(methodId), methodAction, threadTime, globalTime);
+    records.add(method, methodAction, threadTime, globalTime);
   }
 
   private CaptureNodeModel createUniqueMethodForThread(int threadId) {
     long id = Long.MAX_VALUE - threadId;
     assert myMethods.get(id) == null :
       "Unexpected error while attempting to create a unique key - key already exists";
-    CaptureNodeModel model = new SingleNameModel(myThreads.get(threadId));
+    CaptureNodeModel model = myModelPool.singleName(myThreads.get(threadId));
     myMethods.put(id, model);
     return model;
   }
 
+  @NotNull
+  public CaptureNodeModelPool getModelPool() {
+    return myModelPool;
+  }
+
   public Map<CpuThreadInfo, CaptureNode> getThreadsGraph() {
     if (myThreadsGraph == null) {
       myThreadsGraph = createThreadsGraph();
@@ -104,27 +141,42 @@ public class ArtTraceHandler implements VmTraceHandler {
 
   @NotNull
   private Map<CpuThreadInfo, CaptureNode> createThreadsGraph() {
-    Map<CpuThreadInfo, CaptureNode> threadsGraph = new HashMap<>(myThreads.size());
+    List<CompletableFuture<Map.Entry<CpuThreadInfo, CaptureNode>>> futures = new ArrayList<>(myThreadRecords.size());
 
     for (Map.Entry<Integer, String> entry : myThreads.entrySet()) {
       final int id = entry.getKey();
       final String name = entry.getValue();
 
-      CaptureNodeConstructor constructor = myNodeConstructors.get(id);
-      if (constructor == null) {
+      ThreadRecords records = myThreadRecords.remove(id);
+      if (records == null) {
         continue;
       }
 
-      CaptureNode topLevelCall = constructor.getTopLevel();
-      assert topLevelCall != null;
-      CpuThreadInfo info = new CpuThreadInfo(id, name, name.equals(MAIN_THREAD_NAME));
+      futures.add(CompletableFuture.supplyAsync(() -> {
+        CaptureNode topLevelCall = records.buildCallTree();
+        CpuThreadInfo info = new CpuThreadInfo(id, name, name.equals(MAIN_THREAD_NAME));
 
-      long topLevelGlobalStart = topLevelCall.getStartGlobal() + myStartTimeUs;
-      adjustNodesTimeAndDepth(topLevelCall, topLevelGlobalStart);
-
-      threadsGraph.put(info, topLevelCall);
+        long topLevelGlobalStart = topLevelCall.getStartGlobal() + myStartTimeUs;
+        adjustNodesTimeAndDepth(topLevelCall, topLevelGlobalStart);
+        return Map.entry(info, topLevelCall);
+      }, myExecutor));
     }
 
+    Map<CpuThreadInfo, CaptureNode> threadsGraph = new HashMap<>(futures.size());
+    for (CompletableFuture<Map.Entry<CpuThreadInfo, CaptureNode>> future : futures) {
+      Map.Entry<CpuThreadInfo, CaptureNode> entry;
+      try {
+        entry = future.join();
+      }
+      catch (CompletionException e) {
+        // Surface call stack reconstruction errors as if the tree was built on this thread.
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException)e.getCause();
+        }
+        throw e;
+      }
+      threadsGraph.put(entry.getKey(), entry.getValue());
+    }
     return threadsGraph;
   }
 
@@ -178,4 +230,48 @@ public class ArtTraceHandler implements VmTraceHandler {
   public void setVersion(int version) {
     // We don't need this information
   }
+
+  /**
+   * The method actions of a single thread, stored column-wise until the thread's call tree is built.
+   */
+  private static final class ThreadRecords {
+    private static final int INITIAL_CAPACITY = 64;
+
+    @NotNull private final CaptureNodeModel myTopLevelModel;
+    @NotNull private CaptureNodeModel[] myMethods = new CaptureNodeModel[INITIAL_CAPACITY];
+    @NotNull private TraceAction[] myActions = new TraceAction[INITIAL_CAPACITY];
+    @NotNull private int[] myThreadTimes = new int[INITIAL_CAPACITY];
+    @NotNull private int[] myGlobalTimes = new int[INITIAL_CAPACITY];
+    private int mySize;
+
+    private ThreadRecords(@NotNull CaptureNodeModel topLevelModel) {
+      myTopLevelModel = topLevelModel;
+    }
+
+    private void add(@NotNull CaptureNodeModel method, @NotNull TraceAction action, int threadTime, int globalTime) {
+      if (mySize == myMethods.length) {
+        int capacity = mySize * 2;
+        myMethods = Arrays.copyOf(myMethods, capacity);
+        myActions = Arrays.copyOf(myActions, capacity);
+        myThreadTimes = Arrays.copyOf(myThreadTimes, capacity);
+        myGlobalTimes = Arrays.copyOf(myGlobalTimes, capacity);
+      }
+      myMethods[mySize] = method;
+      myActions[mySize] = action;
+      myThreadTimes[mySize] = threadTime;
+      myGlobalTimes[mySize] = globalTime;
+      mySize++;
+    }
+
+    @NotNull
+    private CaptureNode buildCallTree() {
+      CaptureNodeConstructor constructor = new CaptureNodeConstructor(myTopLevelModel);
+      for (int i = 0; i < mySize; i++) {
+        constructor.addTraceAction(myMethods[i], myActions[i], myThreadTimes[i], myGlobalTimes[i]);
+      }
+      CaptureNode topLevelCall = constructor.getTopLevel();
+      assert topLevelCall != null;
+      return topLevelCall;
+    }
+  }
 }
@@ -23,14 +23,31 @@ import com.android.tools.profilers.cpu.TraceParser;
 import com.android.tools.profilers.cpu.config.ProfilingConfiguration.TraceType;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import org.jetbrains.annotations.NotNull;
 
 /**
  * Receives a binary trace file generated by using ART and parse it into a {@link CpuCapture}
+ * <p>
+ * {@link VmTraceParser} maps the trace file in memory and streams its records to {@link ArtTraceHandler}, which splits them by thread.
+ * The call trees of the threads are then built in parallel, see {@link ArtTraceHandler}.
  */
 public class ArtTraceParser implements TraceParser {
 
-  private final ArtTraceHandler myTraceHandler = new ArtTraceHandler();
+  @NotNull private final ArtTraceHandler myTraceHandler;
+
+  public ArtTraceParser() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param executor runs the construction of the per-thread call trees.
+   */
+  public ArtTraceParser(@NotNull Executor executor) {
+    myTraceHandler = new ArtTraceHandler(executor);
+  }
 
   @Override
   public CpuCapture parse(@NotNull File trace, long traceId) throws IOException {
@@ -40,7 +57,8 @@ public class ArtTraceParser implements TraceParser {
       myTraceHandler.getStartTimeUs(),
       myTraceHandler.getStartTimeUs() + myTraceHandler.getElapsedTimeUs());
     // ART traces always support dual clock mode.
-    return new BaseCpuCapture(traceId, TraceType.ART, true, null, range, myTraceHandler.getThreadsGraph());
+    return new BaseCpuCapture(traceId, TraceType.ART, true, null, range, myTraceHandler.getThreadsGraph(), Collections.emptySet(),
+                              myTraceHandler.getModelPool().getStats());
   }
 
   public static boolean verifyFileHasArtHeader(@NotNull File trace) {
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu.nodemodel
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Interns the names and [CaptureNodeModel]s created while parsing a capture, so the capture holds a single instance of each distinct name
+ * and model however many samples or calls refer to them. A pool is meant to live as long as the capture it was used for, and can be
+ * shared by the threads building its call trees.
+ *
+ * Models are only shared when all their fields are equal: for instance [CppFunctionModel]s keep the address of their caller, so the same
+ * function called from different places gets different models, which share their names.
+ */
+class CaptureNodeModelPool {
+  private val strings = ConcurrentHashMap<String, String>()
+  private val models = ConcurrentHashMap<Any, CaptureNodeModel>()
+  private val stringRequests = AtomicLong()
+  private val modelRequests = AtomicLong()
+  private val bytesSaved = AtomicLong()
+
+  /**
+   * Returns the pooled instance of [value].
+   */
+  fun intern(value: String): String {
+    stringRequests.incrementAndGet()
+    val pooled = strings.putIfAbsent(value, value) ?: return value
+    if (pooled !== value) {
+      bytesSaved.addAndGet(estimateSize(value))
+    }
+    return pooled
+  }
+
+  fun internNullable(value: String?): String? = value?.let(::intern)
+
+  fun javaMethod(name: String, className: String, signature: String): JavaMethodModel =
+    model(JavaMethodKey(name, className, signature), estimateSize(name) + estimateSize(className) + estimateSize(signature)) {
+      JavaMethodModel(intern(name), intern(className), intern(signature))
+    }
+
+  fun singleName(name: String): SingleNameModel = model(SingleNameKey(name), estimateSize(name)) { SingleNameModel(intern(name)) }
+
+  fun syscall(tag: String?, name: String): SyscallModel =
+    model(SyscallKey(tag, name), estimateSize(tag) + estimateSize(name)) { SyscallModel(internNullable(tag), intern(name)) }
+
+  fun noSymbol(tag: String, name: String): NoSymbolModel =
+    model(NoSymbolKey(tag, name), estimateSize(tag) + estimateSize(name)) { NoSymbolModel(intern(tag), intern(name)) }
+
+  fun systemTraceNode(canonicalName: String, rawName: String): SystemTraceNodeModel =
+    model(SystemTraceNodeKey(canonicalName, rawName), estimateSize(canonicalName) + estimateSize(rawName)) {
+      SystemTraceNodeModel(intern(canonicalName), intern(rawName))
+    }
+
+  /**
+   * Returns the pooled [CppFunctionModel] built by [builder], whose strings are interned in place.
+   */
+  fun cppFunction(builder: CppFunctionModel.Builder): CppFunctionModel {
+    val key = CppFunctionKey(builder.name, builder.classOrNamespace, builder.parameters, builder.isUserCode, builder.fileName,
+                             builder.vAddress, builder.tag)
+    val size = estimateSize(builder.name) + estimateSize(builder.classOrNamespace) + estimateSize(builder.parameters) +
+               estimateSize(builder.fileName) + estimateSize(builder.tag)
+    return model(key, size) {
+      CppFunctionModel.Builder(intern(builder.name))
+        .setClassOrNamespace(intern(builder.classOrNamespace))
+        .setParameters(intern(builder.parameters))
+        .setIsUserCode(builder.isUserCode)
+        .setFileName(internNullable(builder.fileName))
+        .setVAddress(builder.vAddress)
+        .setTag(internNullable(builder.tag))
+        .build()
+    }
+  }
+
+  val stats: Stats
+    get() = Stats(strings.size, models.size, stringRequests.get(), modelRequests.get(), bytesSaved.get())
+
+  private inline fun <reified T : CaptureNodeModel> model(key: Any, stringsSize: Long, crossinline create: () -> T): T {
+    modelRequests.incrementAndGet()
+    val existing = models[key]
+    if (existing != null) {
+      // Without the pool, the caller would have kept its own model and strings.
+      bytesSaved.addAndGet(MODEL_BYTES + stringsSize)
+      return existing as T
+    }
+    return models.computeIfAbsent(key) { create() } as T
+  }
+
+  /**
+   * @property distinctStrings number of distinct names held by the pool.
+   * @property distinctModels number of distinct models held by the pool.
+   * @property stringRequests number of names interned, including the ones interned by models.
+   * @property modelRequests number of models requested.
+   * @property estimatedBytesSaved estimate of the heap the capture would use on top of the pool's without it.
+   */
+  data class Stats(val distinctStrings: Int,
+                   val distinctModels: Int,
+                   val stringRequests: Long,
+                   val modelRequests: Long,
+                   val estimatedBytesSaved: Long)
+
+  private data class JavaMethodKey(val name: String, val className: String, val signature: String)
+  private data class SingleNameKey(val name: String)
+  private data class SyscallKey(val tag: String?, val name: String)
+  private data class NoSymbolKey(val tag: String, val name: String)
+  private data class SystemTraceNodeKey(val canonicalName: String, val rawName: String)
+  private data class CppFunctionKey(val name: String,
+                                    val classOrNamespace: String,
+                                    val parameters: String,
+                                    val isUserCode: Boolean,
+                                    val fileName: String?,
+                                    val vAddress: Long,
+                                    val tag: String?)
+
+  private companion object {
+    /** Object and array headers of a [String], assuming compact Latin-1 contents. */
+    const val STRING_BYTES = 40L
+    /** Header and a few fields of a model. */
+    const val MODEL_BYTES = 32L
+
+    fun estimateSize(value: String?) = if (value == null) 0 else STRING_BYTES + value.length
+  }
+}
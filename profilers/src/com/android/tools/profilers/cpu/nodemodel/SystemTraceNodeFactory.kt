@@ -19,13 +19,13 @@ package com.android.tools.profilers.cpu.nodemodel
  * This Factory returns instances of {@link SystemTraceNodeModel}s, guaranteeing that nodes that
  * represents a same object would be mapped to a single instance.
  */
-class SystemTraceNodeFactory {
+class SystemTraceNodeFactory @JvmOverloads constructor(private val pool: CaptureNodeModelPool = CaptureNodeModelPool()) {
   private val nodeMap = mutableMapOf<String, SystemTraceNodeModel>()
 
   fun getNode(name: String): SystemTraceNodeModel {
     return nodeMap.getOrPut(name) {
       val canonicalName = NUMBER_SUFFIX_PATTERN.replace(name, "")
-      SystemTraceNodeModel(canonicalName, name)
+      pool.systemTraceNode(canonicalName, name)
     }
   }
 
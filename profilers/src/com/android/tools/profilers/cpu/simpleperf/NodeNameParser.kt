@@ -16,6 +16,7 @@
 package com.android.tools.profilers.cpu.simpleperf
 
 import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModel
+import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModelPool
 import com.android.tools.profilers.cpu.nodemodel.CppFunctionModel
 import com.android.tools.profilers.cpu.nodemodel.JavaMethodModel
 import com.android.tools.profilers.cpu.nodemodel.SyscallModel
@@ -44,22 +45,25 @@ object NodeNameParser {
    * @param isUserWritten whether the symbol is part of the user-written code.
    * @param fileName      name of the ELF file containing the instruction corresponding to the function. Null if it doesn't apply.
    * @param vAddress      virtual address of the instruction in `fileName`.
+   * @param pool          pool of the capture the model is created for, if any.
   </int> */
   @JvmStatic
   @JvmOverloads
-  fun parseNodeName(fullName: String, isUserWritten: Boolean, fileName: String? = null, vAddress: Long = -1): CaptureNodeModel {
+  fun parseNodeName(fullName: String,
+                    isUserWritten: Boolean,
+                    fileName: String? = null,
+                    vAddress: Long = -1,
+                    pool: CaptureNodeModelPool? = null): CaptureNodeModel {
     // C/C++ methods are represented as "Namespace::Class::MethodName()" in simpleperf. Check for the presence of "(".
     return if (fullName.contains("(")) {
-      createCppFunctionModel(fullName, isUserWritten, fileName, vAddress)
+      createCppFunctionModel(fullName, isUserWritten, fileName, vAddress, pool)
     } else if (fullName.contains(".")) {
       // Method is in the format "java.package.Class.method". Parse it into a JavaMethodModel.
-      createJavaMethodModel(fullName)
-    } else if (fileName == null) {
-      // Node represents a syscall.
-      SyscallModel(null, fullName)
+      createJavaMethodModel(fullName, pool)
     } else {
       // Node represents a syscall.
-      SyscallModel(tagFromFileName(fileName), fullName)
+      val tag = fileName?.let { tagFromFileName(it) }
+      pool?.syscall(tag, fullName) ?: SyscallModel(tag, fullName)
     }
   }
 
@@ -74,7 +78,8 @@ object NodeNameParser {
     functionFullName: String,
     isUserWritten: Boolean,
     fileName: String? = null,
-    vAddress: Long = -1
+    vAddress: Long = -1,
+    pool: CaptureNodeModelPool? = null
   ): CppFunctionModel {
     val paramsEndIndex = functionFullName.lastIndexOf(')')
     val paramsStartIndex = if (paramsEndIndex < 0) -1 else findMatchingOpeningParenthesisIndex(functionFullName, paramsEndIndex)
@@ -119,14 +124,14 @@ object NodeNameParser {
       }
     }
 
-    return CppFunctionModel.Builder(if (isOperatorOverload(name)) name else removeTemplateInfo(name))
+    val builder = CppFunctionModel.Builder(if (isOperatorOverload(name)) name else removeTemplateInfo(name))
       .setClassOrNamespace(removeTemplateInfo(classOrNamespace))
       .setIsUserCode(isUserWritten)
       .setParameters(removeTemplateInfo(parameters))
       .setFileName(fileName)
       .setTag(fileName?.let { tagFromFileName(it) })
       .setVAddress(vAddress)
-      .build()
+    return pool?.cppFunction(builder) ?: builder.build()
   }
 
   /**
@@ -264,14 +269,14 @@ object NodeNameParser {
    * Receives a full method name and returns a [JavaMethodModel] containing its class name and its (simple) name.
    * @param fullName The method's full qualified name (e.g. java.lang.Object.equals)
    */
-  private fun createJavaMethodModel(fullName: String): JavaMethodModel {
+  private fun createJavaMethodModel(fullName: String, pool: CaptureNodeModelPool?): JavaMethodModel {
     val fullPath = JAVA_SEPARATOR_PATTERN.split(fullName).toList()
 
     // We need to separate the class pat from the method name. The class path is everything exception the method name.
     val classPath = fullPath.subList(0, fullPath.size - 1).joinToString(".")
     val methodName = fullPath.last()
 
-    return JavaMethodModel(methodName, classPath, "")
+    return pool?.javaMethod(methodName, classPath, "") ?: JavaMethodModel(methodName, classPath, "")
   }
 
   private fun tagFromFileName(fileName: String): String {
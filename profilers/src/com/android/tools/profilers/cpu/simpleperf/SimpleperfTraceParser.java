@@ -16,20 +16,21 @@
 package com.android.tools.profilers.cpu.simpleperf;
 
 import com.android.tools.adtui.model.Range;
-import com.android.tools.perflib.vmtrace.ClockType;
 import com.android.tools.profiler.proto.SimpleperfReport;
 import com.android.tools.profilers.cpu.BaseCpuCapture;
 import com.android.tools.profilers.cpu.CaptureNode;
+import com.android.tools.profilers.cpu.CaptureNodeStore;
 import com.android.tools.profilers.cpu.CpuCapture;
 import com.android.tools.profilers.cpu.CpuThreadInfo;
 import com.android.tools.profilers.cpu.TraceParser;
 import com.android.tools.profilers.cpu.config.ProfilingConfiguration.TraceType;
 import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModel;
-import com.android.tools.profilers.cpu.nodemodel.NoSymbolModel;
-import com.android.tools.profilers.cpu.nodemodel.SingleNameModel;
+import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModelPool;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.intellij.openapi.diagnostic.Logger;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -44,12 +45,21 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Parses a trace file obtained using simpleperf to a map threadId -> {@link CaptureNode}.
+ * <p>
+ * Once the trace file has been read, the samples are split per thread and the call tree of each thread is built by its own task on the
+ * given executor. The {@link CaptureNodeModel}s created from the call chain entries are shared by all the threads.
  */
 public class SimpleperfTraceParser implements TraceParser {
 
@@ -147,13 +157,35 @@ public class SimpleperfTraceParser implements TraceParser {
    */
   private String myAppDataFolderPrefix;
 
-  private Set<String> myTags = new TreeSet<>(TAG_COMPARATOR);
+  private final Set<String> myTags = new ConcurrentSkipListSet<>(TAG_COMPARATOR);
+
+  /**
+   * Caches the {@link CaptureNodeModel} of each distinct call chain entry, so the symbol of an entry is only parsed the first time it is
+   * seen. The models themselves are created by {@link #myModelPool}. Filled concurrently by the tasks building the call trees.
+   */
+  private final Map<MethodKey, CaptureNodeModel> myMethodModels = new ConcurrentHashMap<>();
+
+  /**
+   * Interns the names and models of the capture, so entries of different call sites and threads share them. Used concurrently by the
+   * tasks building the call trees.
+   */
+  private final CaptureNodeModelPool myModelPool = new CaptureNodeModelPool();
+
+  @NotNull private final Executor myExecutor;
 
   public SimpleperfTraceParser() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param executor runs the construction of the per-thread call trees.
+   */
+  public SimpleperfTraceParser(@NotNull Executor executor) {
     myFiles = new HashMap<>();
     mySamples = new ArrayList<>();
     myCaptureTrees = new HashMap<>();
     myThreads = new HashMap<>();
+    myExecutor = executor;
   }
 
   /**
@@ -196,7 +228,7 @@ public class SimpleperfTraceParser implements TraceParser {
     parseSampleData();
     return new BaseCpuCapture(traceId, TraceType.SIMPLEPERF,
                               isThreadTimeSupported(), isThreadTimeSupported() ? null : DUAL_CLOCK_DISABLED_MESSAGE,
-                              myCaptureRange, getCaptureTrees(), myTags);
+                              myCaptureRange, getCaptureTrees(), myTags, myModelPool.getStats());
   }
 
   public static boolean verifyFileHasSimpleperfHeader(@NotNull File trace) {
@@ -231,14 +263,6 @@ public class SimpleperfTraceParser implements TraceParser {
     return myCpuClockEventTypeId >= 0;
   }
 
-  @NotNull
-  private static CaptureNode createCaptureNode(CaptureNodeModel model, long startGlobalNs, long startThreadNs) {
-    CaptureNode node = new CaptureNode(model, ClockType.GLOBAL);
-    setNodeStartTime(node, startGlobalNs, startThreadNs);
-    node.setDepth(0);
-    return node;
-  }
-
   /**
    * Parses the trace file, which should have the following format:
    * char magic[10] = "SIMPLEPERF";
@@ -344,46 +368,73 @@ public class SimpleperfTraceParser implements TraceParser {
     myCaptureRange.set(TimeUnit.NANOSECONDS.toMicros(startTimestamp), TimeUnit.NANOSECONDS.toMicros(endTimestamp));
 
     // Split the samples per thread.
-    Map<Integer, List<SimpleperfReport.Sample>> threadSamples = splitSamplesPerThread();
+    Int2ObjectMap<List<SimpleperfReport.Sample>> threadSamples = splitSamplesPerThread();
+
+    // Process the samples of each thread in parallel, as the threads don't depend on each other.
+    List<CompletableFuture<Map.Entry<CpuThreadInfo, CaptureNode>>> futures = new ArrayList<>(threadSamples.size());
+    for (Int2ObjectMap.Entry<List<SimpleperfReport.Sample>> threadSamplesEntry : threadSamples.int2ObjectEntrySet()) {
+      int threadId = threadSamplesEntry.getIntKey();
+      List<SimpleperfReport.Sample> samples = threadSamplesEntry.getValue();
+      futures.add(CompletableFuture.supplyAsync(() -> parseThreadSamples(threadId, samples), myExecutor));
+    }
 
-    // Process the samples for each thread
-    for (Map.Entry<Integer, List<SimpleperfReport.Sample>> threadSamplesEntry : threadSamples.entrySet()) {
-      parseThreadSamples(threadSamplesEntry.getKey(), threadSamplesEntry.getValue());
+    for (CompletableFuture<Map.Entry<CpuThreadInfo, CaptureNode>> future : futures) {
+      Map.Entry<CpuThreadInfo, CaptureNode> entry;
+      try {
+        entry = future.join();
+      }
+      catch (CompletionException e) {
+        // Surface malformed trace errors as if the tree was built on this thread.
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException)e.getCause();
+        }
+        throw e;
+      }
+      if (entry != null) {
+        myCaptureTrees.put(entry.getKey(), entry.getValue());
+      }
     }
   }
 
   /**
-   * Group the samples collected by thread.
+   * Group the samples collected by thread, in a single pass over the samples.
    */
-  private Map<Integer, List<SimpleperfReport.Sample>> splitSamplesPerThread() {
-    Map<Integer, List<SimpleperfReport.Sample>> threadSamples = new HashMap<>();
+  private Int2ObjectMap<List<SimpleperfReport.Sample>> splitSamplesPerThread() {
+    Int2ObjectMap<List<SimpleperfReport.Sample>> threadSamples = new Int2ObjectOpenHashMap<>(myThreads.size());
     for (SimpleperfReport.Sample sample : mySamples) {
       int threadId = sample.getThreadId();
-      if (!threadSamples.containsKey(threadId)) {
-        threadSamples.put(threadId, new ArrayList<>());
+      List<SimpleperfReport.Sample> samples = threadSamples.get(threadId);
+      if (samples == null) {
+        samples = new ArrayList<>();
+        threadSamples.put(threadId, samples);
       }
-      threadSamples.get(threadId).add(sample);
+      samples.add(sample);
     }
     return threadSamples;
   }
 
-  private static void setNodeStartTime(CaptureNode node, long startGlobalNs, long startThreadNs) {
-    node.setStartGlobal(TimeUnit.NANOSECONDS.toMicros(startGlobalNs));
-    node.setStartThread(TimeUnit.NANOSECONDS.toMicros(startThreadNs));
+  private static int addNode(CaptureNodeStore.Builder tree, int parent, CaptureNodeModel model, long startGlobalNs, long startThreadNs) {
+    return tree.addNode(parent, model, TimeUnit.NANOSECONDS.toMicros(startGlobalNs), TimeUnit.NANOSECONDS.toMicros(startThreadNs));
   }
 
-  private static void setNodeEndTime(CaptureNode node, long endGlobalNs, long endThreadNs) {
-    node.setEndGlobal(TimeUnit.NANOSECONDS.toMicros(endGlobalNs));
-    node.setEndThread(TimeUnit.NANOSECONDS.toMicros(endThreadNs));
+  private static void setNodeEndTime(CaptureNodeStore.Builder tree, int node, long endGlobalNs, long endThreadNs) {
+    tree.setEnd(node, TimeUnit.NANOSECONDS.toMicros(endGlobalNs), TimeUnit.NANOSECONDS.toMicros(endThreadNs));
   }
 
   /**
-   * Parses the list of samples of a thread into a {@link CaptureNode} tree.
+   * Parses the list of samples of a thread into a {@link CaptureNode} tree. Called concurrently for different threads, so it should only
+   * read the state of the parser, except for the thread-safe {@link #myMethodModels}, {@link #myModelPool} and {@link #myTags}.
+   *
+   * The tree is built into a {@link CaptureNodeStore}, as a long trace can have millions of calls per thread. Nodes are referenced by
+   * their index in the store while it is built.
+   *
+   * @return the thread and the root of its tree, or null if the thread has no samples.
    */
-  private void parseThreadSamples(int threadId, List<SimpleperfReport.Sample> threadSamples) {
+  @Nullable
+  private Map.Entry<CpuThreadInfo, CaptureNode> parseThreadSamples(int threadId, List<SimpleperfReport.Sample> threadSamples) {
     if (threadSamples.isEmpty()) {
       getLog().warn(String.format("Warning: No samples read for thread %s (%d)", myThreads.get(threadId), threadId));
-      return;
+      return null;
     }
 
     if (!myThreads.containsKey(threadId)) {
@@ -397,15 +448,13 @@ public class SimpleperfTraceParser implements TraceParser {
     // ArtTraceHandler.
     long threadTimeNs = firstTimestamp;
     SimpleperfReport.Thread thread = myThreads.get(threadId);
-    CaptureNode root = createCaptureNode(new SingleNameModel(thread.getThreadName()), firstTimestamp, threadTimeNs);
-    root.setDepth(0);
-    myCaptureTrees.put(new CpuThreadInfo(threadId, thread.getThreadName(), threadId == thread.getProcessId()), root);
+    CaptureNodeStore.Builder tree = new CaptureNodeStore.Builder();
+    int root = addNode(tree, CaptureNodeStore.NO_PARENT, myModelPool.singleName(thread.getThreadName()), firstTimestamp, threadTimeNs);
 
     // Parse the first call chain so we have a value for lastCallchain
     List<SimpleperfReport.Sample.CallChainEntry> previousCallChain = Lists.reverse(threadSamples.get(0).getCallchainList());
     // Node used to traverse the tree. In the first traversal we pass an empty list as previous call chain and root as last visited node.
-    CaptureNode lastVisitedNode = parseCallChain(previousCallChain, Collections.emptyList(), firstTimestamp,
-                                                 threadTimeNs, root);
+    int lastVisitedNode = parseCallChain(tree, previousCallChain, Collections.emptyList(), firstTimestamp, threadTimeNs, root);
 
     // Now parse all the rest of the samples collected for this thread
     for (int i = 1; i < threadSamples.size(); i++) {
@@ -419,41 +468,42 @@ public class SimpleperfTraceParser implements TraceParser {
         threadTimeNs += sample.getEventCount();
       }
       // TODO: when --trace-offcpu is supported, we will need to call updateAncestorsEndTime if sample has a "schedule" out event.
-      lastVisitedNode = parseCallChain(callChain, previousCallChain, sample.getTime(), threadTimeNs, lastVisitedNode);
+      lastVisitedNode = parseCallChain(tree, callChain, previousCallChain, sample.getTime(), threadTimeNs, lastVisitedNode);
       previousCallChain = callChain;
     }
 
     // Finally, update the end timestamp of the nodes in the last sample of the thread, which should be the last sample's timestamp.
     // TODO: when --trace-offcpu is supported, we need to check if the last sample has a "schedule" out event before updating the end time.
     long lastTimestamp = mySamples.get(mySamples.size() - 1).getTime();
-    updateAncestorsEndTime(lastTimestamp, threadTimeNs, lastVisitedNode);
+    updateAncestorsEndTime(tree, lastTimestamp, threadTimeNs, lastVisitedNode);
     // update the root timestamp
-    setNodeEndTime(root, lastTimestamp, threadTimeNs);
+    setNodeEndTime(tree, root, lastTimestamp, threadTimeNs);
+    return Map.entry(new CpuThreadInfo(threadId, thread.getThreadName(), threadId == thread.getProcessId()), tree.build().getRoot());
   }
 
   /**
    * Updates the end timestamp of a node and all its ancestors except the root.
    */
-  private static void updateAncestorsEndTime(long globalTimeNs, long threadTimeNs, CaptureNode lastVisited) {
-    CaptureNode node = lastVisited;
-    while (node.getParent() != null && node.getEnd() == 0) {
-      setNodeEndTime(node, globalTimeNs, threadTimeNs);
-      node = node.getParent();
-      assert node != null;
+  private static void updateAncestorsEndTime(CaptureNodeStore.Builder tree, long globalTimeNs, long threadTimeNs, int lastVisited) {
+    int node = lastVisited;
+    while (tree.parentOf(node) != CaptureNodeStore.NO_PARENT && tree.endGlobalOf(node) == 0) {
+      setNodeEndTime(tree, node, globalTimeNs, threadTimeNs);
+      node = tree.parentOf(node);
     }
   }
 
   /**
    * Given a {@link SimpleperfReport.Sample.CallChainEntry} and the previous one, add the new method calls as nodes to
    * the tree and set their start time to the given timestamps (GLOBAL and THREAD). Also, check which methods are not
-   * on the call chain anymore and update their end time. Receives a {@link CaptureNode} as a starting point to
+   * on the call chain anymore and update their end time. Receives a node as a starting point to
    * traverse the tree when adding new nodes or visiting existing ones. Returns the last visited node.
    */
-  private CaptureNode parseCallChain(List<SimpleperfReport.Sample.CallChainEntry> callChain,
-                                     List<SimpleperfReport.Sample.CallChainEntry> previousCallChain,
-                                     long globalTimeNs, long threadTimeNs, CaptureNode lastVisitedNode) {
+  private int parseCallChain(CaptureNodeStore.Builder tree,
+                             List<SimpleperfReport.Sample.CallChainEntry> callChain,
+                             List<SimpleperfReport.Sample.CallChainEntry> previousCallChain,
+                             long globalTimeNs, long threadTimeNs, int lastVisitedNode) {
     // Node used to traverse the tree when adding new nodes or going up to find the divergent node ancestor.
-    CaptureNode traversalNode = lastVisitedNode;
+    int traversalNode = lastVisitedNode;
 
     // Find the node where the current call chain diverge from the previous one
     int divergenceIndex = 0;
@@ -465,12 +515,12 @@ public class SimpleperfTraceParser implements TraceParser {
     // If there is a divergence, we update the end time of the traversal node and go up in the tree until we find the divergent node parent.
     if (divergenceIndex < previousCallChain.size()) {
       int divergenceCount = previousCallChain.size() - divergenceIndex;
-      traversalNode = findDivergenceAndUpdateEndTime(divergenceCount, globalTimeNs, threadTimeNs, traversalNode);
+      traversalNode = findDivergenceAndUpdateEndTime(tree, divergenceCount, globalTimeNs, threadTimeNs, traversalNode);
     }
 
     // We add the new nodes (if any) present in the new call chain as descendants of the parent of the first divergent node.
     if (divergenceIndex < callChain.size()) {
-      traversalNode = addNewNodes(callChain, traversalNode, divergenceIndex, globalTimeNs, threadTimeNs);
+      traversalNode = addNewNodes(tree, callChain, traversalNode, divergenceIndex, globalTimeNs, threadTimeNs);
     }
 
     // Finally, return the traversal node.
@@ -481,38 +531,44 @@ public class SimpleperfTraceParser implements TraceParser {
    * Updates the end timestamp of a given node and go up in the tree N times, where N is the divergence count passed as an argument.
    * Returns the parent of the last visited node, meaning nodes that we have changed the end time.
    */
-  private static CaptureNode findDivergenceAndUpdateEndTime(int divergenceCount, long endGlobalNs, long endThreadNs,
-                                                            CaptureNode node) {
+  private static int findDivergenceAndUpdateEndTime(CaptureNodeStore.Builder tree, int divergenceCount, long endGlobalNs, long endThreadNs,
+                                                    int node) {
     for (int i = 0; i < divergenceCount; i++) {
-      assert node != null;
-      setNodeEndTime(node, endGlobalNs, endThreadNs);
-      node = node.getParent();
+      assert node != CaptureNodeStore.NO_PARENT;
+      setNodeEndTime(tree, node, endGlobalNs, endThreadNs);
+      node = tree.parentOf(node);
     }
 
     return node;
   }
 
   /**
-   * Given a list of call chain entries and a start index, convert them to {@link CaptureNode} and add them as descendants of a given node.
+   * Given a list of call chain entries and a start index, convert them to nodes and add them as descendants of a given node.
    * Returns the last visited (added) node.
    */
-  private CaptureNode addNewNodes(List<SimpleperfReport.Sample.CallChainEntry> callChain,
-                                  CaptureNode node, int startIndex, long startGlobalNs, long startThreadNs) {
-    assert node != null;
+  private int addNewNodes(CaptureNodeStore.Builder tree, List<SimpleperfReport.Sample.CallChainEntry> callChain,
+                          int node, int startIndex, long startGlobalNs, long startThreadNs) {
+    assert node != CaptureNodeStore.NO_PARENT;
     for (int i = startIndex; i < callChain.size(); i++) {
       // Get the parent function vAddress. That corresponds to the line of the parent function where the current function is called.
       long parentVAddress = i > 0 ? callChain.get(i - 1).getVaddrInFile() : -1;
-      CaptureNode child = createCaptureNode(methodModelFromCallchainEntry(callChain.get(i), parentVAddress),
-                                            startGlobalNs, startThreadNs);
-      node.addChild(child);
-      child.setDepth(node.getDepth() + 1);
-      node = child;
+      node = addNode(tree, node, methodModelFromCallchainEntry(callChain.get(i), parentVAddress), startGlobalNs, startThreadNs);
     }
     // Return the last added node, as it's the visited one
     return node;
   }
 
+  /**
+   * Returns the {@link CaptureNodeModel} of a call chain entry, creating it only the first time the entry is seen from any thread.
+   */
   private CaptureNodeModel methodModelFromCallchainEntry(SimpleperfReport.Sample.CallChainEntry callChainEntry, long parentVAddress) {
+    MethodKey key = new MethodKey(callChainEntry, parentVAddress);
+    // Look the model up before computing it, so the common case of an already seen entry doesn't lock.
+    CaptureNodeModel model = myMethodModels.get(key);
+    return model != null ? model : myMethodModels.computeIfAbsent(key, unused -> createMethodModel(callChainEntry, parentVAddress));
+  }
+
+  private CaptureNodeModel createMethodModel(SimpleperfReport.Sample.CallChainEntry callChainEntry, long parentVAddress) {
     int symbolId = callChainEntry.getSymbolId();
     SimpleperfReport.File symbolFile = myFiles.get(callChainEntry.getFileId());
     if (symbolFile == null) {
@@ -522,13 +578,13 @@ public class SimpleperfTraceParser implements TraceParser {
       // if symbol_id is -1, we report the method as fileName+vAddress (e.g. program.so+0x3039)
       String hexAddress = "0x" + Long.toHexString(callChainEntry.getVaddrInFile());
       String methodName = fileNameFromPath(symbolFile.getPath()) + "+" + hexAddress;
-      return nodeWithTagAdded(new NoSymbolModel(symbolFile.getPath(), methodName));
+      return nodeWithTagAdded(myModelPool.noSymbol(symbolFile.getPath(), methodName));
     }
     // Otherwise, read the method from the symbol table and parse it into a CaptureNodeModel. User's code symbols come from
     // files located inside the app's directory, therefore we check if the symbol path has the same prefix of such directory.
     boolean isUserWritten = symbolFile.getPath().startsWith(myAppDataFolderPrefix);
     return nodeWithTagAdded(NodeNameParser.parseNodeName(symbolFile.getSymbol(symbolId),
-                                                         isUserWritten, symbolFile.getPath(), parentVAddress));
+                                                         isUserWritten, symbolFile.getPath(), parentVAddress, myModelPool));
   }
 
   private CaptureNodeModel nodeWithTagAdded(CaptureNodeModel node) {
@@ -549,6 +605,44 @@ public class SimpleperfTraceParser implements TraceParser {
     EXACT_PATH, DESCRIPTION, PREFIXED_PATH
   }
 
+  /**
+   * Identifies the {@link CaptureNodeModel} created by {@link #createMethodModel}: the file and symbol of a call chain entry, or its
+   * address when the symbol is invalid, and the address of its caller, which C/C++ models keep.
+   */
+  private static final class MethodKey {
+    private final int myFileId;
+    private final int mySymbolId;
+    private final long myVAddress;
+    private final long myParentVAddress;
+
+    private MethodKey(SimpleperfReport.Sample.CallChainEntry callChainEntry, long parentVAddress) {
+      myFileId = callChainEntry.getFileId();
+      mySymbolId = callChainEntry.getSymbolId();
+      myVAddress = mySymbolId == INVALID_SYMBOL_ID ? callChainEntry.getVaddrInFile() : 0;
+      myParentVAddress = parentVAddress;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof MethodKey)) {
+        return false;
+      }
+      MethodKey other = (MethodKey)o;
+      return myFileId == other.myFileId && mySymbolId == other.mySymbolId && myVAddress == other.myVAddress &&
+             myParentVAddress == other.myParentVAddress;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = 31 * myFileId + mySymbolId;
+      result = 31 * result + Long.hashCode(myVAddress);
+      return 31 * result + Long.hashCode(myParentVAddress);
+    }
+  }
+
   @VisibleForTesting
   static Comparator<String> TAG_COMPARATOR =
     Comparator.comparing(SimpleperfTraceParser::tagClass).thenComparing(String::compareTo);
@@ -0,0 +1,352 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu.systemtrace;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * This class takes Atrace lines converted from {@link PerfettoTrace.FtraceEventBundle}s and returns them ordered by timestamp.
+ * The bundles come in out of order, as well as the lines within a bundle, but only locally so: the input is nearly sorted.
+ * <p>
+ * Lines are appended to a temp data file as they are added while their (timestamp, offset) keys are collected in memory. Whenever the
+ * in-memory run is full it is sorted with an adaptive merge sort, which is linear for already ordered input, and spilled to a
+ * memory-mapped run file. Once all lines have been added the class is reset for iteration, which k-way merges the spilled runs with the
+ * last in-memory one and reads the lines back from the data file. Lines with equal timestamps are returned in insertion order.
+ */
+public class PerfettoPacketSorter implements Iterator<String> {
+  // 16 bytes per entry, so runs are spilled every 16MB of keys.
+  private static final int DEFAULT_RUN_CAPACITY = 1 << 20;
+  private static final int INITIAL_RUN_SIZE = 1 << 12;
+  private static final int READ_WINDOW_SIZE = 1 << 16;
+
+  private final int myRunCapacity;
+  // Interleaved (timestamp, offset) pairs of the run being collected.
+  private long[] myRun;
+  private long[] myScratch;
+  private int myRunSize;
+
+  private File myDataFile;
+  private DataOutputStream myDataOut;
+  private long myDataSize;
+
+  private File myRunFile;
+  private FileChannel myRunChannel;
+  private final List<LongBuffer> mySpilledRuns = new ArrayList<>();
+
+  private FileChannel myDataChannel;
+  private ByteBuffer myReadWindow;
+  private long myReadWindowStart;
+  private PriorityQueue<RunCursor> myMergeQueue;
+
+  private static Logger getLogger() {
+    return Logger.getInstance(PerfettoPacketSorter.class);
+  }
+
+  public PerfettoPacketSorter() {
+    this(DEFAULT_RUN_CAPACITY);
+  }
+
+  @VisibleForTesting
+  public PerfettoPacketSorter(int runCapacity) {
+    assert runCapacity > 0;
+    myRunCapacity = runCapacity;
+    myRun = new long[Math.min(runCapacity, INITIAL_RUN_SIZE) * 2];
+    try {
+      myDataFile = FileUtil.createTempFile("perfetto", ".lines", true);
+      myDataOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(myDataFile), READ_WINDOW_SIZE));
+    }
+    catch (IOException e) {
+      getLogger().error(e);
+    }
+  }
+
+  /**
+   * As a trace file is loaded each converted line should be added to the sorter along with the timestamp of its event.
+   */
+  public void addLine(long timestamp, @NotNull String line) {
+    // If we somehow failed in the middle of a capture return instead of spamming the output.
+    if (myDataOut == null) {
+      return;
+    }
+    try {
+      if (myRunSize == myRunCapacity) {
+        spillRun();
+      }
+      else if (myRunSize * 2 == myRun.length) {
+        myRun = Arrays.copyOf(myRun, Math.min(myRunCapacity, myRunSize * 2) * 2);
+      }
+      byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+      myRun[myRunSize * 2] = timestamp;
+      myRun[myRunSize * 2 + 1] = myDataSize;
+      myRunSize++;
+      myDataOut.writeInt(bytes.length);
+      myDataOut.write(bytes);
+      myDataSize += Integer.BYTES + bytes.length;
+    }
+    catch (IOException ex) {
+      getLogger().warn(ex);
+      closeQuietly();
+    }
+  }
+
+  /**
+   * This function should be called when we want to finalize this class for writing and enable it for reading.
+   * The last run is sorted and merged with all runs spilled so far.
+   */
+  public void resetForIterator() {
+    if (myDataOut == null) {
+      return;
+    }
+    try {
+      myDataOut.close();
+      myDataOut = null;
+      myDataChannel = new RandomAccessFile(myDataFile, "r").getChannel();
+      myReadWindow = ByteBuffer.allocate(READ_WINDOW_SIZE);
+      myReadWindow.limit(0);
+
+      sortRun();
+      myMergeQueue = new PriorityQueue<>(mySpilledRuns.size() + 1, RunCursor::compareTo);
+      for (LongBuffer run : mySpilledRuns) {
+        addCursor(new RunCursor(run));
+      }
+      addCursor(new RunCursor(LongBuffer.wrap(myRun, 0, myRunSize * 2)));
+      myScratch = null;
+    }
+    catch (IOException ex) {
+      getLogger().error(ex);
+      closeQuietly();
+    }
+  }
+
+  /**
+   * Close the underlying files and free resources.
+   */
+  public void close() {
+    closeQuietly();
+    if (myDataFile != null) {
+      FileUtil.delete(myDataFile);
+      myDataFile = null;
+    }
+    if (myRunFile != null) {
+      FileUtil.delete(myRunFile);
+      myRunFile = null;
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    return myMergeQueue != null && !myMergeQueue.isEmpty();
+  }
+
+  @Override
+  @Nullable
+  public String next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    RunCursor cursor = myMergeQueue.poll();
+    long offset = cursor.myOffset;
+    addCursor(cursor);
+    try {
+      return readLine(offset);
+    }
+    catch (IOException ex) {
+      getLogger().error(ex);
+    }
+    return null;
+  }
+
+  private void addCursor(@NotNull RunCursor cursor) {
+    if (cursor.advance()) {
+      myMergeQueue.add(cursor);
+    }
+  }
+
+  private void spillRun() throws IOException {
+    sortRun();
+    if (myRunChannel == null) {
+      myRunFile = FileUtil.createTempFile("perfetto", ".runs", true);
+      myRunChannel = new RandomAccessFile(myRunFile, "rw").getChannel();
+    }
+    long byteCount = (long)myRunSize * 2 * Long.BYTES;
+    LongBuffer run = myRunChannel.map(FileChannel.MapMode.READ_WRITE, myRunChannel.size(), byteCount).asLongBuffer();
+    run.put(myRun, 0, myRunSize * 2);
+    run.flip();
+    mySpilledRuns.add(run);
+    myRunSize = 0;
+  }
+
+  /**
+   * Sorts the pairs of the current run by (timestamp, offset) with a bottom-up natural merge sort. Each pass merges neighbouring ascending
+   * sequences, so an already sorted run costs a single scan and a nearly sorted one only a few passes.
+   */
+  private void sortRun() {
+    int n = myRunSize;
+    if (n < 2) {
+      return;
+    }
+    long[] src = myRun;
+    while (true) {
+      int end = nextRunEnd(src, 0, n);
+      if (end == n) {
+        break;
+      }
+      if (myScratch == null || myScratch.length != src.length) {
+        myScratch = new long[src.length];
+      }
+      long[] dst = myScratch;
+      int start = 0;
+      while (start < n) {
+        int mid = start == 0 ? end : nextRunEnd(src, start, n);
+        int stop = mid == n ? n : nextRunEnd(src, mid, n);
+        merge(src, start, mid, stop, dst);
+        start = stop;
+      }
+      myScratch = src;
+      src = dst;
+    }
+    myRun = src;
+  }
+
+  private static int nextRunEnd(long[] pairs, int start, int n) {
+    int i = start + 1;
+    while (i < n && compare(pairs, i - 1, pairs, i) <= 0) {
+      i++;
+    }
+    return i;
+  }
+
+  private static void merge(long[] src, int start, int mid, int stop, long[] dst) {
+    int i = start;
+    int j = mid;
+    for (int k = start; k < stop; k++) {
+      int from = j >= stop || (i < mid && compare(src, i, src, j) <= 0) ? i++ : j++;
+      dst[k * 2] = src[from * 2];
+      dst[k * 2 + 1] = src[from * 2 + 1];
+    }
+  }
+
+  private static int compare(long[] a, int i, long[] b, int j) {
+    int result = Long.compare(a[i * 2], b[j * 2]);
+    return result != 0 ? result : Long.compare(a[i * 2 + 1], b[j * 2 + 1]);
+  }
+
+  @NotNull
+  private String readLine(long offset) throws IOException {
+    fillReadWindow(offset, Integer.BYTES);
+    int length = myReadWindow.getInt((int)(offset - myReadWindowStart));
+    fillReadWindow(offset + Integer.BYTES, length);
+    int position = (int)(offset + Integer.BYTES - myReadWindowStart);
+    return new String(myReadWindow.array(), myReadWindow.arrayOffset() + position, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Makes sure [position, position + length) of the data file is in the read window. Merged output is mostly sequential in the data file
+   * so this rarely has to go back to disk.
+   */
+  private void fillReadWindow(long position, int length) throws IOException {
+    if (position >= myReadWindowStart && position + length <= myReadWindowStart + myReadWindow.limit()) {
+      return;
+    }
+    if (length > myReadWindow.capacity()) {
+      myReadWindow = ByteBuffer.allocate(length);
+    }
+    myReadWindow.clear();
+    myReadWindowStart = position;
+    while (myReadWindow.hasRemaining()) {
+      if (myDataChannel.read(myReadWindow, position + myReadWindow.position()) < 0) {
+        break;
+      }
+    }
+    myReadWindow.flip();
+    if (myReadWindow.limit() < length) {
+      throw new IOException("Unexpected end of perfetto line data at offset " + position);
+    }
+  }
+
+  private void closeQuietly() {
+    try {
+      if (myDataOut != null) {
+        myDataOut.close();
+      }
+      if (myDataChannel != null) {
+        myDataChannel.close();
+      }
+      if (myRunChannel != null) {
+        myRunChannel.close();
+      }
+    }
+    catch (IOException ignored) { }
+    finally {
+      myDataOut = null;
+      myDataChannel = null;
+      myRunChannel = null;
+    }
+    // Reset to the initial state.
+    mySpilledRuns.clear();
+    myMergeQueue = null;
+    myReadWindow = null;
+    myRunSize = 0;
+  }
+
+  /**
+   * Head of one sorted run during the k-way merge.
+   */
+  private static final class RunCursor implements Comparable<RunCursor> {
+    @NotNull private final LongBuffer myPairs;
+    private long myTimestamp;
+    private long myOffset;
+
+    private RunCursor(@NotNull LongBuffer pairs) {
+      myPairs = pairs;
+    }
+
+    private boolean advance() {
+      if (!myPairs.hasRemaining()) {
+        return false;
+      }
+      myTimestamp = myPairs.get();
+      myOffset = myPairs.get();
+      return true;
+    }
+
+    @Override
+    public int compareTo(@NotNull RunCursor other) {
+      int result = Long.compare(myTimestamp, other.myTimestamp);
+      return result != 0 ? result : Long.compare(myOffset, other.myOffset);
+    }
+  }
+}
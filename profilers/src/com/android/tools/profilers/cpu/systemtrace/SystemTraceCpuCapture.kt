@@ -23,6 +23,7 @@ import com.android.tools.profilers.cpu.BaseCpuCapture
 import com.android.tools.profilers.cpu.CaptureNode
 import com.android.tools.profilers.cpu.CpuThreadInfo
 import com.android.tools.profilers.cpu.ThreadState
+import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModelPool
 import com.android.tools.profilers.cpu.systemtrace.SystemTraceFrame.FrameThread
 import kotlin.streams.asSequence
 
@@ -39,11 +40,12 @@ class SystemTraceCpuCapture(traceId: Long,
                             private val blastBufferQueueCounter: List<SeriesData<Long>>,
                             private val frameManager: SystemTraceFrameManager,
                             private val surfaceflingerManager: SystemTraceSurfaceflingerManager,
-                            initialViewRangeUs: Range)
+                            initialViewRangeUs: Range,
+                            nodeModelPoolStats: CaptureNodeModelPool.Stats? = null)
   // System Traces don't support dual clock.
   : BaseCpuCapture(traceId, model.getSystemTraceTechnology(), false, null,
                    Range(model.getCaptureStartTimestampUs().toDouble(), model.getCaptureEndTimestampUs().toDouble()),
-                   captureNodes), CpuSystemTraceData {
+                   captureNodes, setOf(), nodeModelPoolStats), CpuSystemTraceData {
   override val isMissingData = model.isCapturePossibleCorrupted()
   override val androidFrameLayers = model.getAndroidFrameLayers()
   override val androidFrameTimelineEvents = model.getAndroidFrameTimelineEvents()
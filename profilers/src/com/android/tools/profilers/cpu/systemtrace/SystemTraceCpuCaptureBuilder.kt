@@ -21,6 +21,7 @@ import com.android.tools.perflib.vmtrace.ClockType
 import com.android.tools.profilers.cpu.CaptureNode
 import com.android.tools.profilers.cpu.CpuThreadInfo
 import com.android.tools.profilers.cpu.ThreadState
+import com.android.tools.profilers.cpu.nodemodel.CaptureNodeModelPool
 import com.android.tools.profilers.cpu.nodemodel.SystemTraceNodeFactory
 import com.android.tools.profilers.cpu.systemtrace.CounterDataUtils.aggregateCounters
 import com.android.tools.profilers.cpu.systemtrace.CounterDataUtils.convertCounterToSeriesData
@@ -38,6 +39,8 @@ class SystemTraceCpuCaptureBuilder(private val model: SystemTraceModelAdapter) {
     val BLAST_BUFFER_QUEUE_COUNTER_REGEX = Regex("QueuedBuffer - .+BLAST#\\d")
   }
 
+  private val nodeModelPool = CaptureNodeModelPool()
+
   fun build(traceId: Long,
             mainProcessId: Int,
             initialViewRange: Range): SystemTraceCpuCapture {
@@ -59,7 +62,7 @@ class SystemTraceCpuCaptureBuilder(private val model: SystemTraceModelAdapter) {
 
     return SystemTraceCpuCapture(traceId, model, captureTreeNodes, threadState, cpuState.schedulingData, cpuState.utilizationData,
                                  cpuCounters, memoryCounters, powerRailCounters, batteryDrainCounters, blastBufferQueueCounter,
-                                 frameManager, sfManager, initialViewRange)
+                                 frameManager, sfManager, initialViewRange, nodeModelPool.stats)
   }
 
   /**
@@ -68,7 +71,7 @@ class SystemTraceCpuCaptureBuilder(private val model: SystemTraceModelAdapter) {
    */
   private fun buildCaptureTreeNodes(mainProcessModel: ProcessModel): Map<CpuThreadInfo, CaptureNode> {
     val threadToCaptureNodeMap = mutableMapOf<CpuThreadInfo, CaptureNode>()
-    val nodeFactory = SystemTraceNodeFactory()
+    val nodeFactory = SystemTraceNodeFactory(nodeModelPool)
 
     for (thread in mainProcessModel.getThreads()) {
       val threadName = if (thread.id == mainProcessModel.id && thread.name.isEmpty()) mainProcessModel.name else thread.name
@@ -18,12 +18,12 @@
 package com.android.tools.profilers.memory.adapters
 
 import com.android.tools.adtui.model.Range
-import com.android.tools.idea.protobuf.ByteString
 import com.android.tools.perflib.heap.ClassObj
 import com.android.tools.perflib.heap.Instance
 import com.android.tools.perflib.heap.Snapshot
 import com.android.tools.perflib.heap.ext.NativeRegistryPostProcessor
-import com.android.tools.perflib.heap.io.InMemoryBuffer
+import com.android.tools.perflib.heap.io.HprofBuffer
+import com.android.tools.perflib.heap.io.MemoryMappedFileBuffer
 import com.android.tools.profiler.proto.Common
 import com.android.tools.profiler.proto.Memory.HeapDumpInfo
 import com.android.tools.profiler.proto.Transport
@@ -50,8 +50,12 @@ import com.google.common.util.concurrent.ListenableFuture
 import com.google.common.util.concurrent.MoreExecutors
 import com.google.common.util.concurrent.ThreadFactoryBuilder
 import com.google.wireless.android.sdk.stats.AndroidProfilerEvent.Loading
+import com.intellij.openapi.diagnostic.Logger
+import com.intellij.openapi.util.io.FileUtil
 import gnu.trove.TObjectProcedure
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
 import java.io.OutputStream
 import java.util.concurrent.Executor
 import java.util.concurrent.Executors
@@ -65,7 +69,14 @@ open class HeapDumpCaptureObject(private val client: ProfilerClient,
                                  private val featureTracker: FeatureTracker,
                                  private val ideProfilerServices: IdeProfilerServices) : CaptureObject {
   private val _heapSets: MutableMap<Int, HeapSet> = HashMap()
-  private val instanceIndex = Long2ObjectOpenHashMap<InstanceObject>()
+
+  /**
+   * The parsed heap dump. Perflib indexes its instances by id over the mapped file, so [InstanceObject]s are created from it on demand
+   * instead of being kept in a second index here.
+   */
+  private var snapshot: Snapshot? = null
+  private var javaLangClassObject: InstanceObject? = null
+  private var instanceCount = 0
 
   @get:VisibleForTesting
   val classDb = ClassDb()
@@ -75,6 +86,13 @@ open class HeapDumpCaptureObject(private val client: ProfilerClient,
 
   @Volatile
   private var isLoadingError = false
+
+  /**
+   * Local copy of the heap dump backing the loaded snapshot, deleted on [unload].
+   */
+  @get:VisibleForTesting
+  var heapDumpFile: File? = null
+    private set
   var hasNativeAllocations = false
     private set
   private val activityFragmentLeakFilter = ActivityFragmentLeakInstanceFilter(classDb)
@@ -86,7 +104,17 @@ open class HeapDumpCaptureObject(private val client: ProfilerClient,
   )
 
   private val allInstances: Set<InstanceObject>
-    get() = HashSet<InstanceObject>(instanceIndex.size).also { instanceIndex.values.forEach(it::add) }
+    get() = HashSet<InstanceObject>(instanceCount).also { instances ->
+      snapshot?.heaps?.forEach { heap ->
+        heap.classes.forEach { instances.add(createInstanceObject(it)) }
+        heap.forEachInstance(object : TObjectProcedure<Instance> {
+          override fun execute(instance: Instance): Boolean {
+            instances.add(createInstanceObject(instance))
+            return true
+          }
+        })
+      }
+    }
 
   @VisibleForTesting
   val instanceFilterExecutor get() = executorService
@@ -104,42 +132,68 @@ open class HeapDumpCaptureObject(private val client: ProfilerClient,
   override fun getClassDatabase() = classDb
   override fun getSession() = _session
 
-  override fun load(queryRange: Range?, queryJoiner: Executor?) = doGetBytesRequest().let { response ->
-    if (response.contents === ByteString.EMPTY) false.also { isLoadingError = true }
-    else true.also {
-      ideProfilerServices.featureTracker.trackLoading(Loading.Type.HPROF,
-                                                      sizeKb = countBytes() / 1024,
-                                                      measure = { instanceIndex.size.toLong() }) {
-        load(InMemoryBuffer(response.contents.asReadOnlyByteBuffer()))
+  override fun load(queryRange: Range?, queryJoiner: Executor?): Boolean {
+    val file = fetchHeapDumpToFile() ?: return false.also { isLoadingError = true }
+    ideProfilerServices.featureTracker.trackLoading(Loading.Type.HPROF,
+                                                    sizeKb = (file.length() / 1024).toInt(),
+                                                    measure = { instanceCount.toLong() }) {
+      load(MemoryMappedFileBuffer(file))
+    }
+    return true
+  }
+
+  /**
+   * Writes the heap dump to a temporary file, or returns null if there is no heap dump to load. The dump is only fetched once, by
+   * whichever of [canSafelyLoad] and [load] comes first.
+   *
+   * Perflib instances read their field values from the hprof buffer on demand, so the buffer lives as long as the capture. Mapping the
+   * dump from a file keeps it out of the Java heap, instead of pinning the whole response there. The response is dropped as soon as it
+   * is written out.
+   */
+  @Synchronized
+  private fun fetchHeapDumpToFile(): File? {
+    heapDumpFile?.let { return it }
+    val contents = doGetBytesRequest().contents
+    if (contents.isEmpty) {
+      return null
+    }
+    return try {
+      FileUtil.createTempFile("heap_dump_${heapDumpInfo.startTime}", ".hprof", true).also { file ->
+        FileOutputStream(file).use { contents.writeTo(it) }
+        heapDumpFile = file
       }
     }
+    catch (e: IOException) {
+      Logger.getInstance(HeapDumpCaptureObject::class.java).warn("Unable to write the heap dump to a temporary file", e)
+      null
+    }
   }
 
   @VisibleForTesting
-  fun load(buffer: InMemoryBuffer) {
+  fun load(buffer: HprofBuffer) {
     val nativeRegistryPostProcessor = NativeRegistryPostProcessor()
     val snapshot = Snapshot.createSnapshot(buffer, proguardMap ?: ProguardMap(), listOf(nativeRegistryPostProcessor))
     snapshot.computeRetainedSizes()
     hasNativeAllocations = nativeRegistryPostProcessor.hasNativeAllocations
-    hasLoaded = true
-    val javaLangClassObject = snapshot.heaps.stream()
+    this.snapshot = snapshot
+    javaLangClassObject = snapshot.heaps.stream()
       .flatMap { h -> h.classes.stream().filter { ClassDb.JAVA_LANG_CLASS == it.className } }
       .map { createClassObjectInstance(null, it) }
       .findAny().orElse(null)
+    hasLoaded = true
     val heapSetMappings = snapshot.heaps.associateWith { HeapSet(this, it.name, it.id) }
-    val addInstanceToRightHeap: (HeapSet, Long, InstanceObject) -> Unit =
+    val addInstanceToRightHeap: (HeapSet, InstanceObject) -> Unit =
       AllHeapSet(this, heapSetMappings.values.toTypedArray()).let { superHeap ->
         superHeap.clearClassifierSets() // forces sub-classifier creation
         _heapSets[superHeap.id] = superHeap
-        { _, id, classInst -> addInstance(superHeap, id, classInst) }
+        { _, classInst -> addInstance(superHeap, classInst) }
       }
     heapSetMappings.forEach { (heap, heapSet) ->
-      heap.classes.forEach { addInstanceToRightHeap(heapSet, it.id, createClassObjectInstance(javaLangClassObject, it)) }
+      heap.classes.forEach { addInstanceToRightHeap(heapSet, createInstanceObject(it)) }
       heap.forEachInstance(object : TObjectProcedure<Instance> {
         override fun execute(instance: Instance): Boolean {
           assert(ClassDb.JAVA_LANG_CLASS != instance.classObj!!.className)
-          val classEntry = instance.classObj!!.makeEntry()
-          addInstanceToRightHeap(heapSet, instance.id, HeapDumpInstanceObject(this@HeapDumpCaptureObject, instance, classEntry, null))
+          addInstanceToRightHeap(heapSet, createInstanceObject(instance))
           return true
         }
       })
@@ -149,16 +203,29 @@ open class HeapDumpCaptureObject(private val client: ProfilerClient,
     }
   }
 
-  private fun addInstance(heapSet: HeapSet, id: Long, instObj: InstanceObject) {
-    assert(!instanceIndex.containsKey(id))
-    instanceIndex.put(id, instObj)
+  private fun addInstance(heapSet: HeapSet, instObj: InstanceObject) {
+    instanceCount++
     heapSet.addDeltaInstanceObject(instObj)
   }
 
+  /**
+   * Wraps a perflib instance. [HeapDumpInstanceObject]s are equal when they wrap the same instance, so the wrappers created on demand for
+   * references and fields are interchangeable with the ones held by the heap sets.
+   */
+  private fun createInstanceObject(instance: Instance): InstanceObject = when (instance) {
+    is ClassObj -> createClassObjectInstance(javaLangClassObject, instance)
+    else -> HeapDumpInstanceObject(this, instance, instance.classObj!!.makeEntry(), null)
+  }
+
   override fun isDoneLoading() = hasLoaded || isLoadingError
   override fun isError() = isLoadingError
+  @Synchronized
   override fun unload() {
     executorService.shutdownNow()
+    // The mapping itself is released when the snapshot is collected. Deleting the file while it is still mapped is fine on Unix, and is
+    // retried on exit elsewhere since the file is created with deleteOnExit.
+    heapDumpFile?.let { FileUtil.delete(it) }
+    heapDumpFile = null
   }
 
   override fun getClassifierAttributes() =
@@ -170,7 +237,7 @@ open class HeapDumpCaptureObject(private val client: ProfilerClient,
         InstanceAttribute.LABEL, InstanceAttribute.DEPTH, InstanceAttribute.NATIVE_SIZE, InstanceAttribute.SHALLOW_SIZE,
         InstanceAttribute.RETAINED_SIZE)
     else listOf(InstanceAttribute.LABEL, InstanceAttribute.DEPTH, InstanceAttribute.SHALLOW_SIZE, InstanceAttribute.RETAINED_SIZE)
-  open fun findInstanceObject(instance: Instance) = if (hasLoaded) instanceIndex.get(instance.id) else null
+  open fun findInstanceObject(instance: Instance) = if (hasLoaded) createInstanceObject(instance) else null
 
   fun createClassObjectInstance(javaLangClass: InstanceObject?, classObj: ClassObj): InstanceObject {
     val classEntry = classObj.makeEntry(if (javaLangClass == null) ClassDb.JAVA_LANG_CLASS else classObj.className)
@@ -228,15 +295,16 @@ open class HeapDumpCaptureObject(private val client: ProfilerClient,
     return null
   }
 
-  override fun canSafelyLoad() = MainMemoryProfilerStage.canSafelyLoadHprof(countBytes().toLong())
+  /**
+   * Checks the size of the local copy of the dump, which [load] then maps instead of fetching the dump again.
+   */
+  override fun canSafelyLoad() = MainMemoryProfilerStage.canSafelyLoadHprof(fetchHeapDumpToFile()?.length() ?: 0L)
 
   private fun doGetBytesRequest() = client.transportClient.getBytes(Transport.BytesRequest.newBuilder()
                                                                       .setStreamId(_session.streamId)
                                                                       .setId(heapDumpInfo.startTime.toString())
                                                                       .build())
 
-  private fun countBytes() = doGetBytesRequest().serializedSize
-
   private fun ClassObj.makeEntry(name: String = this.className) =
     if (superClassObj != null) classDb.registerClass(id, superClassObj!!.id, name, totalRetainedSize)
     else classDb.registerClass(id, name, totalRetainedSize)
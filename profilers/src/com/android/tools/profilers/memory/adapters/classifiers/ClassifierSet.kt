@@ -20,7 +20,6 @@ import com.android.tools.profilers.CachedFunction
 import com.android.tools.profilers.memory.adapters.InstanceObject
 import com.android.tools.profilers.memory.adapters.MemoryObject
 import com.android.tools.profilers.memory.adapters.instancefilters.CaptureObjectInstanceFilter
-import java.util.Collections
 import java.util.IdentityHashMap
 import java.util.Objects
 import java.util.stream.Stream
@@ -359,7 +358,8 @@ abstract class ClassifierSet(supplyName: () -> String) : MemoryObject {
    * `targetSet`'s immediate children.
    */
   fun isSupersetOf(targetSet: Set<InstanceObject>): Boolean {
-    val clone = Collections.newSetFromMap(IdentityHashMap<InstanceObject, Boolean>()).apply { addAll(targetSet) }
+    // Compared by equality, as some captures create equal instance objects on demand.
+    val clone = HashSet(targetSet)
     filterOutInstances(clone)
     return clone.isEmpty()
   }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu
+
+import com.android.tools.adtui.model.filter.Filter
+import com.android.tools.perflib.vmtrace.ClockType
+import com.android.tools.profilers.cpu.nodemodel.SingleNameModel
+import com.google.common.truth.Truth.assertThat
+import org.junit.Assert.assertThrows
+import org.junit.Test
+
+class CaptureNodeStoreTest {
+  private val rootModel = SingleNameModel("root")
+  private val fooModel = SingleNameModel("foo")
+  private val barModel = SingleNameModel("bar")
+
+  /**
+   * root [0, 100]
+   *   foo [10, 40]
+   *     bar [15, 20]
+   *   foo [50, 90]
+   *   bar [91, 95]
+   */
+  private fun createTree() = node(rootModel, 0, 100).apply {
+    addChild(node(fooModel, 10, 40).apply { addChild(node(barModel, 15, 20)) })
+    addChild(node(fooModel, 50, 90))
+    addChild(node(barModel, 91, 95))
+    descendantsStream.forEach { it.setDepth((it.getParent()?.getDepth() ?: -1) + 1) }
+  }
+
+  private fun node(model: SingleNameModel, start: Long, end: Long) = CaptureNode(model).apply {
+    startGlobal = start
+    endGlobal = end
+    startThread = start + 1
+    endThread = end - 1
+  }
+
+  private fun CaptureNode.describe(): List<String> =
+    descendantsStream.map { "${it.data.name} ${it.getDepth()} ${it.startGlobal}-${it.endGlobal} ${it.startThread}-${it.endThread}" }.toList()
+
+  @Test
+  fun compactKeepsShapeAndValues() {
+    val tree = createTree()
+    val store = CaptureNodeStore.compact(tree)
+
+    assertThat(store.size).isEqualTo(5)
+    assertThat(store.root.describe()).containsExactlyElementsIn(tree.describe()).inOrder()
+    assertThat(store.root.getChildCount()).isEqualTo(3)
+    assertThat(store.root.getChildAt(2).data).isSameAs(barModel)
+    assertThat(store.root.getChildAt(0).getChildAt(0).getParent()!!.getParent()).isSameAs(store.root)
+    assertThat(store.root.getChildAt(0).getChildAt(0).findRootNode()).isSameAs(store.root)
+    assertThat(store.root.getParent()).isNull()
+    assertThrows(IndexOutOfBoundsException::class.java) { store.root.getChildAt(0).getChildAt(1) }
+  }
+
+  @Test
+  fun viewsOfTheSameNodeAreEqual() {
+    val store = CaptureNodeStore.compact(createTree())
+
+    assertThat(store.root.children[0]).isEqualTo(store.root.getChildAt(0))
+    assertThat(store.root.children[0]).isNotEqualTo(store.root.children[1])
+    assertThat(store.root.children[0].hashCode()).isEqualTo(store.root.getChildAt(0).hashCode())
+    assertThat(store.root.children[0]).isNotEqualTo(CaptureNodeStore.compact(createTree()).root.children[0])
+  }
+
+  @Test
+  fun updatesAreWrittenToTheStore() {
+    val store = CaptureNodeStore.compact(createTree())
+
+    store.root.children[1].endGlobal = 92
+    store.root.children[1].clockType = ClockType.THREAD
+    store.root.applyFilter(Filter("bar"))
+
+    assertThat(store.root.children[1].endGlobal).isEqualTo(92)
+    assertThat(store.root.children[2].clockType).isEqualTo(ClockType.THREAD)
+    assertThat(store.root.children[2].getStart()).isEqualTo(92)
+    assertThat(store.root.children[0].children[0].filterType).isEqualTo(CaptureNode.FilterType.EXACT_MATCH)
+    assertThat(store.root.children[1].filterType).isEqualTo(CaptureNode.FilterType.UNMATCH)
+  }
+
+  @Test
+  fun onlyRootChildrenCanBeReplaced() {
+    val store = CaptureNodeStore.compact(createTree())
+    val storedChildren = store.root.children.toList()
+    val replacement = node(fooModel, 0, 100)
+
+    store.root.clearChildren()
+    store.root.addChild(replacement)
+    assertThat(store.root.children).containsExactly(replacement)
+    assertThat(replacement.getParent()).isSameAs(store.root)
+
+    store.root.clearChildren()
+    store.root.addChildren(storedChildren)
+    assertThat(store.root.children).containsExactlyElementsIn(storedChildren).inOrder()
+    assertThat(store.root.getChildAt(0).getChildCount()).isEqualTo(1)
+
+    assertThrows(UnsupportedOperationException::class.java) { store.root.children[0].clearChildren() }
+    assertThrows(UnsupportedOperationException::class.java) { store.root.children[0].addChild(node(barModel, 10, 20)) }
+  }
+
+  @Test
+  fun builderLinksChildrenInOrder() {
+    val builder = CaptureNodeStore.Builder(ClockType.GLOBAL)
+    val root = builder.addNode(CaptureNodeStore.NO_PARENT, rootModel, 0, 0)
+    val foo = builder.addNode(root, fooModel, 1, 1)
+    val bar = builder.addNode(root, barModel, 3, 3)
+    val nestedFoo = builder.addNode(bar, fooModel, 3, 3)
+    builder.setEnd(foo, 2, 2)
+    builder.setEnd(nestedFoo, 4, 4)
+    builder.setEnd(bar, 4, 4)
+    builder.setEnd(root, 10, 10)
+
+    assertThat(builder.parentOf(nestedFoo)).isEqualTo(bar)
+    assertThat(builder.endGlobalOf(bar)).isEqualTo(4)
+    assertThrows(IllegalArgumentException::class.java) { builder.addNode(CaptureNodeStore.NO_PARENT, rootModel, 0, 0) }
+
+    val store = builder.build()
+    assertThat(store.root.children.map { it.data.name }).containsExactly("foo", "bar").inOrder()
+    assertThat(store.root.children[1].children.single().getDepth()).isEqualTo(2)
+    assertThat(store.root.children[1].children.single().endGlobal).isEqualTo(4)
+    assertThat(store.root.endGlobal).isEqualTo(10)
+  }
+}
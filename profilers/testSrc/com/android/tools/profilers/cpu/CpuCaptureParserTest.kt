@@ -715,6 +715,22 @@ class CpuCaptureParserTest {
     assertThat(fakeFeatureTracker.lastCpuCaptureMetadata).isNotNull()
   }
 
+  @Test
+  fun nodeModelPoolStatsAreReportedInCaptureMetadata() {
+    val services = FakeIdeProfilerServices()
+    val fakeFeatureTracker = services.featureTracker as FakeFeatureTracker
+    val parser = CpuCaptureParser(services)
+    CpuCaptureParser.clearPreviouslyLoadedCaptures()
+
+    val capture = parser.parseForTestWithArt(CpuProfilerTestUtils.getTraceFile("valid_trace.trace"),
+                                             idHint = ProfilersTestData.SESSION_DATA.pid).get()
+    val poolStats = capture.nodeModelPoolStats!!
+    val metadata = fakeFeatureTracker.lastCpuCaptureMetadata
+    assertThat(metadata.distinctNodeModelCount).isGreaterThan(0)
+    assertThat(metadata.distinctNodeModelCount).isEqualTo(poolStats.distinctModels)
+    assertThat(metadata.nodeModelBytesSaved).isEqualTo(poolStats.estimatedBytesSaved)
+  }
+
   @Test
   fun validateMetricsReportedForComposeTracingImport() {
     val services = FakeIdeProfilerServices()
@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 
 public class ArtTraceHandlerTest {
@@ -97,6 +98,22 @@ public class ArtTraceHandlerTest {
     }
   }
 
+  @Test
+  public void testTreesAreBuiltOnExecutor() throws IOException {
+    AtomicInteger taskCount = new AtomicInteger();
+    ArtTraceHandler handler = new ArtTraceHandler(task -> {
+      taskCount.incrementAndGet();
+      task.run();
+    });
+    VmTraceParser parser = new VmTraceParser(CpuProfilerTestUtils.getTraceFile("art_non_streaming.trace"), handler);
+    parser.parse();
+
+    Map<CpuThreadInfo, CaptureNode> trees = handler.getThreadsGraph();
+    assertEquals(1, taskCount.get());
+    assertEquals(1, trees.size());
+    assertEquals("AsyncTask #1", trees.values().iterator().next().getData().getId());
+  }
+
   private static CaptureNode parseCaptureNode() throws IOException {
     ArtTraceHandler handler = new ArtTraceHandler();
     VmTraceParser parser = new VmTraceParser(CpuProfilerTestUtils.getTraceFile("art_non_streaming.trace"), handler);
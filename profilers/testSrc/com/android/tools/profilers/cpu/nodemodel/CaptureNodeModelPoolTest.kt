@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.cpu.nodemodel
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class CaptureNodeModelPoolTest {
+
+  @Test
+  fun `equal models are shared`() {
+    val pool = CaptureNodeModelPool()
+
+    val method = pool.javaMethod("run", "java.lang.Thread", "()V")
+    assertThat(pool.javaMethod(String("run".toCharArray()), "java.lang.Thread", "()V")).isSameAs(method)
+    assertThat(pool.javaMethod("run", "java.lang.Runnable", "()V")).isNotSameAs(method)
+    assertThat(pool.singleName("main")).isSameAs(pool.singleName("main"))
+    assertThat(pool.syscall(null, "read")).isSameAs(pool.syscall(null, "read"))
+    assertThat(pool.syscall("libc.so", "read")).isNotSameAs(pool.syscall(null, "read"))
+    assertThat(pool.noSymbol("libfoo.so", "libfoo.so")).isSameAs(pool.noSymbol("libfoo.so", "libfoo.so"))
+  }
+
+  @Test
+  fun `cpp functions share names across call sites`() {
+    val pool = CaptureNodeModelPool()
+
+    fun function(vAddress: Long) =
+      pool.cppFunction(CppFunctionModel.Builder(String("draw".toCharArray())).setClassOrNamespace("Canvas").setVAddress(vAddress))
+
+    val first = function(10)
+    val second = function(20)
+    assertThat(function(10)).isSameAs(first)
+    assertThat(second).isNotSameAs(first)
+    assertThat(second.name).isSameAs(first.name)
+    assertThat(second.classOrNamespace).isSameAs(first.classOrNamespace)
+  }
+
+  @Test
+  fun `stats count requests and savings`() {
+    val pool = CaptureNodeModelPool()
+    assertThat(pool.stats).isEqualTo(CaptureNodeModelPool.Stats(0, 0, 0, 0, 0))
+
+    pool.singleName("main")
+    assertThat(pool.stats.estimatedBytesSaved).isEqualTo(0)
+    pool.singleName("main")
+    pool.intern(String("main".toCharArray()))
+
+    val stats = pool.stats
+    assertThat(stats.distinctModels).isEqualTo(1)
+    assertThat(stats.distinctStrings).isEqualTo(1)
+    assertThat(stats.modelRequests).isEqualTo(2)
+    assertThat(stats.stringRequests).isEqualTo(2)
+    // The second model and the copy of its name, then the copy of the name interned directly.
+    assertThat(stats.estimatedBytesSaved).isEqualTo(32 + 44 + 44)
+  }
+}
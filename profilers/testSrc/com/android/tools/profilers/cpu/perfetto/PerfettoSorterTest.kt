@@ -15,7 +15,7 @@
  */
 package com.android.tools.profilers.cpu.perfetto
 
-import com.android.tools.profilers.cpu.systemtrace.PerfettoPacketDBSorter
+import com.android.tools.profilers.cpu.systemtrace.PerfettoPacketSorter
 import com.google.common.truth.Truth.assertThat
 import org.junit.Test
 
@@ -23,7 +23,7 @@ class PerfettoSorterTest {
 
   @Test
   fun formattedLinesAreReturnedOnNext() {
-    val sorter = PerfettoPacketDBSorter()
+    val sorter = PerfettoPacketSorter()
     sorter.addLine(0, "Some line")
     assertThat(sorter.hasNext()).isFalse()
     sorter.resetForIterator()
@@ -33,7 +33,7 @@ class PerfettoSorterTest {
 
   @Test
   fun hasNextCanBeCalledMultipleTimes() {
-    val sorter = PerfettoPacketDBSorter()
+    val sorter = PerfettoPacketSorter()
     sorter.addLine(0, "Some Line")
     assertThat(sorter.hasNext()).isFalse()
     sorter.resetForIterator()
@@ -42,4 +42,47 @@ class PerfettoSorterTest {
     assertThat(sorter.hasNext()).isTrue()
     assertThat(sorter.next()).isEqualTo("Some Line")
   }
+
+  @Test
+  fun linesAreReturnedInTimestampOrder() {
+    val sorter = PerfettoPacketSorter()
+    sorter.addLine(3, "Third")
+    sorter.addLine(1, "First")
+    sorter.addLine(2, "Second")
+    sorter.resetForIterator()
+    assertThat(sorter.asSequence().toList()).containsExactly("First", "Second", "Third").inOrder()
+    sorter.close()
+  }
+
+  @Test
+  fun equalTimestampsKeepInsertionOrder() {
+    val sorter = PerfettoPacketSorter()
+    sorter.addLine(5, "A")
+    sorter.addLine(1, "B")
+    sorter.addLine(5, "C")
+    sorter.addLine(5, "D")
+    sorter.resetForIterator()
+    assertThat(sorter.asSequence().toList()).containsExactly("B", "A", "C", "D").inOrder()
+    sorter.close()
+  }
+
+  @Test
+  fun spilledRunsAreMerged() {
+    // A run capacity of 7 forces many spilled runs, including a partial last one that stays in memory.
+    val sorter = PerfettoPacketSorter(7)
+    val timestamps = (0 until 100L).map { (it * 37) % 100 }
+    timestamps.forEach { sorter.addLine(it, "Line $it ümlaut") }
+    sorter.resetForIterator()
+    assertThat(sorter.asSequence().toList()).containsExactlyElementsIn(timestamps.sorted().map { "Line $it ümlaut" }).inOrder()
+    assertThat(sorter.hasNext()).isFalse()
+    sorter.close()
+  }
+
+  @Test
+  fun emptySorterHasNoLines() {
+    val sorter = PerfettoPacketSorter()
+    sorter.resetForIterator()
+    assertThat(sorter.hasNext()).isFalse()
+    sorter.close()
+  }
 }
@@ -18,6 +18,7 @@ package com.android.tools.profilers.cpu.simpleperf
 import com.android.tools.adtui.model.Range
 import com.android.tools.profiler.proto.SimpleperfReport
 import com.android.tools.profilers.cpu.BaseCpuCapture
+import com.android.tools.profilers.cpu.CaptureNode
 import com.android.tools.profilers.cpu.CpuProfilerTestUtils
 import com.android.tools.profilers.cpu.nodemodel.CppFunctionModel
 import com.google.common.collect.Lists
@@ -29,6 +30,8 @@ import org.junit.Test
 import java.io.File
 import java.io.FileOutputStream
 import java.io.IOException
+import java.util.Collections
+import java.util.IdentityHashMap
 import java.util.concurrent.TimeUnit
 import kotlin.test.assertFalse
 import kotlin.test.assertTrue
@@ -322,6 +325,28 @@ class SimpleperfTraceParserTest {
     Truth.assertThat(capture.mainThreadId).isEqualTo(BaseCpuCapture.NO_THREAD_ID)
   }
 
+  @Test
+  @Throws(IOException::class)
+  fun parallelParsingMatchesSequentialParsing() {
+    val sequentialCapture = SimpleperfTraceParser { it.run() }.parse(myTraceFile, 0)
+    val parallelCapture = myParser.parse(myTraceFile, 0)
+
+    fun CaptureNode.describe(): List<String> =
+      descendantsStream.map { "${it.data.fullName} ${it.depth} ${it.startGlobal}-${it.endGlobal} ${it.startThread}-${it.endThread}" }.toList()
+
+    Truth.assertThat(parallelCapture.threads.map { it.id }).containsExactlyElementsIn(sequentialCapture.threads.map { it.id })
+    Truth.assertThat(parallelCapture.tags).containsExactlyElementsIn(sequentialCapture.tags).inOrder()
+    for (thread in sequentialCapture.threads) {
+      Truth.assertThat(parallelCapture.getCaptureNode(thread.id)!!.describe())
+        .containsExactlyElementsIn(sequentialCapture.getCaptureNode(thread.id)!!.describe()).inOrder()
+    }
+
+    // Nodes of the same call chain entry share their model, even across threads.
+    val nodes = parallelCapture.captureNodes.flatMap { it.descendantsStream.toList() }
+    val models = nodes.map { it.data }.toCollection(Collections.newSetFromMap(IdentityHashMap()))
+    Truth.assertThat(models.size).isLessThan(nodes.size)
+  }
+
   @Test
   fun tagsSortedByExpectedOrder() {
     val shuffledTags = listOf("/a/b/c", "/c/d/e", "[java]", "/a/*").shuffled()
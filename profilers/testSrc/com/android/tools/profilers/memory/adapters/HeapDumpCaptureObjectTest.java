@@ -42,6 +42,7 @@ import com.android.tools.profilers.memory.adapters.classifiers.HeapSet;
 import com.android.tools.profilers.memory.adapters.instancefilters.ActivityFragmentLeakInstanceFilter;
 import com.android.tools.profilers.memory.adapters.instancefilters.CaptureObjectInstanceFilter;
 import com.google.common.truth.Truth;
+import java.io.File;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
@@ -182,6 +183,59 @@ public class HeapDumpCaptureObjectTest {
     assertNotNull(defaultHeap);
   }
 
+  @Test
+  public void testHeapDumpIsMappedFromTemporaryFile() throws Exception {
+    HeapDumpInfo dumpInfo = HeapDumpInfo.newBuilder().setStartTime(3).setEndTime(8).build();
+    HeapDumpCaptureObject capture =
+      new HeapDumpCaptureObject(new ProfilerClient(myGrpcChannel.getChannel()), ProfilersTestData.SESSION_DATA, dumpInfo,
+                                null,
+                                myIdeProfilerServices.getFeatureTracker(),
+                                myStage.getStudioProfilers().getIdeServices());
+
+    byte[] buffer = new SnapshotBuilder(2, 0, 0).addReferences(1, 2).addRoot(1).getByteBuffer();
+    myTransportService.addFile(Long.toString(3), ByteString.copyFrom(buffer));
+    capture.load(null, null);
+    assertFalse(capture.isError());
+
+    File heapDumpFile = capture.getHeapDumpFile();
+    assertNotNull(heapDumpFile);
+    assertEquals(buffer.length, heapDumpFile.length());
+    // Instances read their fields from the mapped file.
+    InstanceObject instance = capture.getInstances()
+      .filter(inst -> "Class0".equals(inst.getClassEntry().getClassName())).findFirst().orElse(null);
+    assertNotNull(instance);
+    assertFalse(instance.getFields().isEmpty());
+
+    capture.unload();
+    assertNull(capture.getHeapDumpFile());
+    assertFalse(heapDumpFile.exists());
+  }
+
+  @Test
+  public void testHeapDumpIsFetchedOnceForSizeCheckAndLoad() throws Exception {
+    HeapDumpInfo dumpInfo = HeapDumpInfo.newBuilder().setStartTime(3).setEndTime(8).build();
+    HeapDumpCaptureObject capture =
+      new HeapDumpCaptureObject(new ProfilerClient(myGrpcChannel.getChannel()), ProfilersTestData.SESSION_DATA, dumpInfo,
+                                null,
+                                myIdeProfilerServices.getFeatureTracker(),
+                                myStage.getStudioProfilers().getIdeServices());
+
+    byte[] buffer = new SnapshotBuilder(2, 0, 0).addReferences(1, 2).addRoot(1).getByteBuffer();
+    myTransportService.addFile(Long.toString(3), ByteString.copyFrom(buffer));
+    assertTrue(capture.canSafelyLoad());
+    File heapDumpFile = capture.getHeapDumpFile();
+    assertNotNull(heapDumpFile);
+    assertEquals(buffer.length, heapDumpFile.length());
+
+    // Loading maps the copy made for the size check instead of requesting the dump again.
+    myTransportService.addFile(Long.toString(3), ByteString.EMPTY);
+    capture.load(null, null);
+    assertFalse(capture.isError());
+    assertEquals(heapDumpFile, capture.getHeapDumpFile());
+    assertEquals(6, capture.getInstances().count());
+    capture.unload();
+  }
+
   @Test
   public void testLoadingFailure() throws Exception {
     HeapDumpInfo dumpInfo = HeapDumpInfo.newBuilder().setStartTime(3).setEndTime(8).build();
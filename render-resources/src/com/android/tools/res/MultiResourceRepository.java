@@ -48,7 +48,9 @@ import java.util.AbstractCollection;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -57,8 +59,10 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Predicate;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -71,6 +75,11 @@ import org.jetbrains.annotations.VisibleForTesting;
  * replace/hide any subsequent definitions of the same resource.
  *
  * <p>In the resource repository hierarchy, MultiResourceRepository is an internal node, never a leaf.
+ *
+ * <p>Lookups by namespace and type are served from immutable snapshots of the merged resources that
+ * are read without taking {@code ITEM_MAP_LOCK}. A snapshot is dropped when resources of its type
+ * change in one of the children and is rebuilt, under the lock, by the next lookup of that type.
+ * Snapshots of the other types stay valid, so lookups of unchanged types never wait for updates.
  */
 @SuppressWarnings("InstanceGuardedByStatic") // TODO: The whole locking scheme for resource repositories needs to be reworked.
 public abstract class MultiResourceRepository extends LocalResourceRepository implements Disposable {
@@ -110,6 +119,16 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
   private final Table<ResourceNamespace, ResourceType, Set<SingleNamespaceResourceRepository>> myUnreconciledResources =
       Tables.newCustomTable(new HashMap<>(), () -> Maps.newEnumMap(ResourceType.class));
 
+  /**
+   * Published snapshots of the results of {@link #getMap}, indexed by resource type ordinal. Read without locking, but only
+   * written under {@code ITEM_MAP_LOCK}: a slot is either empty or holds a snapshot that is consistent with the children.
+   */
+  private final Map<ResourceNamespace, AtomicReferenceArray<ResourceSnapshot>> mySnapshots = new ConcurrentHashMap<>();
+
+  /** Version given to the last snapshot created, see {@link ResourceSnapshot#myVersion}. */
+  @GuardedBy("ITEM_MAP_LOCK")
+  private long mySnapshotVersion;
+
   protected MultiResourceRepository(@NotNull String displayName) {
     super(displayName);
     LowMemoryWatcher.register(this::onLowMemory, this);
@@ -151,6 +170,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
         myModificationCounts[i++] = child.getModificationCount();
       }
       myCachedMaps.clear();
+      mySnapshots.clear();
 
       invalidateParentCaches();
     }
@@ -248,6 +268,107 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
     }
   }
 
+  @Override
+  @NotNull
+  public ListMultimap<String, ResourceItem> getResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
+    return getSnapshot(namespace, resourceType);
+  }
+
+  @Override
+  @NotNull
+  public List<ResourceItem> getResources(@NotNull ResourceNamespace namespace,
+                                         @NotNull ResourceType resourceType,
+                                         @NotNull String resourceName) {
+    return getSnapshot(namespace, resourceType).get(resourceName);
+  }
+
+  @Override
+  @NotNull
+  public List<ResourceItem> getResources(@NotNull ResourceNamespace namespace,
+                                         @NotNull ResourceType resourceType,
+                                         @NotNull Predicate<ResourceItem> filter) {
+    List<ResourceItem> result = null;
+    for (ResourceItem item : getSnapshot(namespace, resourceType).values()) {
+      if (filter.test(item)) {
+        if (result == null) {
+          result = new ArrayList<>();
+        }
+        result.add(item);
+      }
+    }
+    return result == null ? Collections.emptyList() : result;
+  }
+
+  @Override
+  @NotNull
+  public Set<String> getResourceNames(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
+    return getSnapshot(namespace, resourceType).keySet();
+  }
+
+  @Override
+  public boolean hasResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType, @NotNull String resourceName) {
+    return getSnapshot(namespace, resourceType).containsKey(resourceName);
+  }
+
+  @Override
+  public boolean hasResources(@NotNull ResourceNamespace namespace, @NotNull ResourceType resourceType) {
+    return !getSnapshot(namespace, resourceType).isEmpty();
+  }
+
+  @Override
+  @NotNull
+  public Set<ResourceType> getResourceTypes(@NotNull ResourceNamespace namespace) {
+    EnumSet<ResourceType> result = EnumSet.noneOf(ResourceType.class);
+    for (ResourceType type : ResourceType.values()) {
+      if (hasResources(namespace, type)) {
+        result.add(type);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the published snapshot of the resources of the given namespace and type. Only takes {@code ITEM_MAP_LOCK} when
+   * there is no snapshot yet or the previous one was invalidated.
+   */
+  @NotNull
+  private ImmutableListMultimap<String, ResourceItem> getSnapshot(@NotNull ResourceNamespace namespace, @NotNull ResourceType type) {
+    AtomicReferenceArray<ResourceSnapshot> snapshots = mySnapshots.get(namespace);
+    ResourceSnapshot snapshot = snapshots == null ? null : snapshots.get(type.ordinal());
+    if (snapshot == null) {
+      synchronized (ITEM_MAP_LOCK) {
+        snapshot = getOrCreateSnapshot(namespace, type);
+      }
+    }
+    return snapshot.myItems;
+  }
+
+  @GuardedBy("ITEM_MAP_LOCK")
+  @NotNull
+  private ResourceSnapshot getOrCreateSnapshot(@NotNull ResourceNamespace namespace, @NotNull ResourceType type) {
+    // Look the slots up again under the lock, the ones read before may have been dropped since.
+    AtomicReferenceArray<ResourceSnapshot> snapshots =
+        mySnapshots.computeIfAbsent(namespace, ns -> new AtomicReferenceArray<>(ResourceType.values().length));
+    ResourceSnapshot snapshot = snapshots.get(type.ordinal());
+    if (snapshot == null) {
+      ListMultimap<String, ResourceItem> map = getMap(namespace, type);
+      snapshot = new ResourceSnapshot(++mySnapshotVersion, map == null ? ImmutableListMultimap.of() : ImmutableListMultimap.copyOf(map));
+      snapshots.set(type.ordinal(), snapshot);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns the version of the snapshot currently published for the given namespace and type, or 0 if there is none.
+   * Intended exclusively for testing.
+   */
+  @VisibleForTesting
+  public long getSnapshotVersion(@NotNull ResourceNamespace namespace, @NotNull ResourceType type) {
+    AtomicReferenceArray<ResourceSnapshot> snapshots = mySnapshots.get(namespace);
+    ResourceSnapshot snapshot = snapshots == null ? null : snapshots.get(type.ordinal());
+    return snapshot == null ? 0 : snapshot.myVersion;
+  }
+
   @Override
   @NotNull
   public ResourceVisitor.VisitResult accept(@NotNull ResourceVisitor visitor) {
@@ -399,6 +520,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
   @GuardedBy("ITEM_MAP_LOCK")
   private void clearCachedData() {
     myCachedMaps.clear();
+    mySnapshots.clear();
     myResourceNames.clear();
     myUnreconciledResources.clear();
   }
@@ -423,6 +545,14 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
     // In such a case we don't need to do anything.
     ImmutableList<SingleNamespaceResourceRepository> leafs = myLeafsByNamespace.get(namespace);
     if (leafs.contains(repository)) {
+      // Snapshots are invalidated even when there is a single leaf, since they are copies of the leaf's maps.
+      AtomicReferenceArray<ResourceSnapshot> snapshots = mySnapshots.get(namespace);
+      if (snapshots != null) {
+        for (ResourceType type : types) {
+          snapshots.set(type.ordinal(), null);
+        }
+      }
+
       // Update myUnreconciledResources only if myCachedMaps is used for this namespace.
       if (leafs.size() != 1) {
         for (ResourceType type : types) {
@@ -488,6 +618,20 @@ public abstract class MultiResourceRepository extends LocalResourceRepository im
     }
   }
 
+  /**
+   * Immutable merged resources of a single namespace and type.
+   */
+  private static final class ResourceSnapshot {
+    /** Increases with every snapshot created by the repository, so that tests can tell whether a snapshot was rebuilt. */
+    final long myVersion;
+    @NotNull final ImmutableListMultimap<String, ResourceItem> myItems;
+
+    ResourceSnapshot(long version, @NotNull ImmutableListMultimap<String, ResourceItem> items) {
+      myVersion = version;
+      myItems = items;
+    }
+  }
+
   private static class ResourcePriorityComparator implements Comparator<ResourceItem> {
     private final Object2IntMap<SingleNamespaceResourceRepository> repositoryOrdering;
 
@@ -23,6 +23,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Interface to be implemented by executors of rendered async actions.
@@ -64,6 +65,35 @@ public interface RenderAsyncActionExecutor {
     long actionTimeout, @NotNull TimeUnit actionTimeoutUnit,
     @NotNull RenderingTopic renderingTopic, @NotNull Callable<T> callable);
 
+  /**
+   * Same as {@link #runAsyncActionWithTimeout(long, TimeUnit, long, TimeUnit, RenderingTopic, Callable)}, but all the actions with the
+   * same {@code affinityKey} are run on the same render thread when the executor has more than one. The key is usually the class loader
+   * of the module being rendered, and is compared by identity.
+   *
+   * @param affinityKey key used to pick the render thread, or null to use the default render thread.
+   */
+  default @NotNull <T> CompletableFuture<T> runAsyncActionWithTimeout(
+    long queueingTimeout, @NotNull TimeUnit queueingTimeoutUnit,
+    long actionTimeout, @NotNull TimeUnit actionTimeoutUnit,
+    @NotNull RenderingTopic renderingTopic, @Nullable Object affinityKey, @NotNull Callable<T> callable) {
+    return runAsyncActionWithTimeout(queueingTimeout, queueingTimeoutUnit, actionTimeout, actionTimeoutUnit, renderingTopic, callable);
+  }
+
+  /**
+   * Same as {@link #runAsyncAction(RenderingTopic, Callable)}, but all the actions with the same {@code affinityKey} are run on the same
+   * render thread when the executor has more than one.
+   *
+   * @param affinityKey key used to pick the render thread, or null to use the default render thread.
+   */
+  default @NotNull <T> CompletableFuture<T> runAsyncAction(@NotNull RenderingTopic renderingTopic,
+                                                           @Nullable Object affinityKey,
+                                                           @NotNull Callable<T> callable) {
+    return runAsyncActionWithTimeout(
+      DEFAULT_RENDER_THREAD_QUEUE_TIMEOUT_MS, TimeUnit.MILLISECONDS,
+      DEFAULT_RENDER_THREAD_TIMEOUT_MS, TimeUnit.MILLISECONDS,
+      renderingTopic, affinityKey, callable);
+  }
+
   /**
    * Runs an action that requires the rendering lock. Layoutlib is not thread safe so any rendering actions should be called using this
    * method.
@@ -158,6 +188,21 @@ public interface RenderAsyncActionExecutor {
     });
   }
 
+  /**
+   * Same as {@link #runAsyncAction(RenderingTopic, Runnable)}, but all the actions with the same {@code affinityKey} are run on the same
+   * render thread when the executor has more than one.
+   *
+   * @param affinityKey key used to pick the render thread, or null to use the default render thread.
+   */
+  @NotNull
+  default CompletableFuture<Void> runAsyncAction(@NotNull RenderingTopic renderingTopic, @Nullable Object affinityKey,
+                                                 @NotNull Runnable runnable) {
+    return runAsyncAction(renderingTopic, affinityKey, () -> {
+      runnable.run();
+      return null;
+    });
+  }
+
   /**
    * Cancels all pending actions of the given topics.
    * <p>
@@ -22,16 +22,16 @@ import org.jetbrains.annotations.TestOnly
 import java.util.EnumMap
 import java.util.PriorityQueue
 import java.util.Queue
+import java.util.WeakHashMap
 import java.util.concurrent.Callable
 import java.util.concurrent.CancellationException
 import java.util.concurrent.CompletableFuture
-import java.util.concurrent.ExecutorService
 import java.util.concurrent.ScheduledExecutorService
 import java.util.concurrent.ScheduledFuture
 import java.util.concurrent.ScheduledThreadPoolExecutor
-import java.util.concurrent.ThreadFactory
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.TimeoutException
+import java.util.concurrent.atomic.AtomicBoolean
 import java.util.concurrent.atomic.AtomicInteger
 import java.util.concurrent.atomic.LongAdder
 import java.util.concurrent.locks.Lock
@@ -41,24 +41,42 @@ import kotlin.concurrent.withLock
 /** Max number of tasks that can be waiting to execute */
 private val DEFAULT_MAX_QUEUED_TASKS = Integer.getInteger("layoutlib.thread.max.queued", 50)
 
+/**
+ * Number of render threads. Using more than one thread is experimental: every action that accesses
+ * a session or its views must pass the affinity key of the render task that created it (see
+ * `RenderTask.getRenderAffinityKey`), otherwise it runs on the first thread. Actions without a key
+ * are reported once when more than one thread is used, see [RenderExecutor].
+ */
+private val DEFAULT_RENDER_THREAD_COUNT = Integer.getInteger("layoutlib.thread.count", 1)
+
 /**
  * Intended to be used for executing render tasks of layoutlib [RenderSession]. Currently, all calls
  * to the layoutlib should be done from the same thread. This executor guarantees that unit of work
  * passed to [runAction] or [runAsyncAction] will be executed sequentially from the same thread.
  *
+ * The executor can optionally use several isolated render threads, so that independent renders
+ * (e.g. the previews of different modules) can run in parallel. Actions are then routed to a thread
+ * by their affinity key, usually the module class loader: all the actions with the same key run
+ * sequentially on the same thread, and actions without a key run on the first thread. Pending
+ * actions, their eviction and cancellation are shared by all the threads.
+ *
  * @param maxQueueingTasks max number of tasks that can be queueing waiting for a task to complete.
- * @param renderingExecutorService a provider of the [ExecutorService] using the given
- *   [ThreadFactory].
+ * @param renderingExecutorServices one [SingleThreadExecutorService] per render thread.
  * @param scheduledExecutorService a [ScheduledExecutorService] to keep track of the task timeout.
  */
 class RenderExecutor
 private constructor(
   private val maxQueueingTasks: Int,
-  private val renderingExecutorService: SingleThreadExecutorService,
+  private val renderingExecutorServices: List<SingleThreadExecutorService>,
   private val scheduledExecutorService: ScheduledExecutorService
 ) : RenderAsyncActionExecutor {
+  init {
+    require(renderingExecutorServices.isNotEmpty()) { "At least one render thread is required" }
+  }
+
   private val pendingActionsQueueLock: Lock = ReentrantLock()
   private val runningRenderLock: Lock = ReentrantLock()
+  private val affinityLock: Lock = ReentrantLock()
 
   @GuardedBy("pendingActionsQueueLock")
   private val allPendingActionsQueue: Queue<PriorityCompletableFuture<*>> = PriorityQueue()
@@ -66,21 +84,55 @@ private constructor(
   private val pendingActionsQueueByTopic:
     MutableMap<RenderingTopic, Queue<PriorityCompletableFuture<*>>> =
     EnumMap(RenderingTopic::class.java)
-  @GuardedBy("runningRenderLock") private var runningRender: PriorityCompletableFuture<*>? = null
+  /** The action running on each render thread, indexed like [renderingExecutorServices]. */
+  @GuardedBy("runningRenderLock")
+  private val runningRenders = arrayOfNulls<PriorityCompletableFuture<*>>(renderingExecutorServices.size)
+  /** Render thread assigned to each affinity key. Keys are dropped once they are collected. */
+  @GuardedBy("affinityLock") private val threadIndexByAffinityKey = WeakHashMap<Any, Int>()
+  @GuardedBy("affinityLock") private var nextThreadIndex = 0
+  private val keylessActionReported = AtomicBoolean(false)
   private val accumulatedTimeoutExceptions = AtomicInteger(0)
   private val executedRenderActions = LongAdder()
 
-  fun interrupt() = renderingExecutorService.interrupt()
+  /** Number of render threads used by this executor. */
+  val renderThreadCount: Int
+    get() = renderingExecutorServices.size
+
+  fun interrupt() = renderingExecutorServices.forEach { it.interrupt() }
 
   fun shutdown() {
     scheduledExecutorService.shutdownNow()
-    renderingExecutorService.shutdownNow()
+    renderingExecutorServices.forEach { it.shutdownNow() }
   }
 
-  fun currentStackTrace() = renderingExecutorService.stackTrace()
+  /** Returns the current stack trace of the first render thread. */
+  fun currentStackTrace() = renderingExecutorServices[0].stackTrace()
+
+  private fun createRenderTimeoutException(message: String, threadIndex: Int = 0): TimeoutException =
+    TimeoutException(message).apply {
+      stackTrace = renderingExecutorServices[threadIndex].stackTrace()
+    }
 
-  private fun createRenderTimeoutException(message: String): TimeoutException =
-    TimeoutException(message).apply { stackTrace = renderingExecutorService.stackTrace() }
+  /**
+   * Returns the index of the render thread for the given [affinityKey]. Keys are assigned to the
+   * threads in a round-robin fashion the first time they are seen.
+   */
+  private fun threadIndexFor(affinityKey: Any?): Int {
+    if (renderingExecutorServices.size == 1) return 0
+    if (affinityKey == null) {
+      // Actions without a key might access a session that lives on another render thread.
+      if (keylessActionReported.compareAndSet(false, true)) {
+        Logger.getInstance(RenderExecutor::class.java)
+          .warn("Render action without affinity key, it will run on the first render thread", Throwable())
+      }
+      return 0
+    }
+    return affinityLock.withLock {
+      threadIndexByAffinityKey.getOrPut(affinityKey) {
+        nextThreadIndex.also { nextThreadIndex = (it + 1) % renderingExecutorServices.size }
+      }
+    }
+  }
 
   /** Calls the given action in the render thread synchronously. */
   @Deprecated("Use the async version runAsyncAction")
@@ -118,13 +170,34 @@ private constructor(
     actionTimeoutUnit: TimeUnit,
     renderingTopic: RenderingTopic,
     callable: Callable<T>
+  ): CompletableFuture<T> =
+    runAsyncActionWithTimeout(
+      queueingTimeout,
+      queueingTimeoutUnit,
+      actionTimeout,
+      actionTimeoutUnit,
+      renderingTopic,
+      null,
+      callable
+    )
+
+  override fun <T : Any?> runAsyncActionWithTimeout(
+    queueingTimeout: Long,
+    queueingTimeoutUnit: TimeUnit,
+    actionTimeout: Long,
+    actionTimeoutUnit: TimeUnit,
+    renderingTopic: RenderingTopic,
+    affinityKey: Any?,
+    callable: Callable<T>
   ): CompletableFuture<T> {
+    val threadIndex = threadIndexFor(affinityKey)
+    val renderingExecutorService = renderingExecutorServices[threadIndex]
     val future =
       object : PriorityCompletableFuture<T>(renderingTopic) {
         override fun cancel(mayInterruptIfRunning: Boolean): Boolean =
           super.cancel(mayInterruptIfRunning).also {
             if (mayInterruptIfRunning && it) {
-              interrupt()
+              renderingExecutorService.interrupt()
             }
           }
       }
@@ -138,7 +211,7 @@ private constructor(
         This typically happens when there is an infinite loop or unbounded recursion in one of the custom views.
       """
               .trimIndent()
-          future.completeExceptionally(createRenderTimeoutException(message))
+          future.completeExceptionally(createRenderTimeoutException(message, threadIndex))
           accumulatedTimeoutExceptions.incrementAndGet()
         }
       } else {
@@ -169,7 +242,7 @@ private constructor(
       }
     renderingExecutorService.execute(
       PriorityRunnable(renderingTopic) {
-        runningRenderLock.withLock { runningRender = future }
+        runningRenderLock.withLock { runningRenders[threadIndex] = future }
         try {
           executedRenderActions.increment()
           // Clear the interrupted state
@@ -186,11 +259,12 @@ private constructor(
           val actionTimeoutFuture =
             scheduleTimeoutAction(actionTimeout, actionTimeoutUnit) {
               if (!future.isDone) {
-                interrupt()
+                renderingExecutorService.interrupt()
               }
               future.completeExceptionally(
                 createRenderTimeoutException(
-                  "The render action was too slow to execute (${actionTimeoutUnit.toMillis(actionTimeout)}ms)"
+                  "The render action was too slow to execute (${actionTimeoutUnit.toMillis(actionTimeout)}ms)",
+                  threadIndex
                 )
               )
             }
@@ -204,7 +278,7 @@ private constructor(
             future.completeExceptionally(t)
           }
         } finally {
-          runningRenderLock.withLock { runningRender = null }
+          runningRenderLock.withLock { runningRenders[threadIndex] = null }
         }
       }
     )
@@ -236,9 +310,9 @@ private constructor(
       }
     }
     runningRenderLock.withLock {
-      runningRender?.let {
-        if (it.renderingTopic in topicsToCancel) {
-          it.cancel(mayInterruptIfRunning)
+      for (runningRender in runningRenders) {
+        if (runningRender != null && runningRender.renderingTopic in topicsToCancel) {
+          runningRender.cancel(mayInterruptIfRunning)
           numberOfCancelledActions++
         }
       }
@@ -252,7 +326,7 @@ private constructor(
 
     if (timeoutSeconds > 0) {
       try {
-        renderingExecutorService.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)
+        renderingExecutorServices.forEach { it.awaitTermination(timeoutSeconds, TimeUnit.SECONDS) }
       } catch (ignored: InterruptedException) {
         Logger.getInstance(RenderExecutor::class.java)
           .warn("The RenderExecutor does not shutdown after $timeoutSeconds seconds")
@@ -268,27 +342,36 @@ private constructor(
   val numPendingActions: Int
     get() = allPendingActionsQueue.size
 
-  /** Returns true if the render thread is busy running some code, false otherwise. */
-  fun isBusy() = renderingExecutorService.isBusy
+  /** Returns true if any render thread is busy running some code, false otherwise. */
+  fun isBusy() = renderingExecutorServices.any { it.isBusy }
 
-  /** Returns true if called from the render thread. */
-  fun isRenderThread(): Boolean = renderingExecutorService.hasSpawnedCurrentThread()
+  /** Returns true if called from one of the render threads. */
+  fun isRenderThread(): Boolean = renderingExecutorServices.any { it.hasSpawnedCurrentThread() }
 
   companion object {
     @JvmStatic
-    fun create(): RenderExecutor {
+    fun create(): RenderExecutor = create(DEFAULT_RENDER_THREAD_COUNT)
+
+    /** Creates a [RenderExecutor] with [threadCount] render threads. */
+    @JvmStatic
+    fun create(threadCount: Int): RenderExecutor {
       val scheduledExecutorService =
         ScheduledThreadPoolExecutor(1).also { it.removeOnCancelPolicy = true }
+      val threadProfileSettings =
+        ThreadProfileSettings(
+          scheduledExecutorService = scheduledExecutorService,
+          onSlowThread = { Logger.getInstance(RenderExecutor::class.java).warn(it) }
+        )
+      val count = threadCount.coerceAtLeast(1)
       return RenderExecutor(
         DEFAULT_MAX_QUEUED_TASKS,
-        renderingExecutorService =
-          SingleThreadExecutorService.create(
-            "Layoutlib Render Thread",
-            ThreadProfileSettings(
-              scheduledExecutorService = scheduledExecutorService,
-              onSlowThread = { Logger.getInstance(RenderExecutor::class.java).warn(it) }
-            ),
-          ),
+        renderingExecutorServices =
+          List(count) {
+            SingleThreadExecutorService.create(
+              if (count == 1) "Layoutlib Render Thread" else "Layoutlib Render Thread #$it",
+              threadProfileSettings,
+            )
+          },
         scheduledExecutorService = scheduledExecutorService,
       )
     }
@@ -297,7 +380,13 @@ private constructor(
     fun createForTests(
       executorService: SingleThreadExecutorService,
       scheduledExecutorService: ScheduledExecutorService
-    ) = RenderExecutor(DEFAULT_MAX_QUEUED_TASKS, executorService, scheduledExecutorService)
+    ) = RenderExecutor(DEFAULT_MAX_QUEUED_TASKS, listOf(executorService), scheduledExecutorService)
+
+    @TestOnly
+    fun createForTests(
+      executorServices: List<SingleThreadExecutorService>,
+      scheduledExecutorService: ScheduledExecutorService
+    ) = RenderExecutor(DEFAULT_MAX_QUEUED_TASKS, executorServices, scheduledExecutorService)
   }
 
   /**
@@ -104,7 +104,8 @@ fun RenderSession.dispose(classLoader: ModuleClassLoader): CompletableFuture<Voi
   disposeMethod.ifPresent { m: Method -> m.isAccessible = true }
   val finalDisposeMethod = disposeMethod
   return RenderService.getRenderAsyncActionExecutor().runAsyncAction(
-    RenderAsyncActionExecutor.RenderingTopic.CLEAN
+    RenderAsyncActionExecutor.RenderingTopic.CLEAN,
+    classLoader
   ) {
     finalDisposeMethod.ifPresent { m: Method? ->
       this@dispose.execute(
@@ -235,7 +236,8 @@ fun clearGapWorkerCache(classLoader: ModuleClassLoader) {
 
     // Because we are clearing-up a ThreadLocal, the code must run on the Layoutlib Thread
     RenderService.getRenderAsyncActionExecutor().runAsyncAction(
-      RenderAsyncActionExecutor.RenderingTopic.CLEAN
+      RenderAsyncActionExecutor.RenderingTopic.CLEAN,
+      classLoader
     ) {
       try {
         val gapWorkerFieldValue = gapWorkerField[null] as ThreadLocal<*>
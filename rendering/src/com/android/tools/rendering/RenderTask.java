@@ -839,10 +839,13 @@ public class RenderTask {
     }
 
     synchronized (myRunningFutures) {
+      // Run all the actions of this task on the same render thread as the other tasks of the same module.
+      Object affinityKey = getRenderAffinityKey();
       CompletableFuture<V> newFuture = timeout < 1 ?
-                                       RenderService.getRenderAsyncActionExecutor().runAsyncAction(myTopic, callable) :
-                                       RenderService.getRenderAsyncActionExecutor().runAsyncActionWithTimeout(timeout, unit, myTopic,
-                                                                                                              callable);
+                                       RenderService.getRenderAsyncActionExecutor().runAsyncAction(myTopic, affinityKey, callable) :
+                                       RenderService.getRenderAsyncActionExecutor().runAsyncActionWithTimeout(
+                                         RenderAsyncActionExecutor.DEFAULT_RENDER_THREAD_QUEUE_TIMEOUT_MS, TimeUnit.MILLISECONDS,
+                                         timeout, unit, myTopic, affinityKey, callable);
       myRunningFutures.add(newFuture);
       newFuture
         .whenCompleteAsync((result, ex) -> {
@@ -1264,7 +1267,8 @@ public class RenderTask {
                                                                   myLogger,
                                                                   myContext.getModule().getResourceRepositoryManager());
     Map<RenderXmlTag, ViewInfo> map = new HashMap<>();
-    return RenderService.getRenderAsyncActionExecutor().runAsyncAction(myTopic, () -> measure(modelParser))
+    return RenderService.getRenderAsyncActionExecutor()
+      .runAsyncAction(myTopic, getRenderAffinityKey(), () -> measure(modelParser))
       .thenComposeAsync(session -> {
         if (session != null) {
           try {
@@ -1385,6 +1389,15 @@ public class RenderTask {
     return myContext;
   }
 
+  /**
+   * Returns the affinity key used to run the render actions of this task, see {@link RenderAsyncActionExecutor}. Actions that access the
+   * views or the session of this task from outside of it must use the same key so they run on the same render thread.
+   */
+  @NotNull
+  public Object getRenderAffinityKey() {
+    return myModuleClassLoaderReference.getClassLoader();
+  }
+
   /**
    * The {@link AttributeFilter} allows a client of {@link #measureChildren} to modify the actual
    * XML values of the nodes being rendered, for example to force width and height values to
@@ -114,6 +114,16 @@ public interface ImagePool {
      * Returns the number of times we had an image that was returned to this bucket.
      */
     long imageWasReturned();
+
+    /**
+     * Returns the number of images dropped from this bucket to keep the pool within its byte budget.
+     */
+    long bucketEvictions();
+
+    /**
+     * Returns the estimated size in bytes of the free images currently held by this bucket.
+     */
+    long bytesPooled();
   }
 
   interface Stats {
@@ -121,6 +131,11 @@ public interface ImagePool {
 
     long totalBytesInUse();
 
+    /**
+     * Returns the estimated size in bytes of the free images held by the pool, waiting to be reused.
+     */
+    long totalBytesPooled();
+
     BucketStats[] getBucketStats();
   }
 
@@ -48,6 +48,16 @@ public class ImagePoolFactory {
     }
   };
 
+  /**
+   * Maximum estimated size of the free images kept by the default pool. Defaults to an eighth of the maximum heap size.
+   */
+  private static final long MAX_POOLED_BYTES = Long.getLong("layoutlib.image.pool.max.bytes", Runtime.getRuntime().maxMemory() / 8);
+
+  /**
+   * Images of the default pool with at least this number of pixels are backed by direct memory. Disabled by default.
+   */
+  private static final long OFF_HEAP_MIN_PIXELS = Long.getLong("layoutlib.image.pool.offheap.min.pixels", Long.MAX_VALUE);
+
   private ImagePoolFactory() {
   }
 
@@ -56,14 +66,32 @@ public class ImagePoolFactory {
    */
   @NotNull
   public static ImagePool createImagePool() {
-    return new ImagePoolImpl(new int[]{50, 500, 1000, 1500, 2000, 5000}, (w, h) -> (type) -> {
+    return new ImagePoolImpl(getSizeClasses(64, 8192), (w, h) -> (type) -> {
       // Images below 1k, do not pool
       if (w * h < 1000) {
         return 0;
       }
 
       return 50_000_000 / (w * h);
-    });
+    }, MAX_POOLED_BYTES, OFF_HEAP_MIN_PIXELS);
+  }
+
+  /**
+   * Returns bucket sizes from min to max with four sizes per power of two, so that an image dimension is rounded up by at most 25%.
+   * Both min and max must be powers of two.
+   */
+  @NotNull
+  static int[] getSizeClasses(int min, int max) {
+    int[] sizes = new int[1 + 4 * (Integer.numberOfTrailingZeros(max) - Integer.numberOfTrailingZeros(min))];
+    sizes[0] = min;
+    int index = 1;
+    for (int size = min; size < max; size *= 2) {
+      int step = size / 4;
+      for (int i = 1; i <= 4; i++) {
+        sizes[index++] = size + i * step;
+      }
+    }
+    return sizes;
   }
 
   /**
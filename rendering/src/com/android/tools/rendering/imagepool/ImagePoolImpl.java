@@ -30,17 +30,25 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.GraphicsConfiguration;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.lang.ref.Reference;
 import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.IdentityHashMap;
-import java.util.NoSuchElementException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -55,6 +63,10 @@ import org.jetbrains.annotations.Nullable;
  * Class that offers a pool of {@link BufferedImage}s. The returned {@link Image} do not offer a direct access
  * to the underlying {@link BufferedImage} to avoid clients holding references to it.
  * Once the {@link Image} is not being referenced anymore, it will be automatically returned to the pool.
+ * <p>
+ * Images are allocated with the dimensions of their bucket, so a bucket serves every size up to them. The free images of all the
+ * buckets share a byte budget: when returning an image makes the pool go over it, the least recently returned free images are dropped,
+ * whatever their bucket. Large images can optionally be backed by direct memory instead of the Java heap.
  */
 @SuppressWarnings("ALL")
 class ImagePoolImpl implements ImagePool {
@@ -62,9 +74,18 @@ class ImagePoolImpl implements ImagePool {
 
   private static final Bucket NULL_BUCKET = new Bucket();
   private final int[] myBucketSizes;
-  private final HashMap<String, Bucket> myPool = new HashMap<>();
-  private final IdentityHashMap<Bucket, BucketStatsImpl> myBucketStats = new IdentityHashMap<>();
+  private final Map<Long, Bucket> myPool = new ConcurrentHashMap<>();
+  private final Map<Bucket, BucketStatsImpl> myBucketStats = new ConcurrentHashMap<>();
   private final BiFunction<Integer, Integer, Function<Integer, Integer>> myBucketSizingPolicy;
+  private final long myMaxPooledBytes;
+  private final long myOffHeapMinPixels;
+
+  /**
+   * Free images of all the buckets, from the least to the most recently returned. Also used as the lock for the bucket queues and the
+   * pooled bytes counters, so that an image is never handed out and evicted at the same time.
+   */
+  private final LinkedHashSet<Bucket.Element> myFreeElements = new LinkedHashSet<>();
+  private long myTotalPooledBytes;
   @SuppressWarnings("IOResourceOpenedButNotSafelyClosed")
   private final FinalizableReferenceQueue myFinalizableReferenceQueue = new FinalizableReferenceQueue();
 
@@ -86,6 +107,13 @@ class ImagePoolImpl implements ImagePool {
       return myTotalInUseBytes.sum();
     }
 
+    @Override
+    public long totalBytesPooled() {
+      synchronized (myFreeElements) {
+        return myTotalPooledBytes;
+      }
+    }
+
     @Override
     public BucketStats[] getBucketStats() {
       return myBucketStats.values().stream()
@@ -106,28 +134,48 @@ class ImagePoolImpl implements ImagePool {
    *                           type. If the returned size is 0, no pooling will be done for that bucket size.
    */
   ImagePoolImpl(@NotNull int[] bucketSizes, @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy) {
+    this(bucketSizes, bucketSizingPolicy, Long.MAX_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * Like {@link #ImagePoolImpl(int[], BiFunction)}, with a global budget for the free images and optional off-heap images.
+   *
+   * @param maxPooledBytes    Maximum estimated size of the free images kept by the pool across all buckets. When returning an image goes
+   *                          over it, the least recently returned free images are dropped.
+   * @param offHeapMinPixels  Images with at least this number of pixels are backed by direct memory instead of a Java array, for the image
+   *                          types that support it. Drawing into and from those images is slower, so this is meant for large images only.
+   */
+  ImagePoolImpl(@NotNull int[] bucketSizes,
+                @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy,
+                long maxPooledBytes,
+                long offHeapMinPixels) {
     if (LOG.isDebugEnabled()) {
-      LOG.debug("New ImagePool " + Arrays.toString(bucketSizes));
+      LOG.debug("New ImagePool " + Arrays.toString(bucketSizes) + " maxPooledBytes=" + maxPooledBytes);
     }
     myBucketSizes = bucketSizes;
     Arrays.sort(myBucketSizes);
     myBucketSizingPolicy = bucketSizingPolicy;
+    myMaxPooledBytes = maxPooledBytes;
+    myOffHeapMinPixels = offHeapMinPixels;
   }
 
   private boolean isDisposed = false;
 
   /**
-   * Returns the key to be used for indexing the {@link EvictingQueue}.
+   * Returns the key to be used for indexing the {@link Bucket}s.
    */
-  @NotNull
-  private static String getPoolKey(int w, int h, int type) {
-    return new StringBuilder()
-      .append(w)
-      .append('x')
-      .append(h)
-      .append('-')
-      .append(type)
-      .toString();
+  private static long getPoolKey(int w, int h, int type) {
+    return ((long)w << 40) | ((long)h << 16) | (type & 0xFFFF);
+  }
+
+  /**
+   * Returns the smallest bucket size strictly bigger than the given dimension, or -1 if there is none.
+   */
+  private int getBucketSize(int dimension) {
+    int index = Arrays.binarySearch(myBucketSizes, dimension);
+    // Skip to the first size bigger than the dimension, whether it was found or not.
+    index = index >= 0 ? index + 1 : -index - 1;
+    return index < myBucketSizes.length ? myBucketSizes[index] : -1;
   }
 
   /**
@@ -143,31 +191,14 @@ class ImagePoolImpl implements ImagePool {
     }
 
     // Find the bucket sizes for both dimensions
-    int widthBucket = -1;
-    int heightBucket = -1;
-
-    for (int bucketMinSize : myBucketSizes) {
-      if (widthBucket == -1 && w < bucketMinSize) {
-        widthBucket = bucketMinSize;
-
-        if (heightBucket != -1) {
-          break;
-        }
-      }
-      if (heightBucket == -1 && h < bucketMinSize) {
-        heightBucket = bucketMinSize;
-
-        if (widthBucket != -1) {
-          break;
-        }
-      }
-    }
+    int widthBucket = getBucketSize(w);
+    int heightBucket = getBucketSize(h);
 
     if (widthBucket == -1 || heightBucket == -1) {
       return NULL_BUCKET;
     }
 
-    String poolKey = getPoolKey(widthBucket, heightBucket, type);
+    long poolKey = getPoolKey(widthBucket, heightBucket, type);
 
     int finalWidthBucket = widthBucket;
     int finalHeightBucket = heightBucket;
@@ -199,39 +230,32 @@ class ImagePoolImpl implements ImagePool {
                               bucketStats != null));
     }
 
-    BufferedImage image;
+    BufferedImage image = null;
     Bucket.Element element;
-    try {
-      element = bucket.remove();
-      while ((image = element.get()) == null) {
+    while (image == null && (element = takeElement(bucket)) != null) {
+      image = element.get();
+      if (image == null) {
+        // The image was collected while in the pool
         myTotalAllocatedBytes.add(-element.getImageEstimatedSize());
-        element = bucket.remove();
+        continue;
       }
 
-      long totalSize = image.getWidth() * image.getHeight();
+      long totalSize = (long)image.getWidth() * image.getHeight();
       if (bucketStats != null) {
         bucketStats.bucketHit();
       }
       if (LOG.isDebugEnabled()) {
-        double wasted = (totalSize - w * h);
+        double wasted = (totalSize - (long)w * h);
         LOG.debug(String.format("  Re-used image %dx%d - %d\n  pool buffer %dx%d\n  wasted %d%%\n",
                                 w, h, type,
                                 image.getWidth(), image.getHeight(),
                                 (int)((wasted / totalSize) * 100)));
       }
       myTotalInUseBytes.add(element.getImageEstimatedSize());
-      // Clear the image
-      if (image.getRaster().getDataBuffer().getDataType() == java.awt.image.DataBuffer.TYPE_INT) {
-        Arrays.fill(((DataBufferInt)image.getRaster().getDataBuffer()).getData(), 0);
-      }
-      else {
-        Graphics2D g = image.createGraphics();
-        g.setComposite(AlphaComposite.Clear);
-        g.fillRect(0, 0, w, h);
-        g.dispose();
-      }
+      clear(image, w, h);
     }
-    catch (NoSuchElementException e) {
+
+    if (image == null) {
       if (LOG.isDebugEnabled()) {
         LOG.debug(String.format("  New image %dx%d - %d\n", w, h, type));
       }
@@ -240,18 +264,22 @@ class ImagePoolImpl implements ImagePool {
       }
       int newImageWidth = Math.max(bucket.myMinWidth, w);
       int newImageHeight = Math.max(bucket.myMinHeight, h);
-      //noinspection UndesirableClassUsage
-      image = new BufferedImage(newImageWidth, newImageHeight, type);
-      // Set acceleration priority to 0.9 out of 1.0. We reserve 1.0 for the shared buffers
-      // that we paint to screen.
-      image.setAccelerationPriority(0.9f);
-      long estimatedSize = newImageWidth * newImageHeight * 4;
+      if ((long)newImageWidth * newImageHeight >= myOffHeapMinPixels) {
+        image = createOffHeapImage(newImageWidth, newImageHeight, type);
+      }
+      if (image == null) {
+        //noinspection UndesirableClassUsage
+        image = new BufferedImage(newImageWidth, newImageHeight, type);
+        // Set acceleration priority to 0.9 out of 1.0. We reserve 1.0 for the shared buffers
+        // that we paint to screen.
+        image.setAccelerationPriority(0.9f);
+      }
+      long estimatedSize = (long)newImageWidth * newImageHeight * 4;
       myTotalAllocatedBytes.add(estimatedSize);
       myTotalInUseBytes.add(estimatedSize);
-
     }
 
-    ImageImpl pooledImage = new ImageImpl(w, h, image);
+    ImageImpl pooledImage = new ImageImpl(w, h, type, image);
     final BufferedImage imagePointer = image;
     FinalizablePhantomReference<ImagePool.Image> reference =
       new FinalizablePhantomReference<ImagePool.Image>(pooledImage, myFinalizableReferenceQueue) {
@@ -259,8 +287,8 @@ class ImagePoolImpl implements ImagePool {
       public void finalizeReferent() {
         // This method might be called twice if the user has manually called the free() method. The second call will have no effect.
         if (myReferences.remove(this)) {
-          Bucket.Element element = new Bucket.Element(imagePointer);
-          boolean accepted = bucket.offer(element);
+          Bucket.Element element = new Bucket.Element(bucket, imagePointer);
+          boolean accepted = returnElement(bucket, element);
           if (bucketStats != null) {
             if (accepted) {
               bucketStats.returnedImageAccepted();
@@ -291,6 +319,158 @@ class ImagePoolImpl implements ImagePool {
     return pooledImage;
   }
 
+  /**
+   * Takes the next free image out of the given bucket, or returns null if the bucket is empty.
+   */
+  @Nullable
+  private Bucket.Element takeElement(@NotNull Bucket bucket) {
+    synchronized (myFreeElements) {
+      Bucket.Element element = bucket.poll();
+      if (element != null) {
+        myFreeElements.remove(element);
+        bucket.myPooledBytes -= element.getImageEstimatedSize();
+        myTotalPooledBytes -= element.getImageEstimatedSize();
+      }
+      return element;
+    }
+  }
+
+  /**
+   * Returns a free image to the given bucket, evicting the least recently returned images of any bucket if the pool goes over its
+   * budget.
+   *
+   * @return false if the bucket was full and the image was not accepted.
+   */
+  private boolean returnElement(@NotNull Bucket bucket, @NotNull Bucket.Element element) {
+    if (bucket == NULL_BUCKET) {
+      return false;
+    }
+    synchronized (myFreeElements) {
+      if (!bucket.offer(element)) {
+        return false;
+      }
+      myFreeElements.add(element);
+      bucket.myPooledBytes += element.getImageEstimatedSize();
+      myTotalPooledBytes += element.getImageEstimatedSize();
+
+      Iterator<Bucket.Element> iterator = myFreeElements.iterator();
+      while (myTotalPooledBytes > myMaxPooledBytes && iterator.hasNext()) {
+        Bucket.Element oldest = iterator.next();
+        iterator.remove();
+        oldest.myBucket.remove(oldest);
+        oldest.myBucket.myPooledBytes -= oldest.getImageEstimatedSize();
+        myTotalPooledBytes -= oldest.getImageEstimatedSize();
+        myTotalAllocatedBytes.add(-oldest.getImageEstimatedSize());
+        BucketStatsImpl stats = myBucketStats.get(oldest.myBucket);
+        if (stats != null) {
+          stats.imageEvicted();
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Clears the area of a reused image that the new {@link ImageImpl} covers. The rest of the image is never read.
+   */
+  private static void clear(@NotNull BufferedImage image, int w, int h) {
+    DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+    // Pooled images are never sub-images, so their rows are as long as they are wide.
+    int stride = image.getWidth();
+    if (dataBuffer instanceof DataBufferInt) {
+      int[] data = ((DataBufferInt)dataBuffer).getData();
+      if (w == stride) {
+        Arrays.fill(data, 0, w * h, 0);
+      }
+      else {
+        for (int y = 0; y < h; y++) {
+          Arrays.fill(data, y * stride, y * stride + w, 0);
+        }
+      }
+    }
+    else if (dataBuffer instanceof DirectIntDataBuffer) {
+      ((DirectIntDataBuffer)dataBuffer).clear(w, h, stride);
+    }
+    else {
+      Graphics2D g = image.createGraphics();
+      g.setComposite(AlphaComposite.Clear);
+      g.fillRect(0, 0, w, h);
+      g.dispose();
+    }
+  }
+
+  /**
+   * Returns an image of the given type backed by direct memory, or null if the type is not supported.
+   */
+  @Nullable
+  private static BufferedImage createOffHeapImage(int w, int h, int type) {
+    if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_ARGB_PRE && type != BufferedImage.TYPE_INT_RGB) {
+      return null;
+    }
+    //noinspection UndesirableClassUsage
+    ColorModel colorModel = new BufferedImage(1, 1, type).getColorModel();
+    WritableRaster raster =
+      Raster.createPackedRaster(new DirectIntDataBuffer(w * h), w, h, w, ((DirectColorModel)colorModel).getMasks(), null);
+    return new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+  }
+
+  /**
+   * A single bank {@link DataBuffer} of ints stored in direct memory, so that large images do not take space in the Java heap.
+   */
+  private static final class DirectIntDataBuffer extends DataBuffer {
+    private final IntBuffer myData;
+
+    DirectIntDataBuffer(int size) {
+      super(TYPE_INT, size);
+      myData = ByteBuffer.allocateDirect(size * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    @Override
+    public int getElem(int bank, int i) {
+      return myData.get(i);
+    }
+
+    @Override
+    public void setElem(int bank, int i, int val) {
+      myData.put(i, val);
+    }
+
+    void clear(int w, int h, int stride) {
+      int[] zeros = new int[w];
+      IntBuffer data = myData.duplicate();
+      for (int y = 0; y < h; y++) {
+        data.position(y * stride);
+        data.put(zeros);
+      }
+    }
+
+    /**
+     * Copies the rows of the given raster into this buffer. The raster must use the same int pixel layout.
+     */
+    void copyFrom(@NotNull Raster raster, int w, int h, int stride) {
+      int[] row = new int[w];
+      IntBuffer data = myData.duplicate();
+      for (int y = 0; y < h; y++) {
+        raster.getDataElements(raster.getMinX(), raster.getMinY() + y, w, 1, row);
+        data.position(y * stride);
+        data.put(row);
+      }
+    }
+
+    /**
+     * Copies the top left area of this buffer into the given raster, which must use the same int pixel layout.
+     */
+    void copyTo(@NotNull WritableRaster raster, int x, int y, int w, int h, int stride) {
+      int[] row = new int[w];
+      IntBuffer data = myData.duplicate();
+      for (int dy = 0; dy < h; dy++) {
+        data.position((y + dy) * stride + x);
+        data.get(row);
+        raster.setDataElements(0, dy, w, 1, row);
+      }
+    }
+  }
+
   private static final class BucketStatsImpl implements BucketStats {
     private final Bucket myBucket;
     private final AtomicLong myLastAccessMs = new AtomicLong(System.currentTimeMillis());
@@ -298,6 +478,7 @@ class ImagePoolImpl implements ImagePool {
     private final AtomicLong myBucketHit = new AtomicLong(0);
     private final AtomicLong myBucketFull = new AtomicLong(0);
     private final AtomicLong myBucketHadSpace = new AtomicLong(0);
+    private final AtomicLong myBucketEvictions = new AtomicLong(0);
 
     BucketStatsImpl(@NotNull Bucket bucket) {
       myBucket = bucket;
@@ -343,6 +524,16 @@ class ImagePoolImpl implements ImagePool {
       return myBucketHadSpace.get();
     }
 
+    @Override
+    public long bucketEvictions() {
+      return myBucketEvictions.get();
+    }
+
+    @Override
+    public long bytesPooled() {
+      return myBucket.myPooledBytes;
+    }
+
     void bucketHit() {
       myLastAccessMs.set(System.currentTimeMillis());
       myBucketHit.incrementAndGet();
@@ -360,6 +551,10 @@ class ImagePoolImpl implements ImagePool {
     void returnedImageRejected() {
       myBucketFull.incrementAndGet();
     }
+
+    void imageEvicted() {
+      myBucketEvictions.incrementAndGet();
+    }
   }
 
   private static class Bucket extends ForwardingQueue<Bucket.Element> {
@@ -367,11 +562,13 @@ class ImagePoolImpl implements ImagePool {
      * A wrapper for a soft-referenced {@link BufferedImage}.
      */
     private static class Element {
+      private final Bucket myBucket;
       private final long myImageEstimatedSize;
       private final SoftReference<BufferedImage> myReference;
 
-      private Element(@NotNull BufferedImage image) {
-        myImageEstimatedSize = image.getWidth() * image.getHeight() * 4;
+      private Element(@NotNull Bucket bucket, @NotNull BufferedImage image) {
+        myBucket = bucket;
+        myImageEstimatedSize = (long)image.getWidth() * image.getHeight() * 4;
         myReference = new SoftReference<>(image);
       }
 
@@ -393,6 +590,10 @@ class ImagePoolImpl implements ImagePool {
     private final int myMinWidth;
     private final int myMinHeight;
     private final int myMaxSize;
+    /**
+     * Estimated size of the free images in this bucket, guarded by the pool free elements lock.
+     */
+    private volatile long myPooledBytes;
 
     Bucket(int minWidth, int minHeight, int maxSize) {
       Preconditions.checkArgument(maxSize > 0);
@@ -460,6 +661,10 @@ class ImagePoolImpl implements ImagePool {
     myFinalizableReferenceQueue.close();
     myReferences.clear();
     myPool.clear();
+    synchronized (myFreeElements) {
+      myFreeElements.clear();
+      myTotalPooledBytes = 0;
+    }
   }
 
   static class ImageImpl implements ImagePool.Image, DisposableImage {
@@ -479,12 +684,17 @@ class ImagePoolImpl implements ImagePool {
 
     final int myWidth;
     final int myHeight;
+    /**
+     * The requested image type. Images backed by direct memory report {@link BufferedImage#TYPE_CUSTOM} as their own type.
+     */
+    final int myType;
 
-    private ImageImpl(int w, int h, @NotNull BufferedImage image) {
+    private ImageImpl(int w, int h, int type, @NotNull BufferedImage image) {
       assert w <= image.getWidth() && h <= image.getHeight();
 
       myWidth = w;
       myHeight = h;
+      myType = type;
       myBuffer = image;
     }
 
@@ -522,6 +732,8 @@ class ImagePoolImpl implements ImagePool {
       myLock.readLock().lock();
       try {
         Graphics2D g = myBuffer.createGraphics();
+        // The pooled buffer can be bigger than this image and is only cleared within its bounds.
+        g.clipRect(0, 0, myWidth, myHeight);
         try {
           command.accept(g);
         }
@@ -559,7 +771,12 @@ class ImagePoolImpl implements ImagePool {
           newImage = gc.createCompatibleImage(w, h);
         }
         else {
-          newImage = new BufferedImage(w, h, myBuffer.getType());
+          newImage = new BufferedImage(w, h, myType);
+          DataBuffer dataBuffer = myBuffer.getRaster().getDataBuffer();
+          if (dataBuffer instanceof DirectIntDataBuffer) {
+            ((DirectIntDataBuffer)dataBuffer).copyTo(newImage.getRaster(), x, y, w, h, myBuffer.getWidth());
+            return newImage;
+          }
         }
 
         Graphics2D g = newImage.createGraphics();
@@ -589,6 +806,13 @@ class ImagePoolImpl implements ImagePool {
       }
 
       try {
+        DataBuffer dataBuffer = myBuffer.getRaster().getDataBuffer();
+        if (dataBuffer instanceof DirectIntDataBuffer) {
+          //noinspection UndesirableClassUsage
+          BufferedImage newImage = new BufferedImage(myWidth, myHeight, myType);
+          ((DirectIntDataBuffer)dataBuffer).copyTo(newImage.getRaster(), 0, 0, myWidth, myHeight, myBuffer.getWidth());
+          return newImage;
+        }
         WritableRaster raster = myBuffer.copyData(myBuffer.getRaster().createCompatibleWritableRaster(0, 0, myWidth, myHeight));
         //noinspection UndesirableClassUsage
         return new BufferedImage(myBuffer.getColorModel(), raster, myBuffer.isAlphaPremultiplied(), null);
@@ -633,6 +857,13 @@ class ImagePoolImpl implements ImagePool {
       assertIfDisposed();
       myLock.readLock().lock();
       try {
+        DataBuffer dataBuffer = myBuffer.getRaster().getDataBuffer();
+        if (dataBuffer instanceof DirectIntDataBuffer && origin.getType() == myType) {
+          // Same pixel layout, copy the rows directly rather than going through the slow generic drawing loops.
+          ((DirectIntDataBuffer)dataBuffer).copyFrom(origin.getRaster(), Math.min(origin.getWidth(), myBuffer.getWidth()),
+                                                     Math.min(origin.getHeight(), myBuffer.getHeight()), myBuffer.getWidth());
+          return;
+        }
         Graphics g = myBuffer.getGraphics();
         try {
           g.drawImage(origin, 0, 0, null);
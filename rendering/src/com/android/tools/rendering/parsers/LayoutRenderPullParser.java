@@ -302,7 +302,7 @@ public class LayoutRenderPullParser extends LayoutPullParser implements AaptAttr
                                    @Nullable NavGraphResolver navGraphResolver,
                                    @Nullable ResourceRepositoryManager resourceRepositoryManager,
                                    int sampleDataCounter) {
-    this(file.getRootTag(), logger, honorMergeParentTag, navGraphResolver, resourceRepositoryManager, sampleDataCounter, true);
+    this(file, file.getRootTag(), logger, honorMergeParentTag, navGraphResolver, resourceRepositoryManager, sampleDataCounter, true);
   }
 
   /**
@@ -321,7 +321,8 @@ public class LayoutRenderPullParser extends LayoutPullParser implements AaptAttr
                                    @Nullable NavGraphResolver navGraphResolver,
                                    @Nullable ResourceRepositoryManager resourceRepositoryManager,
                                    boolean useToolsPositionAndVisibility) {
-    this(file.getRootTag(), logger, honorMergeParentTag, navGraphResolver, resourceRepositoryManager, 0, useToolsPositionAndVisibility);
+    this(file, file.getRootTag(), logger, honorMergeParentTag, navGraphResolver, resourceRepositoryManager, 0,
+         useToolsPositionAndVisibility);
   }
 
   /**
@@ -379,16 +380,49 @@ public class LayoutRenderPullParser extends LayoutPullParser implements AaptAttr
                                    @Nullable ResourceRepositoryManager repositoryManager,
                                    int sampleDataCounter,
                                    boolean useToolsPositionAndVisibility) {
+    this(null, root, logger, honorMergeParentTag, navGraphResolver, repositoryManager, sampleDataCounter, useToolsPositionAndVisibility);
+  }
+
+  /**
+   * @param file the file containing {@code root}, if any. When given, the snapshot of an unchanged file is reused from
+   *             {@link TagSnapshotCache}.
+   */
+  private LayoutRenderPullParser(@Nullable RenderXmlFile file,
+                                 @Nullable final RenderXmlTag root,
+                                 @NotNull ILayoutLog logger,
+                                 boolean honorMergeParentTag,
+                                 @Nullable NavGraphResolver navGraphResolver,
+                                 @Nullable ResourceRepositoryManager repositoryManager,
+                                 int sampleDataCounter,
+                                 boolean useToolsPositionAndVisibility) {
     myNavGraphResolver = navGraphResolver;
     myLogger = logger;
     mySampleDataCounter = sampleDataCounter;
     myUseToolsPositionAndVisibility = useToolsPositionAndVisibility;
 
     Ref<TagSnapshot> myRootRef = new Ref<>(EMPTY_LAYOUT);
+    Ref<ImmutableMap<String, TagSnapshot>> myDeclaredAaptAttrsRef = new Ref<>(ImmutableMap.of());
     Ref<ResourceNamespace> myLayoutNamespaceRef = new Ref<>(ResourceNamespace.RES_AUTO);
     ReadAction.run(() -> {
       if (root != null && root.isValid()) {
-        myRootRef.set(createSnapshot(root, honorMergeParentTag, mySampleDataProcessing));
+        long modificationStamp = file != null ? file.getModificationStamp() : -1;
+        TagSnapshotCache snapshotCache = file != null ? TagSnapshotCache.getInstance(file.getProject()) : null;
+        TagSnapshotCache.Entry cached = snapshotCache != null ? snapshotCache.get(file, modificationStamp, honorMergeParentTag) : null;
+        if (cached != null) {
+          myRootRef.set(cached.root);
+          myDeclaredAaptAttrsRef.set(cached.declaredAaptAttrs);
+        }
+        else {
+          TagSnapshot snapshot = createSnapshot(root, honorMergeParentTag, mySampleDataProcessing);
+          // Obtain a list of all the aapt declared attributes
+          ImmutableMap<String, TagSnapshot> declaredAaptAttrs = findDeclaredAaptAttrs(snapshot);
+          myRootRef.set(snapshot);
+          myDeclaredAaptAttrsRef.set(declaredAaptAttrs);
+          // Sample data references are rewritten using this parser's counter, so those snapshots can not be shared.
+          if (snapshotCache != null && snapshot != null && mySampleDataCounterMap.isEmpty()) {
+            snapshotCache.put(file, modificationStamp, honorMergeParentTag, snapshot, declaredAaptAttrs);
+          }
+        }
         if (repositoryManager != null) {
           myLayoutNamespaceRef.set(repositoryManager.getNamespace());
         }
@@ -398,8 +432,7 @@ public class LayoutRenderPullParser extends LayoutPullParser implements AaptAttr
     myRoot = myRootRef.get();
     myLayoutNamespace = myLayoutNamespaceRef.get();
     myHasToolsNamespace = hasToolsNamespace(myRoot);
-    // Obtain a list of all the aapt declared attributes
-    myDeclaredAaptAttrs = findDeclaredAaptAttrs(myRoot);
+    myDeclaredAaptAttrs = myDeclaredAaptAttrsRef.get();
   }
 
   protected LayoutRenderPullParser(@NotNull TagSnapshot root, @NotNull ResourceNamespace layoutNamespace, @NotNull ILayoutLog log) {
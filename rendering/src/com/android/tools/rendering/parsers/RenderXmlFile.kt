@@ -42,5 +42,12 @@ interface RenderXmlFile : Supplier<PsiFile> {
 
   val resourceNamespace: ResourceNamespace?
 
+  /**
+   * Stamp that changes every time the contents of this file change, or -1 if the file does not track its modifications. Parsers use it to
+   * reuse the snapshot of an unchanged file across renders.
+   */
+  val modificationStamp: Long
+    get() = -1
+
   fun getRootTagAttribute(attribute: String, namespace: String?): String?
 }
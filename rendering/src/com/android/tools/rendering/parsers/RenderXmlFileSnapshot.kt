@@ -45,6 +45,8 @@ class RenderXmlFileSnapshot(
   override val isValid: Boolean = true
   override val relativePath: String = name
   override val resourceNamespace: ResourceNamespace = ResourceNamespace.RES_AUTO
+  // The contents of a snapshot never change.
+  override val modificationStamp: Long = 0
 
   override fun getRootTagAttribute(attribute: String, namespace: String?): String? =
     (namespace?.let { rootTag.getAttribute(namespace, attribute) }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.rendering.parsers;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Key;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cache of the {@link TagSnapshot} trees built by {@link LayoutRenderPullParser}, so that rendering an unchanged file for several
+ * configurations only snapshots it once.
+ * <p/>
+ * Entries are keyed by {@link RenderXmlFile} and are only returned while the file has the same
+ * {@link RenderXmlFile#getModificationStamp()} it had when the snapshot was stored. Cached snapshots are shared by all the parsers
+ * reading the file, so they must not be modified once stored.
+ * <p/>
+ * Snapshots point back to the tags of their file, and so to its project. There is one cache per project, see {@link #getInstance},
+ * and it is cleared when the project is disposed.
+ */
+final class TagSnapshotCache {
+  /** Maximum number of files whose snapshots are kept. 0 disables the cache. */
+  private static final int MAX_SIZE = Integer.getInteger("layoutlib.parser.snapshot.cache.size", 32);
+
+  private static final Key<TagSnapshotCache> KEY = Key.create(TagSnapshotCache.class.getName());
+
+  /** Values are soft so that snapshots, and the files they point to, can be released under memory pressure. */
+  @NotNull private final Cache<RenderXmlFile, Entry> myEntries;
+  private final boolean myEnabled;
+
+  TagSnapshotCache(int maxSize) {
+    myEnabled = maxSize > 0;
+    myEntries = CacheBuilder.newBuilder().maximumSize(Math.max(maxSize, 0)).softValues().build();
+  }
+
+  /**
+   * Returns the cache of the files of the given project. A disposed project gets a cache that stores nothing.
+   */
+  @NotNull
+  static TagSnapshotCache getInstance(@NotNull Project project) {
+    TagSnapshotCache cache = project.getUserData(KEY);
+    if (cache != null) {
+      return cache;
+    }
+    synchronized (KEY) {
+      cache = project.getUserData(KEY);
+      if (cache == null) {
+        TagSnapshotCache newCache = new TagSnapshotCache(MAX_SIZE);
+        if (!Disposer.tryRegister(project, () -> {
+          project.putUserData(KEY, null);
+          newCache.clear();
+        })) {
+          return new TagSnapshotCache(0);
+        }
+        project.putUserData(KEY, newCache);
+        cache = newCache;
+      }
+      return cache;
+    }
+  }
+
+  /**
+   * Returns the snapshot stored for the given file, or null if there is none for its current contents.
+   *
+   * @param modificationStamp the current {@link RenderXmlFile#getModificationStamp()} of the file.
+   * @param honorMergeParentTag whether the snapshot is requested with {@code tools:parentTag} replacing a root {@code <merge>} tag.
+   */
+  @Nullable
+  Entry get(@NotNull RenderXmlFile file, long modificationStamp, boolean honorMergeParentTag) {
+    if (!myEnabled || modificationStamp < 0) {
+      return null;
+    }
+    Entry entry = myEntries.getIfPresent(file);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.myModificationStamp != modificationStamp) {
+      // The file changed, the snapshot will never be used again.
+      myEntries.asMap().remove(file, entry);
+      return null;
+    }
+    return entry.myHonorMergeParentTag == honorMergeParentTag ? entry : null;
+  }
+
+  /**
+   * Stores the snapshot built for the given file. Files without a modification stamp are not cached.
+   */
+  void put(@NotNull RenderXmlFile file,
+           long modificationStamp,
+           boolean honorMergeParentTag,
+           @NotNull TagSnapshot root,
+           @NotNull ImmutableMap<String, TagSnapshot> declaredAaptAttrs) {
+    if (myEnabled && modificationStamp >= 0) {
+      myEntries.put(file, new Entry(modificationStamp, honorMergeParentTag, root, declaredAaptAttrs));
+    }
+  }
+
+  /**
+   * Drops every stored snapshot.
+   */
+  void clear() {
+    myEntries.invalidateAll();
+  }
+
+  static final class Entry {
+    private final long myModificationStamp;
+    private final boolean myHonorMergeParentTag;
+    @NotNull final TagSnapshot root;
+    @NotNull final ImmutableMap<String, TagSnapshot> declaredAaptAttrs;
+
+    private Entry(long modificationStamp,
+                  boolean honorMergeParentTag,
+                  @NotNull TagSnapshot root,
+                  @NotNull ImmutableMap<String, TagSnapshot> declaredAaptAttrs) {
+      myModificationStamp = modificationStamp;
+      myHonorMergeParentTag = honorMergeParentTag;
+      this.root = root;
+      this.declaredAaptAttrs = declaredAaptAttrs;
+    }
+  }
+}
@@ -547,4 +547,80 @@ class RenderExecutorTest {
       executor.shutdown()
     }
   }
+
+  @Test
+  fun testAffinityKeysAreRoutedToTheSameThread() {
+    val actionExecutors = List(2) { OnDemandExecutorService() }
+    val executor =
+      RenderExecutor.createForTests(
+        executorServices = actionExecutors.map { TestSingleThreadExecutorService(it) },
+        scheduledExecutorService = VirtualTimeScheduler()
+      )
+    val keyA = Any()
+    val keyB = Any()
+    val executed = mutableListOf<String>()
+
+    fun run(key: Any?, name: String) =
+      executor.runAsyncActionWithTimeout(
+        1,
+        TimeUnit.SECONDS,
+        1,
+        TimeUnit.SECONDS,
+        getRandomTopic(),
+        key,
+        Callable { executed.add(name) }
+      )
+
+    run(keyA, "a1")
+    run(keyB, "b1")
+    run(keyA, "a2")
+    run(null, "default")
+    run(keyB, "b2")
+
+    assertEquals(2, executor.renderThreadCount)
+    assertEquals(3, actionExecutors[0].runAll())
+    Truth.assertThat(executed).containsExactly("a1", "a2", "default").inOrder()
+    executed.clear()
+    assertEquals(2, actionExecutors[1].runAll())
+    Truth.assertThat(executed).containsExactly("b1", "b2").inOrder()
+  }
+
+  @Test
+  fun testCancelByTopicAcrossThreads() {
+    val executor = RenderExecutor.create(2)
+    val topic = getHighPriorityRenderingTopicForTest()
+    val actionsAreRunningLatch = CountDownLatch(2)
+    val actionsCompletedLatch = CountDownLatch(2)
+    val interruptedActions = AtomicInteger(0)
+
+    try {
+      // Different keys so both actions run at the same time, each on its own thread.
+      for (key in listOf(Any(), Any())) {
+        executor.runAsyncActionWithTimeout(
+          1,
+          TimeUnit.SECONDS,
+          5,
+          TimeUnit.SECONDS,
+          topic,
+          key,
+          Callable {
+            actionsAreRunningLatch.countDown()
+            try {
+              Thread.sleep(3000)
+            } catch (e: InterruptedException) {
+              interruptedActions.incrementAndGet()
+            } finally {
+              actionsCompletedLatch.countDown()
+            }
+          }
+        )
+      }
+      assertTrue(actionsAreRunningLatch.await(5, TimeUnit.SECONDS))
+      assertEquals(2, executor.cancelActionsByTopic(listOf(topic), true))
+      assertTrue(actionsCompletedLatch.await(5, TimeUnit.SECONDS))
+      assertEquals(2, interruptedActions.get())
+    } finally {
+      executor.shutdown()
+    }
+  }
 }
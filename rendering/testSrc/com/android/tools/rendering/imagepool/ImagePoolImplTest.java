@@ -28,7 +28,9 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -159,6 +161,57 @@ public class ImagePoolImplTest {
     gc();
   }
 
+  @Test
+  public void testByteBudgetEvictsLeastRecentlyReturnedImages() {
+    // Budget for a single 500x500 image across all the buckets
+    ImagePoolImpl pool = new ImagePoolImpl(new int[]{50, 500, 1000}, (w, h) -> (type) -> 100, 1_500_000, Long.MAX_VALUE);
+    try {
+      ImagePool.Stats stats = pool.getStats();
+      assertNotNull(stats);
+      ImagePoolImpl.ImageImpl argbImage = pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      ImagePoolImpl.ImageImpl argbPreImage = pool.create(60, 50, BufferedImage.TYPE_INT_ARGB_PRE, null);
+      BufferedImage argbPrePtr = argbPreImage.myBuffer;
+      assertEquals(2_000_000, stats.totalBytesAllocated());
+
+      ImagePoolImageDisposer.disposeImage(argbImage);
+      ImagePoolImageDisposer.disposeImage(argbPreImage);
+      assertEquals(1_000_000, stats.totalBytesPooled());
+      assertEquals(1_000_000, stats.totalBytesAllocated());
+      assertEquals(1, Arrays.stream(stats.getBucketStats()).mapToLong(ImagePool.BucketStats::bucketEvictions).sum());
+
+      // The most recently returned image is still pooled
+      assertEquals(argbPrePtr, pool.create(50, 50, BufferedImage.TYPE_INT_ARGB_PRE, null).myBuffer);
+      assertEquals(0, stats.totalBytesPooled());
+    }
+    finally {
+      pool.dispose();
+    }
+  }
+
+  @Test
+  public void testOffHeapImages() throws IOException {
+    ImagePoolImpl pool = new ImagePoolImpl(new int[]{50, 500, 1000}, (w, h) -> (type) -> 100, Long.MAX_VALUE, 0);
+    try {
+      BufferedImage original = getSampleImage();
+      ImagePoolImpl.ImageImpl image = (ImagePoolImpl.ImageImpl)pool.copyOf(original);
+      assertFalse(image.myBuffer.getRaster().getDataBuffer() instanceof DataBufferInt);
+
+      BufferedImage copy = image.getCopy();
+      assertEquals(BufferedImage.TYPE_INT_ARGB, copy.getType());
+      ImageDiffUtil.assertImageSimilar("pooledimage", original, copy, 0.0);
+      ImageDiffUtil.assertImageSimilar("pooledimage", original.getSubimage(10, 10, 25, 25), image.getCopy(10, 10, 25, 25), 0.0);
+
+      BufferedImage internalPtr = image.myBuffer;
+      ImagePoolImageDisposer.disposeImage(image);
+      ImagePoolImpl.ImageImpl reused = pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      assertEquals(internalPtr, reused.myBuffer);
+      ImageDiffUtil.assertImageSimilar("clean", new BufferedImage(50, 50, BufferedImage.TYPE_INT_ARGB), reused.getCopy(), 0.0);
+    }
+    finally {
+      pool.dispose();
+    }
+  }
+
   @Test
   public void testDefaultPooling() throws InterruptedException {
     // Small images won't be pooled
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.rendering.parsers
+
+import com.android.resources.ResourceFolderType
+import com.google.common.collect.ImmutableMap
+import com.intellij.mock.MockProject
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.Disposer
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.lang.ref.WeakReference
+
+class TagSnapshotCacheTest {
+  private val project = MockProject(null, Disposer.newDisposable())
+
+  private fun createFile(project: Project = this.project): RenderXmlFile =
+    RenderXmlFileSnapshot(
+      project,
+      "layout.xml",
+      ResourceFolderType.LAYOUT,
+      // language=XML
+      """
+        <LinearLayout xmlns:android="http://schemas.android.com/apk/res/android">
+          <Button android:text="Button" />
+        </LinearLayout>
+      """
+        .trimIndent()
+    )
+
+  @Test
+  fun testSnapshotIsSharedWhileFileIsUnchanged() {
+    val cache = TagSnapshotCache(4)
+    val file = createFile()
+    val snapshot = TagSnapshot.createTagSnapshot(file.rootTag!!, null)
+    val aaptAttrs = ImmutableMap.of<String, TagSnapshot>()
+
+    assertNull(cache.get(file, 1, true))
+    cache.put(file, 1, true, snapshot, aaptAttrs)
+
+    val entry = cache.get(file, 1, true)!!
+    assertSame(snapshot, entry.root)
+    assertSame(aaptAttrs, entry.declaredAaptAttrs)
+    // Another file with the same contents is a different entry.
+    assertNull(cache.get(createFile(), 1, true))
+    // The snapshot depends on whether tools:parentTag is honored.
+    assertNull(cache.get(file, 1, false))
+
+    // Once the file changes, the old snapshot is dropped.
+    assertNull(cache.get(file, 2, true))
+    assertNull(cache.get(file, 1, true))
+  }
+
+  @Test
+  fun testFilesWithoutStampAreNotCached() {
+    val cache = TagSnapshotCache(4)
+    val file = createFile()
+    val snapshot = TagSnapshot.createTagSnapshot(file.rootTag!!, null)
+
+    cache.put(file, -1, true, snapshot, ImmutableMap.of())
+    assertNull(cache.get(file, -1, true))
+
+    val disabled = TagSnapshotCache(0)
+    disabled.put(file, 1, true, snapshot, ImmutableMap.of())
+    assertNull(disabled.get(file, 1, true))
+  }
+
+  @Test
+  fun testEachProjectHasItsOwnCache() {
+    val otherProjectDisposable = Disposer.newDisposable()
+    val otherProject = MockProject(null, otherProjectDisposable)
+    assertSame(TagSnapshotCache.getInstance(project), TagSnapshotCache.getInstance(project))
+    assertNotSame(TagSnapshotCache.getInstance(project), TagSnapshotCache.getInstance(otherProject))
+    Disposer.dispose(otherProjectDisposable)
+  }
+
+  @Test
+  fun testEntriesDoNotRetainFilesOfDisposedProjects() {
+    val projectDisposable = Disposer.newDisposable()
+    val closedProject = MockProject(null, projectDisposable)
+    val fileReference = cacheSnapshotOfNewFile(closedProject)
+
+    Disposer.dispose(closedProject)
+    Disposer.dispose(projectDisposable)
+    assertTrue(isCollected(fileReference))
+    // A disposed project does not get a cache that would hold its files again.
+    val file = createFile(closedProject)
+    TagSnapshotCache.getInstance(closedProject).put(file, 1, true, TagSnapshot.createTagSnapshot(file.rootTag!!, null), ImmutableMap.of())
+    assertNull(TagSnapshotCache.getInstance(closedProject).get(file, 1, true))
+  }
+
+  /** Caches the snapshot of a new file of [project], keeping no reference to the file other than the returned weak one. */
+  private fun cacheSnapshotOfNewFile(project: Project): WeakReference<RenderXmlFile> {
+    val file = createFile(project)
+    val cache = TagSnapshotCache.getInstance(project)
+    cache.put(file, 1, true, TagSnapshot.createTagSnapshot(file.rootTag!!, null), ImmutableMap.of())
+    assertSame(file.rootTag, cache.get(file, 1, true)!!.root.tag)
+    return WeakReference(file)
+  }
+
+  private fun isCollected(reference: WeakReference<*>): Boolean {
+    repeat(10) {
+      if (reference.get() == null) {
+        return true
+      }
+      System.gc()
+      Thread.sleep(10)
+    }
+    return reference.get() == null
+  }
+}
@@ -83,8 +83,8 @@ public class DataStoreDatabase {
           throw new RuntimeException("Characteristic not handled!");
       }
 
-      // Performance optimization.
-      // TODO: Create a timer and commit the database transaction every X seconds.
+      // Performance optimization. Tables that write through a GroupCommitWriter commit on a size / time basis, everything else is
+      // committed along with them or on disconnect.
       connection.setAutoCommit(false);
     }
     catch (ClassNotFoundException e) {
@@ -19,7 +19,6 @@ import com.android.tools.idea.protobuf.InvalidProtocolBufferException;
 import com.android.tools.profiler.proto.Common;
 import com.android.tools.profiler.proto.Cpu;
 import com.android.tools.profiler.proto.Cpu.CpuUsageData;
-import com.android.tools.profiler.proto.CpuProfiler;
 import com.android.tools.profiler.proto.CpuProfiler.CpuDataRequest;
 import com.android.tools.profiler.proto.CpuProfiler.GetThreadsRequest;
 import com.android.tools.profiler.proto.CpuProfiler.GetThreadsResponse;
@@ -29,12 +28,9 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
 import org.jetbrains.annotations.NotNull;
 
@@ -42,15 +38,15 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
   private static final int DATA_COLUMN = 1;
 
   /**
-   * A cache of unique thread IDs per session index.
-   * <p>
-   * We keep a cache of all seen thread IDs because querying the DB for distinct thread IDs is slow.
+   * End timestamp of the last known state of a thread, which lasts until a new state is inserted.
    */
-  private final Map<Long, Set<Integer>> mySessionThreadIdsCache = Collections.synchronizedMap(new HashMap<>());
+  private static final long OPEN_END_TIMESTAMP = Long.MAX_VALUE;
+
+  private static final String DEAD_STATE = "DEAD";
 
   public enum CpuStatements {
     INSERT_THREAD_ACTIVITY,
-    QUERY_ALL_DISTINCT_THREADS,
+    CLOSE_PREVIOUS_THREAD_ACTIVITY,
     QUERY_THREAD_ACTIVITIES,
     INSERT_CPU_DATA,
     QUERY_CPU_DATA,
@@ -66,10 +62,13 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
                   "Session INTEGER NOT NULL",
                   "Timestamp INTEGER NOT NULL",
                   "Data BLOB");
+      // Each row is a run of a thread in one state, from Timestamp (inclusive) to EndTimestamp (exclusive), the timestamp of the next
+      // state of the thread.
       createTable("Thread_Activities",
                   "Session INTEGER NOT NULL",
                   "ThreadId INTEGER NOT NULL",
                   "Timestamp INTEGER NOT NULL",
+                  "EndTimestamp INTEGER NOT NULL",
                   "State TEXT",
                   "Name TEXT",
                   "PRIMARY KEY (Session, ThreadId, Timestamp)");
@@ -82,6 +81,8 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
       createUniqueIndex("Cpu_Trace_Info", "Session", "StartTime");
       // Uniqueness guaranteed by PRIMARY KEY field in this table.
       createIndex("Thread_Activities", 0, "Session", "ThreadId", "Timestamp");
+      // Used by range queries to find the runs that end after the start of the range, across all threads.
+      createIndex("Thread_Activities", 1, "Session", "EndTimestamp");
     }
     catch (SQLException ex) {
       onError(ex);
@@ -100,25 +101,22 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
                       "Session = ? AND (StartTime < ? AND (EndTime >= ? OR EndTime = -1));");
       createStatement(CpuTable.CpuStatements.INSERT_TRACE_INFO,
                       "INSERT OR REPLACE INTO Cpu_Trace_Info (Session, StartTime, EndTime, TraceInfo) values (?, ?, ?, ?)");
+      // A run ends where the next known state of the thread starts. Runs are inserted latest first so that runs inserted together
+      // see each other.
       createStatement(CpuTable.CpuStatements.INSERT_THREAD_ACTIVITY,
                       "INSERT OR REPLACE INTO Thread_Activities " +
-                      "(Session, ThreadId, Timestamp, State, Name) VALUES (?, ?, ?, ?, ?)");
-      createStatement(CpuTable.CpuStatements.QUERY_ALL_DISTINCT_THREADS,
-                      "SELECT DISTINCT ThreadId FROM Thread_Activities WHERE Session = ?");
+                      "(Session, ThreadId, Timestamp, EndTimestamp, State, Name) VALUES (?, ?, ?, " +
+                      "IFNULL((SELECT MIN(Timestamp) FROM Thread_Activities WHERE Session = ? AND ThreadId = ? AND Timestamp > ?), " +
+                      OPEN_END_TIMESTAMP + "), ?, ?)");
+      // Ends the run that was current when a newly inserted run starts.
+      createStatement(CpuTable.CpuStatements.CLOSE_PREVIOUS_THREAD_ACTIVITY,
+                      "UPDATE Thread_Activities SET EndTimestamp = ? " +
+                      "WHERE Session = ? AND ThreadId = ? AND EndTimestamp > ? AND Timestamp = " +
+                      "(SELECT MAX(Timestamp) FROM Thread_Activities WHERE Session = ? AND ThreadId = ? AND Timestamp < ?)");
+      // All the runs overlapping the request interval, for all the threads of the session.
       createStatement(CpuTable.CpuStatements.QUERY_THREAD_ACTIVITIES,
-                      // First make sure to fetch the states of all threads that were alive at request's start timestamp
-                      "SELECT t2.Name, t2.State, ? as ReqStart " +
-                      "FROM (SELECT MAX(Timestamp) AS Timestamp " +
-                      "      FROM Thread_Activities " +
-                      "      WHERE Session = ? AND ThreadId = ? AND Timestamp <= ? " +
-                      ") t1 " +
-                      "JOIN Thread_Activities t2 " +
-                      "ON (t2.Session = ? AND t2.ThreadId = ? AND t2.timestamp = t1.timestamp AND t2.State <> 'DEAD')" +
-                      "UNION ALL " +
-                      // Then fetch all the activities that happened in the request interval
-                      "SELECT Name, State, Timestamp " +
-                      "FROM Thread_Activities " +
-                      "WHERE Session = ? AND ThreadId = ? AND Timestamp > ? AND Timestamp <= ?");
+                      "SELECT ThreadId, Name, State, Timestamp FROM Thread_Activities " +
+                      "WHERE Session = ? AND EndTimestamp > ? AND Timestamp <= ? ORDER BY ThreadId, Timestamp");
     }
     catch (SQLException ex) {
       onError(ex);
@@ -151,24 +149,51 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
                                int tid,
                                String name,
                                List<GetThreadsResponse.ThreadActivity> activities) {
-    getThreadIdCacheForSession(session.getSessionId()).add(tid);
+    List<ThreadState> states = new ArrayList<>(activities.size());
     for (GetThreadsResponse.ThreadActivity activity : activities) {
-      // TODO: optimize it by adding the states in batches
-      execute(CpuStatements.INSERT_THREAD_ACTIVITY, session.getSessionId(), tid, activity.getTimestamp(), activity.getNewState().toString(),
-              name);
+      states.add(new ThreadState(tid, activity.getTimestamp(), activity.getNewState().toString(), name));
     }
+    insertStates(session.getSessionId(), states);
+  }
+
+  /**
+   * Same as {@link #insertActivities(Common.Session, int, String, List)} for the activities of several threads, which are inserted
+   * together.
+   */
+  public void insertActivities(Common.Session session, List<GetThreadsResponse.Thread> threads) {
+    List<ThreadState> states = new ArrayList<>();
+    for (GetThreadsResponse.Thread thread : threads) {
+      for (GetThreadsResponse.ThreadActivity activity : thread.getActivitiesList()) {
+        states.add(new ThreadState(thread.getTid(), activity.getTimestamp(), activity.getNewState().toString(), thread.getName()));
+      }
+    }
+    insertStates(session.getSessionId(), states);
   }
 
   public void insertSnapshot(Common.Session session,
                              long timestamp,
                              List<GetThreadsResponse.ThreadSnapshot.Snapshot> snapshots) {
-    Set<Integer> idSet = getThreadIdCacheForSession(session.getSessionId());
     // For now, insert it as activity. TODO: differentiate the concepts of snapshot and activity
+    List<ThreadState> states = new ArrayList<>(snapshots.size());
     for (GetThreadsResponse.ThreadSnapshot.Snapshot snapshot : snapshots) {
-      idSet.add(snapshot.getTid());
-      execute(CpuStatements.INSERT_THREAD_ACTIVITY,
-              session.getSessionId(), snapshot.getTid(), timestamp, snapshot.getState().toString(), snapshot.getName());
+      states.add(new ThreadState(snapshot.getTid(), timestamp, snapshot.getState().toString(), snapshot.getName()));
+    }
+    insertStates(session.getSessionId(), states);
+  }
+
+  /**
+   * Inserts the given states as new runs in two batches: the runs themselves, then the end of the runs they interrupt. States may be
+   * inserted in any order, but appending them in timestamp order is the cheapest.
+   */
+  private void insertStates(long sessionId, List<ThreadState> states) {
+    if (states.isEmpty()) {
+      return;
     }
+    states.sort(Comparator.comparingLong((ThreadState state) -> state.myTimestamp).reversed());
+    executeBatch(CpuStatements.INSERT_THREAD_ACTIVITY, states, state -> new Object[]{
+      sessionId, state.myTid, state.myTimestamp, sessionId, state.myTid, state.myTimestamp, state.myState, state.myName});
+    executeBatch(CpuStatements.CLOSE_PREVIOUS_THREAD_ACTIVITY, states, state -> new Object[]{
+      state.myTimestamp, sessionId, state.myTid, state.myTimestamp, sessionId, state.myTid, state.myTimestamp});
   }
 
   public List<GetThreadsResponse.Thread> getThreadsDataByRequest(GetThreadsRequest request) {
@@ -176,52 +201,31 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
     Map<Integer, GetThreadsResponse.Thread.Builder> threads = new TreeMap<>();
     try {
       long sessionId = request.getSession().getSessionId();
-
-      List<Integer> threadIds = new ArrayList<>();
-      if (!mySessionThreadIdsCache.containsKey(sessionId)) {
-        Set<Integer> tidSet = getThreadIdCacheForSession(sessionId);
-
-        ResultSet threadResults = executeQuery(CpuStatements.QUERY_ALL_DISTINCT_THREADS, sessionId);
-        while (threadResults.next()) {
-          // Don't add directly to tidSet, since it's synchronized and would be slow to add each element individually.
-          threadIds.add(threadResults.getInt(1));
-        }
-        tidSet.addAll(threadIds);
-      }
-      else {
-        // Add all ids to a list so we release the implicit lock in threadIds ASAP.
-        //noinspection UseBulkOperation
-        mySessionThreadIdsCache.get(sessionId).forEach(tid -> threadIds.add(tid));
-      }
-
       long startTimestamp = request.getStartTimestamp();
-      long endTimestamp = request.getEndTimestamp();
-      for (int tid : threadIds) {
-        ResultSet activities = executeQuery(
-          CpuStatements.QUERY_THREAD_ACTIVITIES,
-          // Used as the timestamp of the states that happened before the request
-          startTimestamp,
-          // Used to get the last activity just prior to the request range
-          sessionId, tid, startTimestamp,
-          // Used for the JOIN
-          sessionId, tid,
-          // The start and end timestamps below are used to get the activities that
-          // happened in the interval (start, end]
-          sessionId, tid, startTimestamp, endTimestamp);
-
-        CpuProfiler.GetThreadsResponse.Thread.Builder builder = null;
-        while (activities.next()) {
-          if (builder == null) {
-            // Please refer QUERY_THREAD_ACTIVITIES statement for the ResultSet's column to type/value mapping.
-            builder = createThreadBuilder(tid, activities.getString(1));
-            threads.put(tid, builder);
+      // The runs returned are the ones alive at the start timestamp and the ones starting in the interval (start, end].
+      long endTimestamp = Math.max(startTimestamp, request.getEndTimestamp());
+      ResultSet activities = executeQuery(CpuStatements.QUERY_THREAD_ACTIVITIES, sessionId, startTimestamp, endTimestamp);
+      while (activities.next()) {
+        // Please refer QUERY_THREAD_ACTIVITIES statement for the ResultSet's column to type/value mapping.
+        int tid = activities.getInt(1);
+        String state = activities.getString(3);
+        long timestamp = activities.getLong(4);
+        if (timestamp <= startTimestamp) {
+          // The state the thread was in at the start of the request, which is reported at the start timestamp unless the thread was
+          // already dead.
+          if (DEAD_STATE.equals(state)) {
+            continue;
           }
+          timestamp = startTimestamp;
+        }
 
-          Cpu.CpuThreadData.State state = Cpu.CpuThreadData.State.valueOf(activities.getString(2));
-          GetThreadsResponse.ThreadActivity.Builder activity =
-            GetThreadsResponse.ThreadActivity.newBuilder().setNewState(state).setTimestamp(activities.getLong(3));
-          builder.addActivities(activity.build());
+        GetThreadsResponse.Thread.Builder builder = threads.get(tid);
+        if (builder == null) {
+          builder = createThreadBuilder(tid, activities.getString(2));
+          threads.put(tid, builder);
         }
+        builder.addActivities(
+          GetThreadsResponse.ThreadActivity.newBuilder().setNewState(Cpu.CpuThreadData.State.valueOf(state)).setTimestamp(timestamp));
       }
     }
     catch (SQLException ex) {
@@ -268,8 +272,17 @@ public class CpuTable extends DataStoreTable<CpuTable.CpuStatements> {
     return thread;
   }
 
-  @NotNull
-  private Set<Integer> getThreadIdCacheForSession(long sessionId) {
-    return mySessionThreadIdsCache.computeIfAbsent(sessionId, id -> Collections.synchronizedSet(new HashSet<>()));
+  private static final class ThreadState {
+    private final int myTid;
+    private final long myTimestamp;
+    @NotNull private final String myState;
+    private final String myName;
+
+    private ThreadState(int tid, long timestamp, @NotNull String state, String name) {
+      myTid = tid;
+      myTimestamp = timestamp;
+      myState = state;
+      myName = name;
+    }
   }
 }
@@ -28,6 +28,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Interface a {@link com.android.tools.datastore.ServicePassThrough} object returns to indicate this object is
@@ -42,6 +43,8 @@ public abstract class DataStoreTable<T extends Enum> {
   // Cache custom queries we have a limited number and we call the same query multiple times.
   private final ThreadLocal<Map<String, PreparedStatement>> myCustomQueryCache = new ThreadLocal<>();
 
+  @Nullable private volatile GroupCommitWriter<T> myGroupCommitWriter;
+
   public interface DataStoreTableErrorCallback {
     void onDataStoreError(Throwable t);
   }
@@ -61,6 +64,21 @@ public abstract class DataStoreTable<T extends Enum> {
    */
   public abstract void prepareStatements();
 
+  /**
+   * Routes writes issued through {@link #executeDeferred} to the given writer instead of executing them on the calling thread. Every
+   * other execute and query call on this table flushes the writer first, so reads and ordered writes still observe all prior writes.
+   *
+   * @param writer the writer to use, or null to go back to executing writes synchronously.
+   */
+  public void setGroupCommitWriter(@Nullable GroupCommitWriter<T> writer) {
+    myGroupCommitWriter = writer;
+  }
+
+  @Nullable
+  public GroupCommitWriter<T> getGroupCommitWriter() {
+    return myGroupCommitWriter;
+  }
+
   public static void addDataStoreErrorCallback(@NotNull DataStoreTableErrorCallback callback) {
     ERROR_CALLBACKS.add(callback);
   }
@@ -146,6 +164,15 @@ public abstract class DataStoreTable<T extends Enum> {
    *                       of the specified statement.
    */
   protected <K> void executeBatch(@NotNull T statement, @NotNull List<K> batchParams, @NotNull Function<K, Object[]> paramConverter) {
+    flushPendingWrites();
+    executeBatchNow(statement, batchParams, paramConverter);
+  }
+
+  /**
+   * Same as {@link #executeBatch} without flushing pending writes first. This is what the {@link GroupCommitWriter} uses to apply the
+   * writes it drained.
+   */
+  <K> void executeBatchNow(@NotNull T statement, @NotNull List<K> batchParams, @NotNull Function<K, Object[]> paramConverter) {
     if (isClosed()) {
       return;
     }
@@ -165,16 +192,34 @@ public abstract class DataStoreTable<T extends Enum> {
           throw new SQLException(String.format("Failed to insert batch element %d with result %d", i, results[i]));
         }
       }
+      stmt.clearParameters();
     }
     catch (SQLException ex) {
       onError(ex);
     }
   }
 
+  /**
+   * Same as {@link #execute} but allows the write to be grouped with others by the {@link GroupCommitWriter} if one is set. The write
+   * may not have happened yet when this returns, use it only for statements whose result the caller does not depend on.
+   */
+  protected void executeDeferred(@NotNull T statement, Object... params) {
+    GroupCommitWriter<T> writer = myGroupCommitWriter;
+    if (writer == null) {
+      execute(statement, params);
+      return;
+    }
+    if (isClosed()) {
+      return;
+    }
+    writer.enqueue(statement, params);
+  }
+
   protected void execute(@NotNull T statement, Object... params) {
     if (isClosed()) {
       return;
     }
+    flushPendingWrites();
     try {
       PreparedStatement stmt = getStatementMap().get(statement);
       applyParams(stmt, params);
@@ -192,6 +237,7 @@ public abstract class DataStoreTable<T extends Enum> {
     if (isClosed()) {
       return new EmptyResultSet();
     }
+    flushPendingWrites();
     PreparedStatement stmt = getStatementMap().get(statement);
     applyParams(stmt, params);
     return stmt.executeQuery();
@@ -201,6 +247,7 @@ public abstract class DataStoreTable<T extends Enum> {
     if (isClosed()) {
       return new EmptyResultSet();
     }
+    flushPendingWrites();
     if (myCustomQueryCache.get() == null) {
       myCustomQueryCache.set(new HashMap<>());
     }
@@ -215,6 +262,29 @@ public abstract class DataStoreTable<T extends Enum> {
     return statement.executeQuery();
   }
 
+  /**
+   * Commits the current transaction of the underlying connection. The connection is shared by every table of the same database, so this
+   * also commits their pending writes.
+   */
+  void commit() {
+    if (isClosed()) {
+      return;
+    }
+    try {
+      myConnection.commit();
+    }
+    catch (SQLException ex) {
+      onError(ex);
+    }
+  }
+
+  private void flushPendingWrites() {
+    GroupCommitWriter<T> writer = myGroupCommitWriter;
+    if (writer != null) {
+      writer.flush();
+    }
+  }
+
   protected void applyParams(@NotNull PreparedStatement statement, Object... params) throws SQLException {
     for (int i = 0; params != null && i < params.length; i++) {
       if (params[i] == null) {
@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore.database;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A writer stage that sits between a {@link DataStoreTable} and its connection. Writes are queued on a bounded queue and a dedicated
+ * thread drains them into JDBC batches, committing the transaction once either {@code maxBatchSize} rows are pending or
+ * {@code maxCommitDelayMs} has elapsed since the oldest uncommitted row was written.
+ * <p>
+ * Producers block when the queue is full, the time spent blocked is exposed as backpressure stats. Readers are expected to call
+ * {@link #flush()} before querying, which returns once every write enqueued before the call has been executed on the connection, so
+ * queries always observe prior writes even if they have not been committed yet.
+ */
+public final class GroupCommitWriter<T extends Enum> {
+  public static final int DEFAULT_QUEUE_SIZE = 16384;
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+  public static final long DEFAULT_MAX_COMMIT_DELAY_MS = 500;
+
+  @NotNull private final DataStoreTable<T> myTable;
+  @NotNull private final BlockingQueue<PendingWrite<T>> myQueue;
+  private final int myMaxBatchSize;
+  private final long myMaxCommitDelayNs;
+  @NotNull private final Thread myThread;
+
+  // Held for reading while a write is being queued and for writing while shutting down, so that no write can be queued once the writer
+  // thread may have seen the queue empty for the last time.
+  @NotNull private final ReadWriteLock myStateLock = new ReentrantReadWriteLock();
+  private volatile boolean myIsRunning = true;
+
+  // Serializes the statements executed by the writer thread and the ones executed on the calling thread, which share the connection.
+  private final Object myExecuteLock = new Object();
+
+  // Guards myWrittenCount and myIsStopped, and is notified every time either of them changes.
+  private final Object myWriteLock = new Object();
+  private long myWrittenCount;
+  private boolean myIsStopped;
+
+  @NotNull private final AtomicLong myEnqueuedCount = new AtomicLong();
+  @NotNull private final AtomicLong myBatchCount = new AtomicLong();
+  @NotNull private final AtomicLong myCommitCount = new AtomicLong();
+  @NotNull private final AtomicLong myBlockedEnqueueCount = new AtomicLong();
+  @NotNull private final AtomicLong myBlockedNs = new AtomicLong();
+  @NotNull private final AtomicLong myMaxQueueDepth = new AtomicLong();
+
+  public GroupCommitWriter(@NotNull DataStoreTable<T> table) {
+    this(table, DEFAULT_QUEUE_SIZE, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_COMMIT_DELAY_MS);
+  }
+
+  public GroupCommitWriter(@NotNull DataStoreTable<T> table, int queueSize, int maxBatchSize, long maxCommitDelayMs) {
+    assert queueSize > 0 && maxBatchSize > 0 && maxCommitDelayMs > 0;
+    myTable = table;
+    myQueue = new ArrayBlockingQueue<>(queueSize);
+    myMaxBatchSize = maxBatchSize;
+    myMaxCommitDelayNs = TimeUnit.MILLISECONDS.toNanos(maxCommitDelayMs);
+    myThread = new Thread(this::drainLoop, "DataStoreGroupCommit-" + table.getClass().getSimpleName());
+    myThread.setDaemon(true);
+    myThread.start();
+  }
+
+  /**
+   * Queues a write of the given statement. Blocks while the queue is full. Writes enqueued once {@link #shutdown()} has started, and
+   * writes whose thread is interrupted while waiting for room in the queue, are executed synchronously on the calling thread after the
+   * writes queued before them.
+   */
+  public void enqueue(@NotNull T statement, Object... params) {
+    myStateLock.readLock().lock();
+    try {
+      if (myIsRunning && queue(new PendingWrite<>(statement, params))) {
+        myEnqueuedCount.incrementAndGet();
+        myMaxQueueDepth.accumulateAndGet(myQueue.size(), Math::max);
+        return;
+      }
+    }
+    finally {
+      myStateLock.readLock().unlock();
+    }
+    executeNow(statement, params);
+  }
+
+  /**
+   * Adds the write to the queue, waiting for room if needed.
+   *
+   * @return false if the calling thread was interrupted before the write could be queued. The interrupt flag is restored.
+   */
+  private boolean queue(@NotNull PendingWrite<T> write) {
+    if (myQueue.offer(write)) {
+      return true;
+    }
+    long blockStart = System.nanoTime();
+    myBlockedEnqueueCount.incrementAndGet();
+    try {
+      myQueue.put(write);
+      return true;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    finally {
+      myBlockedNs.addAndGet(System.nanoTime() - blockStart);
+    }
+  }
+
+  private void executeNow(@NotNull T statement, @NotNull Object[] params) {
+    // Keep the writes of the calling thread in order by letting the queued ones go first.
+    awaitWrittenUninterruptibly(myEnqueuedCount.get());
+    synchronized (myExecuteLock) {
+      myTable.executeBatchNow(statement, Collections.singletonList(params), p -> p);
+    }
+  }
+
+  /**
+   * Blocks until every write enqueued before this call has been executed on the connection. This is a no-op when called from the writer
+   * thread itself.
+   */
+  public void flush() {
+    if (Thread.currentThread() == myThread) {
+      return;
+    }
+    long target = myEnqueuedCount.get();
+    synchronized (myWriteLock) {
+      while (myWrittenCount < target && !myIsStopped) {
+        try {
+          myWriteLock.wait();
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private void awaitWrittenUninterruptibly(long target) {
+    if (Thread.currentThread() == myThread) {
+      return;
+    }
+    boolean interrupted = Thread.interrupted();
+    synchronized (myWriteLock) {
+      while (myWrittenCount < target && !myIsStopped) {
+        try {
+          myWriteLock.wait();
+        }
+        catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Stops accepting queued writes, drains and commits what remains, then waits for the writer thread to terminate.
+   */
+  public void shutdown() {
+    myStateLock.writeLock().lock();
+    try {
+      if (!myIsRunning) {
+        return;
+      }
+      myIsRunning = false;
+    }
+    finally {
+      myStateLock.writeLock().unlock();
+    }
+    myThread.interrupt();
+    try {
+      myThread.join();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public long getEnqueuedCount() {
+    return myEnqueuedCount.get();
+  }
+
+  public long getWrittenCount() {
+    synchronized (myWriteLock) {
+      return myWrittenCount;
+    }
+  }
+
+  public long getBatchCount() {
+    return myBatchCount.get();
+  }
+
+  public long getCommitCount() {
+    return myCommitCount.get();
+  }
+
+  /**
+   * @return the number of {@link #enqueue} calls that found the queue full and had to wait for the writer thread.
+   */
+  public long getBlockedEnqueueCount() {
+    return myBlockedEnqueueCount.get();
+  }
+
+  /**
+   * @return the total time producers spent blocked on a full queue, in nanoseconds.
+   */
+  public long getBlockedNs() {
+    return myBlockedNs.get();
+  }
+
+  public long getMaxQueueDepth() {
+    return myMaxQueueDepth.get();
+  }
+
+  @VisibleForTesting
+  int getQueueSize() {
+    return myQueue.size();
+  }
+
+  private void drainLoop() {
+    List<PendingWrite<T>> drained = new ArrayList<>(myMaxBatchSize);
+    int uncommitted = 0;
+    long oldestUncommittedNs = 0;
+    try {
+      while (myIsRunning || !myQueue.isEmpty()) {
+        long waitNs = uncommitted == 0 ? myMaxCommitDelayNs : myMaxCommitDelayNs - (System.nanoTime() - oldestUncommittedNs);
+        PendingWrite<T> first;
+        try {
+          first = myQueue.poll(Math.max(waitNs, 0), TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException e) {
+          // Interrupted by shutdown() to cut the idle wait short, the loop keeps going until the queue is empty.
+          first = myQueue.poll();
+        }
+
+        if (first != null) {
+          drained.add(first);
+          myQueue.drainTo(drained, myMaxBatchSize - 1);
+          if (uncommitted == 0) {
+            oldestUncommittedNs = System.nanoTime();
+          }
+          writeBatch(drained);
+          uncommitted += drained.size();
+          drained.clear();
+        }
+
+        if (uncommitted > 0 && (uncommitted >= myMaxBatchSize || System.nanoTime() - oldestUncommittedNs >= myMaxCommitDelayNs)) {
+          commit();
+          uncommitted = 0;
+        }
+      }
+      if (uncommitted > 0) {
+        commit();
+      }
+    }
+    finally {
+      synchronized (myWriteLock) {
+        myIsStopped = true;
+        myWriteLock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Executes the drained writes in order, grouping consecutive writes of the same statement into a single JDBC batch. A batch that fails
+   * is reported through {@link DataStoreTable#onError} and dropped, the writer thread keeps going with the next one.
+   */
+  private void writeBatch(@NotNull List<PendingWrite<T>> writes) {
+    synchronized (myExecuteLock) {
+      int start = 0;
+      while (start < writes.size()) {
+        T statement = writes.get(start).myStatement;
+        int end = start + 1;
+        while (end < writes.size() && writes.get(end).myStatement == statement) {
+          end++;
+        }
+        try {
+          myTable.executeBatchNow(statement, writes.subList(start, end), write -> write.myParams);
+        }
+        catch (RuntimeException e) {
+          DataStoreTable.onError(e);
+        }
+        myBatchCount.incrementAndGet();
+        start = end;
+      }
+    }
+    // Failed writes are counted as well, so that flush() does not wait for them forever.
+    synchronized (myWriteLock) {
+      myWrittenCount += writes.size();
+      myWriteLock.notifyAll();
+    }
+  }
+
+  private void commit() {
+    synchronized (myExecuteLock) {
+      try {
+        myTable.commit();
+      }
+      catch (RuntimeException e) {
+        DataStoreTable.onError(e);
+      }
+    }
+    myCommitCount.incrementAndGet();
+  }
+
+  private static final class PendingWrite<T> {
+    @NotNull private final T myStatement;
+    @NotNull private final Object[] myParams;
+
+    private PendingWrite(@NotNull T statement, @NotNull Object[] params) {
+      myStatement = statement;
+      myParams = params;
+    }
+  }
+}
@@ -95,7 +95,7 @@ public class UnifiedEventsTable extends DataStoreTable<UnifiedEventsTable.Statem
   }
 
   public void insertUnifiedEvent(long streamId, @NotNull Event event) {
-    execute(Statements.INSERT_EVENT,
+    executeDeferred(Statements.INSERT_EVENT,
             streamId,
             event.getPid(),
             event.getGroupId(),
@@ -98,9 +98,8 @@ public class CpuDataPoller extends PollRunner {
         CpuProfiler.GetThreadsResponse.ThreadActivity last = activities.get(count - 1);
         getThreadsStartNs = Math.max(getThreadsStartNs, last.getTimestamp());
       }
-
-      myCpuTable.insertActivities(mySession, thread.getTid(), thread.getName(), activities);
     }
+    myCpuTable.insertActivities(mySession, threadsResponse.getThreadsList());
 
     // Poll trace info.
     CpuProfiler.GetTraceInfoRequest.Builder traceInfoRequest = CpuProfiler.GetTraceInfoRequest
@@ -19,6 +19,7 @@ import com.android.tools.datastore.DataStoreService;
 import com.android.tools.datastore.ServicePassThrough;
 import com.android.tools.datastore.database.DataStoreTable;
 import com.android.tools.datastore.database.DeviceProcessTable;
+import com.android.tools.datastore.database.GroupCommitWriter;
 import com.android.tools.datastore.database.UnifiedEventsTable;
 import com.android.tools.datastore.poller.DeviceProcessPoller;
 import com.android.tools.datastore.poller.UnifiedEventsDataPoller;
@@ -99,7 +100,22 @@ public class TransportService extends TransportServiceGrpc.TransportServiceImplB
   @Override
   public void setBackingStore(@NotNull DataStoreService.BackingNamespace namespace, @NotNull Connection connection) {
     assert namespace == DataStoreService.BackingNamespace.DEFAULT_SHARED_NAMESPACE;
+    // Writes still queued for the previous connection have to be executed and committed on it before the table switches over.
+    shutdown();
     myTable.initialize(connection);
+    // Events are streamed in at a high rate by the UnifiedEventsDataPoller, group them into batched transactions off the poller thread.
+    myTable.setGroupCommitWriter(new GroupCommitWriter<>(myTable));
+  }
+
+  /**
+   * Flushes and commits any event still queued for the database. Must be called before the backing connection is closed.
+   */
+  public void shutdown() {
+    GroupCommitWriter<UnifiedEventsTable.Statements> writer = myTable.getGroupCommitWriter();
+    if (writer != null) {
+      writer.shutdown();
+      myTable.setGroupCommitWriter(null);
+    }
   }
 
   /**
@@ -15,6 +15,7 @@
  */
 package com.android.tools.datastore.database;
 
+import static com.android.tools.profiler.proto.Cpu.CpuThreadData.State.DEAD;
 import static com.android.tools.profiler.proto.Cpu.CpuThreadData.State.RUNNING;
 import static com.android.tools.profiler.proto.Cpu.CpuThreadData.State.SLEEPING;
 import static com.android.tools.profiler.proto.Cpu.CpuThreadData.State.WAITING;
@@ -25,6 +26,8 @@ import com.android.tools.profiler.proto.Cpu;
 import com.android.tools.profiler.proto.CpuProfiler;
 import com.android.tools.profiler.proto.Trace;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
 import org.jetbrains.annotations.NotNull;
@@ -64,6 +67,12 @@ public class CpuTableTest extends DatabaseTest<CpuTable> {
       activities.add(CpuProfiler.GetThreadsResponse.ThreadActivity.getDefaultInstance());
       table.insertActivities(Common.Session.getDefaultInstance(), 0, "", activities);
     });
+    methodCalls.add((table) -> {
+      CpuProfiler.GetThreadsResponse.Thread thread = CpuProfiler.GetThreadsResponse.Thread.newBuilder()
+        .addActivities(CpuProfiler.GetThreadsResponse.ThreadActivity.getDefaultInstance())
+        .build();
+      table.insertActivities(Common.Session.getDefaultInstance(), Collections.singletonList(thread));
+    });
     methodCalls.add((table) -> {
       List<CpuProfiler.GetThreadsResponse.ThreadSnapshot.Snapshot> snapshots = new ArrayList<>();
       snapshots.add(CpuProfiler.GetThreadsResponse.ThreadSnapshot.Snapshot.getDefaultInstance());
@@ -254,6 +263,40 @@ public class CpuTableTest extends DatabaseTest<CpuTable> {
     }
   }
 
+  @Test
+  public void testGetThreadsDataByRequestWithActivitiesInsertedOutOfOrder() {
+    Common.Session session = Common.Session.newBuilder().setSessionId(3L).build();
+    CpuProfiler.GetThreadsResponse.Thread first = CpuProfiler.GetThreadsResponse.Thread
+      .newBuilder().setTid(1).setName("First").addActivities(createActivity(10, RUNNING)).addActivities(createActivity(30, SLEEPING))
+      .build();
+    CpuProfiler.GetThreadsResponse.Thread second = CpuProfiler.GetThreadsResponse.Thread
+      .newBuilder().setTid(2).setName("Second").addActivities(createActivity(10, RUNNING)).addActivities(createActivity(15, DEAD))
+      .build();
+    getTable().insertActivities(session, Arrays.asList(first, second));
+    // Inserted between the two runs of the first thread.
+    getTable().insertActivities(session, 1, "First", Collections.singletonList(createActivity(20, WAITING)));
+
+    CpuProfiler.GetThreadsRequest request = CpuProfiler.GetThreadsRequest
+      .newBuilder().setSession(session).setStartTimestamp(25).setEndTimestamp(40).build();
+    List<CpuProfiler.GetThreadsResponse.Thread> response = getTable().getThreadsDataByRequest(request);
+
+    // The second thread was dead before the start of the request.
+    assertThat(response).hasSize(1);
+    assertThat(response.get(0).getTid()).isEqualTo(1);
+    assertThat(response.get(0).getName()).isEqualTo("First");
+    assertThat(response.get(0).getActivitiesList()).containsExactly(createActivity(25, WAITING), createActivity(30, SLEEPING)).inOrder();
+
+    request = request.toBuilder().setStartTimestamp(0).setEndTimestamp(12).build();
+    response = getTable().getThreadsDataByRequest(request);
+    assertThat(response).hasSize(2);
+    assertThat(response.get(1).getActivitiesList()).containsExactly(createActivity(10, RUNNING));
+  }
+
+  @NotNull
+  private static CpuProfiler.GetThreadsResponse.ThreadActivity createActivity(long timestamp, @NotNull Cpu.CpuThreadData.State state) {
+    return CpuProfiler.GetThreadsResponse.ThreadActivity.newBuilder().setTimestamp(timestamp).setNewState(state).build();
+  }
+
   @Test
   public void testGetTraceInfo() {
     for (int i = 0; i < TEST_DATA_COUNT; i++) {
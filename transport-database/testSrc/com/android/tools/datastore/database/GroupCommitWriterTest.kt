@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore.database
+
+import com.android.tools.datastore.DataStoreDatabase
+import com.android.tools.datastore.FakeLogService
+import com.android.tools.profiler.proto.Common
+import com.android.tools.profiler.proto.Transport.GetEventGroupsRequest
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.sql.PreparedStatement
+import java.util.Collections
+
+class GroupCommitWriterTest {
+  private lateinit var dbFile: File
+  private lateinit var database: DataStoreDatabase
+  private lateinit var table: UnifiedEventsTable
+
+  @Before
+  fun before() {
+    dbFile = File.createTempFile("GroupCommitWriterTest", "mysql")
+    dbFile.deleteOnExit()
+    database = DataStoreDatabase(dbFile.absolutePath, DataStoreDatabase.Characteristic.DURABLE, FakeLogService())
+    table = UnifiedEventsTable()
+    table.initialize(database.connection)
+  }
+
+  @After
+  fun after() {
+    table.groupCommitWriter?.shutdown()
+    database.disconnect()
+  }
+
+  @Test
+  fun queriesFlushPendingWrites() {
+    val writer = GroupCommitWriter(table, 16, 4, 60_000)
+    table.setGroupCommitWriter(writer)
+    val events = (1..100L).map { insertEvent(it) }
+
+    assertThat(table.queryUnifiedEvents()).containsExactlyElementsIn(events)
+    assertThat(writer.enqueuedCount).isEqualTo(100)
+    assertThat(writer.writtenCount).isEqualTo(100)
+  }
+
+  @Test
+  fun deletesAreOrderedAfterPendingInserts() {
+    table.setGroupCommitWriter(GroupCommitWriter(table))
+    insertEvent(1)
+    insertEvent(2)
+    table.deleteEvents(1, 1, 1, Common.Event.Kind.SESSION, 1, 2)
+
+    val groups = table.queryUnifiedEventGroups(GetEventGroupsRequest.newBuilder().setKind(Common.Event.Kind.SESSION).build())
+    assertThat(groups).isEmpty()
+  }
+
+  @Test
+  fun commitsOnBatchSize() {
+    val writer = GroupCommitWriter(table, 1024, 10, 60_000)
+    table.setGroupCommitWriter(writer)
+    (1..100L).forEach { insertEvent(it) }
+    writer.shutdown()
+
+    assertThat(writer.writtenCount).isEqualTo(100)
+    // Commit delay is far out so only full batches, plus possibly a trailing one on shutdown, get committed.
+    assertThat(writer.commitCount).isAtLeast(1)
+    assertThat(writer.commitCount).isAtMost(writer.batchCount)
+  }
+
+  @Test
+  fun commitsOnTimeout() {
+    val writer = GroupCommitWriter(table, 1024, 1024, 10)
+    table.setGroupCommitWriter(writer)
+    insertEvent(1)
+    val deadline = System.currentTimeMillis() + 10_000
+    while (writer.commitCount == 0L && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10)
+    }
+    assertThat(writer.commitCount).isEqualTo(1)
+  }
+
+  @Test
+  fun writesAfterShutdownAreExecutedSynchronously() {
+    val writer = GroupCommitWriter(table)
+    table.setGroupCommitWriter(writer)
+    writer.shutdown()
+    val event = insertEvent(1)
+
+    assertThat(writer.enqueuedCount).isEqualTo(0)
+    assertThat(table.queryUnifiedEvents()).containsExactly(event)
+  }
+
+  @Test
+  fun writesOfInterruptedThreadsAreExecutedSynchronously() {
+    // With room for a single write, most writes find the queue full and fail to wait for it since the thread is interrupted.
+    val writer = GroupCommitWriter(table, 1, 1024, 60_000)
+    table.setGroupCommitWriter(writer)
+    Thread.currentThread().interrupt()
+    val events = (1..100L).map { insertEvent(it) }
+
+    assertThat(Thread.interrupted()).isTrue()
+    assertThat(table.queryUnifiedEvents()).containsExactlyElementsIn(events)
+  }
+
+  @Test
+  fun failedWritesAreReportedAndLaterWritesAreExecuted() {
+    val failingTable = object : UnifiedEventsTable() {
+      @Volatile
+      var failInserts = false
+
+      override fun getStatementMap(): MutableMap<UnifiedEventsTable.Statements, PreparedStatement> {
+        val statements = super.getStatementMap()
+        // Without its prepared statement, the insert fails with a runtime exception.
+        return if (failInserts) statements.filterKeys { it != UnifiedEventsTable.Statements.INSERT_EVENT }.toMutableMap() else statements
+      }
+    }
+    failingTable.initialize(database.connection)
+    table = failingTable
+    val writer = GroupCommitWriter(table)
+    table.setGroupCommitWriter(writer)
+    val errors = Collections.synchronizedList(mutableListOf<Throwable>())
+    val callback = DataStoreTable.DataStoreTableErrorCallback { errors.add(it) }
+    DataStoreTable.addDataStoreErrorCallback(callback)
+    try {
+      // Let the writer thread prepare its statements before they start failing.
+      val first = insertEvent(1)
+      writer.flush()
+      failingTable.failInserts = true
+      insertEvent(2)
+      writer.flush()
+      failingTable.failInserts = false
+      val third = insertEvent(3)
+
+      assertThat(errors).isNotEmpty()
+      assertThat(table.queryUnifiedEvents()).containsExactly(first, third)
+    }
+    finally {
+      DataStoreTable.removeDataStoreErrorCallback(callback)
+    }
+  }
+
+  private fun insertEvent(timestamp: Long): Common.Event {
+    val event = Common.Event.newBuilder()
+      .setKind(Common.Event.Kind.SESSION)
+      .setPid(1)
+      .setGroupId(1)
+      .setTimestamp(timestamp)
+      .build()
+    table.insertUnifiedEvent(1, event)
+    return event
+  }
+}
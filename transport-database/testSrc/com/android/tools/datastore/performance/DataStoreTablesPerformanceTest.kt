@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.datastore.performance
+
+import com.android.testutils.TestUtils
+import com.android.tools.datastore.DataStoreDatabase
+import com.android.tools.datastore.FakeLogService
+import com.android.tools.datastore.database.CpuTable
+import com.android.tools.datastore.database.GroupCommitWriter
+import com.android.tools.datastore.database.MemoryLiveAllocationTable
+import com.android.tools.datastore.database.UnifiedEventsTable
+import com.android.tools.perflogger.Benchmark
+import com.android.tools.perflogger.Metric
+import com.android.tools.perflogger.WindowDeviationAnalyzer
+import com.android.tools.profiler.proto.Common
+import com.android.tools.profiler.proto.Cpu
+import com.android.tools.profiler.proto.CpuProfiler
+import com.android.tools.profiler.proto.Memory
+import com.android.tools.profiler.proto.Transport.GetEventGroupsRequest
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.io.File
+import java.time.Instant
+import java.util.Random
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Timings of the tables that take most of the profiler ingest: [UnifiedEventsTable], [CpuTable] and [MemoryLiveAllocationTable].
+ *
+ * Each test feeds a table with a synthetic stream shaped like what the pollers receive from [DEVICE_COUNT] connected devices, then
+ * measures inserts, the range queries the profilers issue while scrolling, or both at once. Every test runs against both
+ * [DataStoreDatabase.Characteristic]s and reports one metric per operation and characteristic, so that changes to the tables or to
+ * the SQLite setup show up in perfgate.
+ */
+@RunWith(Parameterized::class)
+class DataStoreTablesPerformanceTest(private val characteristic: DataStoreDatabase.Characteristic) {
+  companion object {
+    @Parameterized.Parameters(name = "{0}")
+    @JvmStatic
+    fun characteristics() = DataStoreDatabase.Characteristic.values().toList()
+
+    private const val DEVICE_COUNT = 4
+    private const val THREAD_COUNT = 40
+    // Number of threads changing state in every sample of a device.
+    private const val THREAD_CHANGES_PER_SAMPLE = 4
+    private const val ALLOCATIONS_PER_SAMPLE = 200
+    // The first queries prepare statements and warm up the SQLite page cache, we don't want to account for them.
+    private const val WARMUP_QUERY_COUNT = 5
+    private val SAMPLE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(200)
+    private val DURATION = TimeUnit.MINUTES.toNanos(2)
+    private val QUERY_WINDOW = TimeUnit.SECONDS.toNanos(10)
+    private val THREAD_STATES = listOf(Cpu.CpuThreadData.State.RUNNING, Cpu.CpuThreadData.State.SLEEPING, Cpu.CpuThreadData.State.WAITING)
+
+    private val benchmark = Benchmark.Builder("Transport Database Tables (Nanos)").setProject("Android Studio Profilers").build()
+  }
+
+  private val sessions = (0 until DEVICE_COUNT).map {
+    Common.Session.newBuilder().setSessionId(it + 1L).setStreamId(1000L + it).setPid(100 + it).build()
+  }
+  private val metrics = mutableMapOf<String, Metric>()
+  private lateinit var database: DataStoreDatabase
+
+  @Before
+  fun setUp() {
+    val dbFile = File(TestUtils.createTempDirDeletedOnExit().toString(), "tables.sql")
+    database = DataStoreDatabase(dbFile.path, characteristic, FakeLogService())
+  }
+
+  @After
+  fun tearDown() {
+    database.disconnect()
+    metrics.values.forEach {
+      it.setAnalyzers(benchmark, setOf(WindowDeviationAnalyzer.Builder()
+                                         .addMeanTolerance(WindowDeviationAnalyzer.MeanToleranceParams.Builder().build())
+                                         .build()))
+      it.commit()
+    }
+  }
+
+  @Test
+  fun unifiedEventsInsert() {
+    val table = createUnifiedEventsTable()
+    val writer = table.groupCommitWriter!!
+    val stream = UnifiedEventStream()
+    var eventCount = 0
+    for (timestamp in 0..DURATION step SAMPLE_INTERVAL) {
+      val events = stream.next(timestamp)
+      val start = System.nanoTime()
+      events.forEach { (streamId, event) -> table.insertUnifiedEvent(streamId, event) }
+      recordSample("UnifiedEvents-Insert-Per-Event", (System.nanoTime() - start) / events.size)
+      eventCount += events.size
+    }
+    // The enqueue cost above is only half of the story, also report how long it takes for everything to reach the database.
+    val start = System.nanoTime()
+    writer.shutdown()
+    benchmark.log("$characteristic-UnifiedEvents-Drain", System.nanoTime() - start)
+    assertThat(writer.writtenCount).isEqualTo(eventCount.toLong())
+  }
+
+  @Test
+  fun unifiedEventsGroupQueries() {
+    val table = createUnifiedEventsTable()
+    val stream = UnifiedEventStream()
+    for (timestamp in 0..DURATION step SAMPLE_INTERVAL) {
+      stream.next(timestamp).forEach { (streamId, event) -> table.insertUnifiedEvent(streamId, event) }
+    }
+    table.groupCommitWriter!!.shutdown()
+    table.groupCommitWriter = null
+
+    var queryCount = 0
+    forEachQueryWindow { from, to ->
+      for (session in sessions) {
+        for (kind in listOf(Common.Event.Kind.CPU_USAGE, Common.Event.Kind.CPU_THREAD)) {
+          val request = GetEventGroupsRequest.newBuilder()
+            .setStreamId(session.streamId).setPid(session.pid).setKind(kind).setFromTimestamp(from).setToTimestamp(to).build()
+          val start = System.nanoTime()
+          val groups = table.queryUnifiedEventGroups(request)
+          if (queryCount++ >= WARMUP_QUERY_COUNT) {
+            recordSample("UnifiedEvents-Query-${kind.name}", System.nanoTime() - start)
+          }
+          assertThat(groups).isNotEmpty()
+        }
+      }
+    }
+  }
+
+  /**
+   * Queries thread groups while a poller-like thread keeps inserting events, which is what happens when the CPU profiler is scrolled
+   * during a recording.
+   */
+  @Test
+  fun unifiedEventsMixedLoad() {
+    val table = createUnifiedEventsTable()
+    val stream = UnifiedEventStream()
+    // Start with the first half of the stream in the database, the other half is inserted while querying.
+    val halfDuration = DURATION / 2
+    for (timestamp in 0 until halfDuration step SAMPLE_INTERVAL) {
+      stream.next(timestamp).forEach { (streamId, event) -> table.insertUnifiedEvent(streamId, event) }
+    }
+    table.groupCommitWriter!!.flush()
+
+    val executor = Executors.newSingleThreadExecutor()
+    try {
+      val inserts = executor.submit {
+        for (timestamp in halfDuration..DURATION step SAMPLE_INTERVAL) {
+          val events = stream.next(timestamp)
+          val start = System.nanoTime()
+          events.forEach { (streamId, event) -> table.insertUnifiedEvent(streamId, event) }
+          recordSample("UnifiedEvents-Mixed-Insert-Per-Event", (System.nanoTime() - start) / events.size)
+        }
+      }
+      var queryCount = 0
+      while (!inserts.isDone) {
+        for (session in sessions) {
+          val request = GetEventGroupsRequest.newBuilder()
+            .setStreamId(session.streamId).setPid(session.pid).setKind(Common.Event.Kind.CPU_THREAD)
+            .setFromTimestamp(halfDuration - QUERY_WINDOW).setToTimestamp(halfDuration).build()
+          val start = System.nanoTime()
+          table.queryUnifiedEventGroups(request)
+          if (queryCount++ >= WARMUP_QUERY_COUNT) {
+            recordSample("UnifiedEvents-Mixed-Query-CPU_THREAD", System.nanoTime() - start)
+          }
+        }
+      }
+      inserts.get()
+    }
+    finally {
+      executor.shutdownNow()
+      table.groupCommitWriter!!.shutdown()
+    }
+  }
+
+  @Test
+  fun cpuThreadActivities() {
+    val table = CpuTable()
+    table.initialize(database.connection)
+    val random = Random(0x1234)
+    for (timestamp in 0..DURATION step SAMPLE_INTERVAL) {
+      val start = System.nanoTime()
+      for (session in sessions) {
+        repeat(THREAD_CHANGES_PER_SAMPLE) {
+          val tid = session.pid + 1 + random.nextInt(THREAD_COUNT)
+          val activity = CpuProfiler.GetThreadsResponse.ThreadActivity.newBuilder()
+            .setTimestamp(timestamp + it).setNewState(THREAD_STATES[random.nextInt(THREAD_STATES.size)]).build()
+          table.insertActivities(session, tid, "Thread $tid", listOf(activity))
+        }
+      }
+      recordSample("Cpu-Insert-Activities-Per-Sample", System.nanoTime() - start)
+    }
+    database.connection.commit()
+
+    var queryCount = 0
+    forEachQueryWindow { from, to ->
+      for (session in sessions) {
+        val request = CpuProfiler.GetThreadsRequest.newBuilder().setSession(session).setStartTimestamp(from).setEndTimestamp(to).build()
+        val start = System.nanoTime()
+        val threads = table.getThreadsDataByRequest(request)
+        if (queryCount++ >= WARMUP_QUERY_COUNT) {
+          recordSample("Cpu-Query-Threads", System.nanoTime() - start)
+        }
+        assertThat(threads).isNotEmpty()
+      }
+    }
+  }
+
+  @Test
+  fun memoryLiveAllocations() {
+    val table = MemoryLiveAllocationTable(FakeLogService())
+    table.initialize(database.connection)
+    val random = Random(0x5678)
+    for (timestamp in 0..DURATION step SAMPLE_INTERVAL) {
+      val start = System.nanoTime()
+      for (session in sessions) {
+        val batch = Memory.BatchAllocationEvents.newBuilder().setTimestamp(timestamp)
+        repeat(ALLOCATIONS_PER_SAMPLE) {
+          batch.addEvents(Memory.AllocationEvent.newBuilder()
+                            .setTimestamp(timestamp)
+                            .setAllocData(Memory.AllocationEvent.Allocation.newBuilder()
+                                            .setTag(random.nextInt())
+                                            .setClassTag(random.nextInt(500))
+                                            .setStackId(random.nextInt(2000))
+                                            .setThreadId(random.nextInt(THREAD_COUNT))
+                                            .setSize(random.nextInt(4096).toLong())))
+        }
+        table.insertAllocationEvents(session, batch.build())
+      }
+      recordSample("Memory-Insert-Allocations-Per-Sample", System.nanoTime() - start)
+    }
+    database.connection.commit()
+
+    var queryCount = 0
+    forEachQueryWindow { from, to ->
+      for (session in sessions) {
+        val start = System.nanoTime()
+        val batches = table.getAllocationEvents(session, from, to)
+        if (queryCount++ >= WARMUP_QUERY_COUNT) {
+          recordSample("Memory-Query-Allocations", System.nanoTime() - start)
+        }
+        assertThat(batches).isNotEmpty()
+      }
+    }
+  }
+
+  private fun createUnifiedEventsTable(): UnifiedEventsTable {
+    val table = UnifiedEventsTable()
+    table.initialize(database.connection)
+    // Same setup as TransportService.
+    table.groupCommitWriter = GroupCommitWriter(table)
+    return table
+  }
+
+  /**
+   * Calls [block] with overlapping windows of [QUERY_WINDOW] covering the whole stream, as when scrolling through a recording.
+   */
+  private fun forEachQueryWindow(block: (Long, Long) -> Unit) {
+    for (from in 0 until DURATION step QUERY_WINDOW / 2) {
+      block(from, from + QUERY_WINDOW)
+    }
+  }
+
+  private fun recordSample(name: String, value: Long) {
+    val metric = synchronized(metrics) { metrics.getOrPut("$characteristic-$name") { Metric("$characteristic-$name") } }
+    synchronized(metric) {
+      metric.addSamples(benchmark, Metric.MetricSample(Instant.now().toEpochMilli(), value))
+    }
+  }
+
+  /**
+   * Generates the unified events of every device for one sample: CPU and memory usage, plus a few thread state changes. Thread
+   * groups stay open across samples like real thread activity, so range queries have to look before and after their window.
+   */
+  private inner class UnifiedEventStream {
+    private val random = Random(0x9abc)
+
+    fun next(timestamp: Long): List<Pair<Long, Common.Event>> {
+      val events = mutableListOf<Pair<Long, Common.Event>>()
+      for (session in sessions) {
+        val usage = Cpu.CpuUsageData.newBuilder()
+          .setEndTimestamp(timestamp)
+          .setElapsedTimeInMillisec(TimeUnit.NANOSECONDS.toMillis(timestamp))
+          .setAppCpuTimeInMillisec(random.nextInt(100).toLong())
+          .setSystemCpuTimeInMillisec(random.nextInt(400).toLong())
+        events.add(session.streamId to event(session, Common.Event.Kind.CPU_USAGE, session.pid.toLong(), timestamp)
+          .setCpuUsage(usage).build())
+        events.add(session.streamId to event(session, Common.Event.Kind.MEMORY_USAGE, session.pid.toLong(), timestamp)
+          .setMemoryUsage(Memory.MemoryUsageData.newBuilder().setJavaMem(random.nextInt(1 shl 20))).build())
+        repeat(THREAD_CHANGES_PER_SAMPLE) {
+          val tid = session.pid + 1 + random.nextInt(THREAD_COUNT)
+          val thread = Cpu.CpuThreadData.newBuilder().setTid(tid).setName("Thread $tid")
+            .setState(THREAD_STATES[random.nextInt(THREAD_STATES.size)])
+          events.add(session.streamId to event(session, Common.Event.Kind.CPU_THREAD, tid.toLong(), timestamp + it)
+            .setCpuThread(thread).build())
+        }
+      }
+      return events
+    }
+
+    private fun event(session: Common.Session, kind: Common.Event.Kind, groupId: Long, timestamp: Long) =
+      Common.Event.newBuilder().setPid(session.pid).setKind(kind).setGroupId(groupId).setTimestamp(timestamp)
+  }
+}
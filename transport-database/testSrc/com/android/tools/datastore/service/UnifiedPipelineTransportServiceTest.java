@@ -21,8 +21,10 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.android.tools.datastore.DataStoreDatabase;
 import com.android.tools.datastore.DataStorePollerTest;
 import com.android.tools.datastore.DataStoreService;
+import com.android.tools.datastore.FakeLogService;
 import com.android.tools.datastore.TestGrpcService;
 import com.android.tools.datastore.database.UnifiedEventsTable;
 import com.android.tools.idea.io.grpc.Channel;
@@ -42,6 +44,12 @@ import com.android.tools.profiler.proto.Transport.TimeResponse;
 import com.android.tools.profiler.proto.Transport.VersionRequest;
 import com.android.tools.profiler.proto.Transport.VersionResponse;
 import com.android.tools.profiler.proto.TransportServiceGrpc;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -84,6 +92,36 @@ public class UnifiedPipelineTransportServiceTest extends DataStorePollerTest {
     validateResponse(observer, TimeResponse.getDefaultInstance());
   }
 
+  @Test
+  public void pendingEventsAreCommittedToThePreviousBackingStore() throws IOException, SQLException {
+    File oldDbFile = File.createTempFile("UnifiedPipelineTransportServiceTest", "mysql");
+    File newDbFile = File.createTempFile("UnifiedPipelineTransportServiceTest", "mysql");
+    oldDbFile.deleteOnExit();
+    newDbFile.deleteOnExit();
+    DataStoreDatabase oldDatabase =
+      new DataStoreDatabase(oldDbFile.getAbsolutePath(), DataStoreDatabase.Characteristic.DURABLE, new FakeLogService());
+    DataStoreDatabase newDatabase =
+      new DataStoreDatabase(newDbFile.getAbsolutePath(), DataStoreDatabase.Characteristic.DURABLE, new FakeLogService());
+    UnifiedEventsTable table = new UnifiedEventsTable();
+    TransportService transportService = new TransportService(myDataStore, table, Runnable::run);
+    try {
+      transportService.setBackingStore(DataStoreService.BackingNamespace.DEFAULT_SHARED_NAMESPACE, oldDatabase.getConnection());
+      table.insertUnifiedEvent(1, Event.newBuilder().setKind(Event.Kind.SESSION).setTimestamp(1).build());
+      transportService.setBackingStore(DataStoreService.BackingNamespace.DEFAULT_SHARED_NAMESPACE, newDatabase.getConnection());
+
+      // A separate connection only sees the rows that were committed.
+      try (Connection connection = DriverManager.getConnection(String.format("jdbc:sqlite:%s", oldDbFile.getPath()))) {
+        assertThat(countEvents(connection)).isEqualTo(1);
+      }
+      assertThat(countEvents(newDatabase.getConnection())).isEqualTo(0);
+    }
+    finally {
+      transportService.shutdown();
+      oldDatabase.disconnect();
+      newDatabase.disconnect();
+    }
+  }
+
   @Test
   public void testGetVersion() {
     StreamObserver<VersionResponse> observer = mock(StreamObserver.class);
@@ -170,6 +208,12 @@ public class UnifiedPipelineTransportServiceTest extends DataStorePollerTest {
     assertThat(expected).isEqualTo(actual);
   }
 
+  private static int countEvents(Connection connection) throws SQLException {
+    try (ResultSet result = connection.createStatement().executeQuery("SELECT COUNT(*) FROM [UnifiedEventsTable]")) {
+      return result.getInt(1);
+    }
+  }
+
   private static class FakeTransportService extends TransportServiceGrpc.TransportServiceImplBase {
 
     private Command myLastCommandReceived;